@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dselent.bigarraylist.BigArrayList;
+
+/**
+ * Measures reading and changing a full list: sequential and random gets, random sets, and a remove-heavy mix.
+ * Random accesses miss the cache whenever the list holds more blocks than the cache, so they measure block swaps as much as the accesses themselves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessBenchmark
+{
+	private ListParameters parameters;
+	private BigArrayList<Serializable> list;
+	private SplittableRandom random;
+	private long next;
+	
+	@Setup(Level.Trial)
+	public void setUp(ListParameters parameters) throws IOException
+	{
+		this.parameters = parameters;
+		list = parameters.newFullList(0);
+		random = new SplittableRandom(1);
+		next = 0;
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		ListParameters.delete(list);
+	}
+	
+	@Benchmark
+	public Serializable sequentialGet()
+	{
+		if(next >= list.size())
+		{
+			next = 0;
+		}
+		
+		return list.get(next++);
+	}
+	
+	@Benchmark
+	public Serializable randomGet()
+	{
+		return list.get(random.nextLong(list.size()));
+	}
+	
+	@Benchmark
+	public Serializable randomSet()
+	{
+		return list.set(random.nextLong(list.size()), parameters.element(random.nextInt(parameters.elements)));
+	}
+	
+	/**
+	 * Removes three random elements for every one added, then adds the rest back, so the list keeps its length
+	 * while most of the operations are removals that shift the elements after them
+	 */
+	@Benchmark
+	public Serializable removeHeavyMix()
+	{
+		Serializable removed = list.remove(random.nextLong(list.size()));
+		list.remove(random.nextLong(list.size()));
+		list.remove(random.nextLong(list.size()));
+		list.add(removed);
+		list.add(parameters.element(random.nextInt(parameters.elements)));
+		list.add(parameters.element(random.nextInt(parameters.elements)));
+		return removed;
+	}
+}
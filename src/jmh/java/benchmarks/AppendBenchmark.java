@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dselent.bigarraylist.BigArrayList;
+
+/**
+ * Measures adding elements to the end of a list, which fills the last block and writes each block once it is swapped out.
+ * Every iteration starts from an empty list, so the files written do not grow with the length of the run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppendBenchmark
+{
+	private ListParameters parameters;
+	private BigArrayList<Serializable> list;
+	private int next;
+	
+	@Setup(Level.Iteration)
+	public void setUp(ListParameters parameters) throws IOException
+	{
+		this.parameters = parameters;
+		list = parameters.newList();
+		next = 0;
+	}
+	
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException
+	{
+		ListParameters.delete(list);
+	}
+	
+	@Benchmark
+	public boolean append()
+	{
+		return list.add(parameters.element(next++));
+	}
+}
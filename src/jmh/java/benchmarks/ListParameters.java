@@ -0,0 +1,129 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.dselent.bigarraylist.BigArrayList;
+import com.dselent.bigarraylist.FixedWidthCodec;
+
+/**
+ * The parameters shared by every benchmark: the shape of the cache, the type of the elements, and where the blocks are stored.
+ * Select a subset on the command line with -p, e.g. -p blockSize=10000 -p elementType=IntegerCodec.
+ */
+@State(Scope.Benchmark)
+public class ListParameters
+{
+	/**
+	 * Number of elements in each block
+	 */
+	@Param({"10000", "100000"})
+	public int blockSize;
+	
+	/**
+	 * Number of blocks kept in memory
+	 */
+	@Param({"4", "32"})
+	public int cacheBlocks;
+	
+	/**
+	 * Integer and String elements are serialized, IntegerCodec elements are Integers written with {@link FixedWidthCodec#INTEGER}
+	 */
+	@Param({"Integer", "IntegerCodec", "String"})
+	public String elementType;
+	
+	/**
+	 * temp lists delete their files when cleared, persistent lists also write a manifest and force their blocks when flushed
+	 */
+	@Param({"temp", "persistent"})
+	public String storage;
+	
+	/**
+	 * Number of elements in the lists that are read and changed
+	 */
+	@Param({"1000000"})
+	public int elements;
+	
+	/**
+	 * Creates an empty list in a new temporary folder with the parameters of the benchmark
+	 */
+	@SuppressWarnings("unchecked")
+	public BigArrayList<Serializable> newList() throws IOException
+	{
+		String folder = Files.createTempDirectory("bigarraylist-jmh").toString();
+		BigArrayList<Serializable> list = new BigArrayList<>(blockSize, cacheBlocks, folder, "persistent".equals(storage));
+		
+		if("IntegerCodec".equals(elementType))
+		{
+			list.setFixedWidthCodec((FixedWidthCodec<Serializable>)(FixedWidthCodec<?>)FixedWidthCodec.INTEGER);
+		}
+		
+		return list;
+	}
+	
+	/**
+	 * Creates a full list of {@link #elements} elements in random order
+	 */
+	public BigArrayList<Serializable> newFullList(long seed) throws IOException
+	{
+		BigArrayList<Serializable> list = newList();
+		SplittableRandom random = new SplittableRandom(seed);
+		
+		for(int i=0; i<elements; i++)
+		{
+			list.add(element(random.nextInt(elements)));
+		}
+		
+		list.flushMemory();
+		return list;
+	}
+	
+	/**
+	 * Returns the element of the benchmark's element type for a number
+	 */
+	public Serializable element(int number)
+	{
+		Serializable element = number;
+		
+		if("String".equals(elementType))
+		{
+			element = "element-" + number;
+		}
+		
+		return element;
+	}
+	
+	/**
+	 * Returns the natural order of the elements, every element type is Comparable
+	 */
+	@SuppressWarnings("unchecked")
+	public Comparator<Serializable> comparator()
+	{
+		return (element1, element2) -> ((Comparable<Object>)element1).compareTo(element2);
+	}
+	
+	/**
+	 * Deletes the files of a list and its folder
+	 */
+	public static void delete(BigArrayList<Serializable> list) throws IOException
+	{
+		String folder = list.getFilePath();
+		list.clearMemory();
+		
+		File[] files = new File(folder).listFiles();
+		
+		for(int i=0; files != null && i<files.length; i++)
+		{
+			files[i].delete();
+		}
+		
+		new File(folder).delete();
+	}
+}
@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dselent.bigarraylist.BigArrayList;
+
+/**
+ * Measures sorting a full list of random elements in place with the external merge sort.
+ * Each sort is timed once on a new unsorted list, so the time of filling the list is not measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SortBenchmark
+{
+	private ListParameters parameters;
+	private BigArrayList<Serializable> list;
+	private long seed;
+	
+	@Setup(Level.Invocation)
+	public void setUp(ListParameters parameters) throws IOException
+	{
+		this.parameters = parameters;
+		list = parameters.newFullList(seed++);
+	}
+	
+	@TearDown(Level.Invocation)
+	public void tearDown() throws IOException
+	{
+		ListParameters.delete(list);
+	}
+	
+	@Benchmark
+	public BigArrayList<Serializable> sortInPlace() throws IOException
+	{
+		list.sortInPlace(parameters.comparator());
+		return list;
+	}
+}
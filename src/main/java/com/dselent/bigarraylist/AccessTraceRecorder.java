@@ -0,0 +1,206 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Records the accesses of a BigArrayList to a trace file, which {@link CacheSimulator} replays under other cache settings.
+ * <p>
+ * Each access is recorded as the index of its element, whether it was a read or a write, and when it happened.
+ * The index rather than the block number is recorded so the trace can be replayed with any block size.
+ * The file starts with a header of the magic number "BAT1", the block size of the list, and the wall clock time in milliseconds the trace started.
+ * Each record then holds two variable length integers, 7 bits to a byte:
+ * the difference from the last index, zigzag encoded and shifted left by one with the lowest bit set for writes,
+ * and the microseconds since the last record.
+ * A sequential scan takes about two bytes per access.
+ * <p>
+ * Records are encoded into a buffer that is written once full, so recording costs a clock read and a few array stores per access.
+ * Like BigArrayList, a recorder is not thread safe.
+ * 
+ * @author Douglas Selent
+ */
+class AccessTraceRecorder
+{
+	/**
+	 * Magic number at the start of a trace file, "BAT1"
+	 */
+	protected static final int TRACE_MAGIC = 0x42415431;
+	
+	/**
+	 * Size of the header at the start of a trace file
+	 */
+	protected static final int TRACE_HEADER_SIZE = 16;
+	
+	/**
+	 * Size of the buffer records are encoded into
+	 */
+	private static final int BUFFER_SIZE = 65536;
+	
+	/**
+	 * The most bytes a record takes, two variable length integers of at most 10 bytes each
+	 */
+	private static final int MAX_RECORD_SIZE = 20;
+	
+	/**
+	 * The trace file
+	 */
+	private final FileOutputStream outputStream;
+	
+	/**
+	 * The records not yet written
+	 */
+	private final byte[] buffer;
+	
+	/**
+	 * Where the next record is encoded in the buffer
+	 */
+	private int position;
+	
+	/**
+	 * When the trace started, the times of the records are measured from here
+	 */
+	private final long startNanos;
+	
+	/**
+	 * The index of the element of the last record
+	 */
+	private long lastIndex;
+	
+	/**
+	 * The time of the last record in microseconds since the trace started
+	 */
+	private long lastMicros;
+	
+	/**
+	 * The number of records
+	 */
+	private long records;
+	
+	/**
+	 * Creates a trace file, replacing any file with the same path
+	 * 
+	 * @param tracePath The path of the trace file
+	 * @param blockSize The block size of the list
+	 * @throws IOException For I/O errors
+	 */
+	protected AccessTraceRecorder(String tracePath, int blockSize) throws IOException
+	{
+		outputStream = new FileOutputStream(tracePath);
+		buffer = new byte[BUFFER_SIZE];
+		
+		ByteBuffer header = ByteBuffer.wrap(buffer);
+		header.putInt(TRACE_MAGIC);
+		header.putInt(blockSize);
+		header.putLong(System.currentTimeMillis());
+		
+		position = TRACE_HEADER_SIZE;
+		startNanos = System.nanoTime();
+		lastIndex = 0;
+		lastMicros = 0;
+		records = 0;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the number of accesses recorded
+	 */
+	protected long getRecords()
+	{
+		return records;
+	}
+	
+	/**
+	 * Records an access
+	 * 
+	 * @param index The index of the element
+	 * @param write Whether or not the access changed the block
+	 * @throws IOException For I/O errors writing a full buffer
+	 */
+	protected void record(long index, boolean write) throws IOException
+	{
+		if(position > BUFFER_SIZE - MAX_RECORD_SIZE)
+		{
+			flush();
+		}
+		
+		long micros = (System.nanoTime() - startNanos) / 1000;
+		long indexDelta = index - lastIndex;
+		
+		//zigzag encoding keeps small steps backwards as short as small steps forwards
+		putVarLong((((indexDelta << 1) ^ (indexDelta >> 63)) << 1) | (write ? 1 : 0));
+		putVarLong(micros - lastMicros);
+		
+		lastIndex = index;
+		lastMicros = micros;
+		records++;
+	}
+	
+	/**
+	 * Encodes a value 7 bits at a time, lowest bits first, the highest bit of each byte is set if more bytes follow
+	 * 
+	 * @param value The value, treated as unsigned
+	 */
+	private void putVarLong(long value)
+	{
+		long remaining = value;
+		
+		while((remaining & ~0x7FL) != 0)
+		{
+			buffer[position] = (byte)((remaining & 0x7F) | 0x80);
+			position++;
+			remaining = remaining >>> 7;
+		}
+		
+		buffer[position] = (byte)remaining;
+		position++;
+	}
+	
+	/**
+	 * Writes the buffered records to the trace file
+	 * 
+	 * @throws IOException For I/O errors
+	 */
+	protected void flush() throws IOException
+	{
+		outputStream.write(buffer, 0, position);
+		position = 0;
+	}
+	
+	/**
+	 * Writes the buffered records and closes the trace file
+	 * 
+	 * @throws IOException For I/O errors
+	 */
+	protected void close() throws IOException
+	{
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			outputStream.close();
+		}
+	}
+}
@@ -19,12 +19,27 @@
 
 package com.dselent.bigarraylist;
 
+import java.io.Closeable;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * A BigArrayList acts the same way a regular {@link java.util.ArrayList} would for data sizes that cannot fit in memory all at once.
@@ -65,7 +80,7 @@ import java.util.List;
  *
  * @param <E> Generic type
  */
-public class BigArrayList<E extends Serializable>
+public class BigArrayList<E extends Serializable> implements Closeable
 {
 	/**
 	 * The ArrayList of cache blocks.
@@ -82,6 +97,11 @@ public class BigArrayList<E extends Serializable>
 	 * The CacheMapping object used to map contents in memory to contents on disk
 	 */
 	private final CacheMapping<E> cacheMapping;
+	
+	/**
+	 * The FenceIndex object holding the first and last element of each block, used to search sorted lists
+	 */
+	private final FenceIndex<E> fenceIndex;
 
 	/**
 	 * Size of the whole list including what is and is not currently in memory
@@ -117,6 +137,11 @@ public class BigArrayList<E extends Serializable>
 	 * The maximum number of cache blocks = the integer limit of 2^31 - 1
 	 */
 	private static final int MAX_CACHE_BLOCKS = Integer.MAX_VALUE;
+	
+	/**
+	 * The most full blocks whose size on disk is used to estimate the size of an element = 16
+	 */
+	private static final int LAYOUT_SAMPLE_BLOCKS = 16;
 
 	/**
 	 * The size of the cache blocks
@@ -137,6 +162,11 @@ public class BigArrayList<E extends Serializable>
 	 * In this case the BigArrayList is considered a dead object even though it is not technically considered dead by Java.
 	 */
 	private boolean liveObject;
+	
+	/**
+	 * The name the list's MBean is registered under, or null if it is not registered
+	 */
+	private ObjectName mBeanName;
 
 	/**
 	 * Constructs a BigArrayList with default values for the number of cache blocks, size of each cache block, folder path, and serialization method.
@@ -158,6 +188,7 @@ public class BigArrayList<E extends Serializable>
 			arrayLists.add(arrayList);
 		}
 
+		fenceIndex = new FenceIndex<>();
 		wholeListSize = 0;
 		liveObject = true;
 	}
@@ -185,6 +216,7 @@ public class BigArrayList<E extends Serializable>
 			arrayLists.add(arrayList);
 		}
 
+		fenceIndex = new FenceIndex<>();
 		wholeListSize = 0;
 		liveObject = true;
 	}
@@ -225,6 +257,7 @@ public class BigArrayList<E extends Serializable>
 			arrayLists.add(arrayList);
 		}
 
+		fenceIndex = new FenceIndex<>();
 		wholeListSize = 0;
 		liveObject = true;
 	}
@@ -264,9 +297,211 @@ public class BigArrayList<E extends Serializable>
 			arrayLists.add(arrayList);
 		}
 
+		fenceIndex = new FenceIndex<>();
+		wholeListSize = 0;
+		liveObject = true;
+	}
+
+	/**
+	 * Constructs a BigArrayList with the size and number of cache blocks and the folder path to write to, optionally persistent.
+	 * The files of a persistent list are kept when the program exits.  Each call to {@link #flushMemory()} or {@link #close()}
+	 * writes a manifest next to the block files, and {@link #open(String)} restores the list from its folder as of the last manifest.
+	 * 
+	 * @param blockSize Size of each cache block
+	 * @param cacheBlocks Number of cache blocks stored in memory at a given time
+	 * @param folderPath The folder path to write to
+	 * @param persistent Whether or not the list's files are kept when the program exits
+	 */
+	public BigArrayList(int blockSize, int cacheBlocks, String folderPath, boolean persistent)
+	{
+		if(blockSize < MIN_CACHE_SIZE || blockSize > MAX_CACHE_SIZE)
+		{
+			throw new IllegalArgumentException("Cache size is " + blockSize + " but must be >= " + MIN_CACHE_SIZE + " and <= " + MAX_CACHE_SIZE);
+		}
+
+		if(cacheBlocks < MIN_CACHE_BLOCKS || cacheBlocks > MAX_CACHE_BLOCKS)
+		{
+			throw new IllegalArgumentException("Number of cache blocks is " + cacheBlocks +  " but must be >= " + MIN_CACHE_BLOCKS + " and <= " + MAX_CACHE_BLOCKS);
+		}
+	
+		this.blockSize = blockSize;
+		this.cacheBlocks = cacheBlocks;
+		
+		softMapping = new SoftMapping<>();
+		cacheMapping = new CacheMapping<>(this, blockSize, cacheBlocks, new FileAccessor<>(folderPath, persistent));
+		
+		arrayLists = new ArrayList<>();
+
+		for(int i=0; i<cacheBlocks; i++)
+		{
+			ArrayList<E> arrayList = new ArrayList<>();
+			arrayList.ensureCapacity(blockSize);
+			arrayLists.add(arrayList);
+		}
+
+		fenceIndex = new FenceIndex<>();
+		wholeListSize = 0;
+		liveObject = true;
+	}
+
+	/**
+	 * Constructs a BigArrayList whose blocks are striped across several folders, optionally persistent.
+	 * With each folder on a different storage device, flushes, parallel scans, and snapshots use all devices at once.
+	 * A persistent striped list keeps its manifest in the first folder and is reopened with {@link #open(String)} on that folder.
+	 * 
+	 * @param blockSize Size of each cache block
+	 * @param cacheBlocks Number of cache blocks stored in memory at a given time
+	 * @param folderPaths The folder paths to write to, each folder must be different
+	 * @param placement How blocks are assigned to the folders
+	 * @param persistent Whether or not the list's files are kept when the program exits
+	 */
+	public BigArrayList(int blockSize, int cacheBlocks, List<String> folderPaths, BlockPlacement placement, boolean persistent)
+	{
+		if(blockSize < MIN_CACHE_SIZE || blockSize > MAX_CACHE_SIZE)
+		{
+			throw new IllegalArgumentException("Cache size is " + blockSize + " but must be >= " + MIN_CACHE_SIZE + " and <= " + MAX_CACHE_SIZE);
+		}
+
+		if(cacheBlocks < MIN_CACHE_BLOCKS || cacheBlocks > MAX_CACHE_BLOCKS)
+		{
+			throw new IllegalArgumentException("Number of cache blocks is " + cacheBlocks +  " but must be >= " + MIN_CACHE_BLOCKS + " and <= " + MAX_CACHE_BLOCKS);
+		}
+		
+		FileAccessor.checkFolderPaths(folderPaths);
+	
+		this.blockSize = blockSize;
+		this.cacheBlocks = cacheBlocks;
+		
+		softMapping = new SoftMapping<>();
+		cacheMapping = new CacheMapping<>(this, blockSize, cacheBlocks, new FileAccessor<>(folderPaths, placement, persistent));
+		
+		arrayLists = new ArrayList<>();
+
+		for(int i=0; i<cacheBlocks; i++)
+		{
+			ArrayList<E> arrayList = new ArrayList<>();
+			arrayList.ensureCapacity(blockSize);
+			arrayLists.add(arrayList);
+		}
+
+		fenceIndex = new FenceIndex<>();
 		wholeListSize = 0;
 		liveObject = true;
 	}
+	
+	/**
+	 * Constructs a BigArrayList over block files that already exist, such as a reopened persistent list or a snapshot.
+	 * No block is read until it is used.
+	 * 
+	 * @param fileAccessor The FileAccessor bound to the list's memory instance
+	 * @param manifest The manifest of the list
+	 */
+	@SuppressWarnings("unchecked")
+	//must use unchecked warning because the manifest is not generically typed
+	private BigArrayList(FileAccessor<E> fileAccessor, ListManifest manifest)
+	{
+		blockSize = manifest.getBlockSize();
+		cacheBlocks = manifest.getCacheBlocks();
+		fileAccessor.setCodec((FixedWidthCodec<E>)manifest.getCodec());
+		
+		softMapping = new SoftMapping<>();
+		cacheMapping = new CacheMapping<>(this, blockSize, cacheBlocks, fileAccessor);
+		
+		arrayLists = new ArrayList<>();
+
+		for(int i=0; i<cacheBlocks; i++)
+		{
+			ArrayList<E> arrayList = new ArrayList<>();
+			arrayList.ensureCapacity(blockSize);
+			arrayLists.add(arrayList);
+		}
+
+		fenceIndex = new FenceIndex<>();
+		wholeListSize = manifest.getSize();
+		liveObject = true;
+		
+		//the fence keys are not stored, binarySearch rebuilds them
+		if(wholeListSize > 0)
+		{
+			fenceIndex.invalidate();
+		}
+		
+		//the summaries are only used once zone maps are enabled with a comparator of the same name
+		if(manifest.getZoneMapName() != null && manifest.getZoneSummaries() != null)
+		{
+			cacheMapping.setStoredZoneMap(new ZoneMap<>(null, manifest.getZoneMapName(), (Map<Integer, BlockSummary<E>>)manifest.getZoneSummaries()));
+		}
+	}
+	
+	/**
+	 * Reopens the only persistent BigArrayList in a folder, see {@link #open(String, int)}
+	 * 
+	 * @param <T> Generic type of the list's elements
+	 * @param folderPath The folder path holding the list's files
+	 * @return Returns the reopened list
+	 * @throws IOException If the folder holds no persistent list or the manifest cannot be read
+	 * @throws IllegalArgumentException If the folder holds more than one persistent list
+	 */
+	public static <T extends Serializable> BigArrayList<T> open(String folderPath) throws IOException
+	{
+		List<Integer> instances = FileAccessor.findManifestInstances(folderPath);
+		
+		if(instances.isEmpty())
+		{
+			throw new FileNotFoundException("No persistent BigArrayList in " + folderPath);
+		}
+		
+		if(instances.size() > 1)
+		{
+			throw new IllegalArgumentException("Found " + instances.size() + " persistent BigArrayLists in " + folderPath + ", use open(folderPath, memoryInstance) with one of " + instances);
+		}
+		
+		return open(folderPath, instances.get(0));
+	}
+	
+	/**
+	 * Reopens a persistent BigArrayList as of the last time its manifest was written by {@link #flushMemory()} or {@link #close()}.
+	 * Only the manifest and the headers of the block files are read, blocks are read from disk as they are used.
+	 * If the program exited without closing the list, changes made after the last flush are undone first.
+	 * The caller is responsible for using the same element type the list was created with.
+	 * 
+	 * @param <T> Generic type of the list's elements
+	 * @param folderPath The folder path holding the list's files
+	 * @param memoryInstance The memory instance of the list, see {@link #getMemoryInstance()}
+	 * @return Returns the reopened list
+	 * @throws IOException If the manifest does not exist or cannot be read, or a block file is missing or truncated
+	 */
+	public static <T extends Serializable> BigArrayList<T> open(String folderPath, int memoryInstance) throws IOException
+	{
+		FileAccessor<T> fileAccessor = new FileAccessor<>(folderPath, memoryInstance);
+		Object manifest = null;
+		
+		try
+		{
+			manifest = fileAccessor.readObject(FileAccessor.MANIFEST_AREA, 0);
+		}
+		catch(ClassNotFoundException e)
+		{
+			throw new IOException(e);
+		}
+		
+		if(!(manifest instanceof ListManifest))
+		{
+			throw new FileNotFoundException("No persistent BigArrayList with memory instance " + memoryInstance + " in " + folderPath);
+		}
+		
+		ListManifest listManifest = (ListManifest)manifest;
+		int usedBlocks = (int)((listManifest.getSize() + listManifest.getBlockSize() - 1) / listManifest.getBlockSize());
+		
+		//the first folder may have moved since the manifest was written, the folder it was found in is used instead
+		List<String> folderPaths = new ArrayList<>(listManifest.getFolderPaths());
+		folderPaths.set(0, folderPath);
+		
+		FileAccessor<T> stripedAccessor = new FileAccessor<>(folderPaths, listManifest.getPlacement(), memoryInstance);
+		stripedAccessor.recover(listManifest, usedBlocks);
+		
+		return new BigArrayList<>(stripedAccessor, listManifest);
+	}
 
 	////////////////////////////////////////////////////////////////////////////////////////////////
 	
@@ -278,6 +513,14 @@ public class BigArrayList<E extends Serializable>
 		return cacheMapping;
 	}
 	
+	/**
+	 * @return Returns the associated FenceIndex object
+	 */
+	protected FenceIndex<E> getFenceIndex()
+	{
+		return fenceIndex;
+	}
+	
 	/**
 	 * @return Returns the number of blocks in memory at a time
 	 */
@@ -401,318 +644,1251 @@ public class BigArrayList<E extends Serializable>
 	 */
 	public void clearMemory() throws IOException
 	{
+		unregisterMBean();
+		stopAccessTrace();
 		cacheMapping.clearMemory();
 		liveObject = false;
 	}
 
 	/**
-	 * Flushes all data in memory to disk
+	 * Flushes all data in memory to disk.
+	 * For a persistent list, pending shifts from removals are applied first, and the manifest is written afterwards,
+	 * so the list can be reopened in its current state with {@link #open(String)}.
+	 * Whether the files are also forced to the storage device depends on the {@link DurabilityMode}.
 	 */
 	public void flushMemory()
 	{
+		if(isPersistent())
+		{
+			purgeActionBuffer();
+		}
+		
 		cacheMapping.flushCache();
-	}
 		
-	/**
-	 * Sorts the BigArrayList.  Note that the usage mimics Collections.sort() except that the sorted list is returned.
-	 * The caller must set their list to equal the return value (similar to String concatenation), ex:  sortedList = BigArrayList.sort(sortedList);
-	 * 
-	 * @param unsortedList The list to be sorted
-	 * @return The list in sorted order
-	 * @throws IOException
-	 */
-	public static<T extends Comparable<? super T> & Serializable> BigArrayList<T> sort(BigArrayList<T> unsortedList) throws IOException
-	{
-		return sort(unsortedList, Comparator.naturalOrder());
+		if(isPersistent())
+		{
+			writeManifest();
+		}
 	}
 	
 	/**
-	 * Sorts the BigArrayList.  Note that the usage mimics Collections.sort() except that the sorted list is returned.
-	 * The caller must set their list to equal the return value (similar to String concatenation), ex:  sortedList = BigArrayList.sort(sortedList);
+	 * Closes the list.  A persistent list is flushed and its manifest written, so it can be reopened with {@link #open(String)}.
+	 * Any other list has its contents deleted from disk, as with {@link #clearMemory()}.
+	 * The object should not be used anymore once this method is called.
 	 * 
-	 * @param unsortedList unsortedList The list to be sorted
-	 * @param comparator How to compare the elements in the list
-	 * @return The list in sorted order
-	 * @throws IOException
+	 * @throws IOException For I/O error
 	 */
-	public static<T extends Serializable> BigArrayList<T> sort(BigArrayList<T> unsortedList, Comparator<? super T> comparator) throws IOException
+	@Override
+	public void close() throws IOException
 	{
-		if(unsortedList.size() <= 1)
-		{
-			return unsortedList;
-		}
-		else
+		if(liveObject)
 		{
-			unsortedList.purgeActionBuffer();
-				
-			CacheMapping<T> unsortedCacheMapping = unsortedList.getCacheMapping();
-			int blockSize = unsortedList.getBlockSize();
-			int cacheBlocks = unsortedList.getNumberOfBlocks();
-			int usedCacheBlocks = unsortedList.getNumberOfUsedBlocks();
-			String filePath = unsortedList.getFilePath();
-			
-			BigArrayList<T> sortedList = new BigArrayList<T>(blockSize, cacheBlocks, filePath);
-				
-			for(int i=usedCacheBlocks-1; i>=0; i--)
+			if(isPersistent())
 			{
-				int cacheBlockSpot = -1;
-	
-				if(!unsortedCacheMapping.isFileInCache(i))
-				{
-					unsortedCacheMapping.bringFileIntoCache(i);
-				}
-		
-				cacheBlockSpot = unsortedCacheMapping.getCacheBlockSpot(i);
-				unsortedCacheMapping.setDirtyBit(cacheBlockSpot, true);
-				unsortedList.getList(cacheBlockSpot).sort(comparator);
-			}	
+				flushMemory();
 				
-			if(usedCacheBlocks > 1)
-			{
-				int currentRun = 0;
-				long totalRuns = 64 - Long.numberOfLeadingZeros(usedCacheBlocks-1);
-					
-				while(currentRun < totalRuns)
-				{
-					sortedList = merge(unsortedList, comparator, currentRun);
-		
-					unsortedList.clearMemory();
-						
-					unsortedList = sortedList;
-					currentRun++;
-				}
+				//don't leave the last changes waiting for a group commit
+				cacheMapping.getFileAccessor().completeCommit();
+				cacheMapping.setCacheManager(null);
+				cacheMapping.setMinCacheBlocks(0);
+				unregisterMBean();
+				stopAccessTrace();
+				liveObject = false;
 			}
 			else
 			{
-				sortedList = unsortedList;
+				clearMemory();
 			}
-				
-			return sortedList;
 		}
 	}
 	
 	/**
-	 * Internal function used to sort.  This is the step to merge two sorted pieces together into a single sorted list.
+	 * Returns a point-in-time copy of the list that shares its block files with this list.
+	 * Pending shifts are applied and dirty blocks are written first, keeping them in cache, then every block file is hard linked
+	 * under a new memory instance in the same folder, so creating the snapshot takes time in the number of blocks, not elements.
+	 * <p>
+	 * Blocks shared with a snapshot are never modified in place, writing a block renames a new file over the old one,
+	 * so neither list sees the other's changes and a block is only stored twice once either list writes it.
+	 * If the file system does not support hard links, the block files are copied instead.
+	 * <p>
+	 * The snapshot is an ordinary list with the same block size and number of cache blocks, it is not persistent,
+	 * and it is independent of this list, so it can be used from another thread while this list keeps changing.
+	 * Call {@link #clearMemory()} on the snapshot when it is no longer needed.
 	 * 
-	 * @param unsortedList The list
-	 * @param comparator How to compare the elements
-	 * @param currentRun What run step the merge is being used on.  This is to determine what merge pieces to merge and their sizes
-	 * @return The unsorted list with the sorted merged pieces.
+	 * @return Returns the snapshot
+	 * @throws IOException For I/O errors
 	 */
-	private static<T extends Serializable> BigArrayList<T> merge(BigArrayList<T> unsortedList, Comparator<? super T> comparator, int currentRun)
+	public BigArrayList<E> snapshot() throws IOException
 	{
-		int blockSize = unsortedList.getBlockSize();
-		int cacheBlocks = unsortedList.getNumberOfBlocks();
-		long usedCacheBlocksLong = unsortedList.getNumberOfUsedBlocks();
-		String filePath = unsortedList.getFilePath();
+		purgeActionBuffer();
+		cacheMapping.writeDirtyBlocks();
 		
-		BigArrayList<T> sortedList = new BigArrayList<T>(blockSize, cacheBlocks, filePath);
+		FileAccessor<E> fileAccessor = cacheMapping.getFileAccessor();
+		FileAccessor<E> snapshotAccessor = new FileAccessor<>(fileAccessor.getFolderPaths(), fileAccessor.getPlacement(), false);
 		
-		int blockIncrement = ipow(2, currentRun);
+		try
+		{
+			snapshotAccessor.shareBlocks(fileAccessor, getNumberOfUsedBlocks());
+		}
+		catch(IOException e)
+		{
+			snapshotAccessor.clearMemory();
+			throw e;
+		}
 		
-		for(long i=0; i<usedCacheBlocksLong; i=i+blockIncrement+blockIncrement)
+		return new BigArrayList<>(snapshotAccessor, new ListManifest(blockSize, cacheBlocks, wholeListSize, 0, fileAccessor.getFolderPaths(), fileAccessor.getPlacement(), fileAccessor.getCodec(), null, null));
+	}
+	
+	/**
+	 * @return Returns whether or not the list's files are kept when the program exits
+	 */
+	public boolean isPersistent()
+	{
+		return cacheMapping.getFileAccessor().isPersistent();
+	}
+	
+	/**
+	 * @return Returns the memory instance that identifies this list's files in its folder, used to reopen a persistent list
+	 */
+	public int getMemoryInstance()
+	{
+		return cacheMapping.getFileAccessor().getMemoryInstance();
+	}
+	
+	/**
+	 * @return Returns when the list's files are forced to the storage device
+	 */
+	public DurabilityMode getDurabilityMode()
+	{
+		return cacheMapping.getFileAccessor().getDurabilityMode();
+	}
+	
+	/**
+	 * Sets when the list's files are forced to the storage device, see {@link DurabilityMode}.
+	 * Persistent lists default to {@link DurabilityMode#SYNC_ON_FLUSH} and other lists to {@link DurabilityMode#NONE},
+	 * which is the only mode that matters for them since they cannot be reopened.
+	 * 
+	 * @param durabilityMode The durability mode
+	 */
+	public void setDurabilityMode(DurabilityMode durabilityMode)
+	{
+		if(durabilityMode == null)
 		{
-			long mergePiece1 = i;
-			long mergePiece2 = -1;
-			long mergePiece3 = -1;
-			
-			long firstElementStart = mergePiece1*blockSize;
-			long secondElementStart = -1;
-			
-			long firstElementEnd = -1;
-			long secondElementEnd = -1;
-			
-			long currentMergeElements = 0l;
-			long totalMergeElements = -1;
-			
-			if(i+blockIncrement < usedCacheBlocksLong)
+			throw new IllegalArgumentException("Durability mode is null but must be one of NONE, SYNC_ON_FLUSH, GROUP_COMMIT");
+		}
+		
+		cacheMapping.getFileAccessor().setDurabilityMode(durabilityMode);
+	}
+	
+	/**
+	 * Returns a snapshot of the list's cache and I/O statistics, counted since the list was constructed or opened.
+	 * Useful to choose the block size and number of cache blocks, e.g. a low hit ratio or many dirty evictions call for more cache blocks.
+	 * 
+	 * @return Returns the snapshot
+	 */
+	public ListStatistics getStatistics()
+	{
+		FileAccessor<E> fileAccessor = cacheMapping.getFileAccessor();
+		return cacheMapping.getStatistics().getStatistics(fileAccessor.getBytesRead(), fileAccessor.getBytesWritten(), cacheMapping.getNumberOfResidentBlocks(), cacheMapping.getCacheLimit());
+	}
+	
+	/**
+	 * Registers the list's statistics as an MBean with the platform MBean server, see {@link BigArrayListMXBean},
+	 * under the name "com.dselent.bigarraylist:type=BigArrayList,folder=(quoted folder path),instance=(memory instance)".
+	 * The MBean keeps the list reachable until it is unregistered by {@link #unregisterMBean()}, {@link #close()}, or {@link #clearMemory()}.
+	 * Does nothing if the MBean is already registered.
+	 * 
+	 * @return Returns the name the MBean is registered under
+	 * @throws IllegalStateException If the MBean cannot be registered, such as when another list in the same folder has the same memory instance
+	 */
+	public ObjectName registerMBean()
+	{
+		if(mBeanName == null)
+		{
+			try
 			{
-				mergePiece2 = i+blockIncrement;
-				mergePiece3 = i+blockIncrement+blockIncrement;
-				
-				secondElementStart = mergePiece2*blockSize;
-				firstElementEnd = secondElementStart;
-				
-				if(unsortedList.size() >= mergePiece3*blockSize)
-				{
-					secondElementEnd = mergePiece3*blockSize;
-				}
-				else
-				{
-					secondElementEnd = unsortedList.size();
-				}
-				
-				totalMergeElements = secondElementEnd - firstElementStart;
+				ObjectName name = new ObjectName("com.dselent.bigarraylist:type=BigArrayList,folder=" + ObjectName.quote(getFilePath()) + ",instance=" + getMemoryInstance());
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new StatisticsMBean<>(this), name);
+				mBeanName = name;
 			}
-			else
-			{				
-				if(unsortedList.size() >= (i+blockIncrement)*blockSize)
-				{
-					firstElementEnd = (i+blockIncrement)*blockSize;
-				}
-				else
-				{
-					firstElementEnd = unsortedList.size();
-				}
-				
-				totalMergeElements = firstElementEnd - firstElementStart;
+			catch(JMException e)
+			{
+				throw new IllegalStateException("Unable to register the MBean of the list", e);
 			}
-						
+		}
+		
+		return mBeanName;
+	}
 	
-			long index1 = firstElementStart;
-			long index2 = secondElementStart;
-						
-			if(mergePiece2 == -1 || mergePiece2 >= usedCacheBlocksLong)
+	/**
+	 * Unregisters the list's MBean, does nothing if it is not registered
+	 * 
+	 * @throws IllegalStateException If the MBean cannot be unregistered
+	 */
+	public void unregisterMBean()
+	{
+		if(mBeanName != null)
+		{
+			try
 			{
-				T element1 = unsortedList.get(index1);
-
-				while(currentMergeElements < totalMergeElements)
-				{
-					sortedList.add(element1);
-					index1++;
-					
-					if(index1 < firstElementEnd)
-					{
-						element1 = unsortedList.get(index1);
-					}
-					
-					currentMergeElements++;
-				}
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(mBeanName);
 			}
-			else
+			catch(InstanceNotFoundException e)
 			{
-				T element1 = unsortedList.get(index1);
-				T element2 = unsortedList.get(index2);
-				
-				while(currentMergeElements < totalMergeElements)
-				{
-					if(index2 >= secondElementEnd)
-					{
-						sortedList.add(element1);
-						index1++;
-						
-						if(index1 < firstElementEnd)
-						{
-							element1 = unsortedList.get(index1);
-						}
-					}
-					else if(index1 >= firstElementEnd)
-					{
-						sortedList.add(element2);
-						index2++;
-						
-						if(index2 < secondElementEnd)
-						{
-							element2 = unsortedList.get(index2);
-						}
-					}
-					else
-					{
-						if(comparator.compare(element1, element2) <= 0)
-						{
-							sortedList.add(element1);
-							index1++;
-							
-							if(index1 < firstElementEnd)
-							{
-								element1 = unsortedList.get(index1);
-							}
-						}
-						else
-						{
-							sortedList.add(element2);
-							index2++;
-							
-							if(index2 < secondElementEnd)
-							{
-								element2 = unsortedList.get(index2);
-							}
-						}
-					}
-					
-					currentMergeElements++;
-				}
+				//already unregistered through the MBean server
+			}
+			catch(JMException e)
+			{
+				throw new IllegalStateException("Unable to unregister the MBean of the list", e);
 			}
+			
+			mBeanName = null;
+		}
+	}
+	
+	/**
+	 * Starts recording the accesses of the list to a trace file, to be replayed under other cache settings by a {@link CacheSimulator}.
+	 * Every get, set, add, and remove is recorded with the index of its element, whether it changed the element, and when it happened,
+	 * in about two to four bytes, see {@link AccessTraceRecorder}.  An access trace already being recorded is stopped first.
+	 * Recording stops with {@link #stopAccessTrace()}, {@link #close()}, or {@link #clearMemory()}.
+	 * 
+	 * @param tracePath The path of the trace file, an existing file is replaced
+	 * @throws IOException For I/O errors
+	 */
+	public void startAccessTrace(String tracePath) throws IOException
+	{
+		stopAccessTrace();
+		cacheMapping.setAccessTrace(new AccessTraceRecorder(tracePath, blockSize));
+	}
+	
+	/**
+	 * Stops recording the accesses of the list and closes the trace file, does nothing if no access trace is being recorded
+	 * 
+	 * @return Returns the number of accesses recorded, 0 if no access trace was being recorded
+	 * @throws IOException For I/O errors
+	 */
+	public long stopAccessTrace() throws IOException
+	{
+		long records = 0;
+		AccessTraceRecorder accessTrace = cacheMapping.getAccessTrace();
+		
+		if(accessTrace != null)
+		{
+			cacheMapping.setAccessTrace(null);
+			records = accessTrace.getRecords();
+			accessTrace.close();
 		}
 		
-		return sortedList;
+		return records;
+	}
+	
+	/**
+	 * Starts watching the accesses of the list to recommend the block size and number of cache blocks that spend the least time on block I/O,
+	 * see {@link #getLayoutRecommendation()}.  The most recent accesses are kept in memory, 8 bytes each.
+	 * <p>
+	 * With auto re-blocking, every time as many accesses as are kept have been made since the last recommendation,
+	 * the list is re-blocked into the recommended layout, see {@link #reblock(int, int)},
+	 * if the time it is predicted to save over as many accesses again as have been watched is more than the time to re-block.
+	 * Re-blocking happens at the start of the get, set, add, or remove that made the recommendation due, so that call takes longer.
+	 * 
+	 * @param sampleSize The number of recent accesses to keep
+	 * @param autoReblock Whether or not the list is re-blocked into the recommended layout automatically
+	 * @throws IllegalStateException If auto re-blocking is asked for a persistent list
+	 */
+	public void enableLayoutAdvisor(int sampleSize, boolean autoReblock)
+	{
+		if(sampleSize < 1)
+		{
+			throw new IllegalArgumentException("Sample size is " + sampleSize + " but must be >= 1");
+		}
+		
+		if(autoReblock && isPersistent())
+		{
+			throw new IllegalStateException("A persistent list cannot be re-blocked");
+		}
+		
+		cacheMapping.setLayoutAdvisor(new LayoutAdvisor(sampleSize, autoReblock));
 	}
 	
+	/**
+	 * Stops watching the accesses of the list and frees the accesses kept
+	 */
+	public void disableLayoutAdvisor()
+	{
+		cacheMapping.setLayoutAdvisor(null);
+	}
 	
-	//skipping bound checks, trusting the caller to know that the result will not be greater an integer
 	/**
-	 * Internal function used by sorting.
-	 * modified function from http://stackoverflow.com/questions/101439/the-most-efficient-way-to-implement-an-integer-based-power-function-powint-int
+	 * Recommends the block size and number of cache blocks for the accesses kept since {@link #enableLayoutAdvisor(int, boolean)}.
+	 * Layouts holding as many elements in memory as the current one are compared by replaying the accesses,
+	 * and the time of each block read and write is predicted from the size of the list's blocks on disk and the list's past block reads,
+	 * see {@link LayoutAdvisor}.
 	 * 
-	 * @param base Base number
-	 * @param exp Exponent
-	 * @return Ceiling of base^exp as a power of two
+	 * @return Returns the recommendation, which keeps the current layout unless another one is predicted to take 20% less time
+	 * @throws IllegalStateException If the layout advisor is not enabled
 	 */
-	private static int ipow(int base, int exp)
+	public LayoutRecommendation getLayoutRecommendation()
 	{
-	    int result = 1;
-	    
-	    while (exp != 0)
-	    {
-	        if ((exp & 1) == 1)
-	        {
-	            result *= base;
-	        }
-	        
-	        exp >>= 1;
-	        base *= base;
-	    }
-
-	    return result;
+		LayoutAdvisor layoutAdvisor = cacheMapping.getLayoutAdvisor();
+		
+		if(layoutAdvisor == null)
+		{
+			throw new IllegalStateException("Layout advisor is not enabled");
+		}
+		
+		//the full blocks on disk give the size of an element, the last block may be partly in its append log
+		FileAccessor<E> fileAccessor = cacheMapping.getFileAccessor();
+		int fullBlocks = (int)Math.min(wholeListSize / blockSize, LAYOUT_SAMPLE_BLOCKS);
+		long sampledBytes = 0;
+		long sampledElements = 0;
+		
+		for(int i=0; i<fullBlocks; i++)
+		{
+			long length = fileAccessor.getBlockFileLength(i);
+			
+			if(length > 0)
+			{
+				sampledBytes += length;
+				sampledElements += blockSize;
+			}
+		}
+		
+		double bytesPerElement = sampledElements == 0 ? 0 : (double)sampledBytes / sampledElements;
+		double meanLoadNanos = getStatistics().getLoadLatency().getMeanNanos();
+		CachePolicy policy = getCacheManager() == null ? CachePolicy.LRU : getCacheManager().getPolicy();
+		
+		return layoutAdvisor.recommend(blockSize, cacheBlocks, MIN_CACHE_SIZE, wholeListSize, policy, bytesPerElement, meanLoadNanos);
 	}
-
+	
 	/**
-	 * Purges all actions in the queue
+	 * Rewrites the list with a new block size and number of cache blocks, such as the ones of a {@link LayoutRecommendation}.
+	 * Pending shifts are applied and the cache is flushed first, then every block is read once and the elements are written into the new blocks,
+	 * so re-blocking takes time in the size of the list and needs one old and one new block in memory.
+	 * Block summaries and Bloom filters are rebuilt for the new blocks, and the cache limit is set to the new number of cache blocks.
+	 * The old blocks are kept until every new block is written, so if re-blocking fails the list is restored to its old layout.
+	 * 
+	 * @param blockSize The new size of each cache block
+	 * @param cacheBlocks The new number of cache blocks
+	 * @throws IOException For I/O errors, the list keeps its old layout
+	 * @throws IllegalStateException If the list is persistent, its manifest and shadow copies are kept per block
 	 */
-	private void purgeActionBuffer()
+	public void reblock(int blockSize, int cacheBlocks) throws IOException
 	{
-		if(softMapping.getBufferSize() > 0)
+		if(blockSize < MIN_CACHE_SIZE || blockSize > MAX_CACHE_SIZE)
 		{
-			long startIndex = softMapping.getShiftIndex(0);			
-				
-			//first index
-			int fileNumber = cacheMapping.getFileNumber(startIndex);
-			int nextFileNumber = fileNumber+1;
-			long virtualSize = wholeListSize + softMapping.getLastShiftAmount();
-			int usedCacheBlocks = getNumberOfUsedBlocks(virtualSize);
-					
-			int cacheBlockSpot = -1;
-			int nextCacheBlockSpot = -1;
+			throw new IllegalArgumentException("Cache size is " + blockSize + " but must be >= " + MIN_CACHE_SIZE + " and <= " + MAX_CACHE_SIZE);
+		}
 
-			if(!cacheMapping.isFileInCache(fileNumber))
+		if(cacheBlocks < MIN_CACHE_BLOCKS || cacheBlocks > MAX_CACHE_BLOCKS)
+		{
+			throw new IllegalArgumentException("Number of cache blocks is " + cacheBlocks +  " but must be >= " + MIN_CACHE_BLOCKS + " and <= " + MAX_CACHE_BLOCKS);
+		}
+		
+		if(isPersistent())
+		{
+			throw new IllegalStateException("A persistent list cannot be re-blocked");
+		}
+		
+		purgeActionBuffer();
+		cacheMapping.flushCache();
+		
+		FileAccessor<E> fileAccessor = cacheMapping.getFileAccessor();
+		fileAccessor.mergeLogs();
+		int oldBlockSize = this.blockSize;
+		int oldCacheBlocks = this.cacheBlocks;
+		int oldBlocks = getNumberOfUsedBlocks();
+		ZoneMap<E> oldZoneMap = cacheMapping.getZoneMap();
+		ZoneMap<E> oldStoredZoneMap = cacheMapping.getStoredZoneMap();
+		BloomFilterIndex oldBloomFilters = cacheMapping.getBloomFilters();
+		
+		try
+		{
+			//the old blocks are moved out of the way, the new blocks reuse their file numbers
+			for(int i=0; i<oldBlocks; i++)
 			{
-				cacheBlockSpot = cacheMapping.bringFileIntoCache(fileNumber);
+				fileAccessor.moveFile(FileAccessor.MEMORY_AREA, i, FileAccessor.SCRATCH_AREAS[0]);
 			}
-			else
+			
+			setLayout(blockSize, cacheBlocks);
+			
+			if(oldZoneMap != null)
 			{
-				cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
-				cacheMapping.updateUsedList(cacheBlockSpot);
+				cacheMapping.setZoneMap(new ZoneMap<>(oldZoneMap.getComparator(), oldZoneMap.getName()));
 			}
-				
-			//assume there will be changes, this assumption is not always true?
-			cacheMapping.setDirtyBit(cacheBlockSpot, true);
-				
-			if(!cacheMapping.isFileInCache(nextFileNumber))
+			
+			cacheMapping.setStoredZoneMap(null);
+			
+			if(oldBloomFilters != null)
 			{
-				nextCacheBlockSpot = cacheMapping.bringFileIntoCache(nextFileNumber);
-				cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
+				cacheMapping.setBloomFilters(new BloomFilterIndex(blockSize, oldBloomFilters.getFalsePositiveRate()));
 			}
-			else
+			
+			BlockSorter<E>.ListWriter listWriter = new BlockSorter<>(this).new ListWriter();
+			
+			for(int i=0; i<oldBlocks; i++)
 			{
-				nextCacheBlockSpot = cacheMapping.getCacheBlockSpot(nextFileNumber);
-				cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
-			}
+				ArrayList<E> block = fileAccessor.readBlock(FileAccessor.SCRATCH_AREAS[0], i);
 				
-			//SHOULD FIND MAX SHIFT TOO
-			while(nextFileNumber < usedCacheBlocks)
-			{		
-				List<E> cacheBlock = arrayLists.get(cacheBlockSpot);
-				List<E> nextCacheBlock = arrayLists.get(nextCacheBlockSpot);
+				for(int j=0; j<block.size(); j++)
+				{
+					listWriter.accept(block.get(j));
+				}
+			}
+			
+			listWriter.close();
+		}
+		catch(ClassNotFoundException e)
+		{
+			IOException failure = new IOException(e);
+			restoreLayout(oldBlockSize, oldCacheBlocks, oldBlocks, oldZoneMap, oldStoredZoneMap, oldBloomFilters, failure);
+			throw failure;
+		}
+		catch(IOException | RuntimeException | Error e)
+		{
+			restoreLayout(oldBlockSize, oldCacheBlocks, oldBlocks, oldZoneMap, oldStoredZoneMap, oldBloomFilters, e);
+			throw e;
+		}
+		
+		//the old blocks are only deleted once every new block is written
+		for(int i=0; i<oldBlocks; i++)
+		{
+			fileAccessor.deleteFile(FileAccessor.SCRATCH_AREAS[0], i);
+		}
+		
+		if(cacheMapping.getLayoutAdvisor() != null)
+		{
+			cacheMapping.getLayoutAdvisor().clear();
+		}
+	}
+	
+	/**
+	 * Sets the block size and number of cache blocks, with an empty cache, the cache must have been flushed
+	 * 
+	 * @param blockSize The size of each cache block
+	 * @param cacheBlocks The number of cache blocks
+	 */
+	private void setLayout(int blockSize, int cacheBlocks)
+	{
+		this.blockSize = blockSize;
+		this.cacheBlocks = cacheBlocks;
+		cacheMapping.resetSlots(cacheBlocks);
+		arrayLists = new ArrayList<>();
+
+		for(int i=0; i<cacheBlocks; i++)
+		{
+			ArrayList<E> arrayList = new ArrayList<>();
+			arrayList.ensureCapacity(blockSize);
+			arrayLists.add(arrayList);
+		}
+	}
+	
+	/**
+	 * Puts the list back in the layout it had before a failed {@link #reblock(int, int)}.
+	 * The new blocks written so far are deleted and the old blocks are moved back from the scratch area,
+	 * errors doing so are added to the failure as suppressed exceptions.
+	 * 
+	 * @param oldBlockSize The block size before re-blocking
+	 * @param oldCacheBlocks The number of cache blocks before re-blocking
+	 * @param oldBlocks The number of blocks holding elements before re-blocking
+	 * @param oldZoneMap The block summaries before re-blocking, or null
+	 * @param oldStoredZoneMap The stored block summaries not in use before re-blocking, or null
+	 * @param oldBloomFilters The Bloom filters before re-blocking, or null
+	 * @param failure The exception that made re-blocking fail
+	 */
+	private void restoreLayout(int oldBlockSize, int oldCacheBlocks, int oldBlocks, ZoneMap<E> oldZoneMap, ZoneMap<E> oldStoredZoneMap, BloomFilterIndex oldBloomFilters, Throwable failure)
+	{
+		FileAccessor<E> fileAccessor = cacheMapping.getFileAccessor();
+		int newBlocks = getNumberOfUsedBlocks();
+		
+		for(int i=oldBlocks; i<newBlocks; i++)
+		{
+			fileAccessor.deleteFile(FileAccessor.MEMORY_AREA, i);
+		}
+		
+		for(int i=0; i<oldBlocks; i++)
+		{
+			try
+			{
+				fileAccessor.moveFile(FileAccessor.SCRATCH_AREAS[0], i, FileAccessor.MEMORY_AREA);
+			}
+			catch(IOException e)
+			{
+				failure.addSuppressed(e);
+			}
+		}
+		
+		setLayout(oldBlockSize, oldCacheBlocks);
+		cacheMapping.setZoneMap(oldZoneMap);
+		cacheMapping.setStoredZoneMap(oldStoredZoneMap);
+		cacheMapping.setBloomFilters(oldBloomFilters);
+		
+		//the list writer reset the fence keys, binarySearch rebuilds them
+		if(wholeListSize > 0)
+		{
+			fenceIndex.invalidate();
+		}
+	}
+	
+	/**
+	 * Re-blocks the list into the recommended layout if the layout advisor re-blocks automatically, a recommendation is due,
+	 * and re-blocking pays for itself
+	 */
+	private void adviseLayout()
+	{
+		LayoutAdvisor layoutAdvisor = cacheMapping.getLayoutAdvisor();
+		
+		if(layoutAdvisor != null && layoutAdvisor.isAutoReblock() && layoutAdvisor.isDue())
+		{
+			LayoutRecommendation recommendation = getLayoutRecommendation();
+			
+			if(layoutAdvisor.isWorthReblocking(recommendation))
+			{
+				try
+				{
+					reblock(recommendation.getBlockSize(), recommendation.getCacheBlocks());
+				}
+				catch(IOException e)
+				{
+					throw new UncheckedIOException("Unable to re-block the list", e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return Returns the codec encoding the list's elements on disk, or null if they are serialized
+	 */
+	public FixedWidthCodec<E> getFixedWidthCodec()
+	{
+		return cacheMapping.getFileAccessor().getCodec();
+	}
+	
+	/**
+	 * Stores the list's elements on disk with a codec that encodes every element in the same number of bytes, instead of serializing them.
+	 * Blocks stored this way are smaller and faster to read, and a block that only had a few elements set is written
+	 * by overwriting the bytes of those elements instead of the whole block.
+	 * Blocks already on disk are still read, and are stored with the codec the next time they are written.
+	 * The codec of a persistent list is kept in its manifest, and a snapshot uses the codec of its list.
+	 * 
+	 * @param codec The codec, such as {@link FixedWidthCodec#LONG}
+	 * @throws IllegalArgumentException If the codec is null or its width is not positive
+	 * @throws IllegalStateException If the list already has a codec of a different class
+	 */
+	public void setFixedWidthCodec(FixedWidthCodec<E> codec)
+	{
+		FileAccessor<E> fileAccessor = cacheMapping.getFileAccessor();
+		
+		if(codec == null)
+		{
+			throw new IllegalArgumentException("Codec is null but must be a FixedWidthCodec");
+		}
+		
+		if(codec.getWidth() < 1)
+		{
+			throw new IllegalArgumentException("Codec width is " + codec.getWidth() + " but must be >= 1");
+		}
+		
+		if(fileAccessor.getCodec() != null && fileAccessor.getCodec().getClass() != codec.getClass())
+		{
+			throw new IllegalStateException("List already stores its elements with a different codec");
+		}
+		
+		fileAccessor.setCodec(codec);
+	}
+	
+	/**
+	 * @return Returns the CacheManager the list shares its memory budget with, or null if there is none
+	 */
+	public CacheManager getCacheManager()
+	{
+		return cacheMapping.getCacheManager();
+	}
+	
+	/**
+	 * Shares a memory budget with other lists, see {@link CacheManager}.
+	 * The list can still hold at most its number of cache blocks, but blocks of any list sharing the manager are evicted,
+	 * including blocks of this list right away, so that all of them together stay within the budget.
+	 * <p>
+	 * All lists sharing a manager must be used by one thread at a time.
+	 * 
+	 * @param cacheManager The CacheManager, or null to only use the list's own cache blocks
+	 */
+	public void setCacheManager(CacheManager cacheManager)
+	{
+		cacheMapping.setCacheManager(cacheManager);
+	}
+	
+	/**
+	 * @return Returns the number of cache blocks holding a block of the list
+	 */
+	public int getResidentBlocks()
+	{
+		return cacheMapping.getNumberOfResidentBlocks();
+	}
+	
+	/**
+	 * @return Returns the number of cache blocks the list keeps to, at most its number of cache blocks
+	 */
+	public int getCacheLimit()
+	{
+		return cacheMapping.getCacheLimit();
+	}
+	
+	/**
+	 * Sets the number of cache blocks the list keeps to, without changing its number of cache blocks.
+	 * The least recently used blocks over the limit are written to disk if needed and freed at the start of the next operation on the list,
+	 * so this may be called from any thread.
+	 * 
+	 * @param cacheLimit The number of cache blocks, from 2 to the number of cache blocks
+	 */
+	public void setCacheLimit(int cacheLimit)
+	{
+		if(cacheLimit < MIN_CACHE_BLOCKS || cacheLimit > cacheBlocks)
+		{
+			throw new IllegalArgumentException("Cache limit is " + cacheLimit + " but must be >= " + MIN_CACHE_BLOCKS + " and <= " + cacheBlocks);
+		}
+		
+		cacheMapping.setCacheLimit(cacheLimit);
+	}
+	
+	/**
+	 * Resizes the cache with the heap.
+	 * When a tenured heap pool is more than 85% full, the list halves its cache limit, down to the given minimum,
+	 * and when a garbage collection leaves every tenured pool less than 60% full, the cache limit grows by one block,
+	 * up to the number of cache blocks.
+	 * The heap is watched through the MemoryPoolMXBean usage thresholds, which are set unless the application already set them,
+	 * and the garbage collection notifications.
+	 * <p>
+	 * Like {@link #setCacheLimit(int)}, a new limit takes effect at the start of the next operation on the list, even one that finds its blocks in memory,
+	 * so a list that is not being used keeps its blocks until it is used again or flushed.
+	 * The arrays of the freed blocks are given back to the heap rather than kept for reuse.
+	 * 
+	 * @param minCacheBlocks The fewest cache blocks to shrink to, from 2 to the number of cache blocks
+	 */
+	public void enableAdaptiveCache(int minCacheBlocks)
+	{
+		if(minCacheBlocks < MIN_CACHE_BLOCKS || minCacheBlocks > cacheBlocks)
+		{
+			throw new IllegalArgumentException("Minimum number of cache blocks is " + minCacheBlocks + " but must be >= " + MIN_CACHE_BLOCKS + " and <= " + cacheBlocks);
+		}
+		
+		cacheMapping.setMinCacheBlocks(minCacheBlocks);
+	}
+	
+	/**
+	 * Stops resizing the cache with the heap and sets the cache limit back to the number of cache blocks
+	 */
+	public void disableAdaptiveCache()
+	{
+		cacheMapping.setMinCacheBlocks(0);
+	}
+	
+	/**
+	 * Sets the listener called when the list starts keeping to a new cache limit, on the thread using the list
+	 * 
+	 * @param resizeListener The listener, or null
+	 */
+	public void setCacheResizeListener(CacheResizeListener resizeListener)
+	{
+		cacheMapping.setResizeListener(resizeListener);
+	}
+	
+	/**
+	 * Commits the manifest of a persistent list, the list must be purged and flushed.
+	 * Block files past the end of the list are deleted first, so a reopened list never reads stale elements when it grows.
+	 * The block summaries are stored with the manifest if zone maps are enabled under a name, or were stored and not used since reopening.
+	 */
+	private void writeManifest()
+	{
+		FileAccessor<E> fileAccessor = cacheMapping.getFileAccessor();
+		int fileNumber = getNumberOfUsedBlocks();
+		ZoneMap<E> zoneMap = cacheMapping.getZoneMap();
+		String zoneMapName = null;
+		HashMap<Integer, BlockSummary<E>> zoneSummaries = null;
+		
+		if(zoneMap == null || zoneMap.getName() == null)
+		{
+			zoneMap = cacheMapping.getStoredZoneMap();
+		}
+		
+		if(zoneMap != null && zoneMap.getName() != null)
+		{
+			zoneMapName = zoneMap.getName();
+			zoneSummaries = zoneMap.getSummaries(getNumberOfUsedBlocks());
+		}
+		
+		try
+		{
+			while(fileAccessor.doesFileExist(fileNumber))
+			{
+				fileAccessor.deleteFile(fileNumber);
+				fileNumber++;
+			}
+			
+			fileAccessor.commit(new ListManifest(blockSize, cacheBlocks, wholeListSize, fileAccessor.getGeneration() + 1, fileAccessor.getFolderPaths(), fileAccessor.getPlacement(), fileAccessor.getCodec(),
+					zoneMapName, zoneSummaries), getNumberOfUsedBlocks());
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+		
+	/**
+	 * Sorts the BigArrayList.  Note that the usage mimics Collections.sort() except that the sorted list is returned.
+	 * The caller must set their list to equal the return value (similar to String concatenation), ex:  sortedList = BigArrayList.sort(sortedList);
+	 * 
+	 * @param unsortedList The list to be sorted
+	 * @return The list in sorted order
+	 * @throws IOException
+	 */
+	public static<T extends Comparable<? super T> & Serializable> BigArrayList<T> sort(BigArrayList<T> unsortedList) throws IOException
+	{
+		return sort(unsortedList, Comparator.naturalOrder());
+	}
+	
+	/**
+	 * Sorts the BigArrayList.  Note that the usage mimics Collections.sort() except that the sorted list is returned.
+	 * The caller must set their list to equal the return value (similar to String concatenation), ex:  sortedList = BigArrayList.sort(sortedList);
+	 * 
+	 * @param unsortedList unsortedList The list to be sorted
+	 * @param comparator How to compare the elements in the list
+	 * @return The list in sorted order
+	 * @throws IOException
+	 */
+	public static<T extends Serializable> BigArrayList<T> sort(BigArrayList<T> unsortedList, Comparator<? super T> comparator) throws IOException
+	{
+		if(unsortedList.size() <= 1)
+		{
+			return unsortedList;
+		}
+		else
+		{
+			unsortedList.purgeActionBuffer();
+				
+			CacheMapping<T> unsortedCacheMapping = unsortedList.getCacheMapping();
+			unsortedCacheMapping.applyCacheLimit();
+			int blockSize = unsortedList.getBlockSize();
+			int cacheBlocks = unsortedList.getNumberOfBlocks();
+			int usedCacheBlocks = unsortedList.getNumberOfUsedBlocks();
+			String filePath = unsortedList.getFilePath();
+			
+			BigArrayList<T> sortedList = new BigArrayList<T>(blockSize, cacheBlocks, filePath);
+				
+			for(int i=usedCacheBlocks-1; i>=0; i--)
+			{
+				int cacheBlockSpot = -1;
+	
+				if(!unsortedCacheMapping.isFileInCache(i))
+				{
+					unsortedCacheMapping.bringFileIntoCache(i);
+				}
+		
+				cacheBlockSpot = unsortedCacheMapping.getCacheBlockSpot(i);
+				unsortedCacheMapping.setDirtyBit(cacheBlockSpot, true);
+				unsortedList.getList(cacheBlockSpot).sort(comparator);
+			}
+			
+			unsortedList.getFenceIndex().invalidate();
+				
+			if(usedCacheBlocks > 1)
+			{
+				int currentRun = 0;
+				long totalRuns = 64 - Long.numberOfLeadingZeros(usedCacheBlocks-1);
+					
+				while(currentRun < totalRuns)
+				{
+					ListEvents.SortMergePass event = new ListEvents.SortMergePass();
+					event.begin();
+					long bytesRead = unsortedList.getCacheMapping().getFileAccessor().getBytesRead();
+					
+					sortedList = merge(unsortedList, comparator, currentRun);
+					
+					FileAccessor<T> sortedAccessor = sortedList.getCacheMapping().getFileAccessor();
+					event.finish(sortedAccessor.getMemoryInstance(), currentRun, usedCacheBlocks,
+							unsortedList.getCacheMapping().getFileAccessor().getBytesRead() - bytesRead, sortedAccessor.getBytesWritten());
+		
+					unsortedList.clearMemory();
+						
+					unsortedList = sortedList;
+					currentRun++;
+				}
+			}
+			else
+			{
+				sortedList = unsortedList;
+			}
+				
+			return sortedList;
+		}
+	}
+	
+	/**
+	 * Sorts the BigArrayList in place.  Unlike {@link #sort(BigArrayList, Comparator)} no new BigArrayList is created for each merge pass,
+	 * the passes alternate between two scratch areas on disk owned by this list.  The caller's reference stays valid and is the sorted list.
+	 * 
+	 * @param comparator How to compare the elements in the list
+	 * @throws IOException For I/O errors
+	 */
+	public void sortInPlace(Comparator<? super E> comparator) throws IOException
+	{
+		if(wholeListSize > 1)
+		{
+			cacheMapping.applyCacheLimit();
+			purgeActionBuffer();
+			cacheMapping.flushCache();
+
+			try
+			{
+				new BlockSorter<>(this).sort(comparator);
+			}
+			catch(ClassNotFoundException e)
+			{
+				throw new IOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Sorts the BigArrayList in place by a key extracted from each element, see {@link #sortBy(Function, Comparator)}.
+	 * 
+	 * @param keyExtractor Returns the key to sort each element by
+	 * @throws IOException For I/O errors
+	 */
+	public <K extends Comparable<? super K> & Serializable> void sortBy(Function<? super E, ? extends K> keyExtractor) throws IOException
+	{
+		sortBy(keyExtractor, Comparator.naturalOrder());
+	}
+
+	/**
+	 * Sorts the BigArrayList in place by a key extracted from each element.
+	 * The key of each element is extracted only once, when the sorted runs are generated.
+	 * The merge passes then only compare the keys of (key, element) records, so an expensive comparison on whole elements is avoided.
+	 * The sort is stable.
+	 * 
+	 * @param keyExtractor Returns the key to sort each element by
+	 * @param keyComparator How to compare the keys
+	 * @throws IOException For I/O errors
+	 */
+	public <K extends Serializable> void sortBy(Function<? super E, ? extends K> keyExtractor, Comparator<? super K> keyComparator) throws IOException
+	{
+		if(wholeListSize > 1)
+		{
+			cacheMapping.applyCacheLimit();
+			purgeActionBuffer();
+			cacheMapping.flushCache();
+
+			BlockSorter<E> blockSorter = new BlockSorter<>(this);
+			BlockSorter<E>.ListWriter listWriter = blockSorter.new ListWriter();
+
+			try
+			{
+				blockSorter.<SortRecord<K, E>>sort((firstIndex, block) ->
+				{
+					ArrayList<SortRecord<K, E>> run = new ArrayList<>(block.size());
+
+					for(int i=0; i<block.size(); i++)
+					{
+						run.add(new SortRecord<K, E>(keyExtractor.apply(block.get(i)), block.get(i)));
+					}
+
+					return run;
+				},
+				(record1, record2) -> keyComparator.compare(record1.getKey(), record2.getKey()),
+				record -> listWriter.accept(record.getPayload()));
+
+				listWriter.close();
+			}
+			catch(ClassNotFoundException e)
+			{
+				throw new IOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the sorted permutation of the BigArrayList by a key extracted from each element, see {@link #sortedIndexBy(Function, Comparator)}.
+	 * 
+	 * @param keyExtractor Returns the key to sort each element by
+	 * @return A new BigArrayList of the indices of the elements in sorted order
+	 * @throws IOException For I/O errors
+	 */
+	public <K extends Comparable<? super K> & Serializable> BigArrayList<Long> sortedIndexBy(Function<? super E, ? extends K> keyExtractor) throws IOException
+	{
+		return sortedIndexBy(keyExtractor, Comparator.naturalOrder());
+	}
+
+	/**
+	 * Returns the sorted permutation of the BigArrayList by a key extracted from each element, without moving the elements themselves.
+	 * Element i of the returned list is the index in this list of the i-th element in sorted order.
+	 * Only (key, index) records are merged, so this list is read once and left unchanged.
+	 * The returned list has the same block size, number of cache blocks, and folder path as this list.
+	 * 
+	 * @param keyExtractor Returns the key to sort each element by
+	 * @param keyComparator How to compare the keys
+	 * @return A new BigArrayList of the indices of the elements in sorted order
+	 * @throws IOException For I/O errors
+	 */
+	public <K extends Serializable> BigArrayList<Long> sortedIndexBy(Function<? super E, ? extends K> keyExtractor, Comparator<? super K> keyComparator) throws IOException
+	{
+		BigArrayList<Long> indexList = new BigArrayList<>(blockSize, cacheBlocks, getFilePath());
+
+		if(wholeListSize == 1)
+		{
+			indexList.add(0L);
+		}
+		else if(wholeListSize > 1)
+		{
+			cacheMapping.applyCacheLimit();
+			purgeActionBuffer();
+			cacheMapping.flushCache();
+
+			try
+			{
+				new BlockSorter<>(this).<SortRecord<K, Long>>sort((firstIndex, block) ->
+				{
+					ArrayList<SortRecord<K, Long>> run = new ArrayList<>(block.size());
+
+					for(int i=0; i<block.size(); i++)
+					{
+						run.add(new SortRecord<K, Long>(keyExtractor.apply(block.get(i)), firstIndex + i));
+					}
+
+					return run;
+				},
+				(record1, record2) -> keyComparator.compare(record1.getKey(), record2.getKey()),
+				record -> indexList.add(record.getPayload()));
+			}
+			catch(ClassNotFoundException e)
+			{
+				IOException failure = new IOException(e);
+				clearIndexList(indexList, failure);
+				throw failure;
+			}
+			catch(IOException | RuntimeException | Error e)
+			{
+				clearIndexList(indexList, e);
+				throw e;
+			}
+		}
+
+		return indexList;
+	}
+
+	/**
+	 * Deletes the files of the index list of a failed {@link #sortedIndexBy(Function, Comparator)}, so none are left in the caller's folder
+	 * 
+	 * @param indexList The index list
+	 * @param failure The exception that made the sort fail, an error deleting the files is added to it as a suppressed exception
+	 */
+	private static void clearIndexList(BigArrayList<Long> indexList, Throwable failure)
+	{
+		try
+		{
+			indexList.clearMemory();
+		}
+		catch(IOException e)
+		{
+			failure.addSuppressed(e);
+		}
+	}
+
+	/**
+	 * Sorts a BigArrayList of Long, Integer, Short, Byte, or Character elements in place by their natural order.
+	 * Uses an external radix sort, see {@link #radixSort(ToLongFunction)}.
+	 * 
+	 * @throws IOException For I/O errors
+	 * @throws IllegalArgumentException If an element is null or is not one of the supported types, the list is left unchanged
+	 */
+	public void radixSort() throws IOException
+	{
+		radixSort(BigArrayList::getIntegralKey);
+	}
+
+	/**
+	 * Sorts the BigArrayList in place by a primitive key using an external least significant digit radix sort.
+	 * Elements are never compared, instead each pass spills the elements into buckets on disk by one byte of their key.
+	 * Only the bytes that differ between the smallest and largest key are sorted on, so the number of sequential passes over the data
+	 * depends on the range of the keys rather than on the size of the list.  The sort is stable.
+	 * 
+	 * @param keyExtractor Returns the key to sort each element by
+	 * @throws IOException For I/O errors
+	 */
+	public void radixSort(ToLongFunction<? super E> keyExtractor) throws IOException
+	{
+		if(wholeListSize > 1)
+		{
+			cacheMapping.applyCacheLimit();
+			purgeActionBuffer();
+			cacheMapping.flushCache();
+
+			try
+			{
+				new BlockSorter<>(this).radixSort(keyExtractor);
+			}
+			catch(ClassNotFoundException e)
+			{
+				throw new IOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Internal function used by radix sorting.
+	 * 
+	 * @param element The element
+	 * @return The value of an integral boxed type as a long
+	 */
+	private static long getIntegralKey(Object element)
+	{
+		long key;
+
+		if(element instanceof Long || element instanceof Integer || element instanceof Short || element instanceof Byte)
+		{
+			key = ((Number)element).longValue();
+		}
+		else if(element instanceof Character)
+		{
+			key = (Character)element;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Cannot radix sort element " + element + ", use radixSort(ToLongFunction) to provide a key");
+		}
+
+		return key;
+	}
+
+	/**
+	 * Internal function used to sort.  This is the step to merge two sorted pieces together into a single sorted list.
+	 * 
+	 * @param unsortedList The list
+	 * @param comparator How to compare the elements
+	 * @param currentRun What run step the merge is being used on.  This is to determine what merge pieces to merge and their sizes
+	 * @return The unsorted list with the sorted merged pieces.
+	 */
+	private static<T extends Serializable> BigArrayList<T> merge(BigArrayList<T> unsortedList, Comparator<? super T> comparator, int currentRun)
+	{
+		int blockSize = unsortedList.getBlockSize();
+		int cacheBlocks = unsortedList.getNumberOfBlocks();
+		long usedCacheBlocksLong = unsortedList.getNumberOfUsedBlocks();
+		String filePath = unsortedList.getFilePath();
+		
+		BigArrayList<T> sortedList = new BigArrayList<T>(blockSize, cacheBlocks, filePath);
+		
+		int blockIncrement = ipow(2, currentRun);
+		
+		for(long i=0; i<usedCacheBlocksLong; i=i+blockIncrement+blockIncrement)
+		{
+			long mergePiece1 = i;
+			long mergePiece2 = -1;
+			long mergePiece3 = -1;
+			
+			long firstElementStart = mergePiece1*blockSize;
+			long secondElementStart = -1;
+			
+			long firstElementEnd = -1;
+			long secondElementEnd = -1;
+			
+			long currentMergeElements = 0l;
+			long totalMergeElements = -1;
+			
+			if(i+blockIncrement < usedCacheBlocksLong)
+			{
+				mergePiece2 = i+blockIncrement;
+				mergePiece3 = i+blockIncrement+blockIncrement;
+				
+				secondElementStart = mergePiece2*blockSize;
+				firstElementEnd = secondElementStart;
+				
+				if(unsortedList.size() >= mergePiece3*blockSize)
+				{
+					secondElementEnd = mergePiece3*blockSize;
+				}
+				else
+				{
+					secondElementEnd = unsortedList.size();
+				}
+				
+				totalMergeElements = secondElementEnd - firstElementStart;
+			}
+			else
+			{				
+				if(unsortedList.size() >= (i+blockIncrement)*blockSize)
+				{
+					firstElementEnd = (i+blockIncrement)*blockSize;
+				}
+				else
+				{
+					firstElementEnd = unsortedList.size();
+				}
+				
+				totalMergeElements = firstElementEnd - firstElementStart;
+			}
+						
+	
+			long index1 = firstElementStart;
+			long index2 = secondElementStart;
+						
+			if(mergePiece2 == -1 || mergePiece2 >= usedCacheBlocksLong)
+			{
+				T element1 = unsortedList.get(index1);
+
+				while(currentMergeElements < totalMergeElements)
+				{
+					sortedList.add(element1);
+					index1++;
+					
+					if(index1 < firstElementEnd)
+					{
+						element1 = unsortedList.get(index1);
+					}
+					
+					currentMergeElements++;
+				}
+			}
+			else
+			{
+				T element1 = unsortedList.get(index1);
+				T element2 = unsortedList.get(index2);
+				
+				while(currentMergeElements < totalMergeElements)
+				{
+					if(index2 >= secondElementEnd)
+					{
+						sortedList.add(element1);
+						index1++;
+						
+						if(index1 < firstElementEnd)
+						{
+							element1 = unsortedList.get(index1);
+						}
+					}
+					else if(index1 >= firstElementEnd)
+					{
+						sortedList.add(element2);
+						index2++;
+						
+						if(index2 < secondElementEnd)
+						{
+							element2 = unsortedList.get(index2);
+						}
+					}
+					else
+					{
+						if(comparator.compare(element1, element2) <= 0)
+						{
+							sortedList.add(element1);
+							index1++;
+							
+							if(index1 < firstElementEnd)
+							{
+								element1 = unsortedList.get(index1);
+							}
+						}
+						else
+						{
+							sortedList.add(element2);
+							index2++;
+							
+							if(index2 < secondElementEnd)
+							{
+								element2 = unsortedList.get(index2);
+							}
+						}
+					}
+					
+					currentMergeElements++;
+				}
+			}
+		}
+		
+		return sortedList;
+	}
+	
+	
+	//skipping bound checks, trusting the caller to know that the result will not be greater an integer
+	/**
+	 * Internal function used by sorting.
+	 * modified function from http://stackoverflow.com/questions/101439/the-most-efficient-way-to-implement-an-integer-based-power-function-powint-int
+	 * 
+	 * @param base Base number
+	 * @param exp Exponent
+	 * @return Ceiling of base^exp as a power of two
+	 */
+	private static int ipow(int base, int exp)
+	{
+	    int result = 1;
+	    
+	    while (exp != 0)
+	    {
+	        if ((exp & 1) == 1)
+	        {
+	            result *= base;
+	        }
+	        
+	        exp >>= 1;
+	        base *= base;
+	    }
+
+	    return result;
+	}
+
+	/**
+	 * Purges all actions in the queue
+	 */
+	private void purgeActionBuffer()
+	{
+		//the write overlay holds elements by their position on disk, which purging changes
+		cacheMapping.writeOverlayBlocks();
+		
+		if(softMapping.getBufferSize() > 0)
+		{
+			ListEvents.Purge event = new ListEvents.Purge();
+			event.begin();
+			int shifts = softMapping.getBufferSize();
+			long purgeStart = System.nanoTime();
+			long startIndex = softMapping.getShiftIndex(0);			
+				
+			//first index
+			int fileNumber = cacheMapping.getFileNumber(startIndex);
+			int firstFileNumber = fileNumber;
+			int nextFileNumber = fileNumber+1;
+			long virtualSize = wholeListSize + softMapping.getLastShiftAmount();
+			int usedCacheBlocks = getNumberOfUsedBlocks(virtualSize);
+					
+			int cacheBlockSpot = -1;
+			int nextCacheBlockSpot = -1;
+
+			if(!cacheMapping.isFileInCache(fileNumber))
+			{
+				cacheBlockSpot = cacheMapping.bringFileIntoCache(fileNumber);
+			}
+			else
+			{
+				cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
+				cacheMapping.updateUsedList(cacheBlockSpot);
+			}
+				
+			//assume there will be changes, this assumption is not always true?
+			cacheMapping.setDirtyBit(cacheBlockSpot, true);
+				
+			if(!cacheMapping.isFileInCache(nextFileNumber))
+			{
+				nextCacheBlockSpot = cacheMapping.bringFileIntoCache(nextFileNumber);
+				cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
+			}
+			else
+			{
+				nextCacheBlockSpot = cacheMapping.getCacheBlockSpot(nextFileNumber);
+				cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
+			}
+				
+			//SHOULD FIND MAX SHIFT TOO
+			while(nextFileNumber < usedCacheBlocks)
+			{		
+				List<E> cacheBlock = arrayLists.get(cacheBlockSpot);
+				List<E> nextCacheBlock = arrayLists.get(nextCacheBlockSpot);
 					
 				//SHOULD FIND MAX SHIFT TOO
 				while(cacheBlock.size() < getBlockSize() && nextFileNumber < usedCacheBlocks)
@@ -734,432 +1910,984 @@ public class BigArrayList<E extends Serializable>
 							//next file is not in cache
 							if(!cacheMapping.isFileInCache(nextFileNumber))
 							{
-								nextCacheBlockSpot = cacheMapping.bringFileIntoCache(nextFileNumber);
+								nextCacheBlockSpot = cacheMapping.bringFileIntoCache(nextFileNumber);
+							}
+							else
+							{
+								nextCacheBlockSpot = cacheMapping.getCacheBlockSpot(nextFileNumber);
+							}
+							
+							nextCacheBlock = arrayLists.get(nextCacheBlockSpot);
+							cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
+						}
+					}
+				}
+
+				fileNumber++;
+				
+				if(fileNumber == nextFileNumber)
+				{
+					nextFileNumber = fileNumber + 1;
+				}
+						
+				//if not at end
+				if(nextFileNumber < usedCacheBlocks)
+				{				
+					if(!cacheMapping.isFileInCache(fileNumber))
+					{
+						cacheBlockSpot = cacheMapping.bringFileIntoCache(fileNumber);
+					}
+					else
+					{
+						cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
+						cacheMapping.updateUsedList(cacheBlockSpot);
+					}
+
+					cacheMapping.setDirtyBit(cacheBlockSpot, true);
+							
+					if(!cacheMapping.isFileInCache(nextFileNumber))
+					{
+						nextCacheBlockSpot = cacheMapping.bringFileIntoCache(nextFileNumber);
+					}
+					else
+					{
+						nextCacheBlockSpot = cacheMapping.getCacheBlockSpot(nextFileNumber);	
+					}
+
+					cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
+				}
+			}
+
+			softMapping.removeAllShifts();
+			
+			cacheMapping.getStatistics().purged(System.nanoTime() - purgeStart);
+			event.finish(cacheMapping.getFileAccessor().getMemoryInstance(), firstFileNumber, shifts);
+		}
+	}
+
+
+	/**
+	 * Purges action queue for all consecutive blocks in cache starting at startIndex
+	 * 
+	 * @param startIndex The block index to start at
+	 */
+	private void purgeActionBufferInCache(long startIndex)
+	{
+		if(softMapping.getBufferSize() > 0)
+		{
+			ListEvents.Purge event = new ListEvents.Purge();
+			event.begin();
+			int shifts = softMapping.getBufferSize();
+			long purgeStart = System.nanoTime();
+			boolean done = false;
+			
+			//first index
+			int fileNumber = cacheMapping.getFileNumber(startIndex);
+			int firstFileNumber = fileNumber;
+			int nextFileNumber = fileNumber+1;
+			long virtualSize = wholeListSize + softMapping.getLastShiftAmount();
+			int usedCacheBlocks = getNumberOfUsedBlocks(virtualSize);
+				
+			int cacheBlockSpot = -1;
+			int nextCacheBlockSpot = -1;
+
+			if(!cacheMapping.isFileInCache(fileNumber))
+			{
+				cacheBlockSpot = cacheMapping.bringFileIntoCache(fileNumber);
+			}
+			else
+			{
+				cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
+			}
+			
+			//assume there will be changes, this assumption is not always true?
+			cacheMapping.setDirtyBit(cacheBlockSpot, true);
+			
+			if(!cacheMapping.isFileInCache(nextFileNumber))
+			{
+				done = true;
+			}
+			else
+			{
+				nextCacheBlockSpot = cacheMapping.getCacheBlockSpot(nextFileNumber);
+				cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
+			}
+			
+			long lastIndexInBlock = cacheMapping.getLastIndexInFile(fileNumber);
+			long lastIndexInNextBlock = cacheMapping.getLastIndexInFile(nextFileNumber);
+			
+			while(nextFileNumber < usedCacheBlocks && !done)
+			{
+				long shiftAmount = softMapping.getCurrentShiftAmount(lastIndexInBlock);
+				softMapping.removeShift(lastIndexInBlock);
+				
+				//count of shifts done into current cache block
+				long shiftCount = 0;
+				
+				//count of shifts done from next cache block
+				long nextShiftCount = 0;
+				
+				List<E> cacheBlock = arrayLists.get(cacheBlockSpot);
+				List<E> nextCacheBlock = arrayLists.get(nextCacheBlockSpot);
+				
+				//shift down to current block
+				while(cacheBlock.size() < getBlockSize() && !done)
+				{
+					if(nextCacheBlock.size() > 0)
+					{
+						cacheBlock.add(nextCacheBlock.remove(0));
+						cacheMapping.removeEntry(nextCacheBlockSpot);
+						cacheMapping.addEntry(cacheBlockSpot);
+						shiftCount++;
+						nextShiftCount++;
+					}
+					else
+					{
+						//next block is empty, reset nextShiftCount
+						if(nextShiftCount > 0)
+						{
+							softMapping.addShift(lastIndexInNextBlock, nextShiftCount);
+							nextShiftCount = 0;
+						}
+
+						nextFileNumber++;
+						
+						//not reached end of blocks
+						if(nextFileNumber < usedCacheBlocks)
+						{
+							//next file is not in cache
+							if(!cacheMapping.isFileInCache(nextFileNumber))
+							{
+								done = true;
 							}
 							else
 							{
 								nextCacheBlockSpot = cacheMapping.getCacheBlockSpot(nextFileNumber);
+								nextCacheBlock = arrayLists.get(nextCacheBlockSpot);
+								lastIndexInNextBlock = cacheMapping.getLastIndexInFile(nextFileNumber);
+								cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
 							}
-							
-							nextCacheBlock = arrayLists.get(nextCacheBlockSpot);
-							cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
+						}
+						else
+						{
+							done = true;
 						}
 					}
 				}
-
-				fileNumber++;
 				
-				if(fileNumber == nextFileNumber)
+				//may have ended loop without doing all shifts for current block
+				//add back in
+				if(shiftAmount - shiftCount > 0)
 				{
-					nextFileNumber = fileNumber + 1;
+					softMapping.addShift(lastIndexInBlock, shiftAmount-shiftCount);
 				}
-						
-				//if not at end
-				if(nextFileNumber < usedCacheBlocks)
-				{				
-					if(!cacheMapping.isFileInCache(fileNumber))
+				else
+				{
+					//current block = full
+					
+					fileNumber++;
+					
+					if(fileNumber == nextFileNumber)
 					{
-						cacheBlockSpot = cacheMapping.bringFileIntoCache(fileNumber);
+						nextFileNumber = fileNumber + 1;
 					}
-					else
-					{
-						cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
-						cacheMapping.updateUsedList(cacheBlockSpot);
+					
+					//if not at end
+					if(nextFileNumber < usedCacheBlocks)
+					{				
+						//add remaining shifts to next block
+						//no shifts to add to current block since it was filled
+						softMapping.addShift(lastIndexInNextBlock, nextShiftCount);
+						
+						if(!cacheMapping.isFileInCache(fileNumber))
+						{
+							done = true;
+						}
+						else
+						{
+							cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
+							lastIndexInBlock = cacheMapping.getLastIndexInFile(fileNumber);
+							cacheMapping.setDirtyBit(cacheBlockSpot, true);
+						}
+						
+						if(!cacheMapping.isFileInCache(nextFileNumber))
+						{
+							done = true;
+						}
+						else
+						{
+							nextCacheBlockSpot = cacheMapping.getCacheBlockSpot(nextFileNumber);
+							lastIndexInNextBlock = cacheMapping.getLastIndexInFile(nextFileNumber);
+							cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
+						}
 					}
+				}				
+			}
+			
+			cacheMapping.getStatistics().purged(System.nanoTime() - purgeStart);
+			event.finish(cacheMapping.getFileAccessor().getMemoryInstance(), firstFileNumber, shifts);
+		}
+	}
+	
+	///////////////////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Adds an element to the end of the list.
+	 * Analogous to the add method of the ArrayList class
+	 * 
+	 * @param element The element to add
+	 * @return If the element was added or not
+	 */
+	public boolean add(E element)
+	{
+		boolean added = false;
+
+		cacheMapping.applyCacheLimit();
+		adviseLayout();
+		cacheMapping.traceAccess(wholeListSize, true);
+		long adjustedIndex = softMapping.getAdjustedIndex(wholeListSize);
+		int lastFile = cacheMapping.getFileNumber(adjustedIndex);
+		int cacheBlockSpot = -1;
+
+		if(!cacheMapping.isFileInCache(lastFile))
+		{
+			//bring last file into cache
+			cacheMapping.bringFileIntoCache(lastFile);
+		}
+		else
+		{
+			cacheMapping.getStatistics().hit();
+		}
+
+		cacheBlockSpot = cacheMapping.getCacheBlockSpot(lastFile);
+
+		//no -1 check, assumed it was brought in
+		//if last file is not full
+		if(!cacheMapping.isCacheFull(cacheBlockSpot))
+		{
+			//add to last array list and update cache entry
+			added = arrayLists.get(cacheBlockSpot).add(element);
+
+			if(added)
+			{
+				cacheMapping.addEntry(cacheBlockSpot);
+				cacheMapping.setAppended(cacheBlockSpot);
+				fenceIndex.append(lastFile, element);
+				wholeListSize++;
+			}
+			
+		}
+		else
+		{
+			throw new RuntimeException("Failed to add " + element + " at the end of the list");
+		}
+
+		return added;
+	}
+
+	/**
+	 * Gets an element at the specified index.
+	 * Analogous to the get method of the ArrayList class
+	 * 
+	 * @param index The index
+	 * @return The element
+	 */
+	public E get(long index)
+	{
+		if(index < 0 || index >= wholeListSize)
+		{
+			throw new IndexOutOfBoundsException(" " + index + " ");
+		}
+
+
+		//if index not in cache and not greater than max
+			//bring corresponding file in cache
+
+		cacheMapping.applyCacheLimit();
+		adviseLayout();
+		cacheMapping.traceAccess(index, false);
+		long adjustedIndex = softMapping.getAdjustedIndex(index);
+		int fileNumber = cacheMapping.getFileNumber(adjustedIndex);
+		int spotInCache = cacheMapping.getSpotInCache(adjustedIndex);
+		E element = null;
+		
+		//an element set with blindSet is read from the write overlay without reading its block
+		if(!cacheMapping.isFileInCache(fileNumber) && cacheMapping.isInOverlay(fileNumber, spotInCache))
+		{
+			element = cacheMapping.getFromOverlay(fileNumber, spotInCache);
+			cacheMapping.getStatistics().hit();
+		}
+		else
+		{
+			if(!cacheMapping.isFileInCache(fileNumber))
+			{
+				cacheMapping.bringFileIntoCache(fileNumber);
+			}
+			else
+			{
+				cacheMapping.getStatistics().hit();
+			}
+			
+			int cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
+			cacheMapping.touch(cacheBlockSpot);
+			
+			//find cache that index is in
+			//find cache spot
+			//get from the cache spot
+			
+			element = arrayLists.get(cacheBlockSpot).get(spotInCache);
+		}
+		
+		return element;
+	}
+
+	/**
+	 * Analogous to the get method of the ArrayList class
+	 * 
+	 * @param index The index
+	 * @return Returns the element at the specified index
+	 */
+	public E get(int index)
+	{
+		long longIndex = index;
+		return get(longIndex);
+	}
+	
+	
+	/**
+	 * Analogous to the remove method of the ArrayList class
+	 * 
+	 * @param index The index
+	 * @return Returns the element removed at the specified index
+	 */
+	public E remove(long index)
+	{
+		if(index < 0 || index >= wholeListSize)
+		{
+			throw new IndexOutOfBoundsException(" " + index + " ");
+		}
+		
+		//can possibly add something to the buffer
+		//safest place to clear the buffer is here
+		if(softMapping.isBufferFull() || softMapping.isShiftMaxed())
+		{
+			purgeActionBuffer();
+		}
+		
+		cacheMapping.applyCacheLimit();
+		adviseLayout();
+		cacheMapping.traceAccess(index, true);
+		long adjustedIndex = softMapping.getAdjustedIndex(index);
+		int fileNumber = cacheMapping.getFileNumber(adjustedIndex);
+
+		if(!cacheMapping.isFileInCache(fileNumber))
+		{
+			cacheMapping.bringFileIntoCache(fileNumber);
+		}
+		else
+		{
+			cacheMapping.getStatistics().hit();
+		}
+		
+		int cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
+		int spotInCache = cacheMapping.getSpotInCache(adjustedIndex);
+		long virtualSize = wholeListSize + softMapping.getLastShiftAmount();
+		int usedCacheBlocks = getNumberOfUsedBlocks(virtualSize);
+		
+		List<E> cacheBlock = arrayLists.get(cacheBlockSpot);		
+		E element = cacheBlock.remove(spotInCache);
+		cacheMapping.removeEntry(cacheBlockSpot);
+		cacheMapping.setDirtyBit(cacheBlockSpot, true);
+		
+		//elements shift between blocks, so the fence keys no longer match
+		fenceIndex.invalidate();
+		
+		//need to shift other lists down to the one where an element was just removed
+			//update SoftMapping for the remove action
+
+		long lastIndexInBlock = cacheMapping.getLastIndexInFile(fileNumber);
+		
+		//if this block is the last block, no need to care about unnecessary shifts
+		if((fileNumber+1) < usedCacheBlocks)
+		{			
+			softMapping.addShift(lastIndexInBlock, 1);
+			purgeActionBufferInCache(lastIndexInBlock);
+		}
+
+		wholeListSize--;
+		
+		return element;
+	}
+
+	/**
+	 * Analogous to the remove method of the ArrayList class
+	 * 
+	 * @param index The index
+	 * @return Returns the element removed at the specified index
+	 */
+	public E remove(int index)
+	{
+		long longIndex = index;
+		return remove(longIndex);
+	}
+
+	/**
+	 * Sets the element at the specified index
+	 * Analogous to the set method of the ArrayList class
+	 * 
+	 * @param index The index
+	 * @param element The new element
+	 * @return The new element at the specified index
+	 */
+	public E set(long index, E element)
+	{
+		if(index < 0 || index >= wholeListSize)
+		{
+			throw new IndexOutOfBoundsException(" " + index + " ");
+		}
 
-					cacheMapping.setDirtyBit(cacheBlockSpot, true);
-							
-					if(!cacheMapping.isFileInCache(nextFileNumber))
-					{
-						nextCacheBlockSpot = cacheMapping.bringFileIntoCache(nextFileNumber);
-					}
-					else
-					{
-						nextCacheBlockSpot = cacheMapping.getCacheBlockSpot(nextFileNumber);	
-					}
+		//if index not in cache and not greater than max
+			//bring corresponding file in cache
 
-					cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
-				}
-			}
+		cacheMapping.applyCacheLimit();
+		adviseLayout();
+		cacheMapping.traceAccess(index, true);
+		long adjustedIndex = softMapping.getAdjustedIndex(index);
+		int fileNumber =  cacheMapping.getFileNumber(adjustedIndex);
 
-			softMapping.removeAllShifts();
+		if(!cacheMapping.isFileInCache(fileNumber))
+		{
+			cacheMapping.bringFileIntoCache(fileNumber);
 		}
-	}
+		else
+		{
+			cacheMapping.getStatistics().hit();
+		}
+
+		int cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
+		cacheMapping.touch(cacheBlockSpot);
+
+		//find cache that index is in
+		//find cache spot
+		//get from the cache spot
+
+		int spotInCache = cacheMapping.getSpotInCache(adjustedIndex);
+		cacheMapping.setModified(cacheBlockSpot, spotInCache);
+		fenceIndex.update(fileNumber, spotInCache, arrayLists.get(cacheBlockSpot).size(), element);
 
+		return arrayLists.get(cacheBlockSpot).set(spotInCache, element);
+	}
 
 	/**
-	 * Purges action queue for all consecutive blocks in cache starting at startIndex
+	 * Sets the element at the specified index
+	 * Analogous to the set method of the ArrayList class
 	 * 
-	 * @param startIndex The block index to start at
+	 * @param index The index
+	 * @param element The new element
+	 * @return The new element at the specified index
 	 */
-	private void purgeActionBufferInCache(long startIndex)
+	public E set(int index, E element)
 	{
-		if(softMapping.getBufferSize() > 0)
+		long longIndex = index;
+		return set(longIndex, element);
+	}
+	
+	/**
+	 * Sets the element at the specified index without returning the element it replaces.
+	 * With a write overlay, see {@link #enableWriteOverlay(int)}, an element of a block that is not in cache is set without reading the block,
+	 * which {@link #set(long, Serializable)} must do to return the replaced element.
+	 * Otherwise this is the same as set.
+	 * 
+	 * @param index The index
+	 * @param element The new element
+	 */
+	public void blindSet(long index, E element)
+	{
+		if(index < 0 || index >= wholeListSize)
 		{
-			boolean done = false;
+			throw new IndexOutOfBoundsException(" " + index + " ");
+		}
+		
+		cacheMapping.applyCacheLimit();
+		adviseLayout();
+		long adjustedIndex = softMapping.getAdjustedIndex(index);
+		int fileNumber = cacheMapping.getFileNumber(adjustedIndex);
+		
+		if(cacheMapping.getWriteOverlay() != null && !cacheMapping.isFileInCache(fileNumber))
+		{
+			int spotInCache = cacheMapping.getSpotInCache(adjustedIndex);
+			cacheMapping.traceAccess(index, true);
+			cacheMapping.setInOverlay(fileNumber, spotInCache, element);
+			cacheMapping.getStatistics().hit();
 			
-			//first index
-			int fileNumber = cacheMapping.getFileNumber(startIndex);
-			int nextFileNumber = fileNumber+1;
-			long virtualSize = wholeListSize + softMapping.getLastShiftAmount();
-			int usedCacheBlocks = getNumberOfUsedBlocks(virtualSize);
-				
-			int cacheBlockSpot = -1;
-			int nextCacheBlockSpot = -1;
-
-			if(!cacheMapping.isFileInCache(fileNumber))
-			{
-				cacheBlockSpot = cacheMapping.bringFileIntoCache(fileNumber);
-			}
-			else
+			//the fence keys are only valid without pending shifts, when every block but the last is full
+			fenceIndex.update(fileNumber, spotInCache, (int)Math.min(blockSize, wholeListSize - (long)fileNumber * blockSize), element);
+		}
+		else
+		{
+			set(index, element);
+		}
+	}
+	
+	/**
+	 * Sets the element at the specified index without returning the element it replaces, see {@link #blindSet(long, Serializable)}
+	 * 
+	 * @param index The index
+	 * @param element The new element
+	 */
+	public void blindSet(int index, E element)
+	{
+		long longIndex = index;
+		blindSet(longIndex, element);
+	}
+	
+	
+	/**
+	 * Searches a sorted BigArrayList for the key using a binary search.
+	 * Analogous to the binarySearch method of the Collections class.
+	 * <p>
+	 * The first and last element of each block are kept in memory, so the block that can hold the key is found without any file I/O,
+	 * and at most that one block is brought into cache.
+	 * If elements were removed since the list was last sorted, the fence keys are rebuilt first, which brings every block into cache once.
+	 * The list must be sorted by the comparator, otherwise the result is undefined.
+	 * 
+	 * @param key The key to search for
+	 * @param comparator How the list is sorted
+	 * @return The index of the key if it is in the list, otherwise (-(insertion point) - 1)
+	 */
+	public long binarySearch(E key, Comparator<? super E> comparator)
+	{
+		long result = -1;
+		cacheMapping.applyCacheLimit();
+		
+		if(wholeListSize > 0)
+		{
+			if(!fenceIndex.isValid() || softMapping.getBufferSize() > 0)
 			{
-				cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
+				rebuildFenceIndex();
 			}
 			
-			//assume there will be changes, this assumption is not always true?
-			cacheMapping.setDirtyBit(cacheBlockSpot, true);
+			int fileNumber = fenceIndex.findBlock(key, comparator);
+			long firstIndex = (long)fileNumber * blockSize;
 			
-			if(!cacheMapping.isFileInCache(nextFileNumber))
+			if(fileNumber >= getNumberOfUsedBlocks())
 			{
-				done = true;
+				result = -wholeListSize - 1;
 			}
-			else
+			else if(comparator.compare(key, fenceIndex.getFirstKey(fileNumber)) < 0)
 			{
-				nextCacheBlockSpot = cacheMapping.getCacheBlockSpot(nextFileNumber);
-				cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
+				result = -firstIndex - 1;
 			}
-			
-			long lastIndexInBlock = cacheMapping.getLastIndexInFile(fileNumber);
-			long lastIndexInNextBlock = cacheMapping.getLastIndexInFile(nextFileNumber);
-			
-			while(nextFileNumber < usedCacheBlocks && !done)
+			else
 			{
-				long shiftAmount = softMapping.getCurrentShiftAmount(lastIndexInBlock);
-				softMapping.removeShift(lastIndexInBlock);
-				
-				//count of shifts done into current cache block
-				long shiftCount = 0;
-				
-				//count of shifts done from next cache block
-				long nextShiftCount = 0;
-				
-				List<E> cacheBlock = arrayLists.get(cacheBlockSpot);
-				List<E> nextCacheBlock = arrayLists.get(nextCacheBlockSpot);
-				
-				//shift down to current block
-				while(cacheBlock.size() < getBlockSize() && !done)
+				if(!cacheMapping.isFileInCache(fileNumber))
 				{
-					if(nextCacheBlock.size() > 0)
-					{
-						cacheBlock.add(nextCacheBlock.remove(0));
-						cacheMapping.removeEntry(nextCacheBlockSpot);
-						cacheMapping.addEntry(cacheBlockSpot);
-						shiftCount++;
-						nextShiftCount++;
-					}
-					else
-					{
-						//next block is empty, reset nextShiftCount
-						if(nextShiftCount > 0)
-						{
-							softMapping.addShift(lastIndexInNextBlock, nextShiftCount);
-							nextShiftCount = 0;
-						}
-
-						nextFileNumber++;
-						
-						//not reached end of blocks
-						if(nextFileNumber < usedCacheBlocks)
-						{
-							//next file is not in cache
-							if(!cacheMapping.isFileInCache(nextFileNumber))
-							{
-								done = true;
-							}
-							else
-							{
-								nextCacheBlockSpot = cacheMapping.getCacheBlockSpot(nextFileNumber);
-								nextCacheBlock = arrayLists.get(nextCacheBlockSpot);
-								lastIndexInNextBlock = cacheMapping.getLastIndexInFile(nextFileNumber);
-								cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
-							}
-						}
-						else
-						{
-							done = true;
-						}
-					}
+					cacheMapping.bringFileIntoCache(fileNumber);
 				}
 				
-				//may have ended loop without doing all shifts for current block
-				//add back in
-				if(shiftAmount - shiftCount > 0)
+				int cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
+				int spotInCache = Collections.binarySearch(arrayLists.get(cacheBlockSpot), key, comparator);
+				
+				if(spotInCache >= 0)
 				{
-					softMapping.addShift(lastIndexInBlock, shiftAmount-shiftCount);
+					result = firstIndex + spotInCache;
 				}
 				else
 				{
-					//current block = full
-					
-					fileNumber++;
-					
-					if(fileNumber == nextFileNumber)
-					{
-						nextFileNumber = fileNumber + 1;
-					}
-					
-					//if not at end
-					if(nextFileNumber < usedCacheBlocks)
-					{				
-						//add remaining shifts to next block
-						//no shifts to add to current block since it was filled
-						softMapping.addShift(lastIndexInNextBlock, nextShiftCount);
-						
-						if(!cacheMapping.isFileInCache(fileNumber))
-						{
-							done = true;
-						}
-						else
-						{
-							cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
-							lastIndexInBlock = cacheMapping.getLastIndexInFile(fileNumber);
-							cacheMapping.setDirtyBit(cacheBlockSpot, true);
-						}
-						
-						if(!cacheMapping.isFileInCache(nextFileNumber))
-						{
-							done = true;
-						}
-						else
-						{
-							nextCacheBlockSpot = cacheMapping.getCacheBlockSpot(nextFileNumber);
-							lastIndexInNextBlock = cacheMapping.getLastIndexInFile(nextFileNumber);
-							cacheMapping.setDirtyBit(nextCacheBlockSpot, true);
-						}
-					}
-				}				
+					result = spotInCache - firstIndex;
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Rebuilds the first and last element of each block after they were invalidated
+	 */
+	private void rebuildFenceIndex()
+	{
+		purgeActionBuffer();
+		fenceIndex.reset();
+		
+		int usedBlocks = getNumberOfUsedBlocks();
+		
+		for(int i=0; i<usedBlocks; i++)
+		{
+			if(!cacheMapping.isFileInCache(i))
+			{
+				cacheMapping.bringFileIntoCache(i);
 			}
+			
+			fenceIndex.setFence(i, arrayLists.get(cacheMapping.getCacheBlockSpot(i)));
+		}
+	}
+	
+	/**
+	 * Starts keeping a summary of each block on disk: the minimum and maximum non-null element under the comparator,
+	 * the number of elements, and the number of null elements.
+	 * A summary is computed whenever a block is written to disk, and is kept in memory.
+	 * Summaries allow {@link #forEachInRange(Serializable, Serializable, ObjLongConsumer)} to skip blocks that cannot hold an element in the range.
+	 * Blocks already on disk are summarized the first time a range scan reads them.
+	 * The summaries are not stored, see {@link #enableZoneMaps(Comparator, String)} to keep them across runs.
+	 * 
+	 * @param comparator How to compare the elements
+	 */
+	public void enableZoneMaps(Comparator<? super E> comparator)
+	{
+		cacheMapping.setZoneMap(new ZoneMap<>(comparator, null));
+	}
+	
+	/**
+	 * Starts keeping a summary of each block on disk under a named comparator, see {@link #enableZoneMaps(Comparator)}.
+	 * For a persistent list, the summaries are stored with the manifest, and a reopened list that enables zone maps under the same name
+	 * reuses them instead of reading every block again.
+	 * The name identifies the comparator across runs, so it must be changed whenever the order of the comparator changes.
+	 * 
+	 * @param comparator How to compare the elements
+	 * @param name The name of the comparator
+	 * @throws IllegalArgumentException If the name is null
+	 */
+	public void enableZoneMaps(Comparator<? super E> comparator, String name)
+	{
+		if(name == null)
+		{
+			throw new IllegalArgumentException("Zone map name is null but must not be null");
 		}
+		
+		ZoneMap<E> storedZoneMap = cacheMapping.getStoredZoneMap();
+		
+		if(storedZoneMap != null && name.equals(storedZoneMap.getName()))
+		{
+			cacheMapping.setZoneMap(new ZoneMap<>(comparator, name, storedZoneMap.getSummaries(getNumberOfUsedBlocks())));
+			cacheMapping.setStoredZoneMap(null);
+		}
+		else
+		{
+			cacheMapping.setZoneMap(new ZoneMap<>(comparator, name));
+		}
+	}
+	
+	/**
+	 * Stops keeping block summaries
+	 */
+	public void disableZoneMaps()
+	{
+		cacheMapping.setZoneMap(null);
 	}
 	
-	///////////////////////////////////////////////////////////////////////////////////////////////////
-
 	/**
-	 * Adds an element to the end of the list.
-	 * Analogous to the add method of the ArrayList class
+	 * Passes every non-null element between low and high (inclusive) under the comparator given to {@link #enableZoneMaps(Comparator)}
+	 * to the action, along with its index, in index order.
+	 * Blocks on disk whose summary shows they cannot hold an element in the range are skipped without being read.
+	 * The action must not modify or access the list.
 	 * 
-	 * @param element The element to add
-	 * @return If the element was added or not
+	 * @param low The lower bound, or null for no lower bound
+	 * @param high The upper bound, or null for no upper bound
+	 * @param action What to do with each element in the range and its index
+	 * @throws IllegalStateException If zone maps are not enabled
 	 */
-	public boolean add(E element)
+	public void forEachInRange(E low, E high, ObjLongConsumer<? super E> action)
 	{
-		boolean added = false;
-
-		long adjustedIndex = softMapping.getAdjustedIndex(wholeListSize);
-		int lastFile = cacheMapping.getFileNumber(adjustedIndex);
-		int cacheBlockSpot = -1;
-
-		if(!cacheMapping.isFileInCache(lastFile))
+		ZoneMap<E> zoneMap = cacheMapping.getZoneMap();
+		
+		if(zoneMap == null)
 		{
-			//bring last file into cache
-			cacheMapping.bringFileIntoCache(lastFile);
+			throw new IllegalStateException("Zone maps are not enabled, call enableZoneMaps first");
 		}
-
-		cacheBlockSpot = cacheMapping.getCacheBlockSpot(lastFile);
-
-		//no -1 check, assumed it was brought in
-		//if last file is not full
-		if(!cacheMapping.isCacheFull(cacheBlockSpot))
+		
+		Comparator<? super E> comparator = zoneMap.getComparator();
+		
+		cacheMapping.applyCacheLimit();
+		purgeActionBuffer();
+		int usedBlocks = getNumberOfUsedBlocks();
+		
+		for(int i=0; i<usedBlocks; i++)
 		{
-			//add to last array list and update cache entry
-			added = arrayLists.get(cacheBlockSpot).add(element);
-
-			if(added)
+			boolean scanBlock = true;
+			
+			//blocks in cache may have changed since they were summarized
+			if(!cacheMapping.isFileInCache(i))
 			{
-				cacheMapping.addEntry(cacheBlockSpot);
-				cacheMapping.setDirtyBit(cacheBlockSpot, true);
-				wholeListSize++;
+				BlockSummary<E> summary = zoneMap.getSummary(i);
+				
+				if(summary != null)
+				{
+					scanBlock = summary.mayContainRange(low, high, comparator);
+				}
+				
+				if(scanBlock)
+				{
+					int cacheBlockSpot = cacheMapping.bringFileIntoCache(i);
+					
+					if(summary == null)
+					{
+						zoneMap.summarize(i, arrayLists.get(cacheBlockSpot));
+					}
+				}
 			}
 			
+			if(scanBlock)
+			{
+				List<E> cacheBlock = arrayLists.get(cacheMapping.getCacheBlockSpot(i));
+				long firstIndex = (long)i * blockSize;
+				
+				for(int j=0; j<cacheBlock.size(); j++)
+				{
+					E element = cacheBlock.get(j);
+					
+					if(element != null && (low == null || comparator.compare(element, low) >= 0) && (high == null || comparator.compare(element, high) <= 0))
+					{
+						action.accept(element, firstIndex + j);
+					}
+				}
+			}
 		}
-		else
-		{
-			throw new RuntimeException("Failed to add " + element + " at the end of the list");
-		}
-
-		return added;
 	}
-
+	
 	/**
-	 * Gets an element at the specified index.
-	 * Analogous to the get method of the ArrayList class
+	 * Starts keeping a Bloom filter of every block on disk in memory, rebuilt whenever the block is written to disk.
+	 * {@link #contains(Object)}, {@link #indexOf(Object)}, and {@link #lastIndexOf(Object)} skip any block on disk whose filter rules the value out.
+	 * Blocks already on disk get a filter the first time a search reads them.
+	 * Each filter uses about -blockSize * ln(falsePositiveRate) / ln(2)^2 bits of memory.
 	 * 
-	 * @param index The index
-	 * @return The element
+	 * @param falsePositiveRate The chance that a block without the value is read anyway, between 0 and 1 exclusive
 	 */
-	public E get(long index)
+	public void enableBloomFilters(double falsePositiveRate)
 	{
-		if(index < 0 || index >= wholeListSize)
+		if(!(falsePositiveRate > 0 && falsePositiveRate < 1))
 		{
-			throw new IndexOutOfBoundsException(" " + index + " ");
+			throw new IllegalArgumentException("False positive rate is " + falsePositiveRate + " but must be > 0 and < 1");
 		}
-
-
-		//if index not in cache and not greater than max
-			//bring corresponding file in cache
-
-		long adjustedIndex = softMapping.getAdjustedIndex(index);
-		int fileNumber = cacheMapping.getFileNumber(adjustedIndex);
-
-		if(!cacheMapping.isFileInCache(fileNumber))
+		
+		cacheMapping.setBloomFilters(new BloomFilterIndex(blockSize, falsePositiveRate));
+	}
+	
+	/**
+	 * Stops keeping Bloom filters and frees their memory
+	 */
+	public void disableBloomFilters()
+	{
+		cacheMapping.setBloomFilters(null);
+	}
+	
+	/**
+	 * Starts holding the elements set by {@link #blindSet(long, Serializable)} in blocks that are not in cache, instead of reading those blocks.
+	 * A block's elements are applied when the block is next brought into cache, and {@link #get(long)} returns them without reading the block.
+	 * When the overlay holds more than the given number of elements, the block with the most elements is read, changed, and written back
+	 * without swapping out a block in cache.  Every element is written before blocks on disk are scanned, sorted, shared, or flushed.
+	 * 
+	 * @param maxElements The most elements held before blocks are written
+	 */
+	public void enableWriteOverlay(int maxElements)
+	{
+		if(maxElements < 1)
 		{
-			cacheMapping.bringFileIntoCache(fileNumber);
+			throw new IllegalArgumentException("Max elements is " + maxElements + " but must be >= 1");
 		}
-
-		int cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
-
-		//find cache that index is in
-		//find cache spot
-		//get from the cache spot
-
-		int spotInCache = cacheMapping.getSpotInCache(adjustedIndex);
-
-		return arrayLists.get(cacheBlockSpot).get(spotInCache);
+		
+		cacheMapping.setWriteOverlay(new WriteOverlay<>(maxElements));
 	}
-
+	
 	/**
-	 * Analogous to the get method of the ArrayList class
+	 * Writes the elements held by the write overlay to their blocks and stops holding elements
+	 */
+	public void disableWriteOverlay()
+	{
+		cacheMapping.setWriteOverlay(null);
+	}
+	
+	/**
+	 * Returns if the list holds an element equal to the value
 	 * 
-	 * @param index The index
-	 * @return Returns the element at the specified index
+	 * @param value The value to search for, may be null
+	 * @return Returns true if an element equals the value
 	 */
-	public E get(int index)
+	public boolean contains(Object value)
 	{
-		long longIndex = index;
-		return get(longIndex);
+		return findIndex(value, false) >= 0;
 	}
 	
+	/**
+	 * Returns the index of the first element equal to the value
+	 * 
+	 * @param value The value to search for, may be null
+	 * @return Returns the index, or -1 if no element equals the value
+	 */
+	public long indexOf(Object value)
+	{
+		return findIndex(value, false);
+	}
 	
 	/**
-	 * Analogous to the remove method of the ArrayList class
+	 * Returns the index of the last element equal to the value
 	 * 
-	 * @param index The index
-	 * @return Returns the element removed at the specified index
+	 * @param value The value to search for, may be null
+	 * @return Returns the index, or -1 if no element equals the value
 	 */
-	public E remove(long index)
+	public long lastIndexOf(Object value)
 	{
-		if(index < 0 || index >= wholeListSize)
-		{
-			throw new IndexOutOfBoundsException(" " + index + " ");
-		}
+		return findIndex(value, true);
+	}
+	
+	/**
+	 * Scans the blocks in order for an element equal to the value, skipping blocks on disk whose Bloom filter rules the value out
+	 * 
+	 * @param value The value to search for, may be null
+	 * @param fromEnd Whether to scan from the end of the list backwards
+	 * @return Returns the index of the first (or last) equal element, or -1 if there is none
+	 */
+	private long findIndex(Object value, boolean fromEnd)
+	{
+		BloomFilterIndex bloomFilters = cacheMapping.getBloomFilters();
+		long foundIndex = -1;
 		
-		//can possibly add something to the buffer
-		//safest place to clear the buffer is here
-		if(softMapping.isBufferFull() || softMapping.isShiftMaxed())
-		{
-			purgeActionBuffer();
-		}
+		cacheMapping.applyCacheLimit();
+		purgeActionBuffer();
+		int usedBlocks = getNumberOfUsedBlocks();
 		
-		long adjustedIndex = softMapping.getAdjustedIndex(index);
-		int fileNumber = cacheMapping.getFileNumber(adjustedIndex);
-
-		if(!cacheMapping.isFileInCache(fileNumber))
+		for(int i=0; i<usedBlocks && foundIndex < 0; i++)
 		{
-			cacheMapping.bringFileIntoCache(fileNumber);
+			int fileNumber = fromEnd ? usedBlocks - 1 - i : i;
+			boolean scanBlock = true;
+			
+			//blocks in cache may have changed since their filter was built
+			if(!cacheMapping.isFileInCache(fileNumber))
+			{
+				scanBlock = bloomFilters == null || bloomFilters.mightContain(fileNumber, value);
+				
+				if(scanBlock)
+				{
+					int cacheBlockSpot = cacheMapping.bringFileIntoCache(fileNumber);
+					
+					if(bloomFilters != null && !bloomFilters.hasFilter(fileNumber))
+					{
+						bloomFilters.update(fileNumber, arrayLists.get(cacheBlockSpot));
+					}
+				}
+			}
+			
+			if(scanBlock)
+			{
+				List<E> cacheBlock = arrayLists.get(cacheMapping.getCacheBlockSpot(fileNumber));
+				int blockLength = cacheBlock.size();
+				
+				for(int j=0; j<blockLength && foundIndex < 0; j++)
+				{
+					int spotInBlock = fromEnd ? blockLength - 1 - j : j;
+					
+					if(Objects.equals(cacheBlock.get(spotInBlock), value))
+					{
+						foundIndex = (long)fileNumber * blockSize + spotInBlock;
+					}
+				}
+			}
 		}
 		
-		int cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
-		int spotInCache = cacheMapping.getSpotInCache(adjustedIndex);
-		long virtualSize = wholeListSize + softMapping.getLastShiftAmount();
-		int usedCacheBlocks = getNumberOfUsedBlocks(virtualSize);
-		
-		List<E> cacheBlock = arrayLists.get(cacheBlockSpot);		
-		E element = cacheBlock.remove(spotInCache);
-		cacheMapping.removeEntry(cacheBlockSpot);
-		cacheMapping.setDirtyBit(cacheBlockSpot, true);
-		
-		//need to shift other lists down to the one where an element was just removed
-			//update SoftMapping for the remove action
-
-		long lastIndexInBlock = cacheMapping.getLastIndexInFile(fileNumber);
+		return foundIndex;
+	}
+	
+	/**
+	 * Returns the index of the first element matching the predicate, scanning blocks with several threads.
+	 * Blocks on disk are read by each thread on its own, outside of the list's cache, so the cache is left unchanged.
+	 * Threads stop claiming blocks after the block of the best match found so far.
+	 * The predicate may be called from several threads at once, and must not modify or access the list.
+	 * The threads are shared by all lists, so a parallel scan started by the predicate, such as of another list that is not being modified,
+	 * runs on the thread calling the predicate instead of waiting for the shared threads.
+	 * 
+	 * @param predicate The predicate to match, elements may be null
+	 * @return Returns the index, or -1 if no element matches
+	 * @throws IOException For I/O errors
+	 */
+	public long parallelIndexOf(Predicate<? super E> predicate) throws IOException
+	{
+		cacheMapping.applyCacheLimit();
+		purgeActionBuffer();
+		long foundIndex = -1;
 		
-		//if this block is the last block, no need to care about unnecessary shifts
-		if((fileNumber+1) < usedCacheBlocks)
-		{			
-			softMapping.addShift(lastIndexInBlock, 1);
-			purgeActionBufferInCache(lastIndexInBlock);
+		try
+		{
+			foundIndex = new ParallelScanner<>(this).indexOf(predicate);
+		}
+		catch(ClassNotFoundException e)
+		{
+			throw new IOException(e);
 		}
-
-		wholeListSize--;
 		
-		return element;
+		return foundIndex;
 	}
-
+	
 	/**
-	 * Analogous to the remove method of the ArrayList class
+	 * Returns the first element matching the predicate, see {@link #parallelIndexOf(Predicate)}
 	 * 
-	 * @param index The index
-	 * @return Returns the element removed at the specified index
+	 * @param predicate The predicate to match, elements may be null
+	 * @return Returns the first matching element, or null if no element matches
+	 * @throws IOException For I/O errors
 	 */
-	public E remove(int index)
+	public E parallelFindFirst(Predicate<? super E> predicate) throws IOException
 	{
-		long longIndex = index;
-		return remove(longIndex);
+		long foundIndex = parallelIndexOf(predicate);
+		E element = null;
+		
+		if(foundIndex >= 0)
+		{
+			element = get(foundIndex);
+		}
+		
+		return element;
 	}
-
+	
 	/**
-	 * Sets the element at the specified index
-	 * Analogous to the set method of the ArrayList class
+	 * Counts the elements matching the predicate, scanning blocks with several threads, see {@link #parallelIndexOf(Predicate)}
 	 * 
-	 * @param index The index
-	 * @param element The new element
-	 * @return The new element at the specified index
+	 * @param predicate The predicate to match, elements may be null
+	 * @return Returns the number of matching elements
+	 * @throws IOException For I/O errors
 	 */
-	public E set(long index, E element)
+	public long parallelCount(Predicate<? super E> predicate) throws IOException
 	{
-		if(index < 0 || index >= wholeListSize)
+		cacheMapping.applyCacheLimit();
+		purgeActionBuffer();
+		long matches = 0;
+		
+		try
 		{
-			throw new IndexOutOfBoundsException(" " + index + " ");
+			matches = new ParallelScanner<>(this).count(predicate);
 		}
-
-		//if index not in cache and not greater than max
-			//bring corresponding file in cache
-
-		long adjustedIndex = softMapping.getAdjustedIndex(index);
-		int fileNumber =  cacheMapping.getFileNumber(adjustedIndex);
-
-		if(!cacheMapping.isFileInCache(fileNumber))
+		catch(ClassNotFoundException e)
 		{
-			cacheMapping.bringFileIntoCache(fileNumber);
+			throw new IOException(e);
 		}
-
-		int cacheBlockSpot = cacheMapping.getCacheBlockSpot(fileNumber);
-
-		//find cache that index is in
-		//find cache spot
-		//get from the cache spot
-
-		int spotInCache = cacheMapping.getSpotInCache(adjustedIndex);
-		cacheMapping.setDirtyBit(cacheBlockSpot, true);
-
-		return arrayLists.get(cacheBlockSpot).set(spotInCache, element);
+		
+		return matches;
 	}
-
+	
 	/**
-	 * Sets the element at the specified index
-	 * Analogous to the set method of the ArrayList class
+	 * Returns if any element matches the predicate, scanning blocks with several threads, see {@link #parallelIndexOf(Predicate)}.
+	 * Every thread stops as soon as a match is found.
 	 * 
-	 * @param index The index
-	 * @param element The new element
-	 * @return The new element at the specified index
+	 * @param predicate The predicate to match, elements may be null
+	 * @return Returns true if an element matches
+	 * @throws IOException For I/O errors
 	 */
-	public E set(int index, E element)
+	public boolean parallelAnyMatch(Predicate<? super E> predicate) throws IOException
 	{
-		long longIndex = index;
-		return set(longIndex, element);
+		cacheMapping.applyCacheLimit();
+		purgeActionBuffer();
+		boolean found = false;
+		
+		try
+		{
+			found = new ParallelScanner<>(this).anyMatch(predicate);
+		}
+		catch(ClassNotFoundException e)
+		{
+			throw new IOException(e);
+		}
+		
+		return found;
 	}
 	
-	
 	/**
 	 * Returns if the list is empty.
 	 * 
@@ -0,0 +1,130 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+/**
+ * The JMX management interface of a BigArrayList registered with {@link BigArrayList#registerMBean()}.
+ * Every attribute is read from a new {@link ListStatistics} snapshot, latencies are in nanoseconds.
+ * Attributes are read by another thread while the list is used, so they may lag behind the list slightly.
+ * 
+ * @author Douglas Selent
+ */
+public interface BigArrayListMXBean
+{
+	/**
+	 * @return Returns the number of elements in the list
+	 */
+	long getSize();
+	
+	/**
+	 * @return Returns the number of elements in each block
+	 */
+	int getBlockSize();
+	
+	/**
+	 * @return Returns the number of blocks in cache
+	 */
+	int getResidentBlocks();
+	
+	/**
+	 * @return Returns the most blocks the list holds in cache
+	 */
+	int getCacheLimit();
+	
+	/**
+	 * @return See {@link ListStatistics#getHits()}
+	 */
+	long getHits();
+	
+	/**
+	 * @return See {@link ListStatistics#getMisses()}
+	 */
+	long getMisses();
+	
+	/**
+	 * @return See {@link ListStatistics#getHitRatio()}
+	 */
+	double getHitRatio();
+	
+	/**
+	 * @return See {@link ListStatistics#getEvictions()}
+	 */
+	long getEvictions();
+	
+	/**
+	 * @return See {@link ListStatistics#getDirtyEvictions()}
+	 */
+	long getDirtyEvictions();
+	
+	/**
+	 * @return See {@link ListStatistics#getCleanEvictions()}
+	 */
+	long getCleanEvictions();
+	
+	/**
+	 * @return See {@link ListStatistics#getBytesRead()}
+	 */
+	long getBytesRead();
+	
+	/**
+	 * @return See {@link ListStatistics#getBytesWritten()}
+	 */
+	long getBytesWritten();
+	
+	/**
+	 * @return Returns the mean latency of reading a block into cache
+	 */
+	long getLoadMeanNanos();
+	
+	/**
+	 * @return Returns an upper bound of the 99th percentile latency of reading a block into cache
+	 */
+	long getLoadP99Nanos();
+	
+	/**
+	 * @return Returns the largest latency of reading a block into cache
+	 */
+	long getLoadMaxNanos();
+	
+	/**
+	 * @return Returns the mean latency of writing a block to disk
+	 */
+	long getFlushMeanNanos();
+	
+	/**
+	 * @return Returns an upper bound of the 99th percentile latency of writing a block to disk
+	 */
+	long getFlushP99Nanos();
+	
+	/**
+	 * @return Returns the largest latency of writing a block to disk
+	 */
+	long getFlushMaxNanos();
+	
+	/**
+	 * @return See {@link ListStatistics#getPurges()}
+	 */
+	long getPurges();
+	
+	/**
+	 * @return See {@link ListStatistics#getPurgeNanos()}
+	 */
+	long getPurgeNanos();
+}
@@ -0,0 +1,271 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.zip.CRC32C;
+
+/**
+ * A reusable buffer holding the contents of one block or object file, used by the FileAccessor class.
+ * Buffers are kept in a pool shared by all lists, so reading and writing blocks does not allocate a new buffer every time,
+ * each buffer grows to the largest file it has held and keeps that size.
+ * <p>
+ * A buffer must be taken with {@link #acquire()} and given back with {@link #release(BlockBuffer)} once its contents are no longer used.
+ * The pool is thread safe, each buffer is only used by the thread that acquired it.
+ * 
+ * @author Douglas Selent
+ */
+class BlockBuffer extends ByteArrayOutputStream
+{
+	/**
+	 * Initial size of a buffer = 262,144 bytes
+	 */
+	private static final int INITIAL_SIZE = 262144;
+	
+	/**
+	 * Most buffers kept in the pool = 16, more are only needed when more threads read and write at once
+	 */
+	private static final int MAX_POOLED_BUFFERS = 16;
+	
+	/**
+	 * Largest buffer kept in the pool = 16,777,216 bytes, larger buffers are left to the garbage collector
+	 */
+	private static final int MAX_POOLED_SIZE = 16777216;
+	
+	/**
+	 * The buffers not in use
+	 */
+	private static final ArrayDeque<BlockBuffer> pool = new ArrayDeque<>();
+	
+	/**
+	 * Computes the checksums of the contents, kept with the buffer so it is reused too
+	 */
+	private final CRC32C checksum;
+	
+	/**
+	 * Constructs an empty buffer of the initial size
+	 */
+	private BlockBuffer()
+	{
+		super(INITIAL_SIZE);
+		checksum = new CRC32C();
+	}
+	
+	/**
+	 * @return Returns an empty buffer from the pool, or a new one if the pool is empty
+	 */
+	protected static BlockBuffer acquire()
+	{
+		BlockBuffer buffer = null;
+		
+		synchronized(pool)
+		{
+			buffer = pool.pollLast();
+		}
+		
+		if(buffer == null)
+		{
+			buffer = new BlockBuffer();
+		}
+		
+		return buffer;
+	}
+	
+	/**
+	 * Gives a buffer back to the pool, it must not be used anymore
+	 * 
+	 * @param buffer The buffer
+	 */
+	protected static void release(BlockBuffer buffer)
+	{
+		buffer.reset();
+		
+		if(buffer.buf.length <= MAX_POOLED_SIZE)
+		{
+			synchronized(pool)
+			{
+				if(pool.size() < MAX_POOLED_BUFFERS)
+				{
+					pool.addLast(buffer);
+				}
+			}
+		}
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the array holding the contents, valid up to {@link #size()}
+	 */
+	protected byte[] getBuffer()
+	{
+		return buf;
+	}
+	
+	/**
+	 * Returns the CRC32C checksum of part of the contents
+	 * 
+	 * @param position The position to start at
+	 * @param length The number of bytes
+	 * @return Returns the checksum
+	 */
+	protected int getChecksum(int position, int length)
+	{
+		checksum.reset();
+		checksum.update(buf, position, length);
+		return (int)checksum.getValue();
+	}
+	
+	/**
+	 * Returns the big-endian int at the given position of the contents
+	 * 
+	 * @param position The position of the int
+	 * @return Returns the int
+	 */
+	protected int getInt(int position)
+	{
+		return ((buf[position] & 0xFF) << 24) | ((buf[position+1] & 0xFF) << 16) | ((buf[position+2] & 0xFF) << 8) | (buf[position+3] & 0xFF);
+	}
+	
+	/**
+	 * Overwrites the contents at the given position with a big-endian int, the position must be before the end of the contents
+	 * 
+	 * @param position The position of the int
+	 * @param value The int
+	 */
+	protected void putInt(int position, int value)
+	{
+		buf[position] = (byte)(value >>> 24);
+		buf[position+1] = (byte)(value >>> 16);
+		buf[position+2] = (byte)(value >>> 8);
+		buf[position+3] = (byte)value;
+	}
+	
+	/**
+	 * Writes zero bytes to leave room for contents that are only known later, such as a header
+	 * 
+	 * @param length The number of bytes
+	 */
+	protected void skip(int length)
+	{
+		for(int i=0; i<length; i++)
+		{
+			write(0);
+		}
+	}
+	
+	/**
+	 * Extends the contents by the given number of bytes and returns a view for writing them, such as elements of a fixed width
+	 * 
+	 * @param length The number of bytes
+	 * @return Returns a buffer positioned at the first new byte and limited to the last, it must not be used after the buffer is released
+	 */
+	protected ByteBuffer reserve(int length)
+	{
+		ensureSpace(count + length);
+		ByteBuffer view = ByteBuffer.wrap(buf, count, length);
+		count += length;
+		return view;
+	}
+	
+	/**
+	 * Replaces the contents with the whole contents of a file
+	 * 
+	 * @param file The file to read
+	 * @throws IOException For I/O errors
+	 */
+	protected void readFrom(File file) throws IOException
+	{
+		long fileLength = file.length();
+		
+		if(fileLength > Integer.MAX_VALUE - 8)
+		{
+			throw new IOException("File " + file.getPath() + " is too large to read, " + fileLength + " bytes");
+		}
+		
+		reset();
+		
+		if(buf.length < fileLength)
+		{
+			buf = new byte[(int)fileLength];
+		}
+		
+		FileInputStream fileInputStream = new FileInputStream(file);
+		
+		try
+		{
+			int bytesRead = 0;
+			
+			//the file is read to its end even if its length changed, the length is checked with the header
+			while(bytesRead != -1)
+			{
+				if(count == buf.length)
+				{
+					ensureSpace(count + 1);
+				}
+				
+				bytesRead = fileInputStream.read(buf, count, buf.length - count);
+				
+				if(bytesRead > 0)
+				{
+					count += bytesRead;
+				}
+			}
+		}
+		finally
+		{
+			fileInputStream.close();
+		}
+	}
+	
+	/**
+	 * Returns a stream reading part of the contents, the stream must not be used after the buffer is released
+	 * 
+	 * @param position The position to start at
+	 * @param length The number of bytes
+	 * @return Returns the stream
+	 */
+	protected InputStream getInputStream(int position, int length)
+	{
+		return new ByteArrayInputStream(buf, position, length);
+	}
+	
+	/**
+	 * Grows the array to hold at least the given number of bytes, keeping the contents
+	 * 
+	 * @param size The number of bytes
+	 */
+	private void ensureSpace(int size)
+	{
+		if(buf.length < size)
+		{
+			byte[] newBuffer = new byte[Math.max(size, buf.length * 2)];
+			System.arraycopy(buf, 0, newBuffer, 0, count);
+			buf = newBuffer;
+		}
+	}
+}
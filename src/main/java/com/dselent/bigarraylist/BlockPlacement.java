@@ -0,0 +1,42 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+/**
+ * How the blocks of a list are assigned to the folders it is striped across.
+ * Striping pays off when each folder is on a different storage device, since blocks in different folders are read and written at the same time
+ * by concurrent loads, flushes, and parallel scans.
+ * 
+ * @author Douglas Selent
+ */
+public enum BlockPlacement
+{
+	/**
+	 * Block n is stored in folder n modulo the number of folders, so consecutive blocks are on different devices.
+	 * Best for sequential scans and appends.
+	 */
+	ROUND_ROBIN,
+	
+	/**
+	 * Blocks are stored in the folder given by a hash of the block number.
+	 * Avoids one device getting all the work when the access pattern has a stride that is a multiple of the number of folders.
+	 */
+	HASHED
+}
@@ -0,0 +1,727 @@
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+
+/**
+ * Class that sorts the contents of a BigArrayList on disk in place using an external k-way merge sort.
+ * <p>
+ * Sorted runs of one block each are generated first, then merged back and forth between the two scratch file areas
+ * owned by the list's FileAccessor.  The last pass writes straight into the list's own file area,
+ * so no new BigArrayList object or memory instance is needed.
+ * <p>
+ * The list must be purged and flushed before sorting, so every block except the last one is full and no block is in cache.
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <E> Generic type
+ */
+class BlockSorter<E extends Serializable>
+{
+	/**
+	 * The minimum number of runs merged at once = 2
+	 */
+	private static final int MIN_MERGE_WIDTH = 2;
+	
+	/**
+	 * Number of key bits sorted on in each radix sort pass = 8
+	 */
+	private static final int RADIX_BITS = 8;
+	
+	/**
+	 * Number of radix sort buckets = 2^8
+	 */
+	private static final int RADIX = 1 << RADIX_BITS;
+	
+	/**
+	 * Mask for a single radix sort digit
+	 */
+	private static final long RADIX_MASK = RADIX - 1;
+	
+	/**
+	 * Number of radix sort digits in a long key = 8
+	 */
+	private static final int MAX_DIGITS = Long.SIZE / RADIX_BITS;
+	
+	/**
+	 * Number of elements written to a bucket stream before it is reset = 1,024
+	 * Resetting keeps the stream from holding on to every element written
+	 */
+	private static final int STREAM_RESET_INTERVAL = 1024;
+
+	/**
+	 * Reference to the FileAccessor object of the list being sorted
+	 */
+	private final FileAccessor<E> fileAccessor;
+	
+	/**
+	 * Reference to the CacheMapping object of the list being sorted
+	 */
+	private final CacheMapping<E> cacheMapping;
+	
+	/**
+	 * Reference to the FenceIndex object of the list being sorted
+	 */
+	private final FenceIndex<E> fenceIndex;
+
+	/**
+	 * The size of the cache blocks
+	 */
+	private final int blockSize;
+
+	/**
+	 * The number of blocks used by the list
+	 */
+	private final int usedBlocks;
+
+	/**
+	 * The number of runs merged at once
+	 */
+	private final int mergeWidth;
+
+	/**
+	 * Constructs a BlockSorter for the given list
+	 * 
+	 * @param theList The list to sort
+	 */
+	protected BlockSorter(BigArrayList<E> theList)
+	{
+		cacheMapping = theList.getCacheMapping();
+		fileAccessor = cacheMapping.getFileAccessor();
+		fenceIndex = theList.getFenceIndex();
+		blockSize = theList.getBlockSize();
+		usedBlocks = theList.getNumberOfUsedBlocks();
+
+		//one block in memory for each merged run plus one for the output
+		mergeWidth = Math.max(MIN_MERGE_WIDTH, theList.getNumberOfBlocks() - 1);
+	}
+
+	////////////////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Sorts the list using the given comparator
+	 * 
+	 * @param comparator How to compare the elements in the list
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	protected void sort(Comparator<? super E> comparator) throws IOException, ClassNotFoundException
+	{
+		ListWriter listWriter = new ListWriter();
+		sort((firstIndex, block) -> block, comparator, listWriter);
+		listWriter.close();
+	}
+
+	/**
+	 * Sorts the list by first converting each block into sort records, and then merging the records.
+	 * The sorted records are passed to the output in order, which is responsible for writing them back in the desired form.
+	 * 
+	 * @param runBuilder Converts a block of elements into a block of sort records, one record per element
+	 * @param comparator How to compare the sort records
+	 * @param output Where the sorted records are sent
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	protected <T> void sort(RunBuilder<E, T> runBuilder, Comparator<? super T> comparator, ElementSink<? super T> output) throws IOException, ClassNotFoundException
+	{
+		//generate the sorted runs, one block each
+		for(int i=0; i<usedBlocks; i++)
+		{
+			ArrayList<T> run = runBuilder.buildRun((long)i * blockSize, fileAccessor.<E>readBlock(FileAccessor.MEMORY_AREA, i));
+			run.sort(comparator);
+
+			if(usedBlocks == 1)
+			{
+				for(int j=0; j<run.size(); j++)
+				{
+					output.accept(run.get(j));
+				}
+			}
+			else
+			{
+				fileAccessor.writeBlock(FileAccessor.SCRATCH_AREAS[0], i, run);
+			}
+		}
+
+		//merge the runs, alternating between the scratch areas
+		long runBlocks = 1;
+		int currentArea = 0;
+		int pass = 0;
+
+		while(runBlocks < usedBlocks)
+		{
+			ListEvents.SortMergePass event = new ListEvents.SortMergePass();
+			event.begin();
+			long bytesRead = fileAccessor.getBytesRead();
+			long bytesWritten = fileAccessor.getBytesWritten();
+			long mergedRunBlocks = runBlocks * mergeWidth;
+			boolean lastPass = mergedRunBlocks >= usedBlocks;
+
+			BlockWriter<T> passWriter = null;
+			ElementSink<? super T> passOutput = output;
+
+			if(!lastPass)
+			{
+				passWriter = new BlockWriter<>(FileAccessor.SCRATCH_AREAS[1-currentArea]);
+				passOutput = passWriter;
+			}
+
+			for(long start=0; start<usedBlocks; start=start+mergedRunBlocks)
+			{
+				long end = Math.min(start + mergedRunBlocks, usedBlocks);
+				mergeRuns(FileAccessor.SCRATCH_AREAS[currentArea], start, end, runBlocks, comparator, passOutput);
+			}
+
+			if(passWriter != null)
+			{
+				passWriter.close();
+			}
+
+			event.finish(fileAccessor.getMemoryInstance(), pass, usedBlocks, fileAccessor.getBytesRead() - bytesRead, fileAccessor.getBytesWritten() - bytesWritten);
+			runBlocks = mergedRunBlocks;
+			currentArea = 1 - currentArea;
+			pass++;
+		}
+
+		for(int i=0; i<usedBlocks; i++)
+		{
+			fileAccessor.deleteFile(FileAccessor.SCRATCH_AREAS[0], i);
+			fileAccessor.deleteFile(FileAccessor.SCRATCH_AREAS[1], i);
+		}
+	}
+
+	/**
+	 * Sorts the list by the key of each element with an external least significant digit radix sort.
+	 * <p>
+	 * A read only pass first finds the range of the keys, so only the digits that differ between the smallest and largest key are sorted on.
+	 * Each following pass spills the elements into one bucket file per digit value, in the order they are read,
+	 * while the first spill pass also counts how many elements fall into each bucket for every digit.
+	 * Digits where every element falls into the same bucket are skipped.  The buckets of the last pass are then written back into the list.
+	 * 
+	 * @param keyExtractor Returns the key to sort each element by
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	protected void radixSort(ToLongFunction<? super E> keyExtractor) throws IOException, ClassNotFoundException
+	{
+		long[] keyRange = {Long.MAX_VALUE, Long.MIN_VALUE};
+		
+		forEachElement(null, null, element ->
+		{
+			long key = keyExtractor.applyAsLong(element);
+			keyRange[0] = Math.min(keyRange[0], key);
+			keyRange[1] = Math.max(keyRange[1], key);
+		});
+		
+		long minKey = keyRange[0];
+		
+		//keys are sorted relative to the smallest key, the difference fits in an unsigned long
+		int keyBits = Long.SIZE - Long.numberOfLeadingZeros(keyRange[1] - minKey);
+		int digits = (keyBits + RADIX_BITS - 1) / RADIX_BITS;
+		
+		//if all the keys are the same, the list is already sorted
+		if(digits > 0)
+		{
+			long[][] bucketCounts = new long[MAX_DIGITS][RADIX];
+			String inputArea = null;
+			int currentArea = 0;
+			
+			for(int digit=0; digit<digits; digit++)
+			{
+				if(digit == 0 || !isSingleBucket(bucketCounts[digit]))
+				{
+					String outputArea = FileAccessor.RADIX_AREAS[currentArea];
+					long[] inputCounts = null;
+					
+					if(inputArea != null)
+					{
+						inputCounts = bucketCounts[getPreviousDigit(bucketCounts, digit)];
+					}
+					
+					spillToBuckets(inputArea, inputCounts, outputArea, keyExtractor, minKey, digit, digit == 0 ? bucketCounts : null);
+					
+					inputArea = outputArea;
+					currentArea = 1 - currentArea;
+				}
+			}
+			
+			//write the buckets of the last pass back into the list in order
+			ListWriter listWriter = new ListWriter();
+			forEachElement(inputArea, bucketCounts[digits-1], listWriter);
+			listWriter.close();
+			
+			for(int i=0; i<RADIX; i++)
+			{
+				fileAccessor.deleteFile(FileAccessor.RADIX_AREAS[0], i);
+				fileAccessor.deleteFile(FileAccessor.RADIX_AREAS[1], i);
+			}
+		}
+	}
+	
+	/**
+	 * Spills the input elements into one bucket file per value of the given digit, keeping their order within each bucket
+	 * 
+	 * @param inputArea The file area holding the input buckets, or null to read the list itself
+	 * @param inputCounts The number of elements in each input bucket, or null to read the list itself
+	 * @param outputArea The file area to write the buckets to
+	 * @param keyExtractor Returns the key of each element
+	 * @param minKey The smallest key, keys are sorted relative to it
+	 * @param digit The digit to sort on, 0 is the least significant
+	 * @param bucketCounts If not null, filled with the number of elements in each bucket for every digit
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	private void spillToBuckets(String inputArea, long[] inputCounts, String outputArea, ToLongFunction<? super E> keyExtractor,
+			long minKey, int digit, long[][] bucketCounts) throws IOException, ClassNotFoundException
+	{
+		ObjectOutputStream[] buckets = new ObjectOutputStream[RADIX];
+		int[] writesSinceReset = new int[RADIX];
+		int shift = digit * RADIX_BITS;
+		
+		try
+		{
+			forEachElement(inputArea, inputCounts, element ->
+			{
+				long key = keyExtractor.applyAsLong(element) - minKey;
+				int bucket = (int)((key >>> shift) & RADIX_MASK);
+				
+				if(bucketCounts != null)
+				{
+					for(int i=0; i<MAX_DIGITS; i++)
+					{
+						bucketCounts[i][(int)((key >>> (i * RADIX_BITS)) & RADIX_MASK)]++;
+					}
+				}
+				
+				if(buckets[bucket] == null)
+				{
+					buckets[bucket] = fileAccessor.openObjectOutputStream(outputArea, bucket);
+				}
+				
+				buckets[bucket].writeObject(element);
+				writesSinceReset[bucket]++;
+				
+				if(writesSinceReset[bucket] >= STREAM_RESET_INTERVAL)
+				{
+					buckets[bucket].reset();
+					writesSinceReset[bucket] = 0;
+				}
+			});
+		}
+		finally
+		{
+			for(int i=0; i<RADIX; i++)
+			{
+				if(buckets[i] != null)
+				{
+					buckets[i].close();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Passes every element of the list, or of a set of radix sort buckets, to the action in order
+	 * 
+	 * @param area The file area holding the buckets, or null to read the list itself
+	 * @param bucketCounts The number of elements in each bucket, or null to read the list itself
+	 * @param action What to do with each element
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	@SuppressWarnings("unchecked")
+	//must use unchecked warning because ObjectInputStream doesn't use generic typing
+	private void forEachElement(String area, long[] bucketCounts, ElementSink<? super E> action) throws IOException, ClassNotFoundException
+	{
+		if(area == null)
+		{
+			for(int i=0; i<usedBlocks; i++)
+			{
+				ArrayList<E> block = fileAccessor.readBlock(FileAccessor.MEMORY_AREA, i);
+				
+				for(int j=0; j<block.size(); j++)
+				{
+					action.accept(block.get(j));
+				}
+			}
+		}
+		else
+		{
+			for(int i=0; i<RADIX; i++)
+			{
+				if(bucketCounts[i] > 0)
+				{
+					ObjectInputStream bucket = fileAccessor.openObjectInputStream(area, i);
+					
+					try
+					{
+						for(long j=0; j<bucketCounts[i]; j++)
+						{
+							action.accept((E)bucket.readObject());
+						}
+					}
+					finally
+					{
+						bucket.close();
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param counts The number of elements in each bucket for a digit
+	 * @return Returns true if all elements fall into the same bucket, so sorting on the digit changes nothing
+	 */
+	private boolean isSingleBucket(long[] counts)
+	{
+		int usedBuckets = 0;
+		
+		for(int i=0; i<counts.length; i++)
+		{
+			if(counts[i] > 0)
+			{
+				usedBuckets++;
+			}
+		}
+		
+		return usedBuckets <= 1;
+	}
+	
+	/**
+	 * @param bucketCounts The number of elements in each bucket for every digit
+	 * @param digit The current digit
+	 * @return Returns the last digit before the current one that was sorted on
+	 */
+	private int getPreviousDigit(long[][] bucketCounts, int digit)
+	{
+		int previousDigit = digit - 1;
+		
+		while(previousDigit > 0 && isSingleBucket(bucketCounts[previousDigit]))
+		{
+			previousDigit--;
+		}
+		
+		return previousDigit;
+	}
+	
+	/**
+	 * Merges the consecutive runs between the start and end blocks into a single sorted run
+	 * 
+	 * @param area The file area holding the runs
+	 * @param start The first block of the first run
+	 * @param end One past the last block of the last run
+	 * @param runBlocks The number of blocks in each run
+	 * @param comparator How to compare the records
+	 * @param output Where the merged records are sent
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	private <T> void mergeRuns(String area, long start, long end, long runBlocks, Comparator<? super T> comparator, ElementSink<? super T> output) throws IOException, ClassNotFoundException
+	{
+		//ties go to the earlier run to keep the sort stable
+		PriorityQueue<RunReader<T>> readers = new PriorityQueue<>((reader1, reader2) ->
+		{
+			int compare = comparator.compare(reader1.peek(), reader2.peek());
+
+			if(compare == 0)
+			{
+				compare = Long.compare(reader1.getFirstFile(), reader2.getFirstFile());
+			}
+
+			return compare;
+		});
+
+		for(long runStart=start; runStart<end; runStart=runStart+runBlocks)
+		{
+			RunReader<T> reader = new RunReader<>(area, (int)runStart, (int)Math.min(runStart + runBlocks, end));
+
+			if(reader.hasNext())
+			{
+				readers.add(reader);
+			}
+		}
+
+		while(!readers.isEmpty())
+		{
+			RunReader<T> reader = readers.poll();
+			output.accept(reader.next());
+
+			if(reader.hasNext())
+			{
+				readers.add(reader);
+			}
+		}
+	}
+
+	/**
+	 * Converts a block of elements into the records that are sorted
+	 * 
+	 * @param <E> Generic type of the elements
+	 * @param <T> Generic type of the sort records
+	 */
+	protected interface RunBuilder<E, T>
+	{
+		/**
+		 * @param firstIndex The index of the first element of the block in the list
+		 * @param block The elements of the block
+		 * @return Returns one sort record for each element, in the same order
+		 */
+		ArrayList<T> buildRun(long firstIndex, ArrayList<E> block);
+	}
+	
+	/**
+	 * Receives the elements of a sort in order
+	 * 
+	 * @param <T> Generic type
+	 */
+	protected interface ElementSink<T>
+	{
+		/**
+		 * @param element The next element in sorted order
+		 * @throws IOException For I/O errors
+		 */
+		void accept(T element) throws IOException;
+	}
+
+	/**
+	 * Writes elements to consecutive full blocks of a file area, starting from block 0
+	 * 
+	 * @param <T> Generic type
+	 */
+	protected class BlockWriter<T> implements ElementSink<T>
+	{
+		/**
+		 * The file area to write to
+		 */
+		private final String area;
+
+		/**
+		 * The next file number to write
+		 */
+		private int nextFile;
+
+		/**
+		 * The block currently being filled
+		 */
+		private final ArrayList<T> block;
+
+		/**
+		 * @param area The file area to write to
+		 */
+		protected BlockWriter(String area)
+		{
+			this.area = area;
+			nextFile = 0;
+			block = new ArrayList<>(blockSize);
+		}
+
+		@Override
+		public void accept(T element) throws IOException
+		{
+			block.add(element);
+
+			if(block.size() >= blockSize)
+			{
+				writeCurrentBlock();
+			}
+		}
+
+		/**
+		 * Writes the last partially filled block
+		 * 
+		 * @throws IOException For I/O errors
+		 */
+		protected void close() throws IOException
+		{
+			if(!block.isEmpty())
+			{
+				writeCurrentBlock();
+			}
+		}
+
+		/**
+		 * Writes the current block and starts the next one
+		 * 
+		 * @throws IOException For I/O errors
+		 */
+		private void writeCurrentBlock() throws IOException
+		{
+			fileAccessor.writeBlock(area, nextFile, block);
+			blockWritten(nextFile, block);
+			block.clear();
+			nextFile++;
+		}
+		
+		/**
+		 * Called after each block is written
+		 * 
+		 * @param fileNumber The file number written
+		 * @param writtenBlock The elements written
+		 * @throws IOException For I/O errors
+		 */
+		protected void blockWritten(int fileNumber, ArrayList<T> writtenBlock) throws IOException
+		{
+		}
+	}
+	
+	/**
+	 * Writes the sorted elements back into the list's own file area, and rebuilds the fence keys and block metadata of the list as it goes
+	 */
+	protected class ListWriter extends BlockWriter<E>
+	{
+		protected ListWriter()
+		{
+			super(FileAccessor.MEMORY_AREA);
+			fenceIndex.reset();
+		}
+		
+		@Override
+		protected void blockWritten(int fileNumber, ArrayList<E> writtenBlock) throws IOException
+		{
+			fenceIndex.setFence(fileNumber, writtenBlock);
+			cacheMapping.blockWritten(fileNumber, writtenBlock);
+		}
+	}
+
+	/**
+	 * Reads the elements of a sorted run one block at a time
+	 * 
+	 * @param <T> Generic type
+	 */
+	private class RunReader<T>
+	{
+		/**
+		 * The file area holding the run
+		 */
+		private final String area;
+
+		/**
+		 * The first file of the run
+		 */
+		private final int firstFile;
+
+		/**
+		 * The next file to read
+		 */
+		private int nextFile;
+
+		/**
+		 * One past the last file of the run
+		 */
+		private final int endFile;
+
+		/**
+		 * The block currently being read
+		 */
+		private ArrayList<T> block;
+
+		/**
+		 * The position of the next element in the current block
+		 */
+		private int position;
+
+		/**
+		 * @param area The file area holding the run
+		 * @param firstFile The first file of the run
+		 * @param endFile One past the last file of the run
+		 * @throws IOException For I/O errors
+		 * @throws ClassNotFoundException If no such class exists
+		 */
+		private RunReader(String area, int firstFile, int endFile) throws IOException, ClassNotFoundException
+		{
+			this.area = area;
+			this.firstFile = firstFile;
+			this.nextFile = firstFile;
+			this.endFile = endFile;
+			block = new ArrayList<>();
+			position = 0;
+
+			readNextBlock();
+		}
+
+		/**
+		 * @return Returns the first file of the run
+		 */
+		private int getFirstFile()
+		{
+			return firstFile;
+		}
+
+		/**
+		 * @return Returns if there are elements left in the run
+		 */
+		private boolean hasNext()
+		{
+			return position < block.size();
+		}
+
+		/**
+		 * @return Returns the next element without moving past it
+		 */
+		private T peek()
+		{
+			return block.get(position);
+		}
+
+		/**
+		 * @return Returns the next element and moves past it
+		 * @throws IOException For I/O errors
+		 * @throws ClassNotFoundException If no such class exists
+		 */
+		private T next() throws IOException, ClassNotFoundException
+		{
+			T element = block.get(position);
+			position++;
+
+			if(position >= block.size())
+			{
+				readNextBlock();
+			}
+
+			return element;
+		}
+
+		/**
+		 * Reads the next block of the run, if there is one
+		 * 
+		 * @throws IOException For I/O errors
+		 * @throws ClassNotFoundException If no such class exists
+		 */
+		private void readNextBlock() throws IOException, ClassNotFoundException
+		{
+			position = 0;
+			block = new ArrayList<>();
+
+			while(block.isEmpty() && nextFile < endFile)
+			{
+				block = fileAccessor.readBlock(area, nextFile);
+				nextFile++;
+			}
+		}
+	}
+}
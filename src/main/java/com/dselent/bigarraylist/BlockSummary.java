@@ -0,0 +1,156 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Summary of the contents of a single block, used by the ZoneMap class to skip blocks during range scans.
+ * Stores the minimum and maximum non-null element under a comparator, the number of elements, and the number of null elements.
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <E> Generic type
+ */
+class BlockSummary<E> implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The smallest non-null element, null if there are none
+	 */
+	private final E min;
+
+	/**
+	 * The largest non-null element, null if there are none
+	 */
+	private final E max;
+
+	/**
+	 * The number of elements in the block
+	 */
+	private final int count;
+
+	/**
+	 * The number of null elements in the block
+	 */
+	private final int nullCount;
+
+	/**
+	 * Constructs the summary of the given block
+	 * 
+	 * @param block The elements of the block
+	 * @param comparator How to compare the elements
+	 */
+	protected BlockSummary(List<E> block, Comparator<? super E> comparator)
+	{
+		E blockMin = null;
+		E blockMax = null;
+		int blockNulls = 0;
+
+		for(int i=0; i<block.size(); i++)
+		{
+			E element = block.get(i);
+
+			if(element == null)
+			{
+				blockNulls++;
+			}
+			else
+			{
+				if(blockMin == null || comparator.compare(element, blockMin) < 0)
+				{
+					blockMin = element;
+				}
+
+				if(blockMax == null || comparator.compare(element, blockMax) > 0)
+				{
+					blockMax = element;
+				}
+			}
+		}
+
+		min = blockMin;
+		max = blockMax;
+		count = block.size();
+		nullCount = blockNulls;
+	}
+
+	////////////////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return Returns the smallest non-null element, null if there are none
+	 */
+	protected E getMin()
+	{
+		return min;
+	}
+
+	/**
+	 * @return Returns the largest non-null element, null if there are none
+	 */
+	protected E getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * @return Returns the number of elements in the block
+	 */
+	protected int getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * @return Returns the number of null elements in the block
+	 */
+	protected int getNullCount()
+	{
+		return nullCount;
+	}
+
+	/**
+	 * Returns if the block can hold a non-null element in the range, bounds are inclusive
+	 * 
+	 * @param low The lower bound, or null for no lower bound
+	 * @param high The upper bound, or null for no upper bound
+	 * @param comparator How to compare the elements
+	 * @return Returns false if the block definitely holds no element in the range
+	 */
+	protected boolean mayContainRange(E low, E high, Comparator<? super E> comparator)
+	{
+		boolean mayContain = count > nullCount;
+
+		if(mayContain && low != null && comparator.compare(max, low) < 0)
+		{
+			mayContain = false;
+		}
+
+		if(mayContain && high != null && comparator.compare(min, high) > 0)
+		{
+			mayContain = false;
+		}
+
+		return mayContain;
+	}
+}
@@ -0,0 +1,125 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.util.Objects;
+
+/**
+ * A Bloom filter over the hash codes of a set of objects.
+ * Answers whether an object might be in the set: false answers are always correct, true answers may be false positives.
+ * Bit positions are derived from the object's hashCode using double hashing, so objects that are equal must have equal hash codes.
+ * 
+ * @author Douglas Selent
+ */
+class BloomFilter
+{
+	/**
+	 * The bits of the filter
+	 */
+	private final long[] bits;
+	
+	/**
+	 * The number of bits in the filter
+	 */
+	private final int bitCount;
+	
+	/**
+	 * The number of bits set for each object
+	 */
+	private final int hashCount;
+	
+	/**
+	 * Constructs an empty BloomFilter sized for the given number of objects and false positive rate
+	 * 
+	 * @param expectedObjects The largest number of objects the filter will hold
+	 * @param falsePositiveRate The false positive rate when the filter holds the expected number of objects, between 0 and 1 exclusive
+	 */
+	protected BloomFilter(int expectedObjects, double falsePositiveRate)
+	{
+		int objects = Math.max(1, expectedObjects);
+		double ln2 = Math.log(2);
+		
+		//optimal sizes are m = -n ln(p) / ln(2)^2 and k = m/n ln(2)
+		long optimalBits = (long) Math.ceil(-objects * Math.log(falsePositiveRate) / (ln2 * ln2));
+		bitCount = (int) Math.max(64, Math.min(Integer.MAX_VALUE, optimalBits));
+		hashCount = (int) Math.max(1, Math.round((double) bitCount / objects * ln2));
+		bits = new long[(bitCount + 63) / 64];
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Adds an object to the filter
+	 * 
+	 * @param object The object to add, may be null
+	 */
+	protected void add(Object object)
+	{
+		long hash = mix(Objects.hashCode(object));
+		int hash1 = (int) hash;
+		int hash2 = (int) (hash >>> 32);
+		
+		for(int i=0; i<hashCount; i++)
+		{
+			int bit = Math.floorMod(hash1 + i * hash2, bitCount);
+			bits[bit >>> 6] |= 1L << bit;
+		}
+	}
+	
+	/**
+	 * Returns if the object might have been added to the filter
+	 * 
+	 * @param object The object to check for, may be null
+	 * @return Returns false if the object was definitely not added
+	 */
+	protected boolean mightContain(Object object)
+	{
+		long hash = mix(Objects.hashCode(object));
+		int hash1 = (int) hash;
+		int hash2 = (int) (hash >>> 32);
+		boolean mightContain = true;
+		
+		for(int i=0; i<hashCount && mightContain; i++)
+		{
+			int bit = Math.floorMod(hash1 + i * hash2, bitCount);
+			mightContain = (bits[bit >>> 6] & (1L << bit)) != 0;
+		}
+		
+		return mightContain;
+	}
+	
+	/**
+	 * Spreads a hash code over 64 bits, since many hashCode implementations (such as Integer) are not well distributed
+	 * 
+	 * @param hashCode The hash code
+	 * @return Returns the mixed hash
+	 */
+	private static long mix(int hashCode)
+	{
+		//finalizer of the 64 bit MurmurHash3
+		long hash = hashCode;
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
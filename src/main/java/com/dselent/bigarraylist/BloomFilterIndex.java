@@ -0,0 +1,113 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that keeps a Bloom filter of every block on disk in memory for the BigArrayList class.
+ * A block's filter is rebuilt whenever the block is written to disk, so a search can skip any block on disk whose filter rules the value out.
+ * <p>
+ * A block's filter only describes the block as it is on disk, blocks in cache must be checked directly.
+ * 
+ * @author Douglas Selent
+ */
+class BloomFilterIndex
+{
+	/**
+	 * The largest number of elements in a block
+	 */
+	private final int blockSize;
+	
+	/**
+	 * The false positive rate of each filter
+	 */
+	private final double falsePositiveRate;
+	
+	/**
+	 * The filters, key is the block/file number
+	 */
+	private final Map<Integer, BloomFilter> filters;
+	
+	/**
+	 * Constructs a BloomFilterIndex without any filters
+	 * 
+	 * @param blockSize The largest number of elements in a block
+	 * @param falsePositiveRate The false positive rate of each filter, between 0 and 1 exclusive
+	 */
+	protected BloomFilterIndex(int blockSize, double falsePositiveRate)
+	{
+		this.blockSize = blockSize;
+		this.falsePositiveRate = falsePositiveRate;
+		filters = new HashMap<>();
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the false positive rate of each filter
+	 */
+	protected double getFalsePositiveRate()
+	{
+		return falsePositiveRate;
+	}
+	
+	/**
+	 * Rebuilds the filter of a block that was written to disk, or that was read from disk without a filter
+	 * 
+	 * @param fileNumber The block/file number
+	 * @param block The elements of the block, which must match the block on disk
+	 */
+	protected void update(int fileNumber, List<?> block)
+	{
+		BloomFilter filter = new BloomFilter(blockSize, falsePositiveRate);
+		
+		for(int i=0; i<block.size(); i++)
+		{
+			filter.add(block.get(i));
+		}
+		
+		filters.put(fileNumber, filter);
+	}
+	
+	/**
+	 * Returns if a block on disk might hold the value
+	 * 
+	 * @param fileNumber The block/file number
+	 * @param value The value to search for
+	 * @return Returns false only if the block has a filter and the filter rules the value out
+	 */
+	protected boolean mightContain(int fileNumber, Object value)
+	{
+		BloomFilter filter = filters.get(fileNumber);
+		return filter == null || filter.mightContain(value);
+	}
+	
+	/**
+	 * @param fileNumber The block/file number
+	 * @return Returns if the block has a filter
+	 */
+	protected boolean hasFilter(int fileNumber)
+	{
+		return filters.containsKey(fileNumber);
+	}
+}
@@ -0,0 +1,318 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * A memory budget shared by many BigArrayList objects, so that idle lists give their memory to busy ones.
+ * <p>
+ * Each list still has its own number of cache blocks, which becomes the most blocks it can hold.
+ * On top of that, the blocks held by all lists sharing a manager together hold at most the budgeted number of elements,
+ * where a block counts as its block size.
+ * When a list brings a block into memory and the budget is used up, the manager evicts blocks of any of the lists,
+ * chosen by the {@link CachePolicy}, until the new block fits.
+ * A list never loses its most recently used block this way, so the budget can be exceeded by at most one block per list.
+ * <p>
+ * Example, 200 lists that can each grow to 64 blocks of 100,000 elements but hold 400 blocks together:
+ * <pre>
+ * CacheManager cacheManager = new CacheManager(400L * 100000);
+ * 
+ * for(int i=0; i&lt;200; i++)
+ * {
+ *   BigArrayList&lt;Long&gt; list = new BigArrayList&lt;&gt;(100000, 64);
+ *   list.setCacheManager(cacheManager);
+ *   lists.add(list);
+ * }
+ * </pre>
+ * Like BigArrayList, a manager is not thread safe.  A list's operation can evict blocks of every other list sharing its manager,
+ * so all of these lists must be used by one thread at a time, e.g. by synchronizing on the manager.
+ * Lists are only weakly referenced, a list that is no longer used does not need to be removed from its manager.
+ * 
+ * @author Douglas Selent
+ */
+public class CacheManager
+{
+	/**
+	 * The most elements the blocks of all lists can hold together
+	 */
+	private final long maxElements;
+	
+	/**
+	 * How blocks are chosen for eviction
+	 */
+	private final CachePolicy policy;
+	
+	/**
+	 * The cache mappings of the lists sharing this manager
+	 */
+	private final Set<CacheMapping<?>> cacheMappings;
+	
+	/**
+	 * Counts block uses, gives the recency of each block
+	 */
+	private long clock;
+	
+	/**
+	 * The worth of the last block evicted under the GreedyDual policy, added to the worth of a block when it is used
+	 */
+	private long inflation;
+	
+	/**
+	 * Constructs a CacheManager with an LRU policy
+	 * 
+	 * @param maxElements The most elements the blocks of all lists can hold together
+	 */
+	public CacheManager(long maxElements)
+	{
+		this(maxElements, CachePolicy.LRU);
+	}
+	
+	/**
+	 * Constructs a CacheManager with the given policy
+	 * 
+	 * @param maxElements The most elements the blocks of all lists can hold together
+	 * @param policy How blocks are chosen for eviction
+	 */
+	public CacheManager(long maxElements, CachePolicy policy)
+	{
+		if(maxElements < 1)
+		{
+			throw new IllegalArgumentException("Maximum number of elements is " + maxElements + " but must be >= 1");
+		}
+		
+		if(policy == null)
+		{
+			throw new IllegalArgumentException("Cache policy is null but must be one of LRU, GREEDY_DUAL");
+		}
+		
+		this.maxElements = maxElements;
+		this.policy = policy;
+		cacheMappings = Collections.newSetFromMap(new WeakHashMap<>());
+		clock = 0;
+		inflation = 0;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the most elements the blocks of all lists can hold together
+	 */
+	public long getMaxElements()
+	{
+		return maxElements;
+	}
+	
+	/**
+	 * @return Returns how blocks are chosen for eviction
+	 */
+	public CachePolicy getPolicy()
+	{
+		return policy;
+	}
+	
+	/**
+	 * @return Returns the number of lists sharing this manager
+	 */
+	public synchronized int getNumberOfLists()
+	{
+		return cacheMappings.size();
+	}
+	
+	/**
+	 * @return Returns the number of elements the blocks in memory can hold, each block counts as its block size
+	 */
+	public synchronized long getResidentElements()
+	{
+		long residentElements = 0;
+		
+		for(CacheMapping<?> cacheMapping : cacheMappings)
+		{
+			residentElements += (long)cacheMapping.getNumberOfResidentBlocks() * cacheMapping.getBlockSize();
+		}
+		
+		return residentElements;
+	}
+	
+	/**
+	 * Adds a list to this manager, its blocks in memory are evicted as needed to stay within the budget
+	 * 
+	 * @param cacheMapping The cache mapping of the list
+	 */
+	protected synchronized void register(CacheMapping<?> cacheMapping)
+	{
+		cacheMappings.add(cacheMapping);
+		
+		for(int i=0; i<cacheMapping.getNumberOfSlots(); i++)
+		{
+			if(cacheMapping.isResident(i))
+			{
+				touch(cacheMapping, i);
+			}
+		}
+		
+		reserve(cacheMapping, 0);
+	}
+	
+	/**
+	 * Removes a list from this manager
+	 * 
+	 * @param cacheMapping The cache mapping of the list
+	 */
+	protected synchronized void unregister(CacheMapping<?> cacheMapping)
+	{
+		cacheMappings.remove(cacheMapping);
+	}
+	
+	/**
+	 * Records that a block in memory was used
+	 * 
+	 * @param cacheMapping The cache mapping of the list
+	 * @param slot The cache block index
+	 */
+	protected synchronized void touch(CacheMapping<?> cacheMapping, int slot)
+	{
+		clock++;
+		cacheMapping.setRecency(slot, clock, inflation);
+	}
+	
+	/**
+	 * Evicts blocks until the given number of elements fits in the budget with the blocks already in memory.
+	 * The most recently used block of the requesting list is never evicted, it may be in use by the current operation.
+	 * 
+	 * @param requester The cache mapping of the list about to bring a block into memory
+	 * @param elements The number of elements needed
+	 */
+	protected synchronized void reserve(CacheMapping<?> requester, long elements)
+	{
+		long residentElements = getResidentElements();
+		
+		if(residentElements + elements > maxElements)
+		{
+			List<Candidate> candidates = new ArrayList<>();
+			
+			for(CacheMapping<?> cacheMapping : cacheMappings)
+			{
+				int protectedSlot = cacheMapping == requester ? cacheMapping.getMostRecentSlot() : -1;
+				
+				for(int i=0; i<cacheMapping.getNumberOfSlots(); i++)
+				{
+					if(cacheMapping.isResident(i) && i != protectedSlot)
+					{
+						candidates.add(new Candidate(cacheMapping, i, getWorth(cacheMapping, i)));
+					}
+				}
+			}
+			
+			candidates.sort(null);
+			
+			for(int i=0; i<candidates.size() && residentElements + elements > maxElements; i++)
+			{
+				Candidate candidate = candidates.get(i);
+				
+				if(policy == CachePolicy.GREEDY_DUAL)
+				{
+					inflation = Math.max(inflation, candidate.worth);
+				}
+				
+				candidate.cacheMapping.evict(candidate.slot);
+				residentElements -= candidate.cacheMapping.getBlockSize();
+			}
+		}
+	}
+	
+	/**
+	 * Returns how much a block is worth keeping under the policy, the block worth the least is evicted first
+	 * 
+	 * @param cacheMapping The cache mapping of the list
+	 * @param slot The cache block index
+	 * @return Returns the worth of the block
+	 */
+	private long getWorth(CacheMapping<?> cacheMapping, int slot)
+	{
+		long worth = 0;
+		
+		if(policy == CachePolicy.GREEDY_DUAL)
+		{
+			//one read to bring the block back, plus one write if it is dirty
+			worth = cacheMapping.getCredit(slot) + (cacheMapping.isDirty(slot) ? 2 : 1);
+		}
+		
+		return worth;
+	}
+	
+	/**
+	 * A block that can be evicted, ordered by worth and then by recency
+	 */
+	private static class Candidate implements Comparable<Candidate>
+	{
+		/**
+		 * The cache mapping of the list holding the block
+		 */
+		private final CacheMapping<?> cacheMapping;
+		
+		/**
+		 * The cache block index
+		 */
+		private final int slot;
+		
+		/**
+		 * The worth of the block, 0 under the LRU policy
+		 */
+		private final long worth;
+		
+		/**
+		 * When the block was last used
+		 */
+		private final long lastUsed;
+		
+		/**
+		 * Constructs a Candidate for the given block
+		 * 
+		 * @param cacheMapping The cache mapping of the list holding the block
+		 * @param slot The cache block index
+		 * @param worth The worth of the block
+		 */
+		private Candidate(CacheMapping<?> cacheMapping, int slot, long worth)
+		{
+			this.cacheMapping = cacheMapping;
+			this.slot = slot;
+			this.worth = worth;
+			lastUsed = cacheMapping.getLastUsed(slot);
+		}
+		
+		@Override
+		public int compareTo(Candidate other)
+		{
+			int comparison = Long.compare(worth, other.worth);
+			
+			if(comparison == 0)
+			{
+				comparison = Long.compare(lastUsed, other.lastUsed);
+			}
+			
+			return comparison;
+		}
+	}
+}
@@ -21,6 +21,11 @@ package com.dselent.bigarraylist;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -44,6 +49,12 @@ class CacheMapping<E extends Serializable>
 	 * Index is the same as the ArrayList index
 	 */
 	private int[] cacheTableFiles;
+	
+	/**
+	 * The number of cache blocks holding a block of the list, kept as blocks come and go so other threads can read it without the tables.
+	 * Only written by the thread using the list.
+	 */
+	private volatile int residentBlocks;
 
 	/**
 	 * Array of when each block was last used
@@ -58,6 +69,28 @@ class CacheMapping<E extends Serializable>
 	 * If dirty, then it does need to be written to disk when swapped out
 	 */
 	private boolean[] dirtyBits;
+	
+	/**
+	 * The number of elements of each cache block that are on disk, in the block file and its append log
+	 */
+	private int[] persistedSizes;
+	
+	/**
+	 * Array for each cache block for whether or not it has only had elements added to its end since it was last read or written
+	 * If so, only the added elements need to be written while the block is not full, they are appended to the block's append log
+	 */
+	private boolean[] appendOnlyBits;
+	
+	/**
+	 * Array for each cache block for whether or not it has only had elements set since it was last read or written
+	 * If so, and the list has a codec, only the bytes of the set elements need to be written
+	 */
+	private boolean[] setOnlyBits;
+	
+	/**
+	 * The positions of the elements set in each cache block since it was last read or written, created the first time one is set
+	 */
+	private BitSet[] changedElements;
 
 	/**
 	 * Reference to the associated BigArrayList object
@@ -67,49 +100,597 @@ class CacheMapping<E extends Serializable>
 	/**
 	 * Reference to the associated FileAccessor object
 	 */
-	private FileAccessor<E> fileAccessor;
-
-
+	private FileAccessor<E> fileAccessor;
+	
+	/**
+	 * The summaries of the blocks on disk, or null if they are not kept
+	 */
+	private ZoneMap<E> zoneMap;
+	
+	/**
+	 * The block summaries stored in the manifest of a reopened list, kept until zone maps are enabled under their name, or null.
+	 * Their comparator is not known until then, so a summary is dropped when its block is written.
+	 */
+	private ZoneMap<E> storedZoneMap;
+	
+	/**
+	 * The Bloom filters of the blocks on disk, or null if they are not kept
+	 */
+	private BloomFilterIndex bloomFilters;
+	
+	/**
+	 * The elements set in blocks on disk without reading them, or null if every set reads its block
+	 */
+	private WriteOverlay<E> writeOverlay;
+	
+	/**
+	 * Counts the cache and I/O events of the list
+	 */
+	private final StatisticsRecorder statistics;
+	
+	/**
+	 * Records the accesses of the list to a trace file, or null if they are not recorded
+	 */
+	private AccessTraceRecorder accessTrace;
+	
+	/**
+	 * Watches the accesses of the list to recommend a better layout, or null if they are not watched
+	 */
+	private LayoutAdvisor layoutAdvisor;
+	
+	/**
+	 * The memory budget shared with other lists, or null if the list only has its own cache blocks
+	 */
+	private CacheManager cacheManager;
+	
+	/**
+	 * When each cache block was last used, counted by the CacheManager
+	 */
+	private long[] lastUsed;
+	
+	/**
+	 * The worth each cache block was given when last used, under the GreedyDual policy of the CacheManager
+	 */
+	private long[] credit;
+	
+	/**
+	 * The number of cache blocks the list keeps to, may be changed by another thread and is applied at the start of the next operation on the list
+	 */
+	private volatile int targetLimit;
+	
+	/**
+	 * The number of cache blocks the list keeps to since the limit was last applied, only written by the thread using the list
+	 */
+	private volatile int cacheLimit;
+	
+	/**
+	 * The fewest cache blocks the HeapMonitor shrinks the cache to, or 0 if the cache is not resized with the heap
+	 */
+	private int minCacheBlocks;
+	
+	/**
+	 * Receives the changes to the cache limit, or null
+	 */
+	private CacheResizeListener resizeListener;
+
+	/**
+	 * Constructs a CacheMapping object for the BigArrayList with the following parameters
+	 * 
+	 * @param blockSize Size of each cache block
+	 * @param cacheBlocks Number of cache blocks
+	 * @param theList Associated BigArrayList
+	 * @param folderPath The folder path to store contents on disk
+	 */
+	protected CacheMapping(BigArrayList<E> theList, int blockSize, int cacheBlocks, String folderPath)
+	{
+		cacheTableSpots = new int[cacheBlocks];
+		cacheTableFiles = new int[cacheBlocks];
+		residentBlocks = 0;
+		mostRecentlyUsedList = new int[cacheBlocks];
+		dirtyBits = new boolean[cacheBlocks];
+		persistedSizes = new int[cacheBlocks];
+		appendOnlyBits = new boolean[cacheBlocks];
+		setOnlyBits = new boolean[cacheBlocks];
+		changedElements = new BitSet[cacheBlocks];
+		lastUsed = new long[cacheBlocks];
+		statistics = new StatisticsRecorder();
+		credit = new long[cacheBlocks];
+		targetLimit = cacheBlocks;
+		cacheLimit = cacheBlocks;
+		minCacheBlocks = 0;
+
+		for(int i=0; i<cacheBlocks; i++)
+		{
+			cacheTableSpots[i] = 0;
+			cacheTableFiles[i] = -1;
+			mostRecentlyUsedList[i] = -1;
+			dirtyBits[i] = false;
+			persistedSizes[i] = 0;
+			appendOnlyBits[i] = true;
+			setOnlyBits[i] = true;
+		}
+		
+		bigArrayList = theList;
+		fileAccessor = new FileAccessor<>(folderPath);
+	}
+	
+	/**
+	 * Constructs a CacheMapping object for the BigArrayList with the following parameters
+	 * 
+	 * @param blockSize Size of each cache block
+	 * @param cacheBlocks Number of cache blocks
+	 * @param theList Associated BigArrayList
+	 */
+	protected CacheMapping(BigArrayList<E> theList, int blockSize, int cacheBlocks)
+	{
+		cacheTableSpots = new int[cacheBlocks];
+		cacheTableFiles = new int[cacheBlocks];
+		residentBlocks = 0;
+		mostRecentlyUsedList = new int[cacheBlocks];
+		dirtyBits = new boolean[cacheBlocks];
+		persistedSizes = new int[cacheBlocks];
+		appendOnlyBits = new boolean[cacheBlocks];
+		setOnlyBits = new boolean[cacheBlocks];
+		changedElements = new BitSet[cacheBlocks];
+		lastUsed = new long[cacheBlocks];
+		statistics = new StatisticsRecorder();
+		credit = new long[cacheBlocks];
+		targetLimit = cacheBlocks;
+		cacheLimit = cacheBlocks;
+		minCacheBlocks = 0;
+
+		for(int i=0; i<cacheBlocks; i++)
+		{
+			cacheTableSpots[i] = 0;
+			cacheTableFiles[i] = -1;
+			mostRecentlyUsedList[i] = -1;
+			dirtyBits[i] = false;
+			persistedSizes[i] = 0;
+			appendOnlyBits[i] = true;
+			setOnlyBits[i] = true;
+		}
+		
+		bigArrayList = theList;
+		fileAccessor = new FileAccessor<>();
+	}
+
+	/**
+	 * Constructs a CacheMapping object for the BigArrayList that uses an existing FileAccessor, such as one for a persistent or reopened list
+	 * 
+	 * @param theList Associated BigArrayList
+	 * @param blockSize Size of each cache block
+	 * @param cacheBlocks Number of cache blocks
+	 * @param fileAccessor The FileAccessor to read and write the blocks with
+	 */
+	protected CacheMapping(BigArrayList<E> theList, int blockSize, int cacheBlocks, FileAccessor<E> fileAccessor)
+	{
+		cacheTableSpots = new int[cacheBlocks];
+		cacheTableFiles = new int[cacheBlocks];
+		residentBlocks = 0;
+		mostRecentlyUsedList = new int[cacheBlocks];
+		dirtyBits = new boolean[cacheBlocks];
+		persistedSizes = new int[cacheBlocks];
+		appendOnlyBits = new boolean[cacheBlocks];
+		setOnlyBits = new boolean[cacheBlocks];
+		changedElements = new BitSet[cacheBlocks];
+		lastUsed = new long[cacheBlocks];
+		statistics = new StatisticsRecorder();
+		credit = new long[cacheBlocks];
+		targetLimit = cacheBlocks;
+		cacheLimit = cacheBlocks;
+		minCacheBlocks = 0;
+
+		for(int i=0; i<cacheBlocks; i++)
+		{
+			cacheTableSpots[i] = 0;
+			cacheTableFiles[i] = -1;
+			mostRecentlyUsedList[i] = -1;
+			dirtyBits[i] = false;
+			persistedSizes[i] = 0;
+			appendOnlyBits[i] = true;
+			setOnlyBits[i] = true;
+		}
+		
+		bigArrayList = theList;
+		this.fileAccessor = fileAccessor;
+	}
+
+	////////////////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return Returns the fileAccessor object
+	 */
+	protected FileAccessor<E> getFileAccessor()
+	{
+		return fileAccessor;
+	}
+	
+	/**
+	 * @return Returns the ZoneMap object, or null if block summaries are not kept
+	 */
+	protected ZoneMap<E> getZoneMap()
+	{
+		return zoneMap;
+	}
+	
+	/**
+	 * @param zoneMap The ZoneMap object to keep block summaries in, or null to stop keeping them
+	 */
+	protected void setZoneMap(ZoneMap<E> zoneMap)
+	{
+		this.zoneMap = zoneMap;
+	}
+	
+	/**
+	 * @return Returns the block summaries stored in the manifest that are not in use yet, or null if there are none
+	 */
+	protected ZoneMap<E> getStoredZoneMap()
+	{
+		return storedZoneMap;
+	}
+	
+	/**
+	 * @param storedZoneMap The block summaries stored in the manifest that are not in use yet, or null if there are none
+	 */
+	protected void setStoredZoneMap(ZoneMap<E> storedZoneMap)
+	{
+		this.storedZoneMap = storedZoneMap;
+	}
+	
+	/**
+	 * @return Returns the BloomFilterIndex object, or null if Bloom filters are not kept
+	 */
+	protected BloomFilterIndex getBloomFilters()
+	{
+		return bloomFilters;
+	}
+	
+	/**
+	 * @param bloomFilters The BloomFilterIndex object to keep Bloom filters in, or null to stop keeping them
+	 */
+	protected void setBloomFilters(BloomFilterIndex bloomFilters)
+	{
+		this.bloomFilters = bloomFilters;
+	}
+	
+	/**
+	 * @return Returns the StatisticsRecorder counting the cache and I/O events of the list
+	 */
+	protected StatisticsRecorder getStatistics()
+	{
+		return statistics;
+	}
+	
+	/**
+	 * @return Returns the AccessTraceRecorder object, or null if accesses are not recorded
+	 */
+	protected AccessTraceRecorder getAccessTrace()
+	{
+		return accessTrace;
+	}
+	
+	/**
+	 * Sets the AccessTraceRecorder object, the previous one is not closed
+	 * 
+	 * @param accessTrace The AccessTraceRecorder object to record accesses, or null to stop recording them
+	 */
+	protected void setAccessTrace(AccessTraceRecorder accessTrace)
+	{
+		this.accessTrace = accessTrace;
+	}
+	
+	/**
+	 * @return Returns the LayoutAdvisor object, or null if accesses are not watched
+	 */
+	protected LayoutAdvisor getLayoutAdvisor()
+	{
+		return layoutAdvisor;
+	}
+	
+	/**
+	 * @param layoutAdvisor The LayoutAdvisor object to watch accesses, or null to stop watching them
+	 */
+	protected void setLayoutAdvisor(LayoutAdvisor layoutAdvisor)
+	{
+		this.layoutAdvisor = layoutAdvisor;
+	}
+	
+	/**
+	 * Records an access of the list if accesses are being recorded or watched
+	 * 
+	 * @param index The index of the element
+	 * @param write Whether or not the access changes the element's block
+	 */
+	protected void traceAccess(long index, boolean write)
+	{
+		if(layoutAdvisor != null)
+		{
+			layoutAdvisor.record(index, write);
+		}
+		
+		if(accessTrace != null)
+		{
+			try
+			{
+				accessTrace.record(index, write);
+			}
+			catch(IOException e)
+			{
+				throw new UncheckedIOException("Unable to write the access trace", e);
+			}
+		}
+	}
+	
+	/**
+	 * @return Returns the WriteOverlay object, or null if every set reads its block
+	 */
+	protected WriteOverlay<E> getWriteOverlay()
+	{
+		return writeOverlay;
+	}
+	
+	/**
+	 * Sets the WriteOverlay object, the elements held by the previous one are written to their blocks first
+	 * 
+	 * @param writeOverlay The WriteOverlay object to hold elements set in blocks on disk, or null to read the block of every set
+	 */
+	protected void setWriteOverlay(WriteOverlay<E> writeOverlay)
+	{
+		writeOverlayBlocks();
+		this.writeOverlay = writeOverlay;
+	}
+	
+	/**
+	 * @return Returns the CacheManager the list shares its memory budget with, or null if there is none
+	 */
+	protected CacheManager getCacheManager()
+	{
+		return cacheManager;
+	}
+	
+	/**
+	 * Shares the memory budget of the given CacheManager, evicting blocks of any list sharing it to stay within the budget
+	 * 
+	 * @param cacheManager The CacheManager, or null to only use the list's own cache blocks
+	 */
+	protected void setCacheManager(CacheManager cacheManager)
+	{
+		if(this.cacheManager != null)
+		{
+			this.cacheManager.unregister(this);
+		}
+		
+		this.cacheManager = cacheManager;
+		
+		if(cacheManager != null)
+		{
+			cacheManager.register(this);
+		}
+	}
+	
+	/**
+	 * @return Returns the number of elements each cache block holds
+	 */
+	protected int getBlockSize()
+	{
+		return bigArrayList.getBlockSize();
+	}
+	
+	/**
+	 * @return Returns the number of cache blocks
+	 */
+	protected int getNumberOfSlots()
+	{
+		return cacheTableFiles.length;
+	}
+	
+	/**
+	 * @return Returns the number of cache blocks holding a block of the list
+	 */
+	protected int getNumberOfResidentBlocks()
+	{
+		return residentBlocks;
+	}
+	
+	/**
+	 * @param blockIndex Index of the cache block
+	 * @return Returns if the cache block holds a block of the list
+	 */
+	protected boolean isResident(int blockIndex)
+	{
+		return cacheTableFiles[blockIndex] != -1;
+	}
+	
+	/**
+	 * @param blockIndex Index of the cache block
+	 * @return Returns if the cache block has changed since it was last written to disk
+	 */
+	protected boolean isDirty(int blockIndex)
+	{
+		return dirtyBits[blockIndex];
+	}
+	
+	/**
+	 * @return Returns the index of the most recently used cache block, or -1 if it is no longer in memory
+	 */
+	protected int getMostRecentSlot()
+	{
+		return mostRecentlyUsedList[mostRecentlyUsedList.length-1];
+	}
+	
+	/**
+	 * @param blockIndex Index of the cache block
+	 * @return Returns when the cache block was last used, counted by the CacheManager
+	 */
+	protected long getLastUsed(int blockIndex)
+	{
+		return lastUsed[blockIndex];
+	}
+	
+	/**
+	 * @param blockIndex Index of the cache block
+	 * @return Returns the worth the cache block was given when last used
+	 */
+	protected long getCredit(int blockIndex)
+	{
+		return credit[blockIndex];
+	}
+	
+	/**
+	 * Called by the CacheManager when a cache block is used
+	 * 
+	 * @param blockIndex Index of the cache block
+	 * @param time When the cache block was used
+	 * @param worth The worth the cache block is given
+	 */
+	protected void setRecency(int blockIndex, long time, long worth)
+	{
+		lastUsed[blockIndex] = time;
+		credit[blockIndex] = worth;
+	}
+	
+	/**
+	 * Records that a cache block was used with the CacheManager, if there is one
+	 * 
+	 * @param blockIndex Index of the cache block
+	 */
+	protected void touch(int blockIndex)
+	{
+		if(cacheManager != null)
+		{
+			cacheManager.touch(this, blockIndex);
+		}
+	}
+	
+	/**
+	 * @return Returns the number of cache blocks the list keeps to, from the start of its next operation
+	 */
+	protected int getCacheLimit()
+	{
+		return targetLimit;
+	}
+	
+	/**
+	 * Sets the number of cache blocks the list keeps to, may be called by any thread.
+	 * The least recently used blocks over the limit are freed at the start of the next operation on the list, see {@link #applyCacheLimit()}.
+	 * 
+	 * @param cacheLimit The number of cache blocks, from 2 to the number of cache blocks
+	 */
+	protected synchronized void setCacheLimit(int cacheLimit)
+	{
+		targetLimit = cacheLimit;
+	}
+	
+	/**
+	 * Called by the HeapMonitor under memory pressure to halve the cache limit, down to the minimum.
+	 * The limit is halved from the limit the list applied, so notifications arriving before the list applies the last one do not halve it again.
+	 */
+	protected synchronized void shrinkCacheLimit()
+	{
+		targetLimit = Math.min(targetLimit, Math.max(minCacheBlocks, cacheLimit / 2));
+	}
+	
+	/**
+	 * Applies a cache limit set by another thread, called at the start of every operation on the list, which only reads the limit if it did not change.
+	 * When the limit shrank, the least recently used blocks over it are written to disk if needed and freed,
+	 * and every slot without a block gets a new empty list, so the arrays of the freed blocks are given back to the heap.
+	 */
+	protected void applyCacheLimit()
+	{
+		int limit = targetLimit;
+		
+		if(limit != cacheLimit)
+		{
+			int oldLimit = cacheLimit;
+			int residentBlocks = getNumberOfResidentBlocks();
+			cacheLimit = limit;
+			
+			if(resizeListener != null)
+			{
+				resizeListener.cacheResized(oldLimit, limit, residentBlocks);
+			}
+			
+			if(limit < oldLimit)
+			{
+				//least recently used first, the limit may have shrunk by more than one block
+				for(int i=0; i<mostRecentlyUsedList.length && residentBlocks > limit; i++)
+				{
+					if(mostRecentlyUsedList[i] != -1)
+					{
+						evict(mostRecentlyUsedList[i]);
+						residentBlocks--;
+					}
+				}
+				
+				for(int i=0; i<cacheTableFiles.length; i++)
+				{
+					if(cacheTableFiles[i] == -1)
+					{
+						bigArrayList.setList(i, new ArrayList<>());
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Called by the HeapMonitor when there is memory to spare to grow the cache limit by one, up to the number of cache blocks
+	 */
+	protected synchronized void growCacheLimit()
+	{
+		targetLimit = Math.min(cacheTableFiles.length, targetLimit + 1);
+	}
+	
+	/**
+	 * @return Returns the fewest cache blocks the cache is shrunk to under memory pressure, or 0 if it is not resized with the heap
+	 */
+	protected int getMinCacheBlocks()
+	{
+		return minCacheBlocks;
+	}
+	
 	/**
-	 * Constructs a CacheMapping object for the BigArrayList with the following parameters
+	 * Starts or stops resizing the cache with the heap, stopping sets the limit back to the number of cache blocks
 	 * 
-	 * @param blockSize Size of each cache block
-	 * @param cacheBlocks Number of cache blocks
-	 * @param theList Associated BigArrayList
-	 * @param folderPath The folder path to store contents on disk
+	 * @param minCacheBlocks The fewest cache blocks to shrink the cache to, or 0 to stop resizing it
 	 */
-	protected CacheMapping(BigArrayList<E> theList, int blockSize, int cacheBlocks, String folderPath)
+	protected void setMinCacheBlocks(int minCacheBlocks)
 	{
-		cacheTableSpots = new int[cacheBlocks];
-		cacheTableFiles = new int[cacheBlocks];
-		mostRecentlyUsedList = new int[cacheBlocks];
-		dirtyBits = new boolean[cacheBlocks];
-
-		for(int i=0; i<cacheBlocks; i++)
+		if(minCacheBlocks > 0)
 		{
-			cacheTableSpots[i] = 0;
-			cacheTableFiles[i] = -1;
-			mostRecentlyUsedList[i] = -1;
-			dirtyBits[i] = false;
+			HeapMonitor.getHeapMonitor().register(this);
+		}
+		else if(this.minCacheBlocks > 0)
+		{
+			HeapMonitor.getHeapMonitor().unregister(this);
+			setCacheLimit(cacheTableFiles.length);
 		}
 		
-		bigArrayList = theList;
-		fileAccessor = new FileAccessor<>(folderPath);
+		this.minCacheBlocks = minCacheBlocks;
 	}
 	
 	/**
-	 * Constructs a CacheMapping object for the BigArrayList with the following parameters
+	 * Changes the number of cache blocks, the cache must be empty such as after {@link #flushCache()}.
+	 * The cache limit is set to the new number of cache blocks, and the fewest cache blocks the HeapMonitor shrinks the cache to is kept within it.
 	 * 
-	 * @param blockSize Size of each cache block
-	 * @param cacheBlocks Number of cache blocks
-	 * @param theList Associated BigArrayList
+	 * @param cacheBlocks The new number of cache blocks
 	 */
-	protected CacheMapping(BigArrayList<E> theList, int blockSize, int cacheBlocks)
+	protected synchronized void resetSlots(int cacheBlocks)
 	{
 		cacheTableSpots = new int[cacheBlocks];
 		cacheTableFiles = new int[cacheBlocks];
+		residentBlocks = 0;
 		mostRecentlyUsedList = new int[cacheBlocks];
 		dirtyBits = new boolean[cacheBlocks];
+		persistedSizes = new int[cacheBlocks];
+		appendOnlyBits = new boolean[cacheBlocks];
+		setOnlyBits = new boolean[cacheBlocks];
+		changedElements = new BitSet[cacheBlocks];
+		lastUsed = new long[cacheBlocks];
+		credit = new long[cacheBlocks];
+		targetLimit = cacheBlocks;
+		cacheLimit = cacheBlocks;
+		minCacheBlocks = Math.min(minCacheBlocks, cacheBlocks);
 
 		for(int i=0; i<cacheBlocks; i++)
 		{
@@ -117,20 +698,37 @@ class CacheMapping<E extends Serializable>
 			cacheTableFiles[i] = -1;
 			mostRecentlyUsedList[i] = -1;
 			dirtyBits[i] = false;
+			persistedSizes[i] = 0;
+			appendOnlyBits[i] = true;
+			setOnlyBits[i] = true;
 		}
-		
-		bigArrayList = theList;
-		fileAccessor = new FileAccessor<>();
 	}
-
-	////////////////////////////////////////////////////////////////////////////////////////////////
-
+	
 	/**
-	 * @return Returns the fileAccessor object
+	 * @param resizeListener Receives the changes to the cache limit, or null
 	 */
-	protected FileAccessor<E> getFileAccessor()
+	protected void setResizeListener(CacheResizeListener resizeListener)
 	{
-		return fileAccessor;
+		this.resizeListener = resizeListener;
+	}
+	
+	/**
+	 * Writes a cache block to disk if needed and frees its memory to make room for another block,
+	 * called when a block is brought into cache and by the CacheManager
+	 * 
+	 * @param blockIndex Index of the cache block
+	 */
+	protected void evict(int blockIndex)
+	{
+		ListEvents.BlockEviction event = new ListEvents.BlockEviction();
+		event.begin();
+		int fileNumber = cacheTableFiles[blockIndex];
+		boolean dirty = dirtyBits[blockIndex];
+		long bytesWritten = fileAccessor.getBytesWritten();
+		
+		statistics.evicted(dirty);
+		flushCacheBlock(blockIndex);
+		event.finish(fileAccessor.getMemoryInstance(), fileNumber, dirty, fileAccessor.getBytesWritten() - bytesWritten);
 	}
 	
 
@@ -155,6 +753,15 @@ class CacheMapping<E extends Serializable>
 	 */
 	private void setCacheTableFiles(int index, int fileNumber)
 	{
+		if(cacheTableFiles[index] == -1 && fileNumber != -1)
+		{
+			residentBlocks++;
+		}
+		else if(cacheTableFiles[index] != -1 && fileNumber == -1)
+		{
+			residentBlocks--;
+		}
+		
 		cacheTableFiles[index] = fileNumber;
 	}
 
@@ -183,6 +790,50 @@ class CacheMapping<E extends Serializable>
 	protected void setDirtyBit(int blockIndex, boolean dirty)
 	{
 		dirtyBits[blockIndex] = dirty;
+		
+		//any change other than an append may move or replace elements that are already on disk
+		if(dirty)
+		{
+			appendOnlyBits[blockIndex] = false;
+			setOnlyBits[blockIndex] = false;
+		}
+	}
+	
+	/**
+	 * Marks the given cache block as dirty after one of its elements was set, the other elements did not change
+	 * The position is only remembered if the list has a codec, since only then can a single element be written
+	 * 
+	 * @param blockIndex Index of the cache block
+	 * @param spotInBlock The position of the element in the block
+	 */
+	protected void setModified(int blockIndex, int spotInBlock)
+	{
+		if(setOnlyBits[blockIndex] && fileAccessor.getCodec() != null)
+		{
+			if(changedElements[blockIndex] == null)
+			{
+				changedElements[blockIndex] = new BitSet(bigArrayList.getBlockSize());
+			}
+			
+			changedElements[blockIndex].set(spotInBlock);
+			dirtyBits[blockIndex] = true;
+			appendOnlyBits[blockIndex] = false;
+		}
+		else
+		{
+			setDirtyBit(blockIndex, true);
+		}
+	}
+	
+	/**
+	 * Marks the given cache block as dirty after an element was added to its end, the elements already on disk did not change
+	 * 
+	 * @param blockIndex Index of the cache block
+	 */
+	protected void setAppended(int blockIndex)
+	{
+		dirtyBits[blockIndex] = true;
+		setOnlyBits[blockIndex] = false;
 	}
 
 	/**
@@ -359,7 +1010,7 @@ class CacheMapping<E extends Serializable>
 		}
 
 		mostRecentlyUsedList[newPosition] = blockNumber;
-
+		touch(blockNumber);
 	}
 
 	/**
@@ -376,11 +1027,155 @@ class CacheMapping<E extends Serializable>
 		}
 	}
 
+	/**
+	 * Sets an element of a block that is not in cache without reading the block, by holding it in the write overlay.
+	 * If the overlay then holds too many elements, the blocks with the most elements are written until it does not.
+	 * 
+	 * @param fileNumber The block/file number, which must not be in cache
+	 * @param spotInBlock The position of the element in the block
+	 * @param element The new element
+	 */
+	protected void setInOverlay(int fileNumber, int spotInBlock, E element)
+	{
+		writeOverlay.put(fileNumber, spotInBlock, element);
+		
+		while(writeOverlay.isOverBudget())
+		{
+			writeOverlayBlock(writeOverlay.getLargestBlock());
+		}
+	}
+	
+	/**
+	 * Returns if the write overlay holds a new element for a position of a block that is not in cache
+	 * 
+	 * @param fileNumber The block/file number
+	 * @param spotInBlock The position of the element in the block
+	 * @return Returns true if the element can be read with {@link #getFromOverlay(int, int)} without reading the block
+	 */
+	protected boolean isInOverlay(int fileNumber, int spotInBlock)
+	{
+		return writeOverlay != null && writeOverlay.contains(fileNumber, spotInBlock);
+	}
+	
+	/**
+	 * @param fileNumber The block/file number
+	 * @param spotInBlock The position of the element in the block
+	 * @return Returns the new element held in the write overlay, see {@link #isInOverlay(int, int)}
+	 */
+	protected E getFromOverlay(int fileNumber, int spotInBlock)
+	{
+		return writeOverlay.get(fileNumber, spotInBlock);
+	}
+	
+	/**
+	 * Writes every element held in the write overlay to its block, so every block on disk matches the list.
+	 * Must be called before the positions of elements on disk change, and before blocks on disk are read without bringing them into cache.
+	 */
+	protected void writeOverlayBlocks()
+	{
+		if(writeOverlay != null)
+		{
+			List<Integer> fileNumbers = writeOverlay.getFileNumbers();
+			
+			for(int i=0; i<fileNumbers.size(); i++)
+			{
+				writeOverlayBlock(fileNumbers.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Writes the elements held in the write overlay for one block.
+	 * The block is read, changed, and written back outside of the cache, so no block in cache is swapped out for it.
+	 * 
+	 * @param fileNumber The block/file number, which must not be in cache
+	 */
+	private void writeOverlayBlock(int fileNumber)
+	{
+		Map<Integer, E> elements = writeOverlay.remove(fileNumber);
+		boolean written = false;
+		
+		try
+		{
+			List<E> block = fileAccessor.readBlock(FileAccessor.MEMORY_AREA, fileNumber);
+			BitSet changed = new BitSet(block.size());
+			ListEvents.BlockFlush event = new ListEvents.BlockFlush();
+			event.begin();
+			long start = System.nanoTime();
+			long bytesWritten = fileAccessor.getBytesWritten();
+			String kind = "whole";
+			
+			for(Map.Entry<Integer, E> entry : elements.entrySet())
+			{
+				block.set(entry.getKey(), entry.getValue());
+				changed.set(entry.getKey());
+			}
+			
+			if(fileAccessor.getCodec() != null && isFewChanged(elements.size(), block.size()))
+			{
+				fileAccessor.writeChangedElements(fileNumber, block, changed);
+				kind = "changed";
+			}
+			else
+			{
+				fileAccessor.writeBlock(FileAccessor.MEMORY_AREA, fileNumber, block);
+			}
+			
+			statistics.flushed(System.nanoTime() - start);
+			event.finish(fileAccessor.getMemoryInstance(), fileNumber, kind, fileAccessor.getBytesWritten() - bytesWritten);
+			blockWritten(fileNumber, block);
+			written = true;
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException("Unable to write block " + fileNumber, e);
+		}
+		catch(ClassNotFoundException e)
+		{
+			throw new UncheckedIOException("Unable to write block " + fileNumber, new IOException(e));
+		}
+		finally
+		{
+			//nothing is lost, the elements are held again and the block is written by the next attempt
+			if(!written)
+			{
+				for(Map.Entry<Integer, E> entry : elements.entrySet())
+				{
+					writeOverlay.put(fileNumber, entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Applies the elements held in the write overlay to a block that was just brought into cache
+	 * 
+	 * @param blockIndex The index of the cache block
+	 * @param fileNumber The block/file number
+	 */
+	private void applyOverlay(int blockIndex, int fileNumber)
+	{
+		Map<Integer, E> elements = writeOverlay == null ? null : writeOverlay.remove(fileNumber);
+		
+		if(elements != null)
+		{
+			List<E> block = bigArrayList.getList(blockIndex);
+			
+			for(Map.Entry<Integer, E> entry : elements.entrySet())
+			{
+				block.set(entry.getKey(), entry.getValue());
+				setModified(blockIndex, entry.getKey());
+			}
+		}
+	}
+	
 	/**
 	 * Flushes all data in memory to disk
 	 */
 	protected void flushCache()
 	{
+		writeDirtyBlocks();
+		
 		for(int i=0; i<cacheTableFiles.length; i++)
 		{
 			flushCacheBlock(i);
@@ -388,34 +1183,100 @@ class CacheMapping<E extends Serializable>
 	}
 
 	/**
-	 * Flushes a single cache block to disk
-	 * 
-	 * @param blockIndex The index of the cache block
+	 * Writes the dirty cache blocks to disk but keeps them in cache, so every block on disk matches the list.
+	 * When the blocks are striped across several folders, the blocks of each folder are written by a separate thread.
 	 */
-	private void flushCacheBlock(int blockIndex)
+	protected void writeDirtyBlocks()
 	{
-		//write to file
-		int fileNumber = cacheTableFiles[blockIndex];
-
-		if(dirtyBits[blockIndex])
+		writeOverlayBlocks();
+		
+		if(fileAccessor.getNumberOfFolders() == 1)
+		{
+			for(int i=0; i<cacheTableFiles.length; i++)
+			{
+				writeCacheBlock(i);
+			}
+		}
+		else
 		{
+			//each thread only marks its own blocks, and waiting for the threads makes the marks visible
+			boolean[] writtenBlocks = new boolean[cacheTableFiles.length];
+			IOException failure = null;
+			
 			try
-			{				
-
-				fileAccessor.writeToFileObject(fileNumber, blockIndex, bigArrayList);
-				
-				setDirtyBit(blockIndex, false);
+			{
+				fileAccessor.forEachFolder(folderIndex ->
+				{
+					for(int i=0; i<cacheTableFiles.length; i++)
+					{
+						if(dirtyBits[i] && fileAccessor.getFolderIndex(cacheTableFiles[i]) == folderIndex)
+						{
+							writeToFile(i);
+							writtenBlocks[i] = true;
+						}
+					}
+				});
+			}
+			catch(IOException e)
+			{
+				failure = e;
+			}
+			
+			//the metadata is not thread safe, it is updated once every folder is done
+			//blocks written before another folder failed are marked persisted too, an append written twice would duplicate its elements
+			for(int i=0; i<cacheTableFiles.length; i++)
+			{
+				if(writtenBlocks[i])
+				{
+					blockPersisted(i);
+					
+					try
+					{
+						blockWritten(cacheTableFiles[i], bigArrayList.getList(i));
+					}
+					catch(IOException e)
+					{
+						if(failure == null)
+						{
+							failure = e;
+						}
+						else
+						{
+							failure.addSuppressed(e);
+						}
+					}
+				}
 			}
-			catch(Exception e)
+			
+			if(failure != null)
 			{
-				e.printStackTrace();
-				System.exit(-1);
+				//blocks that were not written stay dirty and are written again
+				throw new UncheckedIOException("Unable to write blocks", failure);
 			}
 		}
+	}
+
+	/**
+	 * Flushes a single cache block to disk
+	 * 
+	 * @param blockIndex The index of the cache block
+	 */
+	private void flushCacheBlock(int blockIndex)
+	{
+		//write to file
+		writeCacheBlock(blockIndex);
 
 		//clear list
+		//a list sharing a CacheManager gives the memory back, the ArrayList would otherwise keep its capacity
 
-		bigArrayList.clearList(blockIndex);
+		if(cacheManager != null)
+		{
+			bigArrayList.setList(blockIndex, new ArrayList<>());
+		}
+		else
+		{
+			bigArrayList.clearList(blockIndex);
+		}
 
 		//remove block from used list
 		//clear cache for this block
@@ -425,6 +1286,139 @@ class CacheMapping<E extends Serializable>
 		clearCacheBlock(blockIndex);
 	}
 
+	/**
+	 * Writes a single cache block to disk if it is dirty
+	 * 
+	 * @param blockIndex The index of the cache block
+	 */
+	private void writeCacheBlock(int blockIndex)
+	{
+		int fileNumber = cacheTableFiles[blockIndex];
+
+		if(dirtyBits[blockIndex])
+		{
+			try
+			{
+				writeToFile(blockIndex);
+				
+				//persisted before the metadata is updated, so a failure there does not append the same elements again
+				blockPersisted(blockIndex);
+				blockWritten(fileNumber, bigArrayList.getList(blockIndex));
+			}
+			catch(IOException e)
+			{
+				//the block stays dirty and in cache so nothing is lost, the caller decides whether to retry or give up
+				throw new UncheckedIOException("Unable to write block " + fileNumber, e);
+			}
+		}
+	}
+
+	/**
+	 * Writes a dirty cache block to disk.
+	 * A block that is not full and only had elements added to its end, such as the last block while elements are being added,
+	 * only has the added elements appended to its append log, so writing it again and again as it fills does not rewrite the same elements.
+	 * The whole block is written once it is full or changed in any other way, which merges the log into the block file.
+	 * A block that only had a few elements set, and belongs to a list with a codec, only has the bytes of those elements overwritten.
+	 * 
+	 * @param blockIndex The index of the cache block
+	 * @throws IOException For I/O errors
+	 */
+	private void writeToFile(int blockIndex) throws IOException
+	{
+		ListEvents.BlockFlush event = new ListEvents.BlockFlush();
+		event.begin();
+		long start = System.nanoTime();
+		long bytesWritten = fileAccessor.getBytesWritten();
+		String kind = "whole";
+		List<E> block = bigArrayList.getList(blockIndex);
+		int persistedSize = persistedSizes[blockIndex];
+		
+		if(appendOnlyBits[blockIndex] && persistedSize > 0 && persistedSize < block.size() && block.size() < bigArrayList.getBlockSize())
+		{
+			fileAccessor.appendToBlock(cacheTableFiles[blockIndex], block.subList(persistedSize, block.size()));
+			kind = "append";
+		}
+		else if(setOnlyBits[blockIndex] && changedElements[blockIndex] != null && persistedSize == block.size()
+				&& isFewChanged(changedElements[blockIndex].cardinality(), block.size()))
+		{
+			fileAccessor.writeChangedElements(cacheTableFiles[blockIndex], block, changedElements[blockIndex]);
+			kind = "changed";
+		}
+		else
+		{
+			fileAccessor.writeToFileObject(cacheTableFiles[blockIndex], blockIndex, bigArrayList);
+		}
+		
+		statistics.flushed(System.nanoTime() - start);
+		event.finish(fileAccessor.getMemoryInstance(), cacheTableFiles[blockIndex], kind, fileAccessor.getBytesWritten() - bytesWritten);
+	}
+	
+	/**
+	 * Returns if few enough elements of a block changed to only write those elements, for a list with a codec
+	 * 
+	 * @param changedElements The number of elements changed
+	 * @param blockLength The number of elements in the block
+	 * @return Returns true if at most a quarter of the block changed
+	 */
+	private boolean isFewChanged(int changedElements, int blockLength)
+	{
+		//past a quarter of the block, writing it whole in one sequential write is as cheap as many small writes
+		return changedElements <= blockLength / 4;
+	}
+	
+	/**
+	 * Marks a cache block as matching the block on disk after it was written
+	 * 
+	 * @param blockIndex The index of the cache block
+	 */
+	private void blockPersisted(int blockIndex)
+	{
+		setDirtyBit(blockIndex, false);
+		persistedSizes[blockIndex] = bigArrayList.getArraySize(blockIndex);
+		appendOnlyBits[blockIndex] = true;
+		resetChangedElements(blockIndex);
+	}
+	
+	/**
+	 * Forgets the elements set in a cache block, after it was written or another block was read into it
+	 * 
+	 * @param blockIndex The index of the cache block
+	 */
+	private void resetChangedElements(int blockIndex)
+	{
+		setOnlyBits[blockIndex] = true;
+		
+		if(changedElements[blockIndex] != null)
+		{
+			changedElements[blockIndex].clear();
+		}
+	}
+	
+	/**
+	 * Updates the metadata kept about the blocks on disk after a block of the list is written
+	 * 
+	 * @param fileNumber The block/file number written
+	 * @param block The elements written
+	 * @throws IOException For I/O errors
+	 */
+	protected void blockWritten(int fileNumber, List<E> block) throws IOException
+	{
+		if(zoneMap != null)
+		{
+			zoneMap.update(fileNumber, block);
+		}
+		
+		if(storedZoneMap != null)
+		{
+			storedZoneMap.remove(fileNumber);
+		}
+		
+		if(bloomFilters != null)
+		{
+			bloomFilters.update(fileNumber, block);
+		}
+	}
+
 	/**
 	 * Clears a cache block from memory
 	 * Only a soft clear
@@ -433,7 +1427,7 @@ class CacheMapping<E extends Serializable>
 	private void clearCacheBlock(int blockToClear)
 	{
 		cacheTableSpots[blockToClear] = 0;
-		cacheTableFiles[blockToClear] = -1;
+		setCacheTableFiles(blockToClear, -1);
 	}
 
 	/**
@@ -445,13 +1439,27 @@ class CacheMapping<E extends Serializable>
 	protected int bringFileIntoCache(int fileNumber)
 	{
 		//clear a spot if there isn't one
+		//least recently used first, the block is read into the spot it frees so no other spot keeps the array of a freed block
 
-		int openCacheBlock = getFirstOpenCacheBlock();
+		int residentBlocks = getNumberOfResidentBlocks();
+		int evictedBlock = -1;
+		boolean flushed = false;
+		
+		for(int i=0; i<mostRecentlyUsedList.length && residentBlocks >= cacheLimit; i++)
+		{
+			if(mostRecentlyUsedList[i] != -1)
+			{
+				evictedBlock = mostRecentlyUsedList[i];
+				evict(evictedBlock);
+				residentBlocks--;
+				flushed = true;
+			}
+		}
 		
-		if(openCacheBlock == -1)
+		if(!flushed && cacheManager != null)
 		{
-			int blockToFlush = mostRecentlyUsedList[0];
-			flushCacheBlock(blockToFlush);
+			//a block of this or another list may have to go to stay within the shared budget
+			cacheManager.reserve(this, bigArrayList.getBlockSize());
 		}
 
 		//read into array list
@@ -459,12 +1467,22 @@ class CacheMapping<E extends Serializable>
 		//set cacheTableSpots to number of objects read from file
 		//update usedList
 
-		openCacheBlock = getFirstOpenCacheBlock();
+		int openCacheBlock = flushed ? evictedBlock : getFirstOpenCacheBlock();
+		ListEvents.BlockLoad event = new ListEvents.BlockLoad();
+		event.begin();
+		long start = System.nanoTime();
+		long bytesRead = fileAccessor.getBytesRead();
 
 		readFromFile(fileNumber, openCacheBlock);
+		statistics.loaded(System.nanoTime() - start);
+		event.finish(fileAccessor.getMemoryInstance(), fileNumber, fileAccessor.getBytesRead() - bytesRead);
 
 		setCacheTableFiles(openCacheBlock, fileNumber);
 		setCacheTableSpots(openCacheBlock, bigArrayList.getArraySize(openCacheBlock));
+		persistedSizes[openCacheBlock] = bigArrayList.getArraySize(openCacheBlock);
+		appendOnlyBits[openCacheBlock] = true;
+		resetChangedElements(openCacheBlock);
+		applyOverlay(openCacheBlock, fileNumber);
 
 		updateUsedList(openCacheBlock);
 		
@@ -483,10 +1501,13 @@ class CacheMapping<E extends Serializable>
 		{
 			fileAccessor.readFromFileObject(fileNumber, cacheIndex, bigArrayList);
 		}
-		catch(Exception e)
+		catch(IOException e)
+		{
+			throw new UncheckedIOException("Unable to read block " + fileNumber, e);
+		}
+		catch(ClassNotFoundException e)
 		{
-			e.printStackTrace();
-			System.exit(-1);
+			throw new UncheckedIOException("Unable to read block " + fileNumber, new IOException(e));
 		}
 	}
 
@@ -497,6 +1518,9 @@ class CacheMapping<E extends Serializable>
 	 */
 	protected void clearMemory() throws IOException
 	{
+		setCacheManager(null);
+		setMinCacheBlocks(0);
+		writeOverlay = null;
 		fileAccessor.clearMemory();
 	}
 }
\ No newline at end of file
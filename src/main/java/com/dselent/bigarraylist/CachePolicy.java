@@ -0,0 +1,41 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+/**
+ * How a {@link CacheManager} chooses the block to evict when the lists sharing it need more memory than its budget.
+ * 
+ * @author Douglas Selent
+ */
+public enum CachePolicy
+{
+	/**
+	 * Evicts the block used least recently by any of the lists
+	 */
+	LRU,
+	
+	/**
+	 * GreedyDual: each block is worth the I/O it would cost to evict, one write if it is dirty plus one read to bring it back.
+	 * The block worth the least is evicted, and its worth is subtracted from every other block as they age,
+	 * so clean blocks go before dirty ones of a similar age but no block stays forever.
+	 * Ties are broken by recency.
+	 */
+	GREEDY_DUAL
+}
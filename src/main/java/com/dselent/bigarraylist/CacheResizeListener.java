@@ -0,0 +1,38 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+/**
+ * Receives the changes to the number of cache blocks a BigArrayList may hold, see {@link BigArrayList#setCacheLimit(int)}.
+ * 
+ * @author Douglas Selent
+ */
+@FunctionalInterface
+public interface CacheResizeListener
+{
+	/**
+	 * Called by the thread using the list when the list starts keeping to a new limit, before any blocks are freed for it
+	 * 
+	 * @param oldLimit The previous number of cache blocks the list could hold
+	 * @param newLimit The number of cache blocks the list can now hold
+	 * @param residentBlocks The number of cache blocks the list holds
+	 */
+	void cacheResized(int oldLimit, int newLimit, int residentBlocks);
+}
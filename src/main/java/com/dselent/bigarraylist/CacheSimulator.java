@@ -0,0 +1,231 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Replays a trace recorded by {@link BigArrayList#startAccessTrace(String)} offline, to predict the hit ratio and I/O of other cache settings
+ * before changing them.  The trace can be replayed any number of times, with any block size, number of cache blocks, and {@link CachePolicy}.
+ * <p>
+ * Blocks are evicted like a {@link CacheManager} evicts them with the same policy and a budget of exactly the cache blocks.
+ * Replaying with the block size the trace was recorded with only approximates the list itself:
+ * a list without a CacheManager only refreshes the recency of a block when it reads, adds to, or removes from it,
+ * and the shifts of the elements after a removal are not replayed.
+ * <p>
+ * Example, comparing block sizes for a recorded run:
+ * <pre>
+ * CacheSimulator simulator = new CacheSimulator("run.trace");
+ * 
+ * for(int blockSize=10000; blockSize&lt;=1000000; blockSize*=10)
+ * {
+ *   System.out.println(simulator.simulate(blockSize, 64, CachePolicy.LRU));
+ * }
+ * </pre>
+ * 
+ * @author Douglas Selent
+ */
+public class CacheSimulator
+{
+	/**
+	 * The path of the trace file
+	 */
+	private final String tracePath;
+	
+	/**
+	 * The block size of the list the trace was recorded from
+	 */
+	private final int recordedBlockSize;
+	
+	/**
+	 * The wall clock time in milliseconds the trace started
+	 */
+	private final long startMillis;
+	
+	/**
+	 * Constructs a CacheSimulator for a trace file
+	 * 
+	 * @param tracePath The path of the trace file
+	 * @throws IOException For I/O errors, or if the file is not a trace
+	 */
+	public CacheSimulator(String tracePath) throws IOException
+	{
+		this.tracePath = tracePath;
+		DataInputStream inputStream = openTrace(tracePath);
+		
+		try
+		{
+			recordedBlockSize = inputStream.readInt();
+			startMillis = inputStream.readLong();
+		}
+		finally
+		{
+			inputStream.close();
+		}
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the block size of the list the trace was recorded from
+	 */
+	public int getRecordedBlockSize()
+	{
+		return recordedBlockSize;
+	}
+	
+	/**
+	 * @return Returns the wall clock time in milliseconds the trace started
+	 */
+	public long getStartMillis()
+	{
+		return startMillis;
+	}
+	
+	/**
+	 * Replays the trace with the given cache settings
+	 * 
+	 * @param blockSize The number of elements in each block
+	 * @param cacheBlocks The number of blocks kept in memory
+	 * @param policy How blocks are chosen for eviction
+	 * @return Returns the predicted hits and I/O
+	 * @throws IOException For I/O errors, or if the trace is truncated
+	 */
+	public SimulationResult simulate(int blockSize, int cacheBlocks, CachePolicy policy) throws IOException
+	{
+		if(blockSize < 1)
+		{
+			throw new IllegalArgumentException("Block size is " + blockSize + " but must be >= 1");
+		}
+		
+		if(cacheBlocks < 1)
+		{
+			throw new IllegalArgumentException("Cache blocks is " + cacheBlocks + " but must be >= 1");
+		}
+		
+		if(policy == null)
+		{
+			throw new IllegalArgumentException("Cache policy is null but must be one of LRU, GREEDY_DUAL");
+		}
+		
+		SimulatedCache cache = new SimulatedCache(blockSize, cacheBlocks, policy);
+		long index = 0;
+		long micros = 0;
+		
+		DataInputStream inputStream = openTrace(tracePath);
+		
+		try
+		{
+			inputStream.readInt();
+			inputStream.readLong();
+			int firstByte = inputStream.read();
+			
+			while(firstByte != -1)
+			{
+				long code = readVarLong(inputStream, firstByte);
+				long zigzag = code >>> 1;
+				
+				index = index + ((zigzag >>> 1) ^ -(zigzag & 1));
+				micros = micros + readVarLong(inputStream, inputStream.read());
+				cache.access(index, (code & 1) != 0);
+				
+				firstByte = inputStream.read();
+			}
+		}
+		finally
+		{
+			inputStream.close();
+		}
+		
+		//the dirty blocks still in memory are written when the list is flushed or closed
+		long blockWrites = cache.getBlockWrites() + cache.getDirtyBlocks();
+		
+		return new SimulationResult(blockSize, cacheBlocks, policy, cache.getHits() + cache.getMisses(), cache.getHits(), cache.getMisses(), blockWrites, micros);
+	}
+	
+	/**
+	 * Opens a trace file and checks its magic number
+	 * 
+	 * @param tracePath The path of the trace file
+	 * @return Returns the stream positioned after the magic number
+	 * @throws IOException For I/O errors, or if the file is not a trace
+	 */
+	private static DataInputStream openTrace(String tracePath) throws IOException
+	{
+		DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(tracePath), 65536));
+		boolean opened = false;
+		
+		try
+		{
+			if(inputStream.readInt() != AccessTraceRecorder.TRACE_MAGIC)
+			{
+				throw new IOException("Unrecognized trace file " + tracePath);
+			}
+			
+			opened = true;
+		}
+		catch(EOFException e)
+		{
+			throw new IOException("Unrecognized trace file " + tracePath, e);
+		}
+		finally
+		{
+			if(!opened)
+			{
+				inputStream.close();
+			}
+		}
+		
+		return inputStream;
+	}
+	
+	/**
+	 * Decodes a value written 7 bits at a time by {@link AccessTraceRecorder}
+	 * 
+	 * @param inputStream The stream to read from
+	 * @param firstByte The first byte of the value, already read
+	 * @return Returns the value
+	 * @throws IOException For I/O errors, or if the stream ends within the value
+	 */
+	private long readVarLong(DataInputStream inputStream, int firstByte) throws IOException
+	{
+		int nextByte = firstByte;
+		long value = 0;
+		int shift = 0;
+		
+		while(nextByte != -1 && (nextByte & 0x80) != 0)
+		{
+			value = value | ((long)(nextByte & 0x7F) << shift);
+			shift = shift + 7;
+			nextByte = inputStream.read();
+		}
+		
+		if(nextByte == -1)
+		{
+			throw new EOFException("Truncated trace file " + tracePath);
+		}
+		
+		return value | ((long)nextByte << shift);
+	}
+}
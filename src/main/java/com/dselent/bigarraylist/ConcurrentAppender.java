@@ -0,0 +1,118 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends elements to a ConcurrentBigArrayList on behalf of a single producer thread.
+ * <p>
+ * Elements are staged in a chunk owned by the appender.  When the chunk is full it is sealed and appended to the list
+ * as one contiguous range with a single claim, so producers only contend with each other once per chunk.
+ * Staged elements are not in the list until their chunk is appended, call {@link #flush()} or {@link #close()} to append a partial chunk.
+ * <p>
+ * An appender is not thread-safe, each producer thread should use its own.
+ * Example code is below:
+ * <pre>
+ * {@code
+ * try(ConcurrentAppender<Long> appender = list.appender())
+ * {
+ *     for(long i=0; i<1000000; i++)
+ *     {
+ *         appender.append(i);
+ *     }
+ * }
+ * }
+ * </pre>
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <E> Generic type
+ */
+public class ConcurrentAppender<E extends Serializable> implements AutoCloseable
+{
+	/**
+	 * The list to append to
+	 */
+	private final ConcurrentBigArrayList<E> list;
+	
+	/**
+	 * The number of elements staged before they are appended
+	 */
+	private final int chunkSize;
+	
+	/**
+	 * The elements staged so far
+	 */
+	private List<E> chunk;
+	
+	/**
+	 * Constructs an appender for the given list, see {@link ConcurrentBigArrayList#appender(int)}
+	 * 
+	 * @param list The list to append to
+	 * @param chunkSize The number of elements staged before they are appended
+	 */
+	protected ConcurrentAppender(ConcurrentBigArrayList<E> list, int chunkSize)
+	{
+		this.list = list;
+		this.chunkSize = chunkSize;
+		chunk = new ArrayList<>(chunkSize);
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Stages an element, appending the chunk to the list once it is full
+	 * 
+	 * @param element The element to append
+	 */
+	public void append(E element)
+	{
+		chunk.add(element);
+		
+		if(chunk.size() >= chunkSize)
+		{
+			flush();
+		}
+	}
+	
+	/**
+	 * Appends the staged elements to the list, even if the chunk is not full
+	 */
+	public void flush()
+	{
+		if(!chunk.isEmpty())
+		{
+			list.appendChunk(chunk);
+			chunk.clear();
+		}
+	}
+	
+	/**
+	 * Appends any staged elements to the list
+	 */
+	@Override
+	public void close()
+	{
+		flush();
+	}
+}
@@ -0,0 +1,1137 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe variant of BigArrayList.
+ * <p>
+ * Each block has its own read/write lock, so threads getting and setting elements in different blocks run in parallel,
+ * and threads reading the same block share its lock.  A block on disk is read while holding only its own write lock,
+ * so I/O on one block never blocks access to other blocks.
+ * <p>
+ * The cache metadata is lock-free: the blocks in cache are kept in a concurrent set and each block records when it was last used.
+ * When more blocks than the cache holds are in memory, the least recently used blocks that no other thread is using are swapped out.
+ * Since the last used times are written without locking, the LRU order is approximate.
+ * <p>
+ * Adding elements claims a range of indices with a single atomic bump of the reserved size, so several threads append at once,
+ * and the size is published in claim order once each range is filled.  Producers that add many elements should use
+ * a {@link ConcurrentAppender} each, which stages elements in chunks so the claim is paid once per chunk.
+ * Removing elements takes an exclusive structure lock since it shifts every later element between blocks.
+ * All other operations share the structure lock.
+ * <p>
+ * {@link #getAsync(long)} and {@link #setAsync(long, Serializable)} never wait on I/O: they complete at once if the block is in cache,
+ * and otherwise load the block on an I/O executor, with concurrent requests for the same block sharing one load.
+ * Only java.util.concurrent locks are used, never synchronized blocks, so blocking I/O does not pin virtual threads to their carriers.
+ * <p>
+ * Unlike BigArrayList, I/O errors while getting or setting elements are thrown as an UncheckedIOException.
+ * A small lock object is kept in memory for every block of the list, including blocks on disk.
+ * <p>
+ * Example code is below:
+ * <pre>
+ * {@code
+ * ConcurrentBigArrayList<Long> list = new ConcurrentBigArrayList<>(100000, 8);
+ * 
+ * //Add elements to the list
+ * for(long i=0; i<1000000; i++)
+ * {
+ *     list.add(i);
+ * }
+ * 
+ * //Get and set elements from several threads at once
+ * IntStream.range(0, 1000000).parallel().forEach(i -> list.set(i, list.get(i) * 2));
+ * 
+ * //Clear data from disk when done
+ * list.clearMemory();
+ * }
+ * </pre>
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <E> Generic type
+ */
+public class ConcurrentBigArrayList<E extends Serializable>
+{
+	/**
+	 * Default size of cache block = 1,000,000
+	 */
+	private static final int DEFAULT_BLOCK_SIZE = 1000000;
+	
+	/**
+	 * Default number of cache blocks = 2
+	 */
+	private static final int DEFAULT_CACHE_BLOCKS = 2;
+
+	/**
+	 * The minimum size of a cache block = 5 elements
+	 */
+	private static final int MIN_CACHE_SIZE = 5;
+	
+	/**
+	 * The maximum size of a cache block = the integer limit of 2^31 - 1
+	 */
+	private static final int MAX_CACHE_SIZE = Integer.MAX_VALUE;
+
+	/**
+	 * The minimum number of cache blocks = 2
+	 */
+	private static final int MIN_CACHE_BLOCKS = 2;
+	
+	/**
+	 * The maximum number of cache blocks = the integer limit of 2^31 - 1
+	 */
+	private static final int MAX_CACHE_BLOCKS = Integer.MAX_VALUE;
+	
+	/**
+	 * Default executor for loading blocks for asynchronous requests, shared by all lists, its daemon threads do not keep the JVM alive
+	 */
+	private static final ExecutorService DEFAULT_ASYNC_EXECUTOR = Executors.newCachedThreadPool(runnable ->
+	{
+		Thread thread = new Thread(runnable, "ConcurrentBigArrayList-io");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	/**
+	 * The size of the cache blocks
+	 */
+	private final int blockSize;
+	
+	/**
+	 * The number of cache blocks
+	 */
+	private final int cacheBlocks;
+	
+	/**
+	 * Reads and writes the blocks to/from disk
+	 */
+	private final FileAccessor<E> fileAccessor;
+	
+	/**
+	 * Every block of the list that has been used, key is the block/file number
+	 */
+	private final ConcurrentHashMap<Integer, ConcurrentBlock<E>> blocks;
+	
+	/**
+	 * The blocks currently in cache
+	 */
+	private final Set<ConcurrentBlock<E>> residentBlocks;
+	
+	/**
+	 * The number of blocks currently in cache, may briefly exceed the number of cache blocks while blocks are being swapped out
+	 */
+	private final AtomicInteger residentCount;
+	
+	/**
+	 * Shared by every operation, except removing elements and clearing the list which hold it exclusively
+	 */
+	private final ReentrantReadWriteLock structureLock;
+	
+	/**
+	 * The number of indices claimed by appends, including appends that have not been published yet
+	 */
+	private final AtomicLong reservedSize;
+	
+	/**
+	 * Guards publishing the size of the list in claim order
+	 */
+	private final ReentrantLock publishLock;
+	
+	/**
+	 * Signaled whenever the size of the list is published
+	 */
+	private final Condition sizePublished;
+	
+	/**
+	 * Blocks being loaded for asynchronous requests, key is the block/file number
+	 */
+	private final ConcurrentHashMap<Integer, CompletableFuture<Void>> pendingLoads;
+	
+	/**
+	 * Executor that loads blocks for asynchronous requests
+	 */
+	private volatile Executor asyncExecutor;
+	
+	/**
+	 * Size of the whole list, published after the elements are in place
+	 */
+	private volatile long wholeListSize;
+	
+	/**
+	 * Whether or not the list is still a live object, see {@link BigArrayList#isLive()}
+	 */
+	private volatile boolean liveObject;
+	
+	/**
+	 * Constructs a ConcurrentBigArrayList with default values for the number of cache blocks, size of each cache block, and folder path
+	 */
+	public ConcurrentBigArrayList()
+	{
+		this(null, BlockPlacement.ROUND_ROBIN, DEFAULT_BLOCK_SIZE, DEFAULT_CACHE_BLOCKS);
+	}
+	
+	/**
+	 * Constructs a ConcurrentBigArrayList with default values for the number of cache blocks and size of each cache block
+	 * 
+	 * @param folderPath The folder path to store contents on disk
+	 */
+	public ConcurrentBigArrayList(String folderPath)
+	{
+		this(Collections.singletonList(folderPath), BlockPlacement.ROUND_ROBIN, DEFAULT_BLOCK_SIZE, DEFAULT_CACHE_BLOCKS);
+	}
+	
+	/**
+	 * Constructs a ConcurrentBigArrayList with the specified block size and number of cache blocks to use
+	 * 
+	 * @param blockSize Size of each cache block
+	 * @param cacheBlocks Number of cache blocks stored in memory at a given time
+	 */
+	public ConcurrentBigArrayList(int blockSize, int cacheBlocks)
+	{
+		this(null, BlockPlacement.ROUND_ROBIN, blockSize, cacheBlocks);
+	}
+	
+	/**
+	 * Constructs a ConcurrentBigArrayList with the size and number of cache blocks and the folder path to write to
+	 * 
+	 * @param blockSize Size of each cache block
+	 * @param cacheBlocks Number of cache blocks stored in memory at a given time
+	 * @param folderPath The folder path to store contents on disk
+	 */
+	public ConcurrentBigArrayList(int blockSize, int cacheBlocks, String folderPath)
+	{
+		this(Collections.singletonList(folderPath), BlockPlacement.ROUND_ROBIN, blockSize, cacheBlocks);
+	}
+	
+	/**
+	 * Constructs a ConcurrentBigArrayList whose blocks are striped across several folders.
+	 * With each folder on a different storage device, concurrent loads and flushes use all devices at once,
+	 * and {@link #flushMemory()} writes the blocks of each folder from a separate thread.
+	 * 
+	 * @param blockSize Size of each cache block
+	 * @param cacheBlocks Number of cache blocks stored in memory at a given time
+	 * @param folderPaths The folder paths to store contents on disk, each folder must be different
+	 * @param placement How blocks are assigned to the folders
+	 */
+	public ConcurrentBigArrayList(int blockSize, int cacheBlocks, List<String> folderPaths, BlockPlacement placement)
+	{
+		this(folderPaths, placement, blockSize, cacheBlocks);
+	}
+	
+	/**
+	 * Constructs a ConcurrentBigArrayList, the arguments are checked before any files are created
+	 * 
+	 * @param folderPaths The folder paths to store contents on disk, or null for the default folder path
+	 * @param placement How blocks are assigned to the folders
+	 * @param blockSize Size of each cache block
+	 * @param cacheBlocks Number of cache blocks stored in memory at a given time
+	 */
+	private ConcurrentBigArrayList(List<String> folderPaths, BlockPlacement placement, int blockSize, int cacheBlocks)
+	{
+		if(blockSize < MIN_CACHE_SIZE || blockSize > MAX_CACHE_SIZE)
+		{
+			throw new IllegalArgumentException("Cache size is " + blockSize + " but must be >= " + MIN_CACHE_SIZE + " and <= " + MAX_CACHE_SIZE);
+		}
+
+		if(cacheBlocks < MIN_CACHE_BLOCKS || cacheBlocks > MAX_CACHE_BLOCKS)
+		{
+			throw new IllegalArgumentException("Number of cache blocks is " + cacheBlocks +  " but must be >= " + MIN_CACHE_BLOCKS + " and <= " + MAX_CACHE_BLOCKS);
+		}
+		
+		if(folderPaths != null)
+		{
+			FileAccessor.checkFolderPaths(folderPaths);
+		}
+		
+		this.blockSize = blockSize;
+		this.cacheBlocks = cacheBlocks;
+		
+		if(folderPaths == null)
+		{
+			fileAccessor = new FileAccessor<>();
+		}
+		else
+		{
+			fileAccessor = new FileAccessor<>(folderPaths, placement, false);
+		}
+		
+		blocks = new ConcurrentHashMap<>();
+		residentBlocks = ConcurrentHashMap.newKeySet();
+		residentCount = new AtomicInteger();
+		structureLock = new ReentrantReadWriteLock();
+		reservedSize = new AtomicLong();
+		publishLock = new ReentrantLock();
+		sizePublished = publishLock.newCondition();
+		pendingLoads = new ConcurrentHashMap<>();
+		asyncExecutor = DEFAULT_ASYNC_EXECUTOR;
+		wholeListSize = 0;
+		liveObject = true;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the size of each cache block
+	 */
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+	
+	/**
+	 * @return Returns the number of cache blocks
+	 */
+	public int getNumberOfBlocks()
+	{
+		return cacheBlocks;
+	}
+	
+	/**
+	 * @return Returns the file location of the memory storage
+	 */
+	public String getFilePath()
+	{
+		return fileAccessor.getMemoryFilePath();
+	}
+	
+	/**
+	 * Returns the number of elements in the list
+	 * 
+	 * @return The size of the list
+	 */
+	public long size()
+	{
+		return wholeListSize;
+	}
+	
+	/**
+	 * Returns if the list is empty
+	 * 
+	 * @return True if the list is empty, false otherwise
+	 */
+	public boolean isEmpty()
+	{
+		return wholeListSize == 0;
+	}
+	
+	/**
+	 * @return Returns whether or not the list is still live, see {@link BigArrayList#isLive()}
+	 */
+	public boolean isLive()
+	{
+		return liveObject;
+	}
+	
+	/**
+	 * Adds an element to the end of the list
+	 * 
+	 * @param element The element to add
+	 * @return Returns true, as specified by the add method of the ArrayList class
+	 */
+	public boolean add(E element)
+	{
+		appendChunk(Collections.singletonList(element));
+		return true;
+	}
+	
+	/**
+	 * Creates an appender for one producer thread that stages elements in chunks of one block each, see {@link #appender(int)}
+	 * 
+	 * @return Returns the new appender
+	 */
+	public ConcurrentAppender<E> appender()
+	{
+		return appender(blockSize);
+	}
+	
+	/**
+	 * Creates an appender for one producer thread.  The appender stages elements in a chunk owned by the thread
+	 * and appends each full chunk with a single claim, so producers only contend once per chunk.
+	 * Elements of the same chunk stay together, and chunks from different appenders are ordered by when they are claimed.
+	 * 
+	 * @param chunkSize The number of elements staged before they are appended
+	 * @return Returns the new appender
+	 */
+	public ConcurrentAppender<E> appender(int chunkSize)
+	{
+		if(chunkSize < 1)
+		{
+			throw new IllegalArgumentException("Chunk size is " + chunkSize + " but must be >= 1");
+		}
+		
+		return new ConcurrentAppender<>(this, chunkSize);
+	}
+	
+	/**
+	 * Appends the elements to the end of the list as one contiguous range.
+	 * The range is claimed with a single atomic bump of the reserved size, filled block by block,
+	 * and published once every range claimed before it is published.
+	 * If filling the range fails the size is still published so later appends do not wait forever, but the contents of the range are undefined.
+	 * 
+	 * @param chunk The elements to append
+	 */
+	protected void appendChunk(List<? extends E> chunk)
+	{
+		structureLock.readLock().lock();
+		
+		try
+		{
+			long start = reservedSize.getAndAdd(chunk.size());
+			
+			try
+			{
+				fillRange(start, chunk);
+			}
+			finally
+			{
+				publishSize(start, start + chunk.size());
+			}
+		}
+		finally
+		{
+			structureLock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Writes the elements of a claimed range into the blocks covering it.
+	 * Ranges may be filled out of order, so a block is padded with nulls up to the start of the range,
+	 * the padding is filled in by the earlier ranges and is never visible since it is past the published size.
+	 * 
+	 * @param start The first index of the range
+	 * @param chunk The elements of the range
+	 */
+	private void fillRange(long start, List<? extends E> chunk)
+	{
+		int written = 0;
+		
+		while(written < chunk.size())
+		{
+			long index = start + written;
+			int spotInBlock = getSpotInBlock(index);
+			int count = Math.min(chunk.size() - written, blockSize - spotInBlock);
+			
+			ConcurrentBlock<E> block = getBlock(getFileNumber(index));
+			lockForWrite(block);
+			
+			try
+			{
+				ArrayList<E> elements = block.getElements();
+				
+				while(elements.size() < spotInBlock + count)
+				{
+					elements.add(null);
+				}
+				
+				for(int i=0; i<count; i++)
+				{
+					elements.set(spotInBlock + i, chunk.get(written + i));
+				}
+				
+				block.setDirty(true);
+			}
+			finally
+			{
+				block.getLock().writeLock().unlock();
+			}
+			
+			written = written + count;
+		}
+	}
+	
+	/**
+	 * Publishes the size of the list after a claimed range is filled, waiting for every earlier range to be published first
+	 * 
+	 * @param start The first index of the range
+	 * @param end The index after the last index of the range
+	 */
+	private void publishSize(long start, long end)
+	{
+		boolean interrupted = false;
+		publishLock.lock();
+		
+		try
+		{
+			while(wholeListSize != start)
+			{
+				try
+				{
+					sizePublished.await();
+				}
+				catch(InterruptedException e)
+				{
+					//the range must be published, later appends are waiting on it
+					interrupted = true;
+				}
+			}
+			
+			wholeListSize = end;
+			sizePublished.signalAll();
+		}
+		finally
+		{
+			publishLock.unlock();
+		}
+		
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Gets an element at the specified index.
+	 * Analogous to the get method of the ArrayList class
+	 * 
+	 * @param index The index
+	 * @return The element
+	 */
+	public E get(long index)
+	{
+		E element = null;
+		structureLock.readLock().lock();
+		
+		try
+		{
+			checkIndex(index);
+			ConcurrentBlock<E> block = getBlock(getFileNumber(index));
+			lockForRead(block);
+			
+			try
+			{
+				element = block.getElements().get(getSpotInBlock(index));
+			}
+			finally
+			{
+				block.getLock().readLock().unlock();
+			}
+		}
+		finally
+		{
+			structureLock.readLock().unlock();
+		}
+		
+		return element;
+	}
+	
+	/**
+	 * Analogous to the get method of the ArrayList class
+	 * 
+	 * @param index The index
+	 * @return Returns the element at the specified index
+	 */
+	public E get(int index)
+	{
+		long longIndex = index;
+		return get(longIndex);
+	}
+	
+	/**
+	 * Sets the element at the specified index.
+	 * Analogous to the set method of the ArrayList class
+	 * 
+	 * @param index The index
+	 * @param element The new element
+	 * @return Returns the element previously at the index
+	 */
+	public E set(long index, E element)
+	{
+		E oldElement = null;
+		structureLock.readLock().lock();
+		
+		try
+		{
+			checkIndex(index);
+			ConcurrentBlock<E> block = getBlock(getFileNumber(index));
+			lockForWrite(block);
+			
+			try
+			{
+				oldElement = block.getElements().set(getSpotInBlock(index), element);
+				block.setDirty(true);
+			}
+			finally
+			{
+				block.getLock().writeLock().unlock();
+			}
+		}
+		finally
+		{
+			structureLock.readLock().unlock();
+		}
+		
+		return oldElement;
+	}
+	
+	/**
+	 * Analogous to the set method of the ArrayList class
+	 * 
+	 * @param index The index
+	 * @param element The new element
+	 * @return Returns the element previously at the index
+	 */
+	public E set(int index, E element)
+	{
+		long longIndex = index;
+		return set(longIndex, element);
+	}
+	
+	/**
+	 * Sets the executor that loads blocks for asynchronous requests, such as a virtual thread per task executor.
+	 * By default a cached thread pool shared by all lists is used.
+	 * 
+	 * @param asyncExecutor The executor
+	 */
+	public void setAsyncExecutor(Executor asyncExecutor)
+	{
+		this.asyncExecutor = asyncExecutor;
+	}
+	
+	/**
+	 * Gets an element without waiting on I/O.
+	 * If the element's block is in cache and not locked by a writer, the returned future is already complete.
+	 * Otherwise the block is loaded on the I/O executor, sharing the load with any other request for the same block,
+	 * and the future completes once the element is read.
+	 * 
+	 * @param index The index
+	 * @return Returns a future holding the element, completed exceptionally with an IndexOutOfBoundsException if the index is not in the list
+	 */
+	public CompletableFuture<E> getAsync(long index)
+	{
+		CompletableFuture<E> future = null;
+		
+		if(structureLock.readLock().tryLock())
+		{
+			try
+			{
+				if(index < 0 || index >= wholeListSize)
+				{
+					future = CompletableFuture.failedFuture(new IndexOutOfBoundsException(" " + index + " "));
+				}
+				else
+				{
+					ConcurrentBlock<E> block = getBlock(getFileNumber(index));
+					ReentrantReadWriteLock.ReadLock readLock = block.getLock().readLock();
+					
+					if(readLock.tryLock())
+					{
+						try
+						{
+							if(block.isLoaded())
+							{
+								block.touch();
+								future = CompletableFuture.completedFuture(block.getElements().get(getSpotInBlock(index)));
+							}
+						}
+						finally
+						{
+							readLock.unlock();
+						}
+					}
+				}
+			}
+			finally
+			{
+				structureLock.readLock().unlock();
+			}
+		}
+		
+		if(future == null)
+		{
+			//the block may be swapped out again before the get runs, so it runs on the I/O executor rather than the caller's thread
+			future = loadAsync(index).thenApplyAsync(loaded -> get(index), asyncExecutor);
+		}
+		
+		return future;
+	}
+	
+	/**
+	 * Sets an element without waiting on I/O, see {@link #getAsync(long)}
+	 * 
+	 * @param index The index
+	 * @param element The new element
+	 * @return Returns a future holding the element previously at the index,
+	 * completed exceptionally with an IndexOutOfBoundsException if the index is not in the list
+	 */
+	public CompletableFuture<E> setAsync(long index, E element)
+	{
+		CompletableFuture<E> future = null;
+		
+		if(structureLock.readLock().tryLock())
+		{
+			try
+			{
+				if(index < 0 || index >= wholeListSize)
+				{
+					future = CompletableFuture.failedFuture(new IndexOutOfBoundsException(" " + index + " "));
+				}
+				else
+				{
+					ConcurrentBlock<E> block = getBlock(getFileNumber(index));
+					ReentrantReadWriteLock.WriteLock writeLock = block.getLock().writeLock();
+					
+					if(writeLock.tryLock())
+					{
+						try
+						{
+							if(block.isLoaded())
+							{
+								block.touch();
+								block.setDirty(true);
+								future = CompletableFuture.completedFuture(block.getElements().set(getSpotInBlock(index), element));
+							}
+						}
+						finally
+						{
+							writeLock.unlock();
+						}
+					}
+				}
+			}
+			finally
+			{
+				structureLock.readLock().unlock();
+			}
+		}
+		
+		if(future == null)
+		{
+			future = loadAsync(index).thenApplyAsync(loaded -> set(index, element), asyncExecutor);
+		}
+		
+		return future;
+	}
+	
+	/**
+	 * Brings the block holding the index into cache on the I/O executor.
+	 * Requests for a block that is already being loaded share the same load.
+	 * 
+	 * @param index The index
+	 * @return Returns a future that completes once the block has been loaded
+	 */
+	private CompletableFuture<Void> loadAsync(long index)
+	{
+		CompletableFuture<Void> load = null;
+		
+		if(index < 0 || index >= wholeListSize)
+		{
+			//let the get or set report the bad index
+			load = CompletableFuture.completedFuture(null);
+		}
+		else
+		{
+			int fileNumber = getFileNumber(index);
+			load = pendingLoads.computeIfAbsent(fileNumber, key -> CompletableFuture.runAsync(() -> preloadBlock(key), asyncExecutor));
+			
+			CompletableFuture<Void> pendingLoad = load;
+			pendingLoad.whenComplete((loaded, e) -> pendingLoads.remove(fileNumber, pendingLoad));
+		}
+		
+		return load;
+	}
+	
+	/**
+	 * Brings a block into cache without reading or changing any element
+	 * 
+	 * @param fileNumber The block/file number
+	 */
+	private void preloadBlock(int fileNumber)
+	{
+		structureLock.readLock().lock();
+		
+		try
+		{
+			ConcurrentBlock<E> block = getBlock(fileNumber);
+			lockForRead(block);
+			block.getLock().readLock().unlock();
+		}
+		finally
+		{
+			structureLock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes the element at the specified index and shifts every later element down by one.
+	 * Takes the structure lock exclusively, so it waits for and blocks every other operation on the list.
+	 * 
+	 * @param index The index
+	 * @return Returns the removed element
+	 */
+	public E remove(long index)
+	{
+		E removedElement = null;
+		structureLock.writeLock().lock();
+		
+		try
+		{
+			checkIndex(index);
+			int fileNumber = getFileNumber(index);
+			int lastFileNumber = getFileNumber(wholeListSize - 1);
+			
+			ConcurrentBlock<E> block = getBlock(fileNumber);
+			lockForWrite(block);
+			
+			try
+			{
+				removedElement = block.getElements().remove(getSpotInBlock(index));
+				block.setDirty(true);
+				
+				//pull the first element of each later block back into the block before it
+				for(int i=fileNumber+1; i<=lastFileNumber; i++)
+				{
+					ConcurrentBlock<E> nextBlock = getBlock(i);
+					lockForWrite(nextBlock);
+					
+					try
+					{
+						block.getElements().add(nextBlock.getElements().remove(0));
+						nextBlock.setDirty(true);
+					}
+					finally
+					{
+						block.getLock().writeLock().unlock();
+						block = nextBlock;
+					}
+				}
+			}
+			finally
+			{
+				block.getLock().writeLock().unlock();
+			}
+			
+			wholeListSize--;
+			reservedSize.decrementAndGet();
+		}
+		finally
+		{
+			structureLock.writeLock().unlock();
+		}
+		
+		return removedElement;
+	}
+	
+	/**
+	 * Analogous to the remove method of the ArrayList class
+	 * 
+	 * @param index The index
+	 * @return Returns the removed element
+	 */
+	public E remove(int index)
+	{
+		long longIndex = index;
+		return remove(longIndex);
+	}
+	
+	/**
+	 * Writes every changed block in cache to disk
+	 */
+	public void flushMemory()
+	{
+		structureLock.readLock().lock();
+		
+		try
+		{
+			//one thread per folder, each only takes the lock of one block at a time
+			fileAccessor.forEachFolder(folderIndex ->
+			{
+				for(ConcurrentBlock<E> block : residentBlocks)
+				{
+					if(fileAccessor.getFolderIndex(block.getFileNumber()) == folderIndex)
+					{
+						block.getLock().writeLock().lock();
+						
+						try
+						{
+							if(block.isLoaded() && block.isDirty())
+							{
+								writeBlock(block);
+								block.setDirty(false);
+							}
+						}
+						finally
+						{
+							block.getLock().writeLock().unlock();
+						}
+					}
+				}
+			});
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		finally
+		{
+			structureLock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Used to delete the memory files.
+	 * The object should not be used anymore once this method is called
+	 * 
+	 * @throws IOException For I/O error
+	 */
+	public void clearMemory() throws IOException
+	{
+		structureLock.writeLock().lock();
+		
+		try
+		{
+			fileAccessor.clearMemory();
+			blocks.clear();
+			residentBlocks.clear();
+			residentCount.set(0);
+			reservedSize.set(0);
+			wholeListSize = 0;
+			liveObject = false;
+		}
+		finally
+		{
+			structureLock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Checks that the index is in the list
+	 * 
+	 * @param index The index
+	 */
+	private void checkIndex(long index)
+	{
+		if(index < 0 || index >= wholeListSize)
+		{
+			throw new IndexOutOfBoundsException(" " + index + " ");
+		}
+	}
+	
+	/**
+	 * @param index The index of an element
+	 * @return Returns the block/file number holding the element
+	 */
+	private int getFileNumber(long index)
+	{
+		return (int)(index / blockSize);
+	}
+	
+	/**
+	 * @param index The index of an element
+	 * @return Returns the position of the element in its block
+	 */
+	private int getSpotInBlock(long index)
+	{
+		return (int)(index % blockSize);
+	}
+	
+	/**
+	 * @param fileNumber The block/file number
+	 * @return Returns the block, creating it if it has not been used yet
+	 */
+	private ConcurrentBlock<E> getBlock(int fileNumber)
+	{
+		return blocks.computeIfAbsent(fileNumber, ConcurrentBlock::new);
+	}
+	
+	/**
+	 * Takes the read lock of a block, bringing the block into cache first if needed.
+	 * The caller must release the read lock.
+	 * 
+	 * @param block The block
+	 */
+	private void lockForRead(ConcurrentBlock<E> block)
+	{
+		ReentrantReadWriteLock lock = block.getLock();
+		lock.readLock().lock();
+		
+		if(!block.isLoaded())
+		{
+			//a read lock cannot be upgraded, so load under the write lock and downgrade
+			lock.readLock().unlock();
+			lock.writeLock().lock();
+			
+			try
+			{
+				loadBlock(block);
+			}
+			catch(RuntimeException | Error e)
+			{
+				lock.writeLock().unlock();
+				throw e;
+			}
+			
+			lock.readLock().lock();
+			lock.writeLock().unlock();
+		}
+		
+		block.touch();
+	}
+	
+	/**
+	 * Takes the write lock of a block, bringing the block into cache first if needed.
+	 * The caller must release the write lock.
+	 * 
+	 * @param block The block
+	 */
+	private void lockForWrite(ConcurrentBlock<E> block)
+	{
+		ReentrantReadWriteLock lock = block.getLock();
+		lock.writeLock().lock();
+		
+		try
+		{
+			loadBlock(block);
+		}
+		catch(RuntimeException | Error e)
+		{
+			lock.writeLock().unlock();
+			throw e;
+		}
+		
+		block.touch();
+	}
+	
+	/**
+	 * Reads a block from disk if it is not in cache, then swaps out other blocks if the cache is over capacity.
+	 * The caller must hold the block's write lock.
+	 * 
+	 * @param block The block
+	 */
+	private void loadBlock(ConcurrentBlock<E> block)
+	{
+		if(!block.isLoaded())
+		{
+			try
+			{
+				ArrayList<E> elements = fileAccessor.readBlock(FileAccessor.MEMORY_AREA, block.getFileNumber());
+				elements.ensureCapacity(blockSize);
+				block.setElements(elements);
+				block.setDirty(false);
+			}
+			catch(IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+			catch(ClassNotFoundException e)
+			{
+				throw new UncheckedIOException(new IOException(e));
+			}
+			
+			residentBlocks.add(block);
+			residentCount.incrementAndGet();
+			evictBlocks();
+		}
+	}
+	
+	/**
+	 * Swaps out the least recently used blocks until the cache is within capacity.
+	 * Blocks in use by other threads, or write locked by this thread, are skipped, so the cache may stay over capacity until a later call.
+	 * <p>
+	 * Other threads keep touching blocks while this runs, so when each block was last used is copied once and the blocks are chosen by the copies.
+	 * The oldest block left is found by a scan for each block swapped out, usually only one block per call.
+	 */
+	private void evictBlocks()
+	{
+		if(residentCount.get() > cacheBlocks)
+		{
+			List<ConcurrentBlock<E>> candidates = new ArrayList<>(residentBlocks);
+			long[] lastUsed = new long[candidates.size()];
+			
+			for(int i=0; i<candidates.size(); i++)
+			{
+				lastUsed[i] = candidates.get(i).getLastUsed();
+			}
+			
+			for(int i=0; i<candidates.size() && residentCount.get() > cacheBlocks; i++)
+			{
+				int oldest = -1;
+				
+				for(int j=0; j<lastUsed.length; j++)
+				{
+					if(candidates.get(j) != null && (oldest == -1 || lastUsed[j] < lastUsed[oldest]))
+					{
+						oldest = j;
+					}
+				}
+				
+				ConcurrentBlock<E> candidate = candidates.get(oldest);
+				candidates.set(oldest, null);
+				ReentrantReadWriteLock lock = candidate.getLock();
+				
+				if(!lock.isWriteLockedByCurrentThread() && lock.writeLock().tryLock())
+				{
+					try
+					{
+						if(candidate.isLoaded())
+						{
+							if(candidate.isDirty())
+							{
+								writeBlock(candidate);
+							}
+							
+							candidate.setElements(null);
+							candidate.setDirty(false);
+							residentBlocks.remove(candidate);
+							residentCount.decrementAndGet();
+						}
+					}
+					finally
+					{
+						lock.writeLock().unlock();
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Writes a block to disk, the caller must hold the block's write lock
+	 * 
+	 * @param block The block
+	 */
+	private void writeBlock(ConcurrentBlock<E> block)
+	{
+		try
+		{
+			fileAccessor.writeBlock(FileAccessor.MEMORY_AREA, block.getFileNumber(), block.getElements());
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A single block of a ConcurrentBigArrayList along with its lock.
+ * <p>
+ * The elements and dirty bit may only be read while holding the block's read lock and only changed while holding its write lock.
+ * The last used time is written without locking, so it is only an approximation used to choose which block to swap out.
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <E> Generic type
+ */
+class ConcurrentBlock<E>
+{
+	/**
+	 * The block/file number
+	 */
+	private final int fileNumber;
+	
+	/**
+	 * Lock guarding the elements and dirty bit
+	 */
+	private final ReentrantReadWriteLock lock;
+	
+	/**
+	 * The elements of the block, null if the block is not in cache
+	 */
+	private ArrayList<E> elements;
+	
+	/**
+	 * Whether or not the elements have changed since they were read from disk
+	 */
+	private boolean dirty;
+	
+	/**
+	 * When the block was last used, in System.nanoTime() units
+	 */
+	private volatile long lastUsed;
+	
+	/**
+	 * Constructs a ConcurrentBlock that is not in cache
+	 * 
+	 * @param fileNumber The block/file number
+	 */
+	protected ConcurrentBlock(int fileNumber)
+	{
+		this.fileNumber = fileNumber;
+		lock = new ReentrantReadWriteLock();
+		elements = null;
+		dirty = false;
+		lastUsed = System.nanoTime();
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the block/file number
+	 */
+	protected int getFileNumber()
+	{
+		return fileNumber;
+	}
+	
+	/**
+	 * @return Returns the lock guarding the elements and dirty bit
+	 */
+	protected ReentrantReadWriteLock getLock()
+	{
+		return lock;
+	}
+	
+	/**
+	 * @return Returns if the block is in cache
+	 */
+	protected boolean isLoaded()
+	{
+		return elements != null;
+	}
+	
+	/**
+	 * @return Returns the elements of the block, null if the block is not in cache
+	 */
+	protected ArrayList<E> getElements()
+	{
+		return elements;
+	}
+	
+	/**
+	 * @param elements The elements read from disk, or null when the block is swapped out
+	 */
+	protected void setElements(ArrayList<E> elements)
+	{
+		this.elements = elements;
+	}
+	
+	/**
+	 * @return Returns if the elements have changed since they were read from disk
+	 */
+	protected boolean isDirty()
+	{
+		return dirty;
+	}
+	
+	/**
+	 * @param dirty Whether or not the elements have changed since they were read from disk
+	 */
+	protected void setDirty(boolean dirty)
+	{
+		this.dirty = dirty;
+	}
+	
+	/**
+	 * @return Returns when the block was last used, in System.nanoTime() units
+	 */
+	protected long getLastUsed()
+	{
+		return lastUsed;
+	}
+	
+	/**
+	 * Marks the block as used now
+	 */
+	protected void touch()
+	{
+		lastUsed = System.nanoTime();
+	}
+}
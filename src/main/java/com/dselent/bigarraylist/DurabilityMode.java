@@ -0,0 +1,50 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+/**
+ * How much a BigArrayList pays to make its files survive an operating system crash or power loss.
+ * Block files are always written to a temporary file and renamed into place, so a crash of the program itself never leaves a partial block,
+ * and every block carries a checksum that is verified when it is read.
+ * The durability mode only decides when written files are forced (fsync) to the storage device.
+ * 
+ * @author Douglas Selent
+ */
+public enum DurabilityMode
+{
+	/**
+	 * Files are never forced, the operating system writes them back when it chooses.
+	 * The fastest mode, the default for lists that are not persistent since their files are deleted when the program exits.
+	 */
+	NONE,
+	
+	/**
+	 * The blocks written since the last flush, and then the manifest, are forced before {@link BigArrayList#flushMemory()} returns.
+	 * The default for persistent lists.
+	 */
+	SYNC_ON_FLUSH,
+	
+	/**
+	 * Flushes return right away and the files are forced shortly afterwards by a background thread,
+	 * so the cost of forcing is shared by all flushes made within a few milliseconds of each other.
+	 * A crash can lose the most recent flushes, but the list always reopens in the state of an earlier flush.
+	 */
+	GROUP_COMMIT
+}
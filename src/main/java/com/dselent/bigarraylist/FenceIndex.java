@@ -0,0 +1,203 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class that keeps the first and last element (the fence keys) of every block in memory.
+ * For a sorted list this allows a binary search to find the only block that can hold a key without reading any block from disk.
+ * <p>
+ * The fence keys are kept up to date by appending, setting, and sorting.
+ * Removing elements shifts elements between blocks, so it invalidates the index until it is rebuilt.
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <E> Generic type
+ */
+class FenceIndex<E>
+{
+	/**
+	 * The first element of each block, index is the block/file number
+	 */
+	private final List<E> firstKeys;
+
+	/**
+	 * The last element of each block, index is the block/file number
+	 */
+	private final List<E> lastKeys;
+
+	/**
+	 * Whether or not the fence keys match the contents of the list
+	 */
+	private boolean valid;
+
+	/**
+	 * Constructs an empty and valid FenceIndex for an empty list
+	 */
+	protected FenceIndex()
+	{
+		firstKeys = new ArrayList<>();
+		lastKeys = new ArrayList<>();
+		valid = true;
+	}
+
+	////////////////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return Returns if the fence keys match the contents of the list
+	 */
+	protected boolean isValid()
+	{
+		return valid;
+	}
+
+	/**
+	 * Marks the index as not matching the contents of the list
+	 */
+	protected void invalidate()
+	{
+		firstKeys.clear();
+		lastKeys.clear();
+		valid = false;
+	}
+
+	/**
+	 * Clears all fence keys and marks the index as valid, before the fence keys of every block are set again in order
+	 */
+	protected void reset()
+	{
+		firstKeys.clear();
+		lastKeys.clear();
+		valid = true;
+	}
+
+	/**
+	 * Sets the fence keys of the next block, blocks must be set in order
+	 * 
+	 * @param fileNumber The block/file number
+	 * @param block The elements of the block
+	 */
+	protected void setFence(int fileNumber, List<E> block)
+	{
+		if(valid && !block.isEmpty())
+		{
+			if(fileNumber == firstKeys.size())
+			{
+				firstKeys.add(block.get(0));
+				lastKeys.add(block.get(block.size()-1));
+			}
+			else
+			{
+				invalidate();
+			}
+		}
+	}
+
+	/**
+	 * Updates the fence keys after an element is added to the end of the list
+	 * 
+	 * @param fileNumber The block/file number the element was added to
+	 * @param element The element added
+	 */
+	protected void append(int fileNumber, E element)
+	{
+		if(valid)
+		{
+			if(fileNumber == firstKeys.size())
+			{
+				firstKeys.add(element);
+				lastKeys.add(element);
+			}
+			else if(fileNumber == firstKeys.size() - 1)
+			{
+				lastKeys.set(fileNumber, element);
+			}
+			else
+			{
+				invalidate();
+			}
+		}
+	}
+
+	/**
+	 * Updates the fence keys after an element is set
+	 * 
+	 * @param fileNumber The block/file number of the element
+	 * @param spotInBlock The position of the element in the block
+	 * @param blockLength The number of elements in the block
+	 * @param element The new element
+	 */
+	protected void update(int fileNumber, int spotInBlock, int blockLength, E element)
+	{
+		if(valid && fileNumber < firstKeys.size())
+		{
+			if(spotInBlock == 0)
+			{
+				firstKeys.set(fileNumber, element);
+			}
+
+			if(spotInBlock == blockLength - 1)
+			{
+				lastKeys.set(fileNumber, element);
+			}
+		}
+	}
+
+	/**
+	 * Finds the first block whose last element is not less than the key, which is the only block that can hold the key in a sorted list
+	 * 
+	 * @param key The key to search for
+	 * @param comparator How the list is sorted
+	 * @return Returns the block/file number, or the number of blocks if the key is greater than every element
+	 */
+	protected int findBlock(E key, Comparator<? super E> comparator)
+	{
+		int low = 0;
+		int high = lastKeys.size();
+
+		while(low < high)
+		{
+			int middle = (low + high) >>> 1;
+
+			if(comparator.compare(lastKeys.get(middle), key) < 0)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * @param fileNumber The block/file number
+	 * @return Returns the first element of the block
+	 */
+	protected E getFirstKey(int fileNumber)
+	{
+		return firstKeys.get(fileNumber);
+	}
+}
@@ -20,7 +20,29 @@
 package com.dselent.bigarraylist;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Class that reads and writes the contents of the BigArrayList to/from disk.
@@ -33,6 +55,17 @@ import java.util.ArrayList;
  * Examples:<br>
  * "memory\0_memory_0.jobj<br>
  * "memory\0_memory_1.jobj<br>
+ * <p>
+ * Besides the "memory" area holding the list itself, an instance owns other file areas under the same prefix,
+ * such as the scratch areas used while sorting, e.g. "memory\0_scratch0_1.jobj".
+ * <p>
+ * Blocks and single objects are written to a ".tmp" file first and then renamed over the real file, so a crash never leaves a partially written file.
+ * They start with a header holding the length and CRC32C checksum of their contents, which is verified when they are read.
+ * <p>
+ * For a persistent list, the first time a block of the last manifest is overwritten or deleted, the file is renamed to a shadow copy instead,
+ * e.g. "memory\0_shadow4_1.jobj" for block 1 of manifest generation 4.
+ * Once the next manifest is written the shadow copies are deleted, and if the program crashes before then,
+ * {@link #recover(ListManifest, int)} renames them back, returning the list to the state of the last manifest.
  * 
  * @author Douglas Selent
  *
@@ -56,9 +89,96 @@ class FileAccessor<E extends Serializable>
 	private final String DEFAULT_MEMORY_FILE_EXTENSION = ".jobj";
 	
 	/**
-	 * Default buffer size for file I/O = 262,144 bytes
+	 * Name of the file area holding the contents of the list = "memory"
+	 */
+	protected static final String MEMORY_AREA = "memory";
+	
+	/**
+	 * Name of the file area holding the elements appended to a block since it was last written in full = "log"
+	 */
+	protected static final String LOG_AREA = "log";
+	
+	/**
+	 * Names of the two scratch file areas used when sorting = "scratch0" and "scratch1"
+	 */
+	protected static final String[] SCRATCH_AREAS = {"scratch0", "scratch1"};
+	
+	/**
+	 * Names of the two file areas holding radix sort buckets = "radix0" and "radix1"
+	 */
+	protected static final String[] RADIX_AREAS = {"radix0", "radix1"};
+	
+	/**
+	 * Name of the file area that held block summaries in earlier versions = "zone", a reopened persistent list deletes any left over
+	 */
+	protected static final String ZONE_AREA = "zone";
+	
+	/**
+	 * Name of the file area holding the manifest of a persistent list = "manifest"
+	 */
+	protected static final String MANIFEST_AREA = "manifest";
+	
+	/**
+	 * Buffer size for streams that are kept open many at a time, such as radix sort buckets = 16,384 bytes
+	 */
+	private final int STREAM_BUFFER_SIZE = 16384;
+	
+	/**
+	 * Prefix of the file areas holding the shadow copies of blocks, followed by the manifest generation they belong to = "shadow"
+	 */
+	protected static final String SHADOW_AREA = "shadow";
+	
+	/**
+	 * Extension added to a file while it is being written = ".tmp"
+	 */
+	private static final String TEMP_EXTENSION = ".tmp";
+	
+	/**
+	 * First four bytes of an object file, holding one serialized object = "BAL1".
+	 * Block files written before blocks were stored element by element hold a serialized ArrayList under this magic number, and can still be read.
+	 */
+	private static final int FILE_MAGIC = 0x42414C31;
+	
+	/**
+	 * First four bytes of a block file, holding the number of elements followed by each element = "BAL2"
+	 */
+	private static final int BLOCK_MAGIC = 0x42414C32;
+	
+	/**
+	 * First four bytes of a block file, holding each element encoded by the list's {@link FixedWidthCodec} = "BAL3".
+	 * Every element takes the same number of bytes, so an element can be overwritten in place.
+	 */
+	private static final int CODEC_MAGIC = 0x42414C33;
+	
+	/**
+	 * Size of the header of a block or object file: the magic number, the length of the contents, and their CRC32C checksum = 12 bytes
+	 */
+	private static final int HEADER_SIZE = 12;
+	
+	/**
+	 * How long a group commit waits for other commits to share its sync = 10 milliseconds
+	 */
+	private static final long GROUP_COMMIT_DELAY = 10;
+	
+	/**
+	 * Executor running the I/O of striped lists, one task per folder, its daemon threads do not keep the JVM alive
+	 */
+	private static final ExecutorService IO_EXECUTOR = Executors.newCachedThreadPool(runnable ->
+	{
+		Thread thread = new Thread(runnable, "BigArrayList-io");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	/**
+	 * Executor running the group commits of all lists, its daemon thread does not keep the JVM alive
 	 */
-	private final int BUFFER_SIZE = 262144;
+	private static final ScheduledExecutorService GROUP_COMMIT_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable ->
+	{
+		Thread thread = new Thread(runnable, "BigArrayList-commit");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 	//1024 = 141465
 	//4096 = 135921
@@ -78,6 +198,16 @@ class FileAccessor<E extends Serializable>
 	 */
 	private String memoryPath;
 	
+	/**
+	 * The folders the blocks are striped across, the first one is memoryFolder
+	 */
+	private final File[] memoryFolders;
+	
+	/**
+	 * How blocks are assigned to the folders
+	 */
+	private final BlockPlacement placement;
+	
 	/**
 	 * File extension
 	 */
@@ -87,6 +217,100 @@ class FileAccessor<E extends Serializable>
 	 * Memory instance for this object
 	 */
 	private int memoryInstance;
+	
+	/**
+	 * Whether or not the list's files are kept when the program exits
+	 */
+	private final boolean persistent;
+	
+	/**
+	 * When written files are forced to the storage device
+	 */
+	private volatile DurabilityMode durabilityMode;
+	
+	/**
+	 * Guards the commit state below, which is shared with the group commit thread
+	 */
+	private final ReentrantLock commitLock;
+	
+	/**
+	 * The generation of the last manifest committed, the shadow copies made since then belong to it
+	 */
+	private long generation;
+	
+	/**
+	 * The number of blocks in the last manifest committed, only these blocks need shadow copies
+	 */
+	private int committedBlocks;
+	
+	/**
+	 * The blocks that already have a shadow copy for the current generation
+	 */
+	private final Set<Integer> shadowedBlocks;
+	
+	/**
+	 * The paths of the files written but not yet forced to the storage device
+	 */
+	private final Set<String> unsyncedFiles;
+	
+	/**
+	 * The numbers of the blocks with an append log, thread safe since blocks of different folders are written in parallel
+	 */
+	private final Set<Integer> loggedBlocks;
+	
+	/**
+	 * Encodes the elements of the blocks, null if blocks are serialized
+	 */
+	private FixedWidthCodec<E> codec;
+	
+	/**
+	 * The number of bytes of block and object files read, atomic since blocks of different folders are read in parallel
+	 */
+	private final AtomicLong bytesRead;
+	
+	/**
+	 * The number of bytes of block and object files written, atomic since blocks of different folders are written in parallel
+	 */
+	private final AtomicLong bytesWritten;
+	
+	/**
+	 * The manifest waiting for a group commit, null if there is none
+	 */
+	private ListManifest pendingManifest;
+	
+	/**
+	 * Whether or not a group commit is scheduled
+	 */
+	private boolean groupCommitScheduled;
+	
+	/**
+	 * The error of the last group commit, reported by the next commit
+	 */
+	private IOException groupCommitFailure;
+	
+	/**
+	 * A task run once for each folder by {@link FileAccessor#forEachFolder(FolderTask)}
+	 */
+	protected interface FolderTask
+	{
+		/**
+		 * @param folderIndex The index of the folder
+		 * @throws IOException For I/O errors
+		 */
+		void run(int folderIndex) throws IOException;
+	}
+	
+	/**
+	 * Writes the contents of a block or object file for {@link FileAccessor#writeVerified(String, int, int, PayloadWriter, boolean)}
+	 */
+	private interface PayloadWriter
+	{
+		/**
+		 * @param objectOutputStream The stream to write the contents to
+		 * @throws IOException For I/O errors
+		 */
+		void write(ObjectOutputStream objectOutputStream) throws IOException;
+	}
 
 	/**
 	 * Constructs a FileAccessor object with the default folder path to store contents on disk
@@ -96,22 +320,19 @@ class FileAccessor<E extends Serializable>
 		memoryPath = DEFAULT_MEMORY_FILE_PATH;
 		memoryExtension = DEFAULT_MEMORY_FILE_EXTENSION;
 		memoryFolder = new File(memoryPath);
+		memoryFolders = new File[]{memoryFolder};
+		placement = BlockPlacement.ROUND_ROBIN;
+		persistent = false;
+		durabilityMode = DurabilityMode.NONE;
+		commitLock = new ReentrantLock();
+		shadowedBlocks = new HashSet<>();
+		unsyncedFiles = new HashSet<>();
+		loggedBlocks = Collections.synchronizedSet(new HashSet<>());
+		bytesRead = new AtomicLong();
+		bytesWritten = new AtomicLong();
 
-		try
-		{
-			if(!memoryFolder.exists())
-			{
-				memoryFolder.mkdir();
-			}
-
-			memoryInstance = findMemoryInstance();
-		}
-		catch(Exception e)
-		{
-			e.printStackTrace();
-			System.exit(-1);
-		}
-
+		createFolders();
+		memoryInstance = findMemoryInstance();
 	}
 
 	/**
@@ -121,226 +342,1906 @@ class FileAccessor<E extends Serializable>
 	 */
 	public FileAccessor(String folderPath)
 	{
-		this.memoryPath = folderPath;
+		this(folderPath, false);
+	}
+	
+	/**
+	 * Constructs a FileAccessor object with the specified folder path to store contents on disk
+	 * 
+	 * @param folderPath The folder path to read and write to
+	 * @param persistent Whether or not the list's files are kept when the program exits
+	 */
+	public FileAccessor(String folderPath, boolean persistent)
+	{
+		this(Collections.singletonList(folderPath), BlockPlacement.ROUND_ROBIN, persistent);
+	}
+	
+	/**
+	 * Constructs a FileAccessor object that stripes the blocks across the specified folders, ideally one per storage device
+	 * 
+	 * @param folderPaths The folder paths to read and write to, the first one also holds the manifest of a persistent list
+	 * @param placement How blocks are assigned to folders
+	 * @param persistent Whether or not the list's files are kept when the program exits
+	 */
+	public FileAccessor(List<String> folderPaths, BlockPlacement placement, boolean persistent)
+	{
+		this.memoryPath = folderPaths.get(0);
+		this.placement = placement;
+		this.persistent = persistent;
 		memoryExtension = DEFAULT_MEMORY_FILE_EXTENSION;
-		memoryFolder = new File(folderPath);
-
-		try
-		{
-			if(!memoryFolder.exists())
-			{
-				memoryFolder.mkdir();
-			}
+		memoryFolder = new File(memoryPath);
+		memoryFolders = new File[folderPaths.size()];
+		durabilityMode = persistent ? DurabilityMode.SYNC_ON_FLUSH : DurabilityMode.NONE;
+		commitLock = new ReentrantLock();
+		shadowedBlocks = new HashSet<>();
+		unsyncedFiles = new HashSet<>();
+		loggedBlocks = Collections.synchronizedSet(new HashSet<>());
+		bytesRead = new AtomicLong();
+		bytesWritten = new AtomicLong();
 
-			memoryInstance = findMemoryInstance();
-		}
-		catch(Exception e)
+		for(int i=0; i<memoryFolders.length; i++)
 		{
-			e.printStackTrace();
-			System.exit(-1);
+			memoryFolders[i] = new File(folderPaths.get(i));
 		}
 
+		createFolders();
+		memoryInstance = findMemoryInstance();
 	}
 
 	/**
-	 * Returns if the file exists or not
+	 * Constructs a persistent FileAccessor object for an existing memory instance, used to read the manifest of a persistent list
 	 * 
-	 * @param fileNumber The file number
-	 * @return Returns true if the file with the given file number exists false otherwise
+	 * @param folderPath The folder path holding the list's manifest
+	 * @param memoryInstance The memory instance of the list
 	 */
-	protected boolean doesFileExist(int fileNumber)
+	public FileAccessor(String folderPath, int memoryInstance)
 	{
-		boolean exists = false;
-
-		File file = new File(memoryPath + File.separator + memoryInstance + "_memory_" + fileNumber + memoryExtension);
-
-		if(file.exists())
-		{
-			exists = true;
-		}
-
-		return exists;
+		this(Collections.singletonList(folderPath), BlockPlacement.ROUND_ROBIN, memoryInstance);
 	}
-
+	
 	/**
-	 * Finds a unique instance number for this FileAccessor object
+	 * Constructs a persistent FileAccessor object for an existing memory instance, used to reopen a persistent list
 	 * 
-	 * Searches numbers in ascending order to find the corresponding named file that does not exist.
-	 * @return Returns the unique memory instance that this FileAccessor object can use
+	 * @param folderPaths The folder paths holding the list's files, as recorded in its manifest
+	 * @param placement How blocks are assigned to folders, as recorded in its manifest
+	 * @param memoryInstance The memory instance of the list
 	 */
-	private int findMemoryInstance()
+	public FileAccessor(List<String> folderPaths, BlockPlacement placement, int memoryInstance)
 	{
-		int memoryInstanceNumber = nextMemoryInstance;
-
-		File memoryFile = new File(memoryPath + File.separator + memoryInstanceNumber + "_memory_" + "0" + memoryExtension);
+		this.memoryPath = folderPaths.get(0);
+		this.placement = placement;
+		this.memoryInstance = memoryInstance;
+		persistent = true;
+		memoryExtension = DEFAULT_MEMORY_FILE_EXTENSION;
+		memoryFolder = new File(memoryPath);
+		memoryFolders = new File[folderPaths.size()];
+		durabilityMode = DurabilityMode.SYNC_ON_FLUSH;
+		commitLock = new ReentrantLock();
+		shadowedBlocks = new HashSet<>();
+		unsyncedFiles = new HashSet<>();
+		loggedBlocks = Collections.synchronizedSet(new HashSet<>());
+		bytesRead = new AtomicLong();
+		bytesWritten = new AtomicLong();
 
-		while(memoryFile.exists())
+		for(int i=0; i<memoryFolders.length; i++)
 		{
-			memoryInstanceNumber++;
-			memoryFile = new File(memoryPath + File.separator + memoryInstanceNumber + "_memory_" + "0" + memoryExtension);
+			memoryFolders[i] = new File(folderPaths.get(i));
 		}
-
-		nextMemoryInstance = memoryInstanceNumber+1;
-		return memoryInstanceNumber;
 	}
-
+	
 	/**
-	 * Creates a file with the given file number
-	 * 
-	 * @param fileNumber The file number
+	 * Creates the folders that do not exist yet
 	 */
-	protected void createFile(int fileNumber)
+	private void createFolders()
 	{
-		int memoryInstance = findMemoryInstance();
-		File file = new File(memoryPath + File.separator + memoryInstance + "_memory_" + fileNumber + memoryExtension);
-
-		try
+		for(int i=0; i<memoryFolders.length; i++)
 		{
-			if(!file.exists())
+			if(!memoryFolders[i].exists())
 			{
-				file.createNewFile();
+				memoryFolders[i].mkdirs();
 			}
-			else
+
+			if(!memoryFolders[i].isDirectory())
 			{
-				throw new Exception("File already exists " + file.toString());
+				throw new UncheckedIOException(new IOException("Unable to create folder " + memoryFolders[i].getAbsolutePath()));
 			}
 		}
-		catch(Exception e)
+	}
+	
+	/**
+	 * Checks the folder paths of a striped list before any file is created
+	 * 
+	 * @param folderPaths The folder paths
+	 * @throws IllegalArgumentException If there are no folder paths or the same folder is given twice
+	 */
+	protected static void checkFolderPaths(List<String> folderPaths)
+	{
+		if(folderPaths.isEmpty())
+		{
+			throw new IllegalArgumentException("Number of folders is 0 but must be >= 1");
+		}
+		
+		Set<File> folders = new HashSet<>();
+		
+		for(int i=0; i<folderPaths.size(); i++)
 		{
-			e.printStackTrace();
-			System.exit(-1);
+			if(!folders.add(new File(folderPaths.get(i)).getAbsoluteFile()))
+			{
+				throw new IllegalArgumentException("Folder " + folderPaths.get(i) + " is given more than once but each folder must be different");
+			}
 		}
 	}
-
+	
 	/**
-	 * Deletes the file with the given path
+	 * Finds the memory instances of the persistent lists in a folder, the ones that have a manifest
 	 * 
-	 * @param filePath The file path
+	 * @param folderPath The folder path to search
+	 * @return Returns the memory instances in ascending order
 	 */
-	private void deleteFile(String filePath)
+	protected static List<Integer> findManifestInstances(String folderPath)
 	{
-		File file = new File(filePath);
-
-		if(file.exists())
+		List<Integer> instances = new ArrayList<>();
+		String[] fileNames = new File(folderPath).list();
+		String manifestSuffix = "_" + MANIFEST_AREA + "_0";
+		
+		if(fileNames != null)
 		{
-			file.delete();
+			for(int i=0; i<fileNames.length; i++)
+			{
+				String fileName = fileNames[i];
+				int extensionIndex = fileName.lastIndexOf('.');
+				
+				if(extensionIndex > 0 && fileName.substring(0, extensionIndex).endsWith(manifestSuffix))
+				{
+					String instance = fileName.substring(0, extensionIndex - manifestSuffix.length());
+					
+					if(!instance.isEmpty() && instance.chars().allMatch(Character::isDigit))
+					{
+						instances.add(Integer.parseInt(instance));
+					}
+				}
+			}
 		}
+		
+		Collections.sort(instances);
+		return instances;
 	}
-
+	
 	/**
-	 * Deletes the file with the given number
-	 * 
-	 * @param fileNumber The file number
+	 * @return Returns whether or not the list's files are kept when the program exits
 	 */
-	protected void deleteFile(int fileNumber)
+	protected boolean isPersistent()
 	{
-		String filePath = memoryPath + File.separator + memoryInstance + "_memory_" + fileNumber + memoryExtension;
-		deleteFile(filePath);
+		return persistent;
 	}
-
+	
 	/**
-	 * Returns the file path where the BigArrayList is writing to disk
-	 * 
-	 * @return Returns the file path where the BigArrayList is writing to disk
+	 * @return Returns the memory instance of this object
 	 */
-	protected String getMemoryFilePath()
+	protected int getMemoryInstance()
 	{
-		return memoryPath;
+		return memoryInstance;
 	}
-
-
+	
 	/**
-	 * Reads the contents of a cache block into memory using buffered I/O with standard object streams
-	 * Reads in the size (number of elements) as the first object
-	 * 
-	 * @param fileNumber The file to read from
-	 * @param cacheSpot The location in cache to read into (the ArrayList index)
-	 * @param arrayList The BigArrayList object
-	 * @throws IOException For I/O errors
-	 * @throws ClassNotFoundException If no such class exists
+	 * @return Returns the absolute paths of the folders the blocks are striped across
 	 */
-	@SuppressWarnings("unchecked")
-	//must use unchecked warning because ObjectInputStream doesn't use generic typing
-	protected void readFromFileObject(int fileNumber, int cacheSpot, BigArrayList<E> arrayList) throws IOException, ClassNotFoundException
+	protected List<String> getFolderPaths()
 	{
-		String filePath = memoryPath + File.separator + memoryInstance + "_memory_" + fileNumber + memoryExtension;
-		File file = new File(filePath);
+		List<String> folderPaths = new ArrayList<>();
 		
-		if(file.exists())
-		{
-			FileInputStream fileInputStream = new FileInputStream(filePath);
-			BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream, BUFFER_SIZE);
-			ObjectInputStream objectInputStream = new ObjectInputStream(bufferedInputStream);
-			
-			try
-			{
-				arrayList.setList(cacheSpot, (ArrayList<E>)objectInputStream.readObject());
-			}
-			catch(IOException ioe)
-			{
-				throw ioe;
-			}
-			catch (ClassNotFoundException ce)
-			{
-				throw ce;
-			}
-			finally
-			{
-				//explicitly closing all streams to be safe
-				fileInputStream.close();
-				bufferedInputStream.close();
-				objectInputStream.close();
-			}
-		}
-		else
+		for(int i=0; i<memoryFolders.length; i++)
 		{
-			arrayList.setList(cacheSpot, new ArrayList<E>());
+			folderPaths.add(memoryFolders[i].getAbsolutePath());
 		}
+		
+		return folderPaths;
 	}
-
-
+	
 	/**
-	 * Writes a cache block to disk using buffered I/O with standard object streams
-	 * 
-	 * @param fileNumber The file number to write to
-	 * @param cacheSpot The block to write to disk
-	 * @param arrayList The BigArrayList
-	 * @throws IOException For I/O errors
+	 * @return Returns how blocks are assigned to the folders
 	 */
-	protected void writeToFileObject(int fileNumber, int cacheSpot, BigArrayList<E> arrayList) throws IOException
+	protected BlockPlacement getPlacement()
 	{
-		String filePath = memoryPath + File.separator + memoryInstance + "_memory_" + fileNumber + memoryExtension;
-
-		File tempFile = new File(filePath);
+		return placement;
+	}
+	
+	/**
+	 * @return Returns the number of folders the blocks are striped across
+	 */
+	protected int getNumberOfFolders()
+	{
+		return memoryFolders.length;
+	}
+	
+	/**
+	 * Returns the folder holding the files with the given number, in any file area except the manifest's
+	 * 
+	 * @param fileNumber The file number
+	 * @return Returns the index of the folder
+	 */
+	protected int getFolderIndex(int fileNumber)
+	{
+		int folderIndex = 0;
+		
+		if(placement == BlockPlacement.ROUND_ROBIN)
+		{
+			folderIndex = fileNumber % memoryFolders.length;
+		}
+		else
+		{
+			//murmur3 finalizer, so neighbouring and evenly spaced block numbers spread over all folders
+			int hash = fileNumber;
+			hash ^= hash >>> 16;
+			hash *= 0x85ebca6b;
+			hash ^= hash >>> 13;
+			hash *= 0xc2b2ae35;
+			hash ^= hash >>> 16;
+			folderIndex = Math.floorMod(hash, memoryFolders.length);
+		}
+		
+		return folderIndex;
+	}
+	
+	/**
+	 * Runs a task once for each folder, concurrently when there is more than one folder so each storage device is busy at the same time.
+	 * Waits for all tasks to finish and throws the first error.
+	 * 
+	 * @param task The task, given the index of a folder
+	 * @throws IOException The first I/O error thrown by a task
+	 */
+	protected void forEachFolder(FolderTask task) throws IOException
+	{
+		if(memoryFolders.length == 1)
+		{
+			task.run(0);
+		}
+		else
+		{
+			List<Future<?>> futures = new ArrayList<>();
+			
+			for(int i=0; i<memoryFolders.length; i++)
+			{
+				int folderIndex = i;
+				
+				futures.add(IO_EXECUTOR.submit(() ->
+				{
+					task.run(folderIndex);
+					return null;
+				}));
+			}
+			
+			Throwable failure = null;
+			
+			for(int i=0; i<futures.size(); i++)
+			{
+				try
+				{
+					futures.get(i).get();
+				}
+				catch(ExecutionException e)
+				{
+					if(failure == null)
+					{
+						failure = e.getCause();
+					}
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					
+					if(failure == null)
+					{
+						failure = new InterruptedIOException("Interrupted while waiting for I/O");
+					}
+				}
+			}
+			
+			if(failure instanceof IOException)
+			{
+				throw (IOException)failure;
+			}
+			else if(failure instanceof RuntimeException)
+			{
+				throw (RuntimeException)failure;
+			}
+			else if(failure instanceof Error)
+			{
+				throw (Error)failure;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the index of a folder from its File object
+	 * 
+	 * @param folder The folder
+	 * @return Returns the index of the folder, or 0 if it is not one of the folders
+	 */
+	private int getFolderIndex(File folder)
+	{
+		int folderIndex = 0;
+		
+		for(int i=0; i<memoryFolders.length; i++)
+		{
+			if(memoryFolders[i].equals(folder))
+			{
+				folderIndex = i;
+			}
+		}
+		
+		return folderIndex;
+	}
+	
+	/**
+	 * Lists the files in all folders, including files of other memory instances
+	 * 
+	 * @return Returns the files
+	 */
+	private List<File> listFiles()
+	{
+		List<File> files = new ArrayList<>();
+		
+		for(int i=0; i<memoryFolders.length; i++)
+		{
+			File[] fileList = memoryFolders[i].listFiles();
+			
+			if(fileList != null)
+			{
+				Collections.addAll(files, fileList);
+			}
+		}
+		
+		return files;
+	}
+	
+	/**
+	 * @return Returns the generation of the last manifest committed
+	 */
+	protected long getGeneration()
+	{
+		commitLock.lock();
+		
+		try
+		{
+			return generation;
+		}
+		finally
+		{
+			commitLock.unlock();
+		}
+	}
+	
+	/**
+	 * @return Returns the number of bytes of block and object files read, the files streamed by sorting are not counted
+	 */
+	protected long getBytesRead()
+	{
+		return bytesRead.get();
+	}
+	
+	/**
+	 * @return Returns the number of bytes of block and object files written, the files streamed by sorting are not counted
+	 */
+	protected long getBytesWritten()
+	{
+		return bytesWritten.get();
+	}
+	
+	/**
+	 * @return Returns the codec encoding the elements of the blocks, null if blocks are serialized
+	 */
+	protected FixedWidthCodec<E> getCodec()
+	{
+		return codec;
+	}
+	
+	/**
+	 * Sets the codec encoding the elements of the blocks written from now on, blocks already written are still read
+	 * 
+	 * @param codec The codec
+	 */
+	protected void setCodec(FixedWidthCodec<E> codec)
+	{
+		this.codec = codec;
+	}
+	
+	/**
+	 * @return Returns when written files are forced to the storage device
+	 */
+	protected DurabilityMode getDurabilityMode()
+	{
+		return durabilityMode;
+	}
+	
+	/**
+	 * Sets when written files are forced to the storage device, takes effect at the next commit
+	 * 
+	 * @param durabilityMode The durability mode
+	 */
+	protected void setDurabilityMode(DurabilityMode durabilityMode)
+	{
+		this.durabilityMode = durabilityMode;
+	}
+	
+	/**
+	 * Marks a file to be deleted when the program exits, unless it is part of a persistent list.
+	 * Files in temporary areas, such as the sort scratch areas, are always deleted.
+	 * Shadow copies are kept, they are needed to recover the list if the program exits before the next manifest is written.
+	 * 
+	 * @param area The file area of the file
+	 * @param file The file
+	 */
+	private void markForDeletion(String area, File file)
+	{
+		boolean kept = MEMORY_AREA.equals(area) || MANIFEST_AREA.equals(area) || area.startsWith(SHADOW_AREA);
+		
+		if(!persistent || !kept)
+		{
+			file.deleteOnExit();
+		}
+	}
+	
+	/**
+	 * Returns if the file exists or not
+	 * 
+	 * @param fileNumber The file number
+	 * @return Returns true if the file with the given file number exists false otherwise
+	 */
+	protected boolean doesFileExist(int fileNumber)
+	{
+		boolean exists = false;
+
+		File file = new File(getFilePath(MEMORY_AREA, fileNumber));
+
+		if(file.exists())
+		{
+			exists = true;
+		}
+
+		return exists;
+	}
+
+	/**
+	 * Returns the number of bytes a block of the list takes on disk
+	 * 
+	 * @param fileNumber The block/file number
+	 * @return Returns the length of the block file plus the length of its append log, 0 if the block has not been written
+	 */
+	protected long getBlockFileLength(int fileNumber)
+	{
+		return new File(getFilePath(MEMORY_AREA, fileNumber)).length() + new File(getFilePath(LOG_AREA, fileNumber)).length();
+	}
+
+	/**
+	 * Finds a unique instance number for this FileAccessor object
+	 * 
+	 * Searches numbers in ascending order to find the corresponding named file that does not exist.
+	 * @return Returns the unique memory instance that this FileAccessor object can use
+	 */
+	private int findMemoryInstance()
+	{
+		int memoryInstanceNumber = nextMemoryInstance;
+		Set<String> usedInstances = new HashSet<>();
+		List<File> files = listFiles();
+
+		//any file counts, an empty persistent list has a manifest but no memory files,
+		//and a striped list may have no block 0 in folders it shares with other lists
+		for(int i=0; i<files.size(); i++)
+		{
+			String fileName = files.get(i).getName();
+			int separatorIndex = fileName.indexOf('_');
+
+			if(separatorIndex > 0)
+			{
+				usedInstances.add(fileName.substring(0, separatorIndex));
+			}
+		}
+
+		while(usedInstances.contains(String.valueOf(memoryInstanceNumber)))
+		{
+			memoryInstanceNumber++;
+		}
+
+		nextMemoryInstance = memoryInstanceNumber+1;
+		return memoryInstanceNumber;
+	}
+
+	/**
+	 * Creates a file with the given file number
+	 * 
+	 * @param fileNumber The file number
+	 * @throws IOException If the file already exists or cannot be created
+	 */
+	protected void createFile(int fileNumber) throws IOException
+	{
+		int memoryInstance = findMemoryInstance();
+		File file = new File(memoryPath + File.separator + memoryInstance + "_memory_" + fileNumber + memoryExtension);
+
+		if(!file.createNewFile())
+		{
+			throw new IOException("File already exists " + file.toString());
+		}
+	}
+
+	/**
+	 * Deletes the file with the given path
+	 * 
+	 * @param filePath The file path
+	 */
+	private void deleteFile(String filePath)
+	{
+		File file = new File(filePath);
+
+		if(file.exists())
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Deletes the file with the given number, a block of a persistent list is kept as a shadow copy until the next commit
+	 * 
+	 * @param fileNumber The file number
+	 * @throws IOException If the shadow copy cannot be made
+	 */
+	protected void deleteFile(int fileNumber) throws IOException
+	{
+		shadowBlock(MEMORY_AREA, fileNumber);
+		deleteFile(getFilePath(MEMORY_AREA, fileNumber));
+		deleteLog(MEMORY_AREA, fileNumber);
+	}
+	
+	/**
+	 * Deletes the file with the given number in the given file area, blocks of the list must be deleted with {@link #deleteFile(int)}
+	 * 
+	 * @param area The file area
+	 * @param fileNumber The file number
+	 */
+	protected void deleteFile(String area, int fileNumber)
+	{
+		deleteFile(getFilePath(area, fileNumber));
+	}
+	
+	/**
+	 * Moves the file with the given number to another file area, replacing the file there, nothing is moved if the file does not exist.
+	 * A block with an append log must have its log merged first, only the block file is moved.
+	 * 
+	 * @param area The file area of the file
+	 * @param fileNumber The file number
+	 * @param targetArea The file area to move the file to
+	 * @throws IOException For I/O errors
+	 */
+	protected void moveFile(String area, int fileNumber, String targetArea) throws IOException
+	{
+		File file = new File(getFilePath(area, fileNumber));
+		
+		if(file.exists())
+		{
+			File targetFile = new File(getFilePath(targetArea, fileNumber));
+			markForDeletion(targetArea, targetFile);
+			Files.move(file.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	/**
+	 * Returns the path of the file with the given number in the given file area
+	 * 
+	 * @param area The file area
+	 * @param fileNumber The file number
+	 * @return Returns the path of the file
+	 */
+	private String getFilePath(String area, int fileNumber)
+	{
+		//the manifest is always in the first folder so a persistent list can be found from it
+		String folderPath = MANIFEST_AREA.equals(area) ? memoryPath : memoryFolders[getFolderIndex(fileNumber)].getPath();
+		return folderPath + File.separator + memoryInstance + "_" + area + "_" + fileNumber + memoryExtension;
+	}
+
+	/**
+	 * Returns the file path where the BigArrayList is writing to disk
+	 * 
+	 * @return Returns the file path where the BigArrayList is writing to disk
+	 */
+	protected String getMemoryFilePath()
+	{
+		return memoryPath;
+	}
+
+
+	/**
+	 * Reads the contents of a cache block into memory using buffered I/O with standard object streams
+	 * Reads in the size (number of elements) as the first object
+	 * 
+	 * @param fileNumber The file to read from
+	 * @param cacheSpot The location in cache to read into (the ArrayList index)
+	 * @param arrayList The BigArrayList object
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	@SuppressWarnings("unchecked")
+	//must use unchecked warning because ObjectInputStream doesn't use generic typing
+	protected void readFromFileObject(int fileNumber, int cacheSpot, BigArrayList<E> arrayList) throws IOException, ClassNotFoundException
+	{
+		//the cache block's list keeps its capacity from the block it held before, so reading the block only allocates the elements
+		List<E> block = arrayList.getList(cacheSpot);
+		block.clear();
+		readBlock(MEMORY_AREA, fileNumber, block);
+	}
+	
+	/**
+	 * Reads the contents of a block in the given file area using buffered I/O with standard object streams
+	 * The block is read outside of the cache, an empty list is returned if the file does not exist
+	 * 
+	 * @param area The file area to read from
+	 * @param fileNumber The file to read from
+	 * @return The list of elements stored in the file
+	 * @throws IOException For I/O errors, or if the file is truncated or fails its checksum
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	protected <T> ArrayList<T> readBlock(String area, int fileNumber) throws IOException, ClassNotFoundException
+	{
+		ArrayList<T> block = new ArrayList<T>();
+		readBlock(area, fileNumber, block);
+		return block;
+	}
+	
+	/**
+	 * Reads the contents of a block in the given file area into an existing list, nothing is added if the file does not exist
+	 * 
+	 * @param area The file area to read from
+	 * @param fileNumber The file to read from
+	 * @param block The list to add the elements to
+	 * @throws IOException For I/O errors, or if the file is truncated or fails its checksum
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	@SuppressWarnings("unchecked")
+	//must use unchecked warning because ObjectInputStream doesn't use generic typing
+	protected <T> void readBlock(String area, int fileNumber, List<T> block) throws IOException, ClassNotFoundException
+	{
+		ListEvents.FileRead event = new ListEvents.FileRead();
+		event.begin();
+		long bytes = 0;
+		File file = new File(getFilePath(area, fileNumber));
+		
+		if(file.exists())
+		{
+			BlockBuffer buffer = readVerified(file);
+			bytes += buffer.size();
+			
+			try
+			{
+				if(buffer.getInt(0) == CODEC_MAGIC)
+				{
+					decodeElements(file, buffer, (List<E>)block);
+				}
+				else
+				{
+					ObjectInputStream objectInputStream = new ObjectInputStream(buffer.getInputStream(HEADER_SIZE, buffer.size() - HEADER_SIZE));
+					
+					if(buffer.getInt(0) == BLOCK_MAGIC)
+					{
+						readElements(objectInputStream, block);
+					}
+					else
+					{
+						block.addAll((List<T>)objectInputStream.readObject());
+					}
+				}
+			}
+			finally
+			{
+				BlockBuffer.release(buffer);
+			}
+		}
+		
+		File logFile = new File(getFilePath(LOG_AREA, fileNumber));
+		
+		if(MEMORY_AREA.equals(area) && logFile.exists())
+		{
+			bytes += readLog(logFile, block);
+		}
+		
+		//a block that was never written is not a read
+		if(bytes > 0)
+		{
+			event.finish(memoryInstance, area, fileNumber, bytes);
+		}
+	}
+	
+	/**
+	 * Reads the elements appended to a block from its append log, each record is checked like a block file
+	 * 
+	 * @param logFile The append log
+	 * @param block The list to add the elements to
+	 * @return Returns the number of bytes read
+	 * @throws IOException For I/O errors, or if a record is truncated or fails its checksum
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	private <T> int readLog(File logFile, List<T> block) throws IOException, ClassNotFoundException
+	{
+		BlockBuffer buffer = BlockBuffer.acquire();
+		int position = 0;
+		
+		try
+		{
+			buffer.readFrom(logFile);
+			bytesRead.addAndGet(buffer.size());
+			
+			while(position < buffer.size())
+			{
+				int length = buffer.size() - position - HEADER_SIZE;
+				
+				if(length < 0 || buffer.getInt(position) != BLOCK_MAGIC || buffer.getInt(position+4) < 0 || buffer.getInt(position+4) > length)
+				{
+					throw new IOException("Truncated record at byte " + position + " of file " + logFile.getPath());
+				}
+				
+				length = buffer.getInt(position+4);
+				
+				if(buffer.getChecksum(position + HEADER_SIZE, length) != buffer.getInt(position+8))
+				{
+					throw new IOException("Checksum mismatch at byte " + position + " of file " + logFile.getPath());
+				}
+				
+				readElements(new ObjectInputStream(buffer.getInputStream(position + HEADER_SIZE, length)), block);
+				position += HEADER_SIZE + length;
+			}
+		}
+		finally
+		{
+			BlockBuffer.release(buffer);
+		}
+		
+		return position;
+	}
+	
+	/**
+	 * Reads elements written by {@link #writeElements(ObjectOutputStream, List)}
+	 * 
+	 * @param objectInputStream The stream to read from
+	 * @param block The list to add the elements to
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	@SuppressWarnings("unchecked")
+	//must use unchecked warning because ObjectInputStream doesn't use generic typing
+	private <T> void readElements(ObjectInputStream objectInputStream, List<T> block) throws IOException, ClassNotFoundException
+	{
+		int size = objectInputStream.readInt();
+		
+		if(block instanceof ArrayList)
+		{
+			((ArrayList<T>)block).ensureCapacity(block.size() + size);
+		}
+		
+		for(int i=0; i<size; i++)
+		{
+			block.add((T)objectInputStream.readObject());
+		}
+	}
+	
+	/**
+	 * Reads elements encoded by the list's codec, the number of elements follows from the length of the contents
+	 * 
+	 * @param file The file the buffer was read from
+	 * @param buffer The buffer holding the whole file
+	 * @param block The list to add the elements to
+	 * @throws IOException If the list has no codec, or the length of the contents is not a multiple of its width
+	 */
+	private void decodeElements(File file, BlockBuffer buffer, List<E> block) throws IOException
+	{
+		int length = buffer.size() - HEADER_SIZE;
+		
+		if(codec == null || length % codec.getWidth() != 0)
+		{
+			throw new IOException("File " + file.getPath() + " was not written with the codec of the list");
+		}
+		
+		int size = length / codec.getWidth();
+		ByteBuffer elements = ByteBuffer.wrap(buffer.getBuffer(), HEADER_SIZE, length);
+		
+		if(block instanceof ArrayList)
+		{
+			((ArrayList<E>)block).ensureCapacity(block.size() + size);
+		}
+		
+		for(int i=0; i<size; i++)
+		{
+			block.add(codec.decode(elements));
+		}
+	}
+	
+	/**
+	 * Writes each element encoded by the list's codec behind a block file header into an empty buffer
+	 * 
+	 * @param buffer The buffer
+	 * @param block The elements to write
+	 * @throws IllegalStateException If the codec does not write exactly its width for every element
+	 */
+	@SuppressWarnings("unchecked")
+	//must use unchecked warning because the blocks of the cache are not generically typed
+	private void encodeElements(BlockBuffer buffer, List<?> block)
+	{
+		int width = codec.getWidth();
+		buffer.skip(HEADER_SIZE);
+		ByteBuffer elements = buffer.reserve(block.size() * width);
+		
+		for(int i=0; i<block.size(); i++)
+		{
+			codec.encode((E)block.get(i), elements);
+			
+			if(elements.position() != HEADER_SIZE + (i+1) * width)
+			{
+				throw new IllegalStateException("Codec wrote " + (elements.position() - HEADER_SIZE - i * width) + " bytes for element " + i + " but its width is " + width);
+			}
+		}
+		
+		buffer.putInt(0, CODEC_MAGIC);
+		buffer.putInt(4, buffer.size() - HEADER_SIZE);
+		buffer.putInt(8, buffer.getChecksum(HEADER_SIZE, buffer.size() - HEADER_SIZE));
+	}
+	
+	/**
+	 * Writes the number of elements followed by each element
+	 * 
+	 * @param objectOutputStream The stream to write to
+	 * @param elements The elements
+	 * @throws IOException For I/O errors
+	 */
+	private void writeElements(ObjectOutputStream objectOutputStream, List<?> elements) throws IOException
+	{
+		objectOutputStream.writeInt(elements.size());
+		
+		for(int i=0; i<elements.size(); i++)
+		{
+			objectOutputStream.writeObject(elements.get(i));
+		}
+	}
+
+
+	/**
+	 * Writes a cache block to disk using buffered I/O with standard object streams
+	 * 
+	 * @param fileNumber The file number to write to
+	 * @param cacheSpot The block to write to disk
+	 * @param arrayList The BigArrayList
+	 * @throws IOException For I/O errors
+	 */
+	protected void writeToFileObject(int fileNumber, int cacheSpot, BigArrayList<E> arrayList) throws IOException
+	{
+		writeBlock(MEMORY_AREA, fileNumber, arrayList.getList(cacheSpot));
+	}
+	
+	/**
+	 * Writes a block to the given file area using buffered I/O with standard object streams
+	 * An empty block deletes the file instead
+	 * 
+	 * @param area The file area to write to
+	 * @param fileNumber The file number to write to
+	 * @param block The elements to write
+	 * @throws IOException For I/O errors
+	 */
+	protected void writeBlock(String area, int fileNumber, List<?> block) throws IOException
+	{
+		if(!block.isEmpty() && codec != null && MEMORY_AREA.equals(area))
+		{
+			BlockBuffer buffer = BlockBuffer.acquire();
+			
+			try
+			{
+				encodeElements(buffer, block);
+				writeVerified(area, fileNumber, buffer, false);
+			}
+			finally
+			{
+				BlockBuffer.release(buffer);
+			}
+		}
+		else if(!block.isEmpty())
+		{
+			//element by element instead of the list itself, so reading the block can add them to a list that already exists
+			writeVerified(area, fileNumber, BLOCK_MAGIC, objectOutputStream -> writeElements(objectOutputStream, block), false);
+		}
+		else
+		{
+			shadowBlock(area, fileNumber);
+			deleteFile(getFilePath(area, fileNumber));
+		}
+		
+		//the block now holds the elements of its append log
+		deleteLog(area, fileNumber);
+	}
+	
+	/**
+	 * Writes a block of the list whose elements were only set since it was read, overwriting just the bytes of the changed elements and the checksum.
+	 * Requires the list's codec and a block file written with it that holds the same number of elements.
+	 * The whole block is written instead if the block file does not qualify, such as a serialized block read before the codec was set,
+	 * has an append log, or is hard linked to a snapshot.
+	 * <p>
+	 * An in place write is not atomic like a rename, so a block of a persistent list is first copied to its shadow copy rather than renamed,
+	 * and a crash before the next commit rolls the block back to the copy.
+	 * 
+	 * @param fileNumber The block/file number
+	 * @param block The elements of the block
+	 * @param changedElements The positions in the block of the elements set since the block was read
+	 * @throws IOException For I/O errors
+	 */
+	protected void writeChangedElements(int fileNumber, List<?> block, BitSet changedElements) throws IOException
+	{
+		String filePath = getFilePath(MEMORY_AREA, fileNumber);
+		long blockLength = HEADER_SIZE + (long)block.size() * (codec == null ? 0 : codec.getWidth());
+		
+		if(codec == null || block.isEmpty() || loggedBlocks.contains(fileNumber) || new File(filePath).length() != blockLength || !isCodecFile(filePath) || isLinked(filePath))
+		{
+			writeBlock(MEMORY_AREA, fileNumber, block);
+		}
+		else
+		{
+			ListEvents.FileWrite event = new ListEvents.FileWrite();
+			event.begin();
+			int width = codec.getWidth();
+			long bytes = HEADER_SIZE;
+			BlockBuffer buffer = BlockBuffer.acquire();
+			
+			try
+			{
+				//the checksum covers the whole block, so every element is encoded even though only the changed ones are written
+				encodeElements(buffer, block);
+				copyShadowBlock(fileNumber);
+				
+				FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.WRITE);
+				
+				try
+				{
+					int start = changedElements.nextSetBit(0);
+					
+					while(start >= 0 && start < block.size())
+					{
+						int end = Math.min(changedElements.nextClearBit(start), block.size());
+						writeRange(channel, buffer, HEADER_SIZE + start * width, (end - start) * width);
+						bytes += (end - start) * width;
+						start = changedElements.nextSetBit(end);
+					}
+					
+					writeRange(channel, buffer, 0, HEADER_SIZE);
+				}
+				finally
+				{
+					channel.close();
+				}
+			}
+			finally
+			{
+				BlockBuffer.release(buffer);
+			}
+			
+			fileWritten(MEMORY_AREA, filePath);
+			event.finish(memoryInstance, MEMORY_AREA, fileNumber, bytes);
+		}
+	}
+	
+	/**
+	 * Writes part of a buffer to the same position of a file
+	 * 
+	 * @param channel The file
+	 * @param buffer The buffer holding the whole file
+	 * @param position The position of the first byte
+	 * @param length The number of bytes
+	 * @throws IOException For I/O errors
+	 */
+	private void writeRange(FileChannel channel, BlockBuffer buffer, int position, int length) throws IOException
+	{
+		ByteBuffer range = ByteBuffer.wrap(buffer.getBuffer(), position, length);
+		
+		while(range.hasRemaining())
+		{
+			channel.write(range, range.position());
+		}
+		
+		bytesWritten.addAndGet(length);
+	}
+	
+	/**
+	 * Returns if a block file was written with a codec, a serialized block of the same length must be written whole
+	 * 
+	 * @param filePath The path of the block file
+	 * @return Returns true if the file starts with the codec magic number
+	 * @throws IOException For I/O errors
+	 */
+	private boolean isCodecFile(String filePath) throws IOException
+	{
+		boolean codecFile = false;
+		FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+		
+		try
+		{
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			
+			while(magic.hasRemaining() && channel.read(magic, magic.position()) >= 0)
+			{
+				//read until the magic number is complete
+			}
+			
+			codecFile = !magic.hasRemaining() && magic.getInt(0) == CODEC_MAGIC;
+		}
+		finally
+		{
+			channel.close();
+		}
+		
+		return codecFile;
+	}
+	
+	/**
+	 * Returns if a file has more than one name, such as a block shared with a snapshot.
+	 * A file is assumed to be linked if the file system cannot tell.
+	 * 
+	 * @param filePath The path of the file
+	 * @return Returns true if the file may be linked
+	 */
+	private boolean isLinked(String filePath)
+	{
+		boolean linked = true;
+		
+		try
+		{
+			linked = ((Number)Files.getAttribute(Paths.get(filePath), "unix:nlink")).intValue() > 1;
+		}
+		catch(UnsupportedOperationException | IllegalArgumentException | IOException e)
+		{
+			//not a unix file system, only whole blocks are written
+			linked = true;
+		}
+		
+		return linked;
+	}
+	
+	/**
+	 * Appends elements to a block of the list without rewriting it, they are read back after the elements of the block file.
+	 * The elements are appended to the block's append log as one record, framed and checksummed like a block file.
+	 * The log is merged into the block file the next time the whole block is written, and by {@link #mergeLogs()}.
+	 * If the append fails, the log is truncated back to its length before the append, so a retry does not follow a partial record.
+	 * 
+	 * @param fileNumber The block/file number, the block file must exist
+	 * @param elements The elements added to the end of the block since it was last written
+	 * @throws IOException For I/O errors
+	 */
+	protected void appendToBlock(int fileNumber, List<?> elements) throws IOException
+	{
+		String filePath = getFilePath(LOG_AREA, fileNumber);
+		markForDeletion(LOG_AREA, new File(filePath));
+		loggedBlocks.add(fileNumber);
+		
+		ListEvents.FileWrite event = new ListEvents.FileWrite();
+		event.begin();
+		BlockBuffer buffer = BlockBuffer.acquire();
+		
+		try
+		{
+			serialize(buffer, BLOCK_MAGIC, objectOutputStream -> writeElements(objectOutputStream, elements));
+			long logLength = new File(filePath).length();
+			
+			try
+			{
+				FileOutputStream fileOutputStream = new FileOutputStream(filePath, true);
+				
+				try
+				{
+					fileOutputStream.write(buffer.getBuffer(), 0, buffer.size());
+					bytesWritten.addAndGet(buffer.size());
+				}
+				finally
+				{
+					fileOutputStream.close();
+				}
+			}
+			catch(IOException e)
+			{
+				truncateLog(filePath, logLength, e);
+				throw e;
+			}
+			
+			event.finish(memoryInstance, LOG_AREA, fileNumber, buffer.size());
+		}
+		finally
+		{
+			BlockBuffer.release(buffer);
+		}
+	}
+	
+	/**
+	 * Truncates an append log back to its length before a failed append, removing any partial record
+	 * 
+	 * @param filePath The path of the append log
+	 * @param logLength The length of the log before the append
+	 * @param failure The failure of the append, a failure to truncate is added to it
+	 */
+	private void truncateLog(String filePath, long logLength, IOException failure)
+	{
+		File logFile = new File(filePath);
+		
+		if(logFile.isFile() && logFile.length() > logLength)
+		{
+			try
+			{
+				RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "rw");
+				
+				try
+				{
+					randomAccessFile.setLength(logLength);
+				}
+				finally
+				{
+					randomAccessFile.close();
+				}
+			}
+			catch(IOException e)
+			{
+				failure.addSuppressed(e);
+			}
+		}
+	}
+	
+	/**
+	 * Rewrites every block with an append log in full, so the block files alone hold the list.
+	 * A persistent list merges its logs before each commit and never needs them after a restart,
+	 * and a snapshot can share the block files once the logs are merged.
+	 * 
+	 * @throws IOException For I/O errors
+	 */
+	protected void mergeLogs() throws IOException
+	{
+		List<Integer> fileNumbers = null;
+		
+		synchronized(loggedBlocks)
+		{
+			fileNumbers = new ArrayList<>(loggedBlocks);
+		}
+		
+		for(int i=0; i<fileNumbers.size(); i++)
+		{
+			int fileNumber = fileNumbers.get(i);
+			
+			try
+			{
+				writeBlock(MEMORY_AREA, fileNumber, readBlock(MEMORY_AREA, fileNumber));
+			}
+			catch(ClassNotFoundException e)
+			{
+				throw new IOException("Unable to merge the append log of block " + fileNumber, e);
+			}
+		}
+	}
+	
+	/**
+	 * Deletes the append log of a block of the list, if it has one
+	 * 
+	 * @param area The file area of the block
+	 * @param fileNumber The block/file number
+	 */
+	private void deleteLog(String area, int fileNumber)
+	{
+		if(MEMORY_AREA.equals(area) && loggedBlocks.remove(fileNumber))
+		{
+			deleteFile(getFilePath(LOG_AREA, fileNumber));
+		}
+	}
+	
+	/**
+	 * Writes a single object to a file in the given file area, such as the metadata of a block
+	 * 
+	 * @param area The file area to write to
+	 * @param fileNumber The file number to write to
+	 * @param object The object to write
+	 * @throws IOException For I/O errors
+	 */
+	protected void writeObject(String area, int fileNumber, Serializable object) throws IOException
+	{
+		writeVerified(area, fileNumber, FILE_MAGIC, objectOutputStream -> objectOutputStream.writeObject(object), false);
+	}
+	
+	/**
+	 * Reads a single object from a file in the given file area
+	 * 
+	 * @param area The file area to read from
+	 * @param fileNumber The file number to read from
+	 * @return The object read, or null if the file does not exist
+	 * @throws IOException For I/O errors, or if the file is truncated or fails its checksum
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	protected Object readObject(String area, int fileNumber) throws IOException, ClassNotFoundException
+	{
+		ListEvents.FileRead event = new ListEvents.FileRead();
+		event.begin();
+		Object object = null;
+		File file = new File(getFilePath(area, fileNumber));
+		
+		if(file.exists())
+		{
+			BlockBuffer buffer = readVerified(file);
+			
+			try
+			{
+				object = new ObjectInputStream(buffer.getInputStream(HEADER_SIZE, buffer.size() - HEADER_SIZE)).readObject();
+				event.finish(memoryInstance, area, fileNumber, buffer.size());
+			}
+			finally
+			{
+				BlockBuffer.release(buffer);
+			}
+		}
+		
+		return object;
+	}
+	
+	/**
+	 * Writes contents behind a header holding a magic number, their length, and their CRC32C checksum.
+	 * The contents are written to a temporary file that is renamed over the real file once complete,
+	 * so the real file always holds either the old or the new contents.
+	 * The contents are serialized into a pooled {@link BlockBuffer} together with the header, and written with a single call.
+	 * 
+	 * @param area The file area to write to
+	 * @param fileNumber The file number to write to
+	 * @param magic The magic number telling how the contents were written, {@link #FILE_MAGIC} or {@link #BLOCK_MAGIC}
+	 * @param payloadWriter Writes the contents
+	 * @param force Whether or not to force the file to the storage device before it is renamed
+	 * @throws IOException For I/O errors
+	 */
+	private void writeVerified(String area, int fileNumber, int magic, PayloadWriter payloadWriter, boolean force) throws IOException
+	{
+		BlockBuffer buffer = BlockBuffer.acquire();
+		
+		try
+		{
+			serialize(buffer, magic, payloadWriter);
+			writeVerified(area, fileNumber, buffer, force);
+		}
+		finally
+		{
+			BlockBuffer.release(buffer);
+		}
+	}
+	
+	/**
+	 * Writes a buffer holding a header and its contents to a temporary file that is renamed over the real file once complete
+	 * 
+	 * @param area The file area to write to
+	 * @param fileNumber The file number to write to
+	 * @param buffer The header and contents
+	 * @param force Whether or not to force the file to the storage device before it is renamed
+	 * @throws IOException For I/O errors
+	 */
+	private void writeVerified(String area, int fileNumber, BlockBuffer buffer, boolean force) throws IOException
+	{
+		ListEvents.FileWrite event = new ListEvents.FileWrite();
+		event.begin();
+		String filePath = getFilePath(area, fileNumber);
+		File tempFile = new File(filePath + TEMP_EXTENSION);
+		FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+		boolean written = false;
+		
+		try
+		{
+			fileOutputStream.write(buffer.getBuffer(), 0, buffer.size());
+			bytesWritten.addAndGet(buffer.size());
+			
+			if(force)
+			{
+				fileOutputStream.getFD().sync();
+			}
+			
+			written = true;
+		}
+		finally
+		{
+			fileOutputStream.close();
+			
+			if(!written)
+			{
+				tempFile.delete();
+			}
+		}
+		
+		markForDeletion(area, new File(filePath));
+		shadowBlock(area, fileNumber);
+		Files.move(tempFile.toPath(), Paths.get(filePath), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		fileWritten(area, filePath);
+		event.finish(memoryInstance, area, fileNumber, buffer.size());
+	}
+	
+	/**
+	 * Remembers a written file to be forced to the storage device by the next commit, depending on the durability mode
+	 * 
+	 * @param area The file area of the file
+	 * @param filePath The path of the file
+	 */
+	private void fileWritten(String area, String filePath)
+	{
+		//only the blocks of the list need to survive a crash, the other areas are temporary or rebuilt
+		if(durabilityMode != DurabilityMode.NONE && MEMORY_AREA.equals(area))
+		{
+			commitLock.lock();
+			
+			try
+			{
+				unsyncedFiles.add(filePath);
+			}
+			finally
+			{
+				commitLock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Writes contents behind their header into an empty buffer
+	 * 
+	 * @param buffer The buffer
+	 * @param magic The magic number telling how the contents were written
+	 * @param payloadWriter Writes the contents
+	 * @throws IOException For I/O errors
+	 */
+	private void serialize(BlockBuffer buffer, int magic, PayloadWriter payloadWriter) throws IOException
+	{
+		buffer.skip(HEADER_SIZE);
+		ObjectOutputStream objectOutputStream = new ObjectOutputStream(buffer);
+		payloadWriter.write(objectOutputStream);
+		objectOutputStream.flush();
+		
+		buffer.putInt(0, magic);
+		buffer.putInt(4, buffer.size() - HEADER_SIZE);
+		buffer.putInt(8, buffer.getChecksum(HEADER_SIZE, buffer.size() - HEADER_SIZE));
+	}
+	
+	/**
+	 * Reads a file written by {@link #writeVerified(String, int, int, PayloadWriter, boolean)} into a pooled buffer and verifies its header and checksum.
+	 * The caller must release the buffer with {@link BlockBuffer#release(BlockBuffer)}.
+	 * 
+	 * @param file The file to read from
+	 * @return Returns the buffer holding the whole file, the contents start after the header
+	 * @throws IOException For I/O errors, or if the file is truncated or fails its checksum
+	 */
+	private BlockBuffer readVerified(File file) throws IOException
+	{
+		BlockBuffer buffer = BlockBuffer.acquire();
+		boolean verified = false;
+		
+		try
+		{
+			buffer.readFrom(file);
+			bytesRead.addAndGet(buffer.size());
+			checkHeader(file, buffer.size(), buffer.getBuffer());
+			
+			if(buffer.getChecksum(HEADER_SIZE, buffer.size() - HEADER_SIZE) != buffer.getInt(8))
+			{
+				throw new IOException("Checksum mismatch in file " + file.getPath());
+			}
+			
+			verified = true;
+		}
+		finally
+		{
+			if(!verified)
+			{
+				BlockBuffer.release(buffer);
+			}
+		}
+		
+		return buffer;
+	}
+	
+	/**
+	 * Checks the header of a block or object file against the length of the file, which finds files that were truncated or not written by this class
+	 * 
+	 * @param file The file
+	 * @param fileLength The length of the file
+	 * @param header The bytes at the start of the file, at least the header if the file is long enough
+	 * @throws IOException If the header does not match
+	 */
+	private void checkHeader(File file, long fileLength, byte[] header) throws IOException
+	{
+		if(fileLength < HEADER_SIZE || (ByteBuffer.wrap(header).getInt(0) != FILE_MAGIC && ByteBuffer.wrap(header).getInt(0) != BLOCK_MAGIC && ByteBuffer.wrap(header).getInt(0) != CODEC_MAGIC))
+		{
+			throw new IOException("Unrecognized file " + file.getPath());
+		}
+		
+		if(ByteBuffer.wrap(header).getInt(4) != fileLength - HEADER_SIZE)
+		{
+			throw new IOException("Truncated file " + file.getPath() + ", expected " + (ByteBuffer.wrap(header).getInt(4) + HEADER_SIZE) + " bytes but found " + fileLength);
+		}
+	}
+	
+	/**
+	 * Opens a buffered object stream for writing elements one at a time to a file in the given file area.
+	 * The caller is responsible for closing the stream.
+	 * 
+	 * @param area The file area to write to
+	 * @param fileNumber The file number to write to
+	 * @return The opened stream
+	 * @throws IOException For I/O errors
+	 */
+	protected ObjectOutputStream openObjectOutputStream(String area, int fileNumber) throws IOException
+	{
+		String filePath = getFilePath(area, fileNumber);
+		markForDeletion(area, new File(filePath));
+		
+		FileOutputStream fileOutputStream = new FileOutputStream(filePath);
+		return new ObjectOutputStream(new BufferedOutputStream(fileOutputStream, STREAM_BUFFER_SIZE));
+	}
+	
+	/**
+	 * Opens a buffered object stream for reading elements one at a time from a file in the given file area.
+	 * The caller is responsible for closing the stream.
+	 * 
+	 * @param area The file area to read from
+	 * @param fileNumber The file number to read from
+	 * @return The opened stream
+	 * @throws IOException For I/O errors
+	 */
+	protected ObjectInputStream openObjectInputStream(String area, int fileNumber) throws IOException
+	{
+		FileInputStream fileInputStream = new FileInputStream(getFilePath(area, fileNumber));
+		return new ObjectInputStream(new BufferedInputStream(fileInputStream, STREAM_BUFFER_SIZE));
+	}
+	
+	/**
+	 * Makes the blocks of another FileAccessor in the same folder the blocks of this one.
+	 * Each block file is hard linked, which only adds a directory entry, or copied if the file system does not support hard links.
+	 * Linked block files are never modified in place, a new file is always renamed over them,
+	 * so the two lists keep sharing a linked file until either one writes that block.
+	 * 
+	 * @param source The FileAccessor whose blocks are shared
+	 * @param usedBlocks The number of blocks to share
+	 * @throws IOException For I/O errors
+	 */
+	protected void shareBlocks(FileAccessor<E> source, int usedBlocks) throws IOException
+	{
+		boolean linksSupported = true;
 		
-		if(!arrayList.getList(cacheSpot).isEmpty())
+		//an append log is appended to in place, so it cannot be shared
+		source.mergeLogs();
+		
+		for(int i=0; i<usedBlocks; i++)
 		{
-			tempFile.deleteOnExit();
+			Path sourcePath = Paths.get(source.getFilePath(MEMORY_AREA, i));
+			Path targetPath = Paths.get(getFilePath(MEMORY_AREA, i));
+			markForDeletion(MEMORY_AREA, targetPath.toFile());
+			
+			if(linksSupported)
+			{
+				try
+				{
+					Files.createLink(targetPath, sourcePath);
+				}
+				catch(UnsupportedOperationException | FileSystemException e)
+				{
+					//a missing source block still fails below
+					linksSupported = false;
+				}
+			}
 			
-			FileOutputStream fileOutputStream = new FileOutputStream(filePath);
-			BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream, BUFFER_SIZE);
-			ObjectOutputStream objectOutputStream = new ObjectOutputStream(bufferedOutputStream);
+			if(!linksSupported)
+			{
+				Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+	
+	/**
+	 * Renames a block of a persistent list to a shadow copy before it is first overwritten or deleted after a commit.
+	 * Does nothing for other file areas, for blocks added since the last commit, or for blocks that already have a shadow copy.
+	 * 
+	 * @param area The file area of the file about to be overwritten or deleted
+	 * @param fileNumber The file number
+	 * @throws IOException For I/O errors
+	 */
+	private void shadowBlock(String area, int fileNumber) throws IOException
+	{
+		if(persistent && MEMORY_AREA.equals(area))
+		{
+			commitLock.lock();
 			
 			try
 			{
-				objectOutputStream.writeObject(arrayList.getList(cacheSpot));
-				objectOutputStream.flush();			
+				File file = new File(getFilePath(MEMORY_AREA, fileNumber));
+				
+				if(fileNumber < committedBlocks && !shadowedBlocks.contains(fileNumber) && file.exists())
+				{
+					Files.move(file.toPath(), Paths.get(getFilePath(SHADOW_AREA + generation, fileNumber)), StandardCopyOption.ATOMIC_MOVE);
+				}
+				
+				shadowedBlocks.add(fileNumber);
+			}
+			finally
+			{
+				commitLock.unlock();
 			}
-			catch(IOException ioe)
+		}
+	}
+	
+	/**
+	 * Copies a block of a persistent list to a shadow copy before it is first overwritten in place after a commit.
+	 * The copy is written to a temporary file and renamed, so a shadow copy is always complete, and it is forced unless durability is off
+	 * since the block itself no longer survives a crash once it is overwritten.
+	 * Does nothing for blocks added since the last commit, or for blocks that already have a shadow copy.
+	 * 
+	 * @param fileNumber The block/file number
+	 * @throws IOException For I/O errors
+	 */
+	private void copyShadowBlock(int fileNumber) throws IOException
+	{
+		if(persistent)
+		{
+			commitLock.lock();
+			
+			try
 			{
-				throw ioe;
+				File file = new File(getFilePath(MEMORY_AREA, fileNumber));
+				
+				if(fileNumber < committedBlocks && !shadowedBlocks.contains(fileNumber) && file.exists())
+				{
+					String shadowPath = getFilePath(SHADOW_AREA + generation, fileNumber);
+					Path tempPath = Paths.get(shadowPath + TEMP_EXTENSION);
+					Files.copy(file.toPath(), tempPath, StandardCopyOption.REPLACE_EXISTING);
+					bytesWritten.addAndGet(file.length());
+					
+					if(durabilityMode != DurabilityMode.NONE)
+					{
+						forceFile(tempPath.toString());
+					}
+					
+					Files.move(tempPath, Paths.get(shadowPath), StandardCopyOption.ATOMIC_MOVE);
+				}
+				
+				shadowedBlocks.add(fileNumber);
 			}
 			finally
 			{
-				//explicitly closing all streams to be safe
-				fileOutputStream.close();
-				bufferedOutputStream.close();
-				objectOutputStream.close();
+				commitLock.unlock();
 			}
 		}
-		else
+	}
+	
+	/**
+	 * Commits a new manifest of a persistent list.  Every block written before the commit belongs to the new manifest,
+	 * so the shadow copies made for the previous manifest are no longer needed once the new manifest is on disk.
+	 * Depending on the durability mode, the blocks and manifest are forced to the storage device before returning,
+	 * or by a group commit shortly afterwards.
+	 * 
+	 * @param manifest The new manifest, its generation must be greater than the generation of the last one
+	 * @param usedBlocks The number of blocks used by the list
+	 * @throws IOException For I/O errors, including the error of an earlier group commit
+	 */
+	protected void commit(ListManifest manifest, int usedBlocks) throws IOException
+	{
+		boolean scheduleGroupCommit = false;
+		
+		//the append logs are not forced or shadowed, so they never outlive a commit
+		mergeLogs();
+		commitLock.lock();
+		
+		try
+		{
+			IOException failure = groupCommitFailure;
+			groupCommitFailure = null;
+			
+			if(failure != null)
+			{
+				throw failure;
+			}
+			
+			//blocks written from now on are shadowed for the new generation
+			generation = manifest.getGeneration();
+			committedBlocks = usedBlocks;
+			shadowedBlocks.clear();
+			pendingManifest = manifest;
+			
+			if(durabilityMode == DurabilityMode.GROUP_COMMIT && !groupCommitScheduled)
+			{
+				groupCommitScheduled = true;
+				scheduleGroupCommit = true;
+			}
+		}
+		finally
+		{
+			commitLock.unlock();
+		}
+		
+		if(durabilityMode != DurabilityMode.GROUP_COMMIT)
+		{
+			completeCommit();
+		}
+		else if(scheduleGroupCommit)
+		{
+			GROUP_COMMIT_EXECUTOR.schedule(this::runGroupCommit, GROUP_COMMIT_DELAY, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * Runs a scheduled group commit, an error is kept and reported by the next commit
+	 */
+	private void runGroupCommit()
+	{
+		commitLock.lock();
+		
+		try
+		{
+			groupCommitScheduled = false;
+			completeCommit();
+		}
+		catch(IOException e)
+		{
+			groupCommitFailure = e;
+		}
+		finally
+		{
+			commitLock.unlock();
+		}
+	}
+	
+	/**
+	 * Writes the pending manifest, if any, after forcing the files written before it unless the durability mode is NONE,
+	 * then deletes the shadow copies of the older generations.
+	 * Called by commits, by group commits, and when a persistent list is closed so it does not wait for a group commit.
+	 * 
+	 * @throws IOException For I/O errors
+	 */
+	protected void completeCommit() throws IOException
+	{
+		commitLock.lock();
+		
+		try
+		{
+			ListManifest manifest = pendingManifest;
+			
+			if(manifest != null)
+			{
+				boolean force = durabilityMode != DurabilityMode.NONE;
+				
+				if(force)
+				{
+					List<List<String>> folderFiles = new ArrayList<>();
+					
+					for(int i=0; i<memoryFolders.length; i++)
+					{
+						folderFiles.add(new ArrayList<>());
+					}
+					
+					for(String filePath : unsyncedFiles)
+					{
+						folderFiles.get(getFolderIndex(new File(filePath).getParentFile())).add(filePath);
+					}
+					
+					forEachFolder(folderIndex ->
+					{
+						for(int i=0; i<folderFiles.get(folderIndex).size(); i++)
+						{
+							forceFile(folderFiles.get(folderIndex).get(i));
+						}
+						
+						//the renames of the blocks and shadow copies
+						forceFile(memoryFolders[folderIndex].getPath());
+					});
+				}
+				
+				unsyncedFiles.clear();
+				writeVerified(MANIFEST_AREA, 0, FILE_MAGIC, objectOutputStream -> objectOutputStream.writeObject(manifest), force);
+				
+				if(force)
+				{
+					//the rename of the manifest
+					forceFile(memoryFolder.getPath());
+				}
+				
+				pendingManifest = null;
+				deleteShadows(manifest.getGeneration());
+			}
+		}
+		finally
+		{
+			commitLock.unlock();
+		}
+	}
+	
+	/**
+	 * Forces a file or folder to the storage device.
+	 * Files deleted since they were written are skipped, and so are folders on platforms that cannot force them.
+	 * 
+	 * @param path The path of the file or folder
+	 * @throws IOException For I/O errors
+	 */
+	private void forceFile(String path) throws IOException
+	{
+		boolean folder = new File(path).isDirectory();
+		FileChannel channel = null;
+		
+		try
+		{
+			channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+			channel.force(true);
+		}
+		catch(NoSuchFileException e)
+		{
+			//overwritten or deleted since, the newer file is forced in its own turn
+		}
+		catch(IOException e)
+		{
+			if(!folder)
+			{
+				throw e;
+			}
+		}
+		finally
+		{
+			if(channel != null)
+			{
+				channel.close();
+			}
+		}
+	}
+	
+	/**
+	 * Deletes the shadow copies made for generations older than the given one
+	 * 
+	 * @param currentGeneration The generation of the manifest on disk
+	 */
+	private void deleteShadows(long currentGeneration)
+	{
+		List<File> fileList = listFiles();
+		
+		for(int i=0; i<fileList.size(); i++)
+		{
+			long shadowGeneration = getShadowGeneration(fileList.get(i).getName());
+			
+			if(shadowGeneration >= 0 && shadowGeneration < currentGeneration)
+			{
+				fileList.get(i).delete();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the generation of a shadow copy of this memory instance from its file name
+	 * 
+	 * @param fileName The file name
+	 * @return Returns the generation, or -1 if the file is not a shadow copy of this memory instance
+	 */
+	private long getShadowGeneration(String fileName)
+	{
+		long shadowGeneration = -1;
+		String prefix = memoryInstance + "_" + SHADOW_AREA;
+		
+		if(fileName.startsWith(prefix) && fileName.endsWith(memoryExtension) && fileName.indexOf('_', prefix.length()) > 0)
+		{
+			String generationString = fileName.substring(prefix.length(), fileName.indexOf('_', prefix.length()));
+			
+			if(!generationString.isEmpty() && generationString.chars().allMatch(Character::isDigit))
+			{
+				shadowGeneration = Long.parseLong(generationString);
+			}
+		}
+		
+		return shadowGeneration;
+	}
+	
+	/**
+	 * Returns the file number of a file of this memory instance in the given area from its file name
+	 * 
+	 * @param fileName The file name
+	 * @param area The file area
+	 * @return Returns the file number, or -1 if the file is not in the area
+	 */
+	private int getFileNumber(String fileName, String area)
+	{
+		int fileNumber = -1;
+		String prefix = memoryInstance + "_" + area + "_";
+		
+		if(fileName.startsWith(prefix) && fileName.endsWith(memoryExtension))
+		{
+			String numberString = fileName.substring(prefix.length(), fileName.length() - memoryExtension.length());
+			
+			if(!numberString.isEmpty() && numberString.chars().allMatch(Character::isDigit))
+			{
+				fileNumber = Integer.parseInt(numberString);
+			}
+		}
+		
+		return fileNumber;
+	}
+	
+	/**
+	 * Returns a persistent list to the state of its manifest after the program exited without committing its latest changes.
+	 * Files left partially written are deleted, blocks overwritten or deleted since the manifest are restored from their shadow copies,
+	 * and blocks added since the manifest are deleted, as are append logs since they are always merged before a commit.
+	 * The header of every block of the manifest is then checked, their checksums are verified as they are read.
+	 * <p>
+	 * If the program exited during a group commit, shadow copies can exist for generations newer than the manifest.
+	 * They are restored from the newest to the oldest, so a block ends up with the copy made for the manifest's generation when there is one,
+	 * which is the oldest copy that is not older than the manifest.
+	 * 
+	 * @param manifest The manifest read from disk
+	 * @param usedBlocks The number of blocks used by the list in the manifest
+	 * @throws IOException For I/O errors, or if a block of the manifest is missing or truncated
+	 */
+	protected void recover(ListManifest manifest, int usedBlocks) throws IOException
+	{
+		List<File> shadows = new ArrayList<>();
+		List<File> fileList = listFiles();
+		
+		for(int i=0; i<fileList.size(); i++)
+		{
+			String fileName = fileList.get(i).getName();
+			long shadowGeneration = getShadowGeneration(fileName);
+			
+			if(fileName.startsWith(memoryInstance + "_") && fileName.endsWith(TEMP_EXTENSION))
+			{
+				fileList.get(i).delete();
+			}
+			else if(shadowGeneration >= manifest.getGeneration())
+			{
+				shadows.add(fileList.get(i));
+			}
+			else if(shadowGeneration >= 0)
+			{
+				fileList.get(i).delete();
+			}
+		}
+		
+		shadows.sort((first, second) -> Long.compare(getShadowGeneration(second.getName()), getShadowGeneration(first.getName())));
+		
+		for(int i=0; i<shadows.size(); i++)
+		{
+			String fileName = shadows.get(i).getName();
+			int fileNumber = Integer.parseInt(fileName.substring(fileName.lastIndexOf('_') + 1, fileName.length() - memoryExtension.length()));
+			Files.move(shadows.get(i).toPath(), Paths.get(getFilePath(MEMORY_AREA, fileNumber)), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		
+		//blocks added since the manifest, elements appended since the manifest, and block summaries written by earlier versions
+		fileList = listFiles();
+		
+		for(int i=0; i<fileList.size(); i++)
+		{
+			String fileName = fileList.get(i).getName();
+			
+			if(getFileNumber(fileName, MEMORY_AREA) >= usedBlocks || getFileNumber(fileName, LOG_AREA) >= 0 || getFileNumber(fileName, ZONE_AREA) >= 0)
+			{
+				fileList.get(i).delete();
+			}
+		}
+		
+		for(int i=0; i<usedBlocks; i++)
+		{
+			File file = new File(getFilePath(MEMORY_AREA, i));
+			byte[] header = new byte[HEADER_SIZE];
+			DataInputStream dataInputStream = new DataInputStream(new FileInputStream(file));
+			
+			try
+			{
+				if(file.length() >= HEADER_SIZE)
+				{
+					dataInputStream.readFully(header);
+				}
+			}
+			finally
+			{
+				dataInputStream.close();
+			}
+			
+			checkHeader(file, file.length(), header);
+		}
+		
+		commitLock.lock();
+		
+		try
+		{
+			generation = manifest.getGeneration();
+			committedBlocks = usedBlocks;
+			shadowedBlocks.clear();
+		}
+		finally
 		{
-			tempFile.delete();
+			commitLock.unlock();
 		}
 	}
 	
@@ -350,17 +2251,33 @@ class FileAccessor<E extends Serializable>
 	 */
 	protected void clearMemory() throws IOException
 	{		
+		commitLock.lock();
+		
+		try
+		{
+			//nothing left to commit
+			pendingManifest = null;
+			unsyncedFiles.clear();
+			loggedBlocks.clear();
+			committedBlocks = 0;
+		}
+		finally
+		{
+			commitLock.unlock();
+		}
+		
 		//get all files associated with this memory instance and delete them
 
-		File[] fileList = memoryFolder.listFiles();
+		List<File> fileList = listFiles();
 
-		for(int i=0; i<fileList.length; i++)
+		for(int i=0; i<fileList.size(); i++)
 		{
-			String path = fileList[i].getAbsolutePath();
+			String path = fileList.get(i).getAbsolutePath();
 
-			if(path.startsWith(memoryFolder.getAbsolutePath() + File.separator + memoryInstance + "_memory_"))
+			//all file areas of this instance share the same prefix, in every folder
+			if(fileList.get(i).getName().startsWith(memoryInstance + "_"))
 			{
-				boolean deleted = fileList[i].delete();
+				boolean deleted = fileList.get(i).delete();
 
 				if(!deleted)
 				{
@@ -0,0 +1,155 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes every element of a list in the same number of bytes, see {@link BigArrayList#setFixedWidthCodec(FixedWidthCodec)}.
+ * <p>
+ * Blocks of a list with a codec are stored as the encoded elements one after another instead of with Java serialization,
+ * so an element is at a known position in its block file.
+ * Setting elements then only writes the bytes of the elements that changed when the block is written back,
+ * instead of the whole block.
+ * <p>
+ * A codec must encode every element stored in the list, including null if the list holds null elements.
+ * It is stored with a persistent list, so it must be serializable.
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <E> Generic type
+ */
+public interface FixedWidthCodec<E> extends Serializable
+{
+	/**
+	 * Codec for Long elements, 8 bytes each, null is not supported
+	 */
+	FixedWidthCodec<Long> LONG = new LongCodec();
+	
+	/**
+	 * Codec for Integer elements, 4 bytes each, null is not supported
+	 */
+	FixedWidthCodec<Integer> INTEGER = new IntegerCodec();
+	
+	/**
+	 * Codec for Double elements, 8 bytes each, null is not supported
+	 */
+	FixedWidthCodec<Double> DOUBLE = new DoubleCodec();
+	
+	/**
+	 * @return Returns the number of bytes of every encoded element
+	 */
+	int getWidth();
+	
+	/**
+	 * Encodes an element at the position of the buffer, advancing it by exactly the width
+	 * 
+	 * @param element The element
+	 * @param buffer The buffer to write to
+	 */
+	void encode(E element, ByteBuffer buffer);
+	
+	/**
+	 * Decodes an element at the position of the buffer, advancing it by exactly the width
+	 * 
+	 * @param buffer The buffer to read from
+	 * @return Returns the element
+	 */
+	E decode(ByteBuffer buffer);
+	
+	/**
+	 * Codec for Long elements
+	 */
+	class LongCodec implements FixedWidthCodec<Long>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public int getWidth()
+		{
+			return Long.BYTES;
+		}
+		
+		@Override
+		public void encode(Long element, ByteBuffer buffer)
+		{
+			buffer.putLong(element);
+		}
+		
+		@Override
+		public Long decode(ByteBuffer buffer)
+		{
+			return buffer.getLong();
+		}
+	}
+	
+	/**
+	 * Codec for Integer elements
+	 */
+	class IntegerCodec implements FixedWidthCodec<Integer>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public int getWidth()
+		{
+			return Integer.BYTES;
+		}
+		
+		@Override
+		public void encode(Integer element, ByteBuffer buffer)
+		{
+			buffer.putInt(element);
+		}
+		
+		@Override
+		public Integer decode(ByteBuffer buffer)
+		{
+			return buffer.getInt();
+		}
+	}
+	
+	/**
+	 * Codec for Double elements
+	 */
+	class DoubleCodec implements FixedWidthCodec<Double>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public int getWidth()
+		{
+			return Double.BYTES;
+		}
+		
+		@Override
+		public void encode(Double element, ByteBuffer buffer)
+		{
+			buffer.putDouble(element);
+		}
+		
+		@Override
+		public Double decode(ByteBuffer buffer)
+		{
+			return buffer.getDouble();
+		}
+	}
+}
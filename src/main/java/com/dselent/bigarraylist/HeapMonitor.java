@@ -0,0 +1,228 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Class that watches the heap and resizes the caches of the lists with an adaptive cache, see {@link BigArrayList#enableAdaptiveCache(int)}.
+ * <p>
+ * The tenured heap pools are given a usage threshold and a collection usage threshold at {@link #HIGH_USAGE} of their maximum,
+ * unless the application already set one, and every garbage collection is followed by a check of the tenured pools.
+ * When a threshold is crossed, or a collection leaves a pool more than {@link #HIGH_USAGE} full,
+ * every list halves its number of cache blocks down to its minimum.
+ * When a collection leaves every pool less than {@link #LOW_USAGE} full, every list gets one more cache block, up to its number of cache blocks.
+ * <p>
+ * Notifications arrive on a JVM thread while the lists may be in use, so this only sets the limit a list should keep to.
+ * Each list applies it, freeing its least recently used blocks, at the start of its next operation.
+ * Each shrink halves the limit the list last applied, so several notifications before the list is used again only halve it once.
+ * 
+ * @author Douglas Selent
+ */
+class HeapMonitor implements NotificationListener
+{
+	/**
+	 * Fraction of a tenured pool in use above which lists shrink their caches
+	 */
+	protected static final double HIGH_USAGE = 0.85;
+	
+	/**
+	 * Fraction of every tenured pool in use below which lists grow their caches back
+	 */
+	protected static final double LOW_USAGE = 0.6;
+	
+	/**
+	 * The only HeapMonitor, created when the first adaptive cache is enabled
+	 */
+	private static HeapMonitor heapMonitor;
+	
+	/**
+	 * The heap pools holding long lived objects, such as cache blocks
+	 */
+	private final List<MemoryPoolMXBean> tenuredPools;
+	
+	/**
+	 * The cache mappings of the lists with an adaptive cache
+	 */
+	private final Set<CacheMapping<?>> cacheMappings;
+	
+	/**
+	 * Subscribes to the memory and garbage collection notifications of the JVM
+	 */
+	private HeapMonitor()
+	{
+		tenuredPools = new ArrayList<>();
+		cacheMappings = Collections.newSetFromMap(new WeakHashMap<>());
+		
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			long max = pool.getUsage().getMax();
+			
+			//young pools do not support usage thresholds
+			if(pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported() && max > 0)
+			{
+				tenuredPools.add(pool);
+				
+				if(pool.getUsageThreshold() == 0)
+				{
+					pool.setUsageThreshold((long)(max * HIGH_USAGE));
+				}
+				
+				if(pool.getCollectionUsageThreshold() == 0)
+				{
+					pool.setCollectionUsageThreshold((long)(max * HIGH_USAGE));
+				}
+			}
+		}
+		
+		((NotificationEmitter)ManagementFactory.getMemoryMXBean()).addNotificationListener(this, null, null);
+		
+		for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			if(collector instanceof NotificationEmitter)
+			{
+				((NotificationEmitter)collector).addNotificationListener(this, null, null);
+			}
+		}
+	}
+	
+	/**
+	 * @return Returns the only HeapMonitor, subscribing to the JVM's notifications the first time
+	 */
+	protected static synchronized HeapMonitor getHeapMonitor()
+	{
+		if(heapMonitor == null)
+		{
+			heapMonitor = new HeapMonitor();
+		}
+		
+		return heapMonitor;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Starts resizing the cache of a list with the heap
+	 * 
+	 * @param cacheMapping The cache mapping of the list
+	 */
+	protected synchronized void register(CacheMapping<?> cacheMapping)
+	{
+		cacheMappings.add(cacheMapping);
+	}
+	
+	/**
+	 * Stops resizing the cache of a list with the heap
+	 * 
+	 * @param cacheMapping The cache mapping of the list
+	 */
+	protected synchronized void unregister(CacheMapping<?> cacheMapping)
+	{
+		cacheMappings.remove(cacheMapping);
+	}
+	
+	/**
+	 * Handles the threshold and garbage collection notifications of the JVM
+	 * 
+	 * @param notification The notification
+	 * @param handback Not used
+	 */
+	@Override
+	public void handleNotification(Notification notification, Object handback)
+	{
+		String type = notification.getType();
+		
+		if(type.equals(MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED) || type.equals(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED))
+		{
+			memoryPressure();
+		}
+		else if(type.equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+		{
+			double usage = getTenuredUsage();
+			
+			if(usage > HIGH_USAGE)
+			{
+				memoryPressure();
+			}
+			else if(usage < LOW_USAGE)
+			{
+				memoryHeadroom();
+			}
+		}
+	}
+	
+	/**
+	 * @return Returns the largest fraction of a tenured pool in use after the last garbage collection
+	 */
+	private double getTenuredUsage()
+	{
+		double usage = 0;
+		
+		for(MemoryPoolMXBean pool : tenuredPools)
+		{
+			MemoryUsage collectionUsage = pool.getCollectionUsage();
+			
+			if(collectionUsage != null && collectionUsage.getMax() > 0)
+			{
+				usage = Math.max(usage, (double)collectionUsage.getUsed() / collectionUsage.getMax());
+			}
+		}
+		
+		return usage;
+	}
+	
+	/**
+	 * Halves the cache of every list with an adaptive cache
+	 */
+	private synchronized void memoryPressure()
+	{
+		for(CacheMapping<?> cacheMapping : cacheMappings)
+		{
+			cacheMapping.shrinkCacheLimit();
+		}
+	}
+	
+	/**
+	 * Grows the cache of every list with an adaptive cache by one block
+	 */
+	private synchronized void memoryHeadroom()
+	{
+		for(CacheMapping<?> cacheMapping : cacheMappings)
+		{
+			cacheMapping.growCacheLimit();
+		}
+	}
+}
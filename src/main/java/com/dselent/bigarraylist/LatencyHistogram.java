@@ -0,0 +1,168 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of the latencies of one kind of operation of a BigArrayList, such as reading a block, see {@link ListStatistics}.
+ * Latencies are counted in buckets by powers of two nanoseconds, bucket i counting the latencies from 2^i up to 2^(i+1) nanoseconds,
+ * so percentiles are accurate to within a factor of two.
+ * 
+ * @author Douglas Selent
+ */
+public class LatencyHistogram
+{
+	/**
+	 * The number of buckets, enough for any latency in nanoseconds = 64
+	 */
+	protected static final int BUCKETS = 64;
+	
+	/**
+	 * The number of latencies in each bucket
+	 */
+	private final long[] bucketCounts;
+	
+	/**
+	 * The number of latencies
+	 */
+	private final long count;
+	
+	/**
+	 * The sum of the latencies in nanoseconds
+	 */
+	private final long totalNanos;
+	
+	/**
+	 * The largest latency in nanoseconds
+	 */
+	private final long maxNanos;
+	
+	/**
+	 * Constructs a snapshot of a histogram
+	 * 
+	 * @param bucketCounts The number of latencies in each bucket, not copied
+	 * @param totalNanos The sum of the latencies in nanoseconds
+	 * @param maxNanos The largest latency in nanoseconds
+	 */
+	protected LatencyHistogram(long[] bucketCounts, long totalNanos, long maxNanos)
+	{
+		long bucketTotal = 0;
+		
+		for(int i=0; i<bucketCounts.length; i++)
+		{
+			bucketTotal += bucketCounts[i];
+		}
+		
+		this.bucketCounts = bucketCounts;
+		this.count = bucketTotal;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Returns the bucket a latency is counted in
+	 * 
+	 * @param nanos The latency in nanoseconds
+	 * @return Returns the bucket, 0 for latencies under 2 nanoseconds
+	 */
+	protected static int getBucket(long nanos)
+	{
+		return nanos < 1 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+	}
+	
+	/**
+	 * @return Returns the number of latencies
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+	
+	/**
+	 * @return Returns the sum of the latencies in nanoseconds
+	 */
+	public long getTotalNanos()
+	{
+		return totalNanos;
+	}
+	
+	/**
+	 * @return Returns the mean latency in nanoseconds, 0 if there are none
+	 */
+	public long getMeanNanos()
+	{
+		return count == 0 ? 0 : totalNanos / count;
+	}
+	
+	/**
+	 * @return Returns the largest latency in nanoseconds, 0 if there are none
+	 */
+	public long getMaxNanos()
+	{
+		return maxNanos;
+	}
+	
+	/**
+	 * @return Returns the number of latencies in each bucket, bucket i counting the latencies from 2^i up to 2^(i+1) nanoseconds
+	 */
+	public long[] getBucketCounts()
+	{
+		return Arrays.copyOf(bucketCounts, bucketCounts.length);
+	}
+	
+	/**
+	 * Returns an upper bound of a percentile of the latencies, the end of the bucket holding it, or the largest latency if that is smaller
+	 * 
+	 * @param percentile The percentile, between 0 and 100
+	 * @return Returns the latency in nanoseconds, 0 if there are none
+	 */
+	public long getPercentileNanos(double percentile)
+	{
+		if(!(percentile >= 0 && percentile <= 100))
+		{
+			throw new IllegalArgumentException("Percentile is " + percentile + " but must be >= 0 and <= 100");
+		}
+		
+		long rank = (long)Math.ceil(count * percentile / 100);
+		long seen = 0;
+		long latency = 0;
+		
+		for(int i=0; i<bucketCounts.length && count > 0 && (seen < rank || latency == 0); i++)
+		{
+			seen += bucketCounts[i];
+			
+			if(bucketCounts[i] > 0)
+			{
+				latency = Math.min(i == 62 ? Long.MAX_VALUE : (2L << i) - 1, maxNanos);
+			}
+		}
+		
+		return latency;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "count=" + count + ", mean=" + getMeanNanos() + "ns, p50=" + getPercentileNanos(50) + "ns, p99=" + getPercentileNanos(99) + "ns, max=" + maxNanos + "ns";
+	}
+}
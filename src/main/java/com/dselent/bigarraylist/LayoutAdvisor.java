@@ -0,0 +1,292 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Watches the accesses of a BigArrayList and recommends the block size and number of cache blocks that spend the least time on block I/O.
+ * <p>
+ * The most recent accesses are kept in a ring buffer as the index of the element and whether it was a write.
+ * To recommend a layout, they are replayed by a {@link SimulatedCache} for the current layout and for block sizes 4, 16, 64 ... times
+ * smaller and larger, each with as many cache blocks as hold the same number of elements.
+ * The first quarter of the accesses only warms up each cache.
+ * Each block read or written is priced as {@link #IO_OVERHEAD_NANOS} plus its serialized size times the time per byte,
+ * which is measured from the list's past block reads.
+ * A different layout is only recommended if it is predicted to take less than {@link #MIN_IMPROVEMENT} of the time of the current one.
+ * 
+ * @author Douglas Selent
+ */
+class LayoutAdvisor
+{
+	/**
+	 * The fixed cost of reading or writing one block in nanoseconds, opening the file and starting the stream, on top of the cost of its bytes
+	 */
+	protected static final long IO_OVERHEAD_NANOS = 50000;
+	
+	/**
+	 * The time per byte read assumed before the list has read any block, 1 GB/s
+	 */
+	protected static final double DEFAULT_NANOS_PER_BYTE = 1.0;
+	
+	/**
+	 * The size of a serialized element assumed before the list has written any block
+	 */
+	protected static final double DEFAULT_BYTES_PER_ELEMENT = 16.0;
+	
+	/**
+	 * The most cache blocks recommended, finding a block in cache takes time in the number of cache blocks
+	 */
+	protected static final int MAX_CACHE_BLOCKS = 256;
+	
+	/**
+	 * The fraction of the predicted time of the current layout another layout must be under to be recommended
+	 */
+	protected static final double MIN_IMPROVEMENT = 0.8;
+	
+	/**
+	 * The block sizes tried are the current one times powers of this factor
+	 */
+	private static final int SIZE_FACTOR = 4;
+	
+	/**
+	 * The number of smaller and of larger block sizes tried
+	 */
+	private static final int SIZE_STEPS = 6;
+	
+	/**
+	 * The most recent accesses, index of the element shifted left by one with the lowest bit set for writes
+	 */
+	private final long[] samples;
+	
+	/**
+	 * Where the next access is stored in the ring buffer
+	 */
+	private int nextSample;
+	
+	/**
+	 * The number of accesses seen since the advisor was enabled
+	 */
+	private long accesses;
+	
+	/**
+	 * The number of accesses seen since the last recommendation
+	 */
+	private long accessesSinceAdvice;
+	
+	/**
+	 * Whether or not the list is re-blocked into the recommended layout automatically
+	 */
+	private final boolean autoReblock;
+	
+	/**
+	 * Constructs a LayoutAdvisor
+	 * 
+	 * @param sampleSize The number of recent accesses to keep
+	 * @param autoReblock Whether or not the list is re-blocked into the recommended layout automatically
+	 */
+	protected LayoutAdvisor(int sampleSize, boolean autoReblock)
+	{
+		samples = new long[sampleSize];
+		nextSample = 0;
+		accesses = 0;
+		accessesSinceAdvice = 0;
+		this.autoReblock = autoReblock;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the number of recent accesses kept
+	 */
+	protected int getSampleSize()
+	{
+		return samples.length;
+	}
+	
+	/**
+	 * @return Returns the number of accesses seen since the advisor was enabled
+	 */
+	protected long getAccesses()
+	{
+		return accesses;
+	}
+	
+	/**
+	 * @return Returns true if the list is re-blocked into the recommended layout automatically
+	 */
+	protected boolean isAutoReblock()
+	{
+		return autoReblock;
+	}
+	
+	/**
+	 * @return Returns true if every kept access is newer than the last recommendation
+	 */
+	protected boolean isDue()
+	{
+		return accessesSinceAdvice >= samples.length;
+	}
+	
+	/**
+	 * Keeps an access, replacing the oldest one
+	 * 
+	 * @param index The index of the element
+	 * @param write Whether or not the access changed the element's block
+	 */
+	protected void record(long index, boolean write)
+	{
+		samples[nextSample] = (index << 1) | (write ? 1 : 0);
+		nextSample++;
+		
+		if(nextSample == samples.length)
+		{
+			nextSample = 0;
+		}
+		
+		accesses++;
+		accessesSinceAdvice++;
+	}
+	
+	/**
+	 * Forgets the kept accesses, after the list was re-blocked
+	 */
+	protected void clear()
+	{
+		nextSample = 0;
+		accesses = 0;
+		accessesSinceAdvice = 0;
+	}
+	
+	/**
+	 * Recommends a layout from the kept accesses
+	 * 
+	 * @param blockSize The block size of the list
+	 * @param cacheBlocks The number of cache blocks of the list
+	 * @param minBlockSize The smallest block size allowed
+	 * @param listSize The number of elements in the list
+	 * @param policy The cache policy replayed
+	 * @param bytesPerElement The average size of a serialized element on disk, or 0 if unknown
+	 * @param meanLoadNanos The mean time the list took to read a block, or 0 if it has not read any
+	 * @return Returns the recommendation
+	 */
+	protected LayoutRecommendation recommend(int blockSize, int cacheBlocks, int minBlockSize, long listSize, CachePolicy policy, double bytesPerElement, double meanLoadNanos)
+	{
+		accessesSinceAdvice = 0;
+		
+		double elementBytes = bytesPerElement > 0 ? bytesPerElement : DEFAULT_BYTES_PER_ELEMENT;
+		double nanosPerByte = DEFAULT_NANOS_PER_BYTE;
+		
+		if(meanLoadNanos > 0)
+		{
+			//the time of a read beyond its fixed cost is the time of its bytes
+			nanosPerByte = Math.max(meanLoadNanos - IO_OVERHEAD_NANOS, meanLoadNanos / 10) / (blockSize * elementBytes);
+		}
+		
+		long budget = (long)blockSize * cacheBlocks;
+		List<int[]> layouts = new ArrayList<>();
+		layouts.add(new int[] {blockSize, cacheBlocks});
+		
+		for(int i=-SIZE_STEPS; i<=SIZE_STEPS; i++)
+		{
+			double candidateSize = blockSize * Math.pow(SIZE_FACTOR, i);
+			
+			if(i != 0 && candidateSize >= minBlockSize && candidateSize <= budget / 2 && candidateSize <= Math.max(listSize, blockSize))
+			{
+				int candidateBlocks = (int)Math.min(MAX_CACHE_BLOCKS, budget / (long)candidateSize);
+				layouts.add(new int[] {(int)candidateSize, Math.max(2, candidateBlocks)});
+			}
+		}
+		
+		int best = 0;
+		double[] hitRatios = new double[layouts.size()];
+		double[] nanosPerAccess = new double[layouts.size()];
+		
+		for(int i=0; i<layouts.size(); i++)
+		{
+			int layoutBlockSize = layouts.get(i)[0];
+			SimulatedCache cache = replay(layoutBlockSize, layouts.get(i)[1], policy);
+			long replayed = cache.getHits() + cache.getMisses();
+			double ioNanos = (cache.getMisses() + cache.getBlockWrites()) * (IO_OVERHEAD_NANOS + layoutBlockSize * elementBytes * nanosPerByte);
+			
+			hitRatios[i] = replayed == 0 ? 0 : (double)cache.getHits() / replayed;
+			nanosPerAccess[i] = replayed == 0 ? 0 : ioNanos / replayed;
+			
+			if(nanosPerAccess[i] < nanosPerAccess[best])
+			{
+				best = i;
+			}
+		}
+		
+		if(nanosPerAccess[best] > nanosPerAccess[0] * MIN_IMPROVEMENT)
+		{
+			best = 0;
+		}
+		
+		//every block is read once and written once
+		double listBytes = listSize * elementBytes;
+		double reblockNanos = 2 * listBytes * nanosPerByte + (listSize / blockSize + listSize / layouts.get(best)[0] + 2) * IO_OVERHEAD_NANOS;
+		
+		return new LayoutRecommendation(blockSize, cacheBlocks, layouts.get(best)[0], layouts.get(best)[1], hitRatios[0], hitRatios[best],
+				nanosPerAccess[0], nanosPerAccess[best], reblockNanos, elementBytes, (int)Math.min(accesses, samples.length));
+	}
+	
+	/**
+	 * Returns if re-blocking the list into a recommended layout pays for itself,
+	 * assuming the list keeps being used as it was since the advisor was enabled
+	 * 
+	 * @param recommendation The recommendation
+	 * @return Returns true if the layout changes and the time it saves over as many accesses again is more than the time to re-block
+	 */
+	protected boolean isWorthReblocking(LayoutRecommendation recommendation)
+	{
+		double savedNanos = (recommendation.getCurrentNanosPerAccess() - recommendation.getNanosPerAccess()) * accesses;
+		return recommendation.isChange() && savedNanos > recommendation.getReblockNanos();
+	}
+	
+	/**
+	 * Replays the kept accesses, oldest first
+	 * 
+	 * @param blockSize The block size
+	 * @param cacheBlocks The number of cache blocks
+	 * @param policy The cache policy
+	 * @return Returns the cache, counting the accesses after the first quarter
+	 */
+	private SimulatedCache replay(int blockSize, int cacheBlocks, CachePolicy policy)
+	{
+		SimulatedCache cache = new SimulatedCache(blockSize, cacheBlocks, policy);
+		int kept = (int)Math.min(accesses, samples.length);
+		int first = kept < samples.length ? 0 : nextSample;
+		
+		for(int i=0; i<kept; i++)
+		{
+			if(i == kept / 4)
+			{
+				cache.resetCounts();
+			}
+			
+			long sample = samples[(first + i) % samples.length];
+			cache.access(sample >>> 1, (sample & 1) != 0);
+		}
+		
+		return cache;
+	}
+}
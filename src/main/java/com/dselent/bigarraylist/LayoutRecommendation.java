@@ -0,0 +1,224 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+/**
+ * The block size and number of cache blocks recommended for a BigArrayList by its layout advisor, see {@link BigArrayList#getLayoutRecommendation()}.
+ * The recommended layout holds about as many elements in memory as the current one, it only divides them into blocks differently.
+ * <p>
+ * Both layouts are compared by the time they are predicted to spend on block I/O per access, replaying the recent accesses of the list.
+ * Each block read or written is priced as a fixed cost per I/O plus the serialized size of the block times the time per byte of the list's past block reads.
+ * 
+ * @author Douglas Selent
+ */
+public class LayoutRecommendation
+{
+	/**
+	 * The block size of the list
+	 */
+	private final int currentBlockSize;
+	
+	/**
+	 * The number of cache blocks of the list
+	 */
+	private final int currentCacheBlocks;
+	
+	/**
+	 * The recommended block size
+	 */
+	private final int blockSize;
+	
+	/**
+	 * The recommended number of cache blocks
+	 */
+	private final int cacheBlocks;
+	
+	/**
+	 * The predicted hit ratio of the current layout
+	 */
+	private final double currentHitRatio;
+	
+	/**
+	 * The predicted hit ratio of the recommended layout
+	 */
+	private final double hitRatio;
+	
+	/**
+	 * The predicted block I/O time per access of the current layout in nanoseconds
+	 */
+	private final double currentNanosPerAccess;
+	
+	/**
+	 * The predicted block I/O time per access of the recommended layout in nanoseconds
+	 */
+	private final double nanosPerAccess;
+	
+	/**
+	 * The estimated time to rewrite the list into the recommended layout in nanoseconds
+	 */
+	private final double reblockNanos;
+	
+	/**
+	 * The average size of a serialized element on disk in bytes
+	 */
+	private final double bytesPerElement;
+	
+	/**
+	 * The number of accesses replayed
+	 */
+	private final int sampledAccesses;
+	
+	/**
+	 * Constructs a recommendation
+	 * 
+	 * @param currentBlockSize The block size of the list
+	 * @param currentCacheBlocks The number of cache blocks of the list
+	 * @param blockSize The recommended block size
+	 * @param cacheBlocks The recommended number of cache blocks
+	 * @param currentHitRatio The predicted hit ratio of the current layout
+	 * @param hitRatio The predicted hit ratio of the recommended layout
+	 * @param currentNanosPerAccess The predicted block I/O time per access of the current layout in nanoseconds
+	 * @param nanosPerAccess The predicted block I/O time per access of the recommended layout in nanoseconds
+	 * @param reblockNanos The estimated time to rewrite the list into the recommended layout in nanoseconds
+	 * @param bytesPerElement The average size of a serialized element on disk in bytes
+	 * @param sampledAccesses The number of accesses replayed
+	 */
+	protected LayoutRecommendation(int currentBlockSize, int currentCacheBlocks, int blockSize, int cacheBlocks, double currentHitRatio, double hitRatio,
+			double currentNanosPerAccess, double nanosPerAccess, double reblockNanos, double bytesPerElement, int sampledAccesses)
+	{
+		this.currentBlockSize = currentBlockSize;
+		this.currentCacheBlocks = currentCacheBlocks;
+		this.blockSize = blockSize;
+		this.cacheBlocks = cacheBlocks;
+		this.currentHitRatio = currentHitRatio;
+		this.hitRatio = hitRatio;
+		this.currentNanosPerAccess = currentNanosPerAccess;
+		this.nanosPerAccess = nanosPerAccess;
+		this.reblockNanos = reblockNanos;
+		this.bytesPerElement = bytesPerElement;
+		this.sampledAccesses = sampledAccesses;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the block size of the list
+	 */
+	public int getCurrentBlockSize()
+	{
+		return currentBlockSize;
+	}
+	
+	/**
+	 * @return Returns the number of cache blocks of the list
+	 */
+	public int getCurrentCacheBlocks()
+	{
+		return currentCacheBlocks;
+	}
+	
+	/**
+	 * @return Returns the recommended block size
+	 */
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+	
+	/**
+	 * @return Returns the recommended number of cache blocks
+	 */
+	public int getCacheBlocks()
+	{
+		return cacheBlocks;
+	}
+	
+	/**
+	 * @return Returns true if the recommended layout differs from the current one
+	 */
+	public boolean isChange()
+	{
+		return blockSize != currentBlockSize || cacheBlocks != currentCacheBlocks;
+	}
+	
+	/**
+	 * @return Returns the predicted hit ratio of the current layout
+	 */
+	public double getCurrentHitRatio()
+	{
+		return currentHitRatio;
+	}
+	
+	/**
+	 * @return Returns the predicted hit ratio of the recommended layout
+	 */
+	public double getHitRatio()
+	{
+		return hitRatio;
+	}
+	
+	/**
+	 * @return Returns the predicted block I/O time per access of the current layout in nanoseconds
+	 */
+	public double getCurrentNanosPerAccess()
+	{
+		return currentNanosPerAccess;
+	}
+	
+	/**
+	 * @return Returns the predicted block I/O time per access of the recommended layout in nanoseconds
+	 */
+	public double getNanosPerAccess()
+	{
+		return nanosPerAccess;
+	}
+	
+	/**
+	 * @return Returns the estimated time to rewrite the list into the recommended layout in nanoseconds, see {@link BigArrayList#reblock(int, int)}
+	 */
+	public double getReblockNanos()
+	{
+		return reblockNanos;
+	}
+	
+	/**
+	 * @return Returns the average size of a serialized element on disk in bytes
+	 */
+	public double getBytesPerElement()
+	{
+		return bytesPerElement;
+	}
+	
+	/**
+	 * @return Returns the number of accesses replayed
+	 */
+	public int getSampledAccesses()
+	{
+		return sampledAccesses;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "blockSize=" + currentBlockSize + " -> " + blockSize + ", cacheBlocks=" + currentCacheBlocks + " -> " + cacheBlocks
+				+ ", hitRatio=" + currentHitRatio + " -> " + hitRatio + ", nanosPerAccess=" + currentNanosPerAccess + " -> " + nanosPerAccess
+				+ ", reblockNanos=" + reblockNanos + ", bytesPerElement=" + bytesPerElement + ", sampledAccesses=" + sampledAccesses;
+	}
+}
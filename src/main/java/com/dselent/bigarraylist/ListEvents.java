@@ -0,0 +1,357 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Java Flight Recorder events of BigArrayList, which attribute latency spikes to the block I/O behind them.
+ * Each event times one operation and carries the list's memory instance, the block number, and the bytes involved.
+ * <p>
+ * Every event is disabled by default.  A disabled event is never committed and the JIT removes its allocation, so it costs nothing.
+ * The events appear under the BigArrayList category of JDK Mission Control, where they can be enabled in a recording template,
+ * or they can be enabled by name, e.g. recording.enable("com.dselent.bigarraylist.BlockLoad").
+ * 
+ * @author Douglas Selent
+ */
+final class ListEvents
+{
+	private ListEvents()
+	{
+	}
+	
+	/**
+	 * A block read into the cache of a list, see {@link CacheMapping#bringFileIntoCache(int)}
+	 */
+	@Name("com.dselent.bigarraylist.BlockLoad")
+	@Label("Block Load")
+	@Category("BigArrayList")
+	@Description("A block read from disk into the cache of a list")
+	@Enabled(false)
+	@StackTrace(false)
+	static class BlockLoad extends Event
+	{
+		@Label("Memory Instance")
+		int memoryInstance;
+		
+		@Label("Block Number")
+		int blockNumber;
+		
+		@Label("Bytes Read")
+		@DataAmount
+		long bytes;
+		
+		/**
+		 * Ends the event and commits it if it is enabled
+		 * 
+		 * @param memoryInstance The memory instance of the list
+		 * @param blockNumber The block/file number
+		 * @param bytes The bytes read
+		 */
+		void finish(int memoryInstance, int blockNumber, long bytes)
+		{
+			if(shouldCommit())
+			{
+				this.memoryInstance = memoryInstance;
+				this.blockNumber = blockNumber;
+				this.bytes = bytes;
+				commit();
+			}
+		}
+	}
+	
+	/**
+	 * A block swapped out of the cache of a list to make room for another, including writing it if it was dirty
+	 */
+	@Name("com.dselent.bigarraylist.BlockEviction")
+	@Label("Block Eviction")
+	@Category("BigArrayList")
+	@Description("A block swapped out of the cache of a list, written first if it was dirty")
+	@Enabled(false)
+	@StackTrace(false)
+	static class BlockEviction extends Event
+	{
+		@Label("Memory Instance")
+		int memoryInstance;
+		
+		@Label("Block Number")
+		int blockNumber;
+		
+		@Label("Dirty")
+		boolean dirty;
+		
+		@Label("Bytes Written")
+		@DataAmount
+		long bytes;
+		
+		/**
+		 * Ends the event and commits it if it is enabled
+		 * 
+		 * @param memoryInstance The memory instance of the list
+		 * @param blockNumber The block/file number
+		 * @param dirty Whether or not the block was written
+		 * @param bytes The bytes written
+		 */
+		void finish(int memoryInstance, int blockNumber, boolean dirty, long bytes)
+		{
+			if(shouldCommit())
+			{
+				this.memoryInstance = memoryInstance;
+				this.blockNumber = blockNumber;
+				this.dirty = dirty;
+				this.bytes = bytes;
+				commit();
+			}
+		}
+	}
+	
+	/**
+	 * A dirty block of the cache of a list written to disk, whether it was evicted or flushed
+	 */
+	@Name("com.dselent.bigarraylist.BlockFlush")
+	@Label("Block Flush")
+	@Category("BigArrayList")
+	@Description("A dirty block of the cache of a list written to disk")
+	@Enabled(false)
+	@StackTrace(false)
+	static class BlockFlush extends Event
+	{
+		@Label("Memory Instance")
+		int memoryInstance;
+		
+		@Label("Block Number")
+		int blockNumber;
+		
+		@Label("Write Kind")
+		@Description("How the block was written: whole, append (to its append log), or changed (only the changed elements)")
+		String kind;
+		
+		@Label("Bytes Written")
+		@DataAmount
+		long bytes;
+		
+		/**
+		 * Ends the event and commits it if it is enabled
+		 * 
+		 * @param memoryInstance The memory instance of the list
+		 * @param blockNumber The block/file number
+		 * @param kind How the block was written
+		 * @param bytes The bytes written
+		 */
+		void finish(int memoryInstance, int blockNumber, String kind, long bytes)
+		{
+			if(shouldCommit())
+			{
+				this.memoryInstance = memoryInstance;
+				this.blockNumber = blockNumber;
+				this.kind = kind;
+				this.bytes = bytes;
+				commit();
+			}
+		}
+	}
+	
+	/**
+	 * A file of a list read by its FileAccessor, such as a block or a sort run
+	 */
+	@Name("com.dselent.bigarraylist.FileRead")
+	@Label("File Read")
+	@Category("BigArrayList")
+	@Description("A block or other file of a list read from disk")
+	@Enabled(false)
+	@StackTrace(false)
+	static class FileRead extends Event
+	{
+		@Label("Memory Instance")
+		int memoryInstance;
+		
+		@Label("File Area")
+		String area;
+		
+		@Label("Block Number")
+		int blockNumber;
+		
+		@Label("Bytes Read")
+		@DataAmount
+		long bytes;
+		
+		/**
+		 * Ends the event and commits it if it is enabled
+		 * 
+		 * @param memoryInstance The memory instance of the list
+		 * @param area The file area
+		 * @param blockNumber The block/file number
+		 * @param bytes The bytes read
+		 */
+		void finish(int memoryInstance, String area, int blockNumber, long bytes)
+		{
+			if(shouldCommit())
+			{
+				this.memoryInstance = memoryInstance;
+				this.area = area;
+				this.blockNumber = blockNumber;
+				this.bytes = bytes;
+				commit();
+			}
+		}
+	}
+	
+	/**
+	 * A file of a list written by its FileAccessor, such as a block, an append log record, or a sort run
+	 */
+	@Name("com.dselent.bigarraylist.FileWrite")
+	@Label("File Write")
+	@Category("BigArrayList")
+	@Description("A block or other file of a list written to disk")
+	@Enabled(false)
+	@StackTrace(false)
+	static class FileWrite extends Event
+	{
+		@Label("Memory Instance")
+		int memoryInstance;
+		
+		@Label("File Area")
+		String area;
+		
+		@Label("Block Number")
+		int blockNumber;
+		
+		@Label("Bytes Written")
+		@DataAmount
+		long bytes;
+		
+		/**
+		 * Ends the event and commits it if it is enabled
+		 * 
+		 * @param memoryInstance The memory instance of the list
+		 * @param area The file area
+		 * @param blockNumber The block/file number
+		 * @param bytes The bytes written
+		 */
+		void finish(int memoryInstance, String area, int blockNumber, long bytes)
+		{
+			if(shouldCommit())
+			{
+				this.memoryInstance = memoryInstance;
+				this.area = area;
+				this.blockNumber = blockNumber;
+				this.bytes = bytes;
+				commit();
+			}
+		}
+	}
+	
+	/**
+	 * A purge of the pending shifts from removals, which moves elements between blocks
+	 */
+	@Name("com.dselent.bigarraylist.Purge")
+	@Label("Purge")
+	@Category("BigArrayList")
+	@Description("A purge of the pending shifts from removals of a list")
+	@Enabled(false)
+	@StackTrace(false)
+	static class Purge extends Event
+	{
+		@Label("Memory Instance")
+		int memoryInstance;
+		
+		@Label("First Block Number")
+		int blockNumber;
+		
+		@Label("Pending Shifts")
+		int shifts;
+		
+		/**
+		 * Ends the event and commits it if it is enabled
+		 * 
+		 * @param memoryInstance The memory instance of the list
+		 * @param blockNumber The first block/file number changed
+		 * @param shifts The number of pending shifts purged
+		 */
+		void finish(int memoryInstance, int blockNumber, int shifts)
+		{
+			if(shouldCommit())
+			{
+				this.memoryInstance = memoryInstance;
+				this.blockNumber = blockNumber;
+				this.shifts = shifts;
+				commit();
+			}
+		}
+	}
+	
+	/**
+	 * One merge pass of an external sort over every block of a list
+	 */
+	@Name("com.dselent.bigarraylist.SortMergePass")
+	@Label("Sort Merge Pass")
+	@Category("BigArrayList")
+	@Description("One merge pass of an external sort of a list")
+	@Enabled(false)
+	@StackTrace(false)
+	static class SortMergePass extends Event
+	{
+		@Label("Memory Instance")
+		int memoryInstance;
+		
+		@Label("Pass")
+		int pass;
+		
+		@Label("Blocks")
+		int blocks;
+		
+		@Label("Bytes Read")
+		@DataAmount
+		long bytesRead;
+		
+		@Label("Bytes Written")
+		@DataAmount
+		long bytesWritten;
+		
+		/**
+		 * Ends the event and commits it if it is enabled
+		 * 
+		 * @param memoryInstance The memory instance of the list
+		 * @param pass The number of the pass, starting at 0
+		 * @param blocks The number of blocks merged
+		 * @param bytesRead The bytes read
+		 * @param bytesWritten The bytes written
+		 */
+		void finish(int memoryInstance, int pass, int blocks, long bytesRead, long bytesWritten)
+		{
+			if(shouldCommit())
+			{
+				this.memoryInstance = memoryInstance;
+				this.pass = pass;
+				this.blocks = blocks;
+				this.bytesRead = bytesRead;
+				this.bytesWritten = bytesWritten;
+				commit();
+			}
+		}
+	}
+}
@@ -0,0 +1,183 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The metadata of a persistent BigArrayList, written next to its block files so the list can be reopened without reading any block.
+ * The manifest is only written once all pending shifts are purged and the cache is flushed,
+ * so the block files hold exactly the elements of the list in order and no shift information needs to be stored.
+ * 
+ * @author Douglas Selent
+ */
+class ListManifest implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The size of the cache blocks
+	 */
+	private final int blockSize;
+	
+	/**
+	 * The number of cache blocks
+	 */
+	private final int cacheBlocks;
+	
+	/**
+	 * The number of elements in the list
+	 */
+	private final long size;
+	
+	/**
+	 * The number of times the manifest was written, used to match the shadow copies of blocks to the manifest they belong to
+	 */
+	private final long generation;
+	
+	/**
+	 * The absolute paths of the folders the blocks are striped across, the first one holds the manifest
+	 */
+	private final ArrayList<String> folderPaths;
+	
+	/**
+	 * How blocks are assigned to the folders
+	 */
+	private final BlockPlacement placement;
+	
+	/**
+	 * How the elements are stored in the block files, or null if they are serialized
+	 */
+	private final FixedWidthCodec<?> codec;
+	
+	/**
+	 * The name of the comparator the block summaries were computed with, or null if no summaries are stored
+	 */
+	private final String zoneMapName;
+	
+	/**
+	 * The summaries of the blocks, key is the block/file number, or null if no summaries are stored
+	 */
+	private final HashMap<Integer, ? extends BlockSummary<?>> zoneSummaries;
+	
+	/**
+	 * Constructs a manifest with the given values
+	 * 
+	 * @param blockSize The size of the cache blocks
+	 * @param cacheBlocks The number of cache blocks
+	 * @param size The number of elements in the list
+	 * @param generation The number of times the manifest was written
+	 * @param folderPaths The paths of the folders the blocks are striped across
+	 * @param placement How blocks are assigned to the folders
+	 * @param codec How the elements are stored in the block files, or null if they are serialized
+	 * @param zoneMapName The name of the comparator the block summaries were computed with, or null if no summaries are stored
+	 * @param zoneSummaries The summaries of the blocks, or null if no summaries are stored
+	 */
+	protected ListManifest(int blockSize, int cacheBlocks, long size, long generation, List<String> folderPaths, BlockPlacement placement, FixedWidthCodec<?> codec,
+			String zoneMapName, HashMap<Integer, ? extends BlockSummary<?>> zoneSummaries)
+	{
+		this.blockSize = blockSize;
+		this.cacheBlocks = cacheBlocks;
+		this.size = size;
+		this.generation = generation;
+		this.folderPaths = new ArrayList<>(folderPaths);
+		this.placement = placement;
+		this.codec = codec;
+		this.zoneMapName = zoneMapName;
+		this.zoneSummaries = zoneSummaries;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the size of the cache blocks
+	 */
+	protected int getBlockSize()
+	{
+		return blockSize;
+	}
+	
+	/**
+	 * @return Returns the number of cache blocks
+	 */
+	protected int getCacheBlocks()
+	{
+		return cacheBlocks;
+	}
+	
+	/**
+	 * @return Returns the number of elements in the list
+	 */
+	protected long getSize()
+	{
+		return size;
+	}
+	
+	/**
+	 * @return Returns the number of times the manifest was written
+	 */
+	protected long getGeneration()
+	{
+		return generation;
+	}
+	
+	/**
+	 * @return Returns the absolute paths of the folders the blocks are striped across
+	 */
+	protected List<String> getFolderPaths()
+	{
+		return folderPaths;
+	}
+	
+	/**
+	 * @return Returns how blocks are assigned to the folders
+	 */
+	protected BlockPlacement getPlacement()
+	{
+		return placement;
+	}
+	
+	/**
+	 * @return Returns how the elements are stored in the block files, or null if they are serialized
+	 */
+	protected FixedWidthCodec<?> getCodec()
+	{
+		return codec;
+	}
+	
+	/**
+	 * @return Returns the name of the comparator the block summaries were computed with, or null if no summaries are stored
+	 */
+	protected String getZoneMapName()
+	{
+		return zoneMapName;
+	}
+	
+	/**
+	 * @return Returns the summaries of the blocks, key is the block/file number, or null if no summaries are stored
+	 */
+	protected HashMap<Integer, ? extends BlockSummary<?>> getZoneSummaries()
+	{
+		return zoneSummaries;
+	}
+}
@@ -0,0 +1,250 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+/**
+ * A snapshot of the cache and I/O statistics of a BigArrayList, see {@link BigArrayList#getStatistics()}.
+ * Counts start when the list is constructed or opened, the difference between two snapshots gives the counts in between.
+ * <p>
+ * A hit is an access to an element, by get, set, add, or remove, whose block was in cache or whose new value was held in the write overlay.
+ * A miss is a block read into cache, by any operation, so a scan of the list counts one miss for every block it reads.
+ * An eviction is a block swapped out of cache to make room for another, either by the list itself or by its {@link CacheManager}.
+ * Bytes are counted for the block files and their append logs, and for other files written whole such as zone maps,
+ * but not for the temporary files streamed by sorting.
+ * 
+ * @author Douglas Selent
+ */
+public class ListStatistics
+{
+	/**
+	 * Accesses to an element whose block was in cache
+	 */
+	private final long hits;
+	
+	/**
+	 * Blocks read into cache
+	 */
+	private final long misses;
+	
+	/**
+	 * Dirty blocks swapped out of cache
+	 */
+	private final long dirtyEvictions;
+	
+	/**
+	 * Clean blocks swapped out of cache
+	 */
+	private final long cleanEvictions;
+	
+	/**
+	 * Bytes read from files
+	 */
+	private final long bytesRead;
+	
+	/**
+	 * Bytes written to files
+	 */
+	private final long bytesWritten;
+	
+	/**
+	 * The latencies of reading blocks into cache
+	 */
+	private final LatencyHistogram loadLatency;
+	
+	/**
+	 * The latencies of writing blocks to disk
+	 */
+	private final LatencyHistogram flushLatency;
+	
+	/**
+	 * Purges of the pending shifts from removals
+	 */
+	private final long purges;
+	
+	/**
+	 * The time spent purging in nanoseconds
+	 */
+	private final long purgeNanos;
+	
+	/**
+	 * The number of blocks in cache
+	 */
+	private final int residentBlocks;
+	
+	/**
+	 * The most blocks the list holds in cache
+	 */
+	private final int cacheLimit;
+	
+	/**
+	 * Constructs a snapshot
+	 * 
+	 * @param hits Accesses to an element whose block was in cache
+	 * @param misses Blocks read into cache
+	 * @param dirtyEvictions Dirty blocks swapped out of cache
+	 * @param cleanEvictions Clean blocks swapped out of cache
+	 * @param bytesRead Bytes read from files
+	 * @param bytesWritten Bytes written to files
+	 * @param loadLatency The latencies of reading blocks into cache
+	 * @param flushLatency The latencies of writing blocks to disk
+	 * @param purges Purges of the pending shifts from removals
+	 * @param purgeNanos The time spent purging in nanoseconds
+	 * @param residentBlocks The number of blocks in cache
+	 * @param cacheLimit The most blocks the list holds in cache
+	 */
+	protected ListStatistics(long hits, long misses, long dirtyEvictions, long cleanEvictions, long bytesRead, long bytesWritten,
+			LatencyHistogram loadLatency, LatencyHistogram flushLatency, long purges, long purgeNanos, int residentBlocks, int cacheLimit)
+	{
+		this.hits = hits;
+		this.misses = misses;
+		this.dirtyEvictions = dirtyEvictions;
+		this.cleanEvictions = cleanEvictions;
+		this.bytesRead = bytesRead;
+		this.bytesWritten = bytesWritten;
+		this.loadLatency = loadLatency;
+		this.flushLatency = flushLatency;
+		this.purges = purges;
+		this.purgeNanos = purgeNanos;
+		this.residentBlocks = residentBlocks;
+		this.cacheLimit = cacheLimit;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the number of accesses to an element whose block was in cache
+	 */
+	public long getHits()
+	{
+		return hits;
+	}
+	
+	/**
+	 * @return Returns the number of blocks read into cache
+	 */
+	public long getMisses()
+	{
+		return misses;
+	}
+	
+	/**
+	 * @return Returns the share of hits among hits and misses, 0 if there are none
+	 */
+	public double getHitRatio()
+	{
+		return hits + misses == 0 ? 0 : (double)hits / (hits + misses);
+	}
+	
+	/**
+	 * @return Returns the number of blocks swapped out of cache to make room for another
+	 */
+	public long getEvictions()
+	{
+		return dirtyEvictions + cleanEvictions;
+	}
+	
+	/**
+	 * @return Returns the number of dirty blocks swapped out of cache, which had to be written first
+	 */
+	public long getDirtyEvictions()
+	{
+		return dirtyEvictions;
+	}
+	
+	/**
+	 * @return Returns the number of clean blocks swapped out of cache, which were dropped without writing
+	 */
+	public long getCleanEvictions()
+	{
+		return cleanEvictions;
+	}
+	
+	/**
+	 * @return Returns the number of bytes read from files
+	 */
+	public long getBytesRead()
+	{
+		return bytesRead;
+	}
+	
+	/**
+	 * @return Returns the number of bytes written to files
+	 */
+	public long getBytesWritten()
+	{
+		return bytesWritten;
+	}
+	
+	/**
+	 * @return Returns the latencies of reading blocks into cache, one for every miss
+	 */
+	public LatencyHistogram getLoadLatency()
+	{
+		return loadLatency;
+	}
+	
+	/**
+	 * @return Returns the latencies of writing dirty blocks to disk, whether they were evicted or flushed
+	 */
+	public LatencyHistogram getFlushLatency()
+	{
+		return flushLatency;
+	}
+	
+	/**
+	 * @return Returns the number of purges of the pending shifts from removals
+	 */
+	public long getPurges()
+	{
+		return purges;
+	}
+	
+	/**
+	 * @return Returns the time spent purging the pending shifts from removals in nanoseconds
+	 */
+	public long getPurgeNanos()
+	{
+		return purgeNanos;
+	}
+	
+	/**
+	 * @return Returns the number of blocks in cache when the snapshot was taken
+	 */
+	public int getResidentBlocks()
+	{
+		return residentBlocks;
+	}
+	
+	/**
+	 * @return Returns the most blocks the list held in cache when the snapshot was taken
+	 */
+	public int getCacheLimit()
+	{
+		return cacheLimit;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "hits=" + hits + ", misses=" + misses + ", dirtyEvictions=" + dirtyEvictions + ", cleanEvictions=" + cleanEvictions
+				+ ", bytesRead=" + bytesRead + ", bytesWritten=" + bytesWritten + ", load=[" + loadLatency + "], flush=[" + flushLatency
+				+ "], purges=" + purges + ", purgeNanos=" + purgeNanos + ", residentBlocks=" + residentBlocks + ", cacheLimit=" + cacheLimit;
+	}
+}
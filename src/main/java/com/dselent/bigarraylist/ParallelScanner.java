@@ -0,0 +1,371 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Class that scans the blocks of a BigArrayList with several threads for the elements matching a predicate.
+ * <p>
+ * The list is partitioned by block file.  Each thread claims the next unscanned block, so blocks are claimed in index order,
+ * and reads it from disk with its own stream, outside of the list's cache.  Blocks that are in cache are scanned in memory
+ * since they may hold changes not yet written to disk.  A scan for the first match stops claiming blocks past the best match found so far,
+ * and a scan for any match stops as soon as one is found.
+ * <p>
+ * The list must be purged before scanning so every block on disk holds the elements of its own index range.
+ * The calling thread waits for the scan to finish, so the list is not modified while it runs.
+ * <p>
+ * The threads are shared by all lists, so a scan started from a predicate of another scan, such as a scan of another list,
+ * would wait for threads that are all busy waiting themselves.  A scan started on one of the shared threads therefore runs entirely on that thread.
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <E> Generic type
+ */
+class ParallelScanner<E extends Serializable>
+{
+	/**
+	 * Threads shared by all scans of all lists, one for each core
+	 */
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Executor shared by all scans, its daemon threads do not keep the JVM alive
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, runnable ->
+	{
+		Thread thread = new ScanThread(runnable);
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	/**
+	 * Reference to the associated FileAccessor object
+	 */
+	private final FileAccessor<E> fileAccessor;
+	
+	/**
+	 * The blocks that are in cache, index is the block/file number, null for blocks on disk
+	 */
+	private final List<List<E>> residentBlocks;
+	
+	/**
+	 * Size of each block
+	 */
+	private final int blockSize;
+	
+	/**
+	 * The number of blocks used by the list
+	 */
+	private final int usedBlocks;
+	
+	/**
+	 * Constructs a ParallelScanner for the given list, which must be purged
+	 * 
+	 * @param theList The list to scan
+	 */
+	protected ParallelScanner(BigArrayList<E> theList)
+	{
+		CacheMapping<E> cacheMapping = theList.getCacheMapping();
+		fileAccessor = cacheMapping.getFileAccessor();
+		blockSize = theList.getBlockSize();
+		usedBlocks = theList.getNumberOfUsedBlocks();
+		residentBlocks = new ArrayList<>(usedBlocks);
+		
+		for(int i=0; i<usedBlocks; i++)
+		{
+			if(cacheMapping.isFileInCache(i))
+			{
+				residentBlocks.add(theList.getList(cacheMapping.getCacheBlockSpot(i)));
+			}
+			else
+			{
+				residentBlocks.add(null);
+			}
+		}
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Finds the index of the first element matching the predicate
+	 * 
+	 * @param predicate The predicate to match
+	 * @return Returns the index, or -1 if no element matches
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	protected long indexOf(Predicate<? super E> predicate) throws IOException, ClassNotFoundException
+	{
+		AtomicLong firstIndex = new AtomicLong(Long.MAX_VALUE);
+		
+		scan((fileNumber, block) ->
+		{
+			long blockStart = (long)fileNumber * blockSize;
+			
+			for(int i=0; i<block.size() && blockStart + i < firstIndex.get(); i++)
+			{
+				if(predicate.test(block.get(i)))
+				{
+					long index = blockStart + i;
+					firstIndex.accumulateAndGet(index, Math::min);
+				}
+			}
+		}, fileNumber -> (long)fileNumber * blockSize >= firstIndex.get());
+		
+		long foundIndex = firstIndex.get();
+		
+		if(foundIndex == Long.MAX_VALUE)
+		{
+			foundIndex = -1;
+		}
+		
+		return foundIndex;
+	}
+	
+	/**
+	 * Counts the elements matching the predicate
+	 * 
+	 * @param predicate The predicate to match
+	 * @return Returns the number of matching elements
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	protected long count(Predicate<? super E> predicate) throws IOException, ClassNotFoundException
+	{
+		AtomicLong matches = new AtomicLong();
+		
+		scan((fileNumber, block) ->
+		{
+			long blockMatches = 0;
+			
+			for(int i=0; i<block.size(); i++)
+			{
+				if(predicate.test(block.get(i)))
+				{
+					blockMatches++;
+				}
+			}
+			
+			matches.addAndGet(blockMatches);
+		}, fileNumber -> false);
+		
+		return matches.get();
+	}
+	
+	/**
+	 * Returns if any element matches the predicate
+	 * 
+	 * @param predicate The predicate to match
+	 * @return Returns true if an element matches
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	protected boolean anyMatch(Predicate<? super E> predicate) throws IOException, ClassNotFoundException
+	{
+		AtomicBoolean found = new AtomicBoolean();
+		
+		scan((fileNumber, block) ->
+		{
+			for(int i=0; i<block.size() && !found.get(); i++)
+			{
+				if(predicate.test(block.get(i)))
+				{
+					found.set(true);
+				}
+			}
+		}, fileNumber -> found.get());
+		
+		return found.get();
+	}
+	
+	/**
+	 * Scans the blocks with the shared threads, each block is passed to the visitor by exactly one thread unless the scan stops early
+	 * 
+	 * @param visitor What to do with each block
+	 * @param stop Returns true if a block, and every block after it, no longer needs to be scanned
+	 * @throws IOException For I/O errors
+	 * @throws ClassNotFoundException If no such class exists
+	 */
+	private void scan(BlockVisitor<E> visitor, StopCondition stop) throws IOException, ClassNotFoundException
+	{
+		AtomicInteger nextBlock = new AtomicInteger();
+		AtomicBoolean failed = new AtomicBoolean();
+		int threads = Math.min(THREADS, usedBlocks);
+		List<Future<Void>> futures = new ArrayList<>(threads);
+		
+		//a scan nested in another scan runs on the calling thread, waiting for the shared threads could wait forever
+		boolean nested = Thread.currentThread() instanceof ScanThread;
+		
+		if(nested)
+		{
+			threads = Math.min(1, usedBlocks);
+		}
+		
+		for(int i=0; i<threads; i++)
+		{
+			FutureTask<Void> task = new FutureTask<>(() ->
+			{
+				try
+				{
+					int fileNumber = nextBlock.getAndIncrement();
+					
+					while(fileNumber < usedBlocks && !failed.get() && !stop.shouldStop(fileNumber))
+					{
+						List<E> block = residentBlocks.get(fileNumber);
+						
+						if(block == null)
+						{
+							block = fileAccessor.readBlock(FileAccessor.MEMORY_AREA, fileNumber);
+						}
+						
+						visitor.visit(fileNumber, block);
+						fileNumber = nextBlock.getAndIncrement();
+					}
+				}
+				catch(IOException | ClassNotFoundException | RuntimeException | Error e)
+				{
+					//let the other threads finish quickly
+					failed.set(true);
+					throw e;
+				}
+				
+				return null;
+			});
+			
+			if(nested)
+			{
+				task.run();
+			}
+			else
+			{
+				EXECUTOR.execute(task);
+			}
+			
+			futures.add(task);
+		}
+		
+		//wait for every thread, even after a failure, so none is still reading the cache when the caller continues
+		Throwable failure = null;
+		boolean interrupted = false;
+		
+		for(int i=0; i<futures.size(); i++)
+		{
+			boolean done = false;
+			
+			while(!done)
+			{
+				try
+				{
+					futures.get(i).get();
+					done = true;
+				}
+				catch(InterruptedException e)
+				{
+					interrupted = true;
+					failed.set(true);
+				}
+				catch(ExecutionException e)
+				{
+					if(failure == null)
+					{
+						failure = e.getCause();
+					}
+					
+					done = true;
+				}
+			}
+		}
+		
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while scanning");
+		}
+		else if(failure instanceof IOException)
+		{
+			throw (IOException)failure;
+		}
+		else if(failure instanceof ClassNotFoundException)
+		{
+			throw (ClassNotFoundException)failure;
+		}
+		else if(failure instanceof RuntimeException)
+		{
+			throw (RuntimeException)failure;
+		}
+		else if(failure instanceof Error)
+		{
+			throw (Error)failure;
+		}
+	}
+	
+	/**
+	 * A thread shared by all scans, scans started on it run on it alone
+	 */
+	private static class ScanThread extends Thread
+	{
+		/**
+		 * @param runnable What the thread runs
+		 */
+		private ScanThread(Runnable runnable)
+		{
+			super(runnable, "BigArrayList-scan");
+		}
+	}
+	
+	/**
+	 * What a scan does with each block
+	 * 
+	 * @param <E> Generic type
+	 */
+	private interface BlockVisitor<E>
+	{
+		/**
+		 * @param fileNumber The block/file number
+		 * @param block The elements of the block
+		 */
+		void visit(int fileNumber, List<E> block);
+	}
+	
+	/**
+	 * When a scan can stop claiming blocks
+	 */
+	private interface StopCondition
+	{
+		/**
+		 * @param fileNumber The next block/file number to scan
+		 * @return Returns true if the block, and every block after it, no longer needs to be scanned
+		 */
+		boolean shouldStop(int fileNumber);
+	}
+}
@@ -0,0 +1,273 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A cache of blocks that only tracks which blocks are in memory, used to replay accesses under other cache settings
+ * by the {@link CacheSimulator} and the {@link LayoutAdvisor}.
+ * Blocks are evicted like a {@link CacheManager} evicts them with the same policy and a budget of exactly the cache blocks.
+ * 
+ * @author Douglas Selent
+ */
+class SimulatedCache
+{
+	/**
+	 * The number of elements in each block
+	 */
+	private final int blockSize;
+	
+	/**
+	 * The number of blocks kept in memory
+	 */
+	private final int cacheBlocks;
+	
+	/**
+	 * How blocks are chosen for eviction
+	 */
+	private final CachePolicy policy;
+	
+	/**
+	 * The blocks in memory, key is the block number
+	 */
+	private final Map<Long, SimulatedBlock> residentBlocks;
+	
+	/**
+	 * The blocks in memory, the first one is evicted next
+	 */
+	private final TreeSet<SimulatedBlock> evictionOrder;
+	
+	/**
+	 * Counts block uses, gives the recency of each block
+	 */
+	private long clock;
+	
+	/**
+	 * The worth of the last block evicted under the GreedyDual policy
+	 */
+	private long inflation;
+	
+	/**
+	 * Accesses whose block was in memory
+	 */
+	private long hits;
+	
+	/**
+	 * Blocks read into memory
+	 */
+	private long misses;
+	
+	/**
+	 * Dirty blocks evicted
+	 */
+	private long blockWrites;
+	
+	/**
+	 * Constructs an empty SimulatedCache
+	 * 
+	 * @param blockSize The number of elements in each block
+	 * @param cacheBlocks The number of blocks kept in memory
+	 * @param policy How blocks are chosen for eviction
+	 */
+	protected SimulatedCache(int blockSize, int cacheBlocks, CachePolicy policy)
+	{
+		this.blockSize = blockSize;
+		this.cacheBlocks = cacheBlocks;
+		this.policy = policy;
+		residentBlocks = new HashMap<>();
+		evictionOrder = new TreeSet<>();
+		clock = 0;
+		inflation = 0;
+		hits = 0;
+		misses = 0;
+		blockWrites = 0;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the number of accesses whose block was in memory
+	 */
+	protected long getHits()
+	{
+		return hits;
+	}
+	
+	/**
+	 * @return Returns the number of blocks read into memory
+	 */
+	protected long getMisses()
+	{
+		return misses;
+	}
+	
+	/**
+	 * @return Returns the number of dirty blocks evicted
+	 */
+	protected long getBlockWrites()
+	{
+		return blockWrites;
+	}
+	
+	/**
+	 * @return Returns the number of dirty blocks in memory, which are written when the list is flushed or closed
+	 */
+	protected long getDirtyBlocks()
+	{
+		long dirtyBlocks = 0;
+		
+		for(SimulatedBlock block : residentBlocks.values())
+		{
+			if(block.dirty)
+			{
+				dirtyBlocks++;
+			}
+		}
+		
+		return dirtyBlocks;
+	}
+	
+	/**
+	 * Sets the counts back to 0 but keeps the blocks in memory, so the accesses so far only warm up the cache
+	 */
+	protected void resetCounts()
+	{
+		hits = 0;
+		misses = 0;
+		blockWrites = 0;
+	}
+	
+	/**
+	 * Replays an access
+	 * 
+	 * @param index The index of the element
+	 * @param write Whether or not the access changed the block
+	 */
+	protected void access(long index, boolean write)
+	{
+		long blockNumber = index / blockSize;
+		SimulatedBlock block = residentBlocks.get(blockNumber);
+		
+		if(block != null)
+		{
+			hits++;
+			evictionOrder.remove(block);
+		}
+		else
+		{
+			misses++;
+			
+			if(residentBlocks.size() >= cacheBlocks)
+			{
+				SimulatedBlock victim = evictionOrder.pollFirst();
+				residentBlocks.remove(victim.blockNumber);
+				inflation = Math.max(inflation, victim.worth);
+				
+				if(victim.dirty)
+				{
+					blockWrites++;
+				}
+			}
+			
+			block = new SimulatedBlock(blockNumber);
+			residentBlocks.put(blockNumber, block);
+		}
+		
+		clock++;
+		block.used(clock, inflation, write, policy);
+		evictionOrder.add(block);
+	}
+	
+	/**
+	 * A block in memory, ordered by worth and then by recency like the candidates of a CacheManager
+	 */
+	private static class SimulatedBlock implements Comparable<SimulatedBlock>
+	{
+		/**
+		 * The block number
+		 */
+		private final long blockNumber;
+		
+		/**
+		 * When the block was last used
+		 */
+		private long lastUsed;
+		
+		/**
+		 * The worth of the block, 0 under the LRU policy
+		 */
+		private long worth;
+		
+		/**
+		 * Whether or not the block was changed since it was read
+		 */
+		private boolean dirty;
+		
+		/**
+		 * Constructs a clean SimulatedBlock
+		 * 
+		 * @param blockNumber The block number
+		 */
+		private SimulatedBlock(long blockNumber)
+		{
+			this.blockNumber = blockNumber;
+			lastUsed = 0;
+			worth = 0;
+			dirty = false;
+		}
+		
+		/**
+		 * Records a use of the block, which must not be in the eviction order while it changes
+		 * 
+		 * @param time When the block was used
+		 * @param inflation The worth of the last block evicted under the GreedyDual policy
+		 * @param write Whether or not the use changed the block
+		 * @param policy How blocks are chosen for eviction
+		 */
+		private void used(long time, long inflation, boolean write, CachePolicy policy)
+		{
+			lastUsed = time;
+			dirty = dirty || write;
+			worth = 0;
+			
+			if(policy == CachePolicy.GREEDY_DUAL)
+			{
+				//one read to bring the block back, plus one write if it is dirty
+				worth = inflation + (dirty ? 2 : 1);
+			}
+		}
+		
+		@Override
+		public int compareTo(SimulatedBlock other)
+		{
+			int comparison = Long.compare(worth, other.worth);
+			
+			if(comparison == 0)
+			{
+				comparison = Long.compare(lastUsed, other.lastUsed);
+			}
+			
+			return comparison;
+		}
+	}
+}
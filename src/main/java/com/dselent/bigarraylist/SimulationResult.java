@@ -0,0 +1,199 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+/**
+ * The hit ratio and I/O a {@link CacheSimulator} predicts for one block size, number of cache blocks, and cache policy.
+ * Blocks are always read and written whole, so the I/O is also given in elements, which times the average size of a serialized element
+ * (see {@link ListStatistics#getBytesWritten()}) estimates the bytes.
+ * 
+ * @author Douglas Selent
+ */
+public class SimulationResult
+{
+	/**
+	 * The number of elements in each block
+	 */
+	private final int blockSize;
+	
+	/**
+	 * The number of blocks kept in memory
+	 */
+	private final int cacheBlocks;
+	
+	/**
+	 * How blocks were chosen for eviction
+	 */
+	private final CachePolicy policy;
+	
+	/**
+	 * Accesses replayed
+	 */
+	private final long accesses;
+	
+	/**
+	 * Accesses whose block was in memory
+	 */
+	private final long hits;
+	
+	/**
+	 * Blocks read into memory
+	 */
+	private final long misses;
+	
+	/**
+	 * Dirty blocks written, when they were evicted or at the end of the trace
+	 */
+	private final long blockWrites;
+	
+	/**
+	 * The time covered by the trace in microseconds
+	 */
+	private final long durationMicros;
+	
+	/**
+	 * Constructs a result
+	 * 
+	 * @param blockSize The number of elements in each block
+	 * @param cacheBlocks The number of blocks kept in memory
+	 * @param policy How blocks were chosen for eviction
+	 * @param accesses Accesses replayed
+	 * @param hits Accesses whose block was in memory
+	 * @param misses Blocks read into memory
+	 * @param blockWrites Dirty blocks written
+	 * @param durationMicros The time covered by the trace in microseconds
+	 */
+	protected SimulationResult(int blockSize, int cacheBlocks, CachePolicy policy, long accesses, long hits, long misses, long blockWrites, long durationMicros)
+	{
+		this.blockSize = blockSize;
+		this.cacheBlocks = cacheBlocks;
+		this.policy = policy;
+		this.accesses = accesses;
+		this.hits = hits;
+		this.misses = misses;
+		this.blockWrites = blockWrites;
+		this.durationMicros = durationMicros;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the number of elements in each block
+	 */
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+	
+	/**
+	 * @return Returns the number of blocks kept in memory
+	 */
+	public int getCacheBlocks()
+	{
+		return cacheBlocks;
+	}
+	
+	/**
+	 * @return Returns how blocks were chosen for eviction
+	 */
+	public CachePolicy getPolicy()
+	{
+		return policy;
+	}
+	
+	/**
+	 * @return Returns the number of accesses replayed
+	 */
+	public long getAccesses()
+	{
+		return accesses;
+	}
+	
+	/**
+	 * @return Returns the number of accesses whose block was in memory
+	 */
+	public long getHits()
+	{
+		return hits;
+	}
+	
+	/**
+	 * @return Returns the number of blocks read into memory
+	 */
+	public long getMisses()
+	{
+		return misses;
+	}
+	
+	/**
+	 * @return Returns the fraction of accesses whose block was in memory, 0 if there were none
+	 */
+	public double getHitRatio()
+	{
+		double hitRatio = 0;
+		
+		if(accesses > 0)
+		{
+			hitRatio = (double)hits / accesses;
+		}
+		
+		return hitRatio;
+	}
+	
+	/**
+	 * @return Returns the number of dirty blocks written, when they were evicted or at the end of the trace
+	 */
+	public long getBlockWrites()
+	{
+		return blockWrites;
+	}
+	
+	/**
+	 * @return Returns the number of elements read, every block read is counted as full
+	 */
+	public long getElementsRead()
+	{
+		return misses * blockSize;
+	}
+	
+	/**
+	 * @return Returns the number of elements written, every block written is counted as full
+	 */
+	public long getElementsWritten()
+	{
+		return blockWrites * blockSize;
+	}
+	
+	/**
+	 * @return Returns the time covered by the trace in microseconds
+	 */
+	public long getDurationMicros()
+	{
+		return durationMicros;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "blockSize=" + blockSize + ", cacheBlocks=" + cacheBlocks + ", policy=" + policy + ", accesses=" + accesses + ", hits=" + hits
+				+ ", misses=" + misses + ", hitRatio=" + getHitRatio() + ", blockWrites=" + blockWrites + ", elementsRead=" + getElementsRead()
+				+ ", elementsWritten=" + getElementsWritten() + ", durationMicros=" + durationMicros;
+	}
+}
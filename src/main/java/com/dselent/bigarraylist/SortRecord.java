@@ -0,0 +1,74 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.Serializable;
+
+/**
+ * A sort key paired with the payload it was extracted from.
+ * Used when sorting by a key so the key is extracted only once, and merge passes compare only the keys.
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <K> Generic type of the key
+ * @param <P> Generic type of the payload
+ */
+class SortRecord<K, P> implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The sort key
+	 */
+	private final K key;
+
+	/**
+	 * The payload, either the element itself or its index in the list
+	 */
+	private final P payload;
+
+	/**
+	 * Constructs a SortRecord with the given key and payload
+	 * 
+	 * @param key The sort key
+	 * @param payload The payload
+	 */
+	protected SortRecord(K key, P payload)
+	{
+		this.key = key;
+		this.payload = payload;
+	}
+
+	/**
+	 * @return Returns the sort key
+	 */
+	protected K getKey()
+	{
+		return key;
+	}
+
+	/**
+	 * @return Returns the payload
+	 */
+	protected P getPayload()
+	{
+		return payload;
+	}
+}
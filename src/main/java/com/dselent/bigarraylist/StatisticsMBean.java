@@ -0,0 +1,206 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.Serializable;
+
+/**
+ * The MBean registered for a BigArrayList.
+ * The statistics attributes are served from one snapshot of the list, taken again once it is older than {@link #SNAPSHOT_NANOS},
+ * so a client reading every attribute at once gets values from the same moment.
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <E> Generic type
+ */
+class StatisticsMBean<E extends Serializable> implements BigArrayListMXBean
+{
+	/**
+	 * How long a snapshot is served before a new one is taken = 1 second
+	 */
+	private static final long SNAPSHOT_NANOS = 1000000000L;
+	
+	/**
+	 * The list
+	 */
+	private final BigArrayList<E> bigArrayList;
+	
+	/**
+	 * The statistics snapshot being served, or null before the first attribute is read
+	 */
+	private ListStatistics snapshot;
+	
+	/**
+	 * When the snapshot was taken, from System.nanoTime
+	 */
+	private long snapshotTime;
+	
+	/**
+	 * Constructs the MBean of a list
+	 * 
+	 * @param bigArrayList The list
+	 */
+	protected StatisticsMBean(BigArrayList<E> bigArrayList)
+	{
+		this.bigArrayList = bigArrayList;
+		snapshot = null;
+		snapshotTime = 0;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Returns the statistics snapshot, taking a new one if there is none or it is too old
+	 * 
+	 * @return Returns the snapshot
+	 */
+	private synchronized ListStatistics getSnapshot()
+	{
+		long now = System.nanoTime();
+		
+		if(snapshot == null || now - snapshotTime >= SNAPSHOT_NANOS)
+		{
+			snapshot = bigArrayList.getStatistics();
+			snapshotTime = now;
+		}
+		
+		return snapshot;
+	}
+	
+	@Override
+	public long getSize()
+	{
+		return bigArrayList.size();
+	}
+	
+	@Override
+	public int getBlockSize()
+	{
+		return bigArrayList.getBlockSize();
+	}
+	
+	@Override
+	public int getResidentBlocks()
+	{
+		return getSnapshot().getResidentBlocks();
+	}
+	
+	@Override
+	public int getCacheLimit()
+	{
+		return getSnapshot().getCacheLimit();
+	}
+	
+	@Override
+	public long getHits()
+	{
+		return getSnapshot().getHits();
+	}
+	
+	@Override
+	public long getMisses()
+	{
+		return getSnapshot().getMisses();
+	}
+	
+	@Override
+	public double getHitRatio()
+	{
+		return getSnapshot().getHitRatio();
+	}
+	
+	@Override
+	public long getEvictions()
+	{
+		return getSnapshot().getEvictions();
+	}
+	
+	@Override
+	public long getDirtyEvictions()
+	{
+		return getSnapshot().getDirtyEvictions();
+	}
+	
+	@Override
+	public long getCleanEvictions()
+	{
+		return getSnapshot().getCleanEvictions();
+	}
+	
+	@Override
+	public long getBytesRead()
+	{
+		return getSnapshot().getBytesRead();
+	}
+	
+	@Override
+	public long getBytesWritten()
+	{
+		return getSnapshot().getBytesWritten();
+	}
+	
+	@Override
+	public long getLoadMeanNanos()
+	{
+		return getSnapshot().getLoadLatency().getMeanNanos();
+	}
+	
+	@Override
+	public long getLoadP99Nanos()
+	{
+		return getSnapshot().getLoadLatency().getPercentileNanos(99);
+	}
+	
+	@Override
+	public long getLoadMaxNanos()
+	{
+		return getSnapshot().getLoadLatency().getMaxNanos();
+	}
+	
+	@Override
+	public long getFlushMeanNanos()
+	{
+		return getSnapshot().getFlushLatency().getMeanNanos();
+	}
+	
+	@Override
+	public long getFlushP99Nanos()
+	{
+		return getSnapshot().getFlushLatency().getPercentileNanos(99);
+	}
+	
+	@Override
+	public long getFlushMaxNanos()
+	{
+		return getSnapshot().getFlushLatency().getMaxNanos();
+	}
+	
+	@Override
+	public long getPurges()
+	{
+		return getSnapshot().getPurges();
+	}
+	
+	@Override
+	public long getPurgeNanos()
+	{
+		return getSnapshot().getPurgeNanos();
+	}
+}
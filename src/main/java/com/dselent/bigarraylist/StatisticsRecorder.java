@@ -0,0 +1,216 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class that counts the cache and I/O events of a BigArrayList, read as a {@link ListStatistics} snapshot.
+ * Counters are atomic since the blocks of a striped list are written by one thread per folder.
+ * 
+ * @author Douglas Selent
+ */
+class StatisticsRecorder
+{
+	/**
+	 * Accesses to an element whose block was in cache
+	 */
+	private final AtomicLong hits;
+	
+	/**
+	 * Blocks brought into cache
+	 */
+	private final AtomicLong misses;
+	
+	/**
+	 * Dirty blocks swapped out of cache, which had to be written first
+	 */
+	private final AtomicLong dirtyEvictions;
+	
+	/**
+	 * Clean blocks swapped out of cache
+	 */
+	private final AtomicLong cleanEvictions;
+	
+	/**
+	 * Purges of the pending shifts from removals
+	 */
+	private final AtomicLong purges;
+	
+	/**
+	 * The time spent purging in nanoseconds
+	 */
+	private final AtomicLong purgeNanos;
+	
+	/**
+	 * The latencies of reading blocks into cache
+	 */
+	private final Histogram loadLatency;
+	
+	/**
+	 * The latencies of writing blocks to disk
+	 */
+	private final Histogram flushLatency;
+	
+	/**
+	 * Constructs a StatisticsRecorder with every count at 0
+	 */
+	protected StatisticsRecorder()
+	{
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+		dirtyEvictions = new AtomicLong();
+		cleanEvictions = new AtomicLong();
+		purges = new AtomicLong();
+		purgeNanos = new AtomicLong();
+		loadLatency = new Histogram();
+		flushLatency = new Histogram();
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Counts an access to an element whose block was in cache
+	 */
+	protected void hit()
+	{
+		hits.incrementAndGet();
+	}
+	
+	/**
+	 * Counts a block read into cache
+	 * 
+	 * @param nanos How long reading the block took
+	 */
+	protected void loaded(long nanos)
+	{
+		misses.incrementAndGet();
+		loadLatency.record(nanos);
+	}
+	
+	/**
+	 * Counts a block swapped out of cache to make room for another
+	 * 
+	 * @param dirty Whether or not the block had to be written first
+	 */
+	protected void evicted(boolean dirty)
+	{
+		if(dirty)
+		{
+			dirtyEvictions.incrementAndGet();
+		}
+		else
+		{
+			cleanEvictions.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Counts a block written to disk
+	 * 
+	 * @param nanos How long writing the block took
+	 */
+	protected void flushed(long nanos)
+	{
+		flushLatency.record(nanos);
+	}
+	
+	/**
+	 * Counts a purge of the pending shifts from removals
+	 * 
+	 * @param nanos How long the purge took
+	 */
+	protected void purged(long nanos)
+	{
+		purges.incrementAndGet();
+		purgeNanos.addAndGet(nanos);
+	}
+	
+	/**
+	 * Returns a snapshot of the counts
+	 * 
+	 * @param bytesRead The bytes of block and object files read by the list
+	 * @param bytesWritten The bytes of block and object files written by the list
+	 * @param residentBlocks The number of blocks in cache
+	 * @param cacheLimit The most blocks the list holds in cache
+	 * @return Returns the snapshot
+	 */
+	protected ListStatistics getStatistics(long bytesRead, long bytesWritten, int residentBlocks, int cacheLimit)
+	{
+		return new ListStatistics(hits.get(), misses.get(), dirtyEvictions.get(), cleanEvictions.get(), bytesRead, bytesWritten,
+				loadLatency.getSnapshot(), flushLatency.getSnapshot(), purges.get(), purgeNanos.get(), residentBlocks, cacheLimit);
+	}
+	
+	/**
+	 * The live counts behind a {@link LatencyHistogram}
+	 */
+	private static class Histogram
+	{
+		/**
+		 * The number of latencies in each bucket
+		 */
+		private final AtomicLongArray bucketCounts;
+		
+		/**
+		 * The sum of the latencies in nanoseconds
+		 */
+		private final AtomicLong totalNanos;
+		
+		/**
+		 * The largest latency in nanoseconds
+		 */
+		private final AtomicLong maxNanos;
+		
+		private Histogram()
+		{
+			bucketCounts = new AtomicLongArray(LatencyHistogram.BUCKETS);
+			totalNanos = new AtomicLong();
+			maxNanos = new AtomicLong();
+		}
+		
+		/**
+		 * Counts a latency
+		 * 
+		 * @param nanos The latency in nanoseconds
+		 */
+		private void record(long nanos)
+		{
+			bucketCounts.incrementAndGet(LatencyHistogram.getBucket(nanos));
+			totalNanos.addAndGet(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+		}
+		
+		/**
+		 * @return Returns a snapshot of the counts, which may be read while latencies are counted
+		 */
+		private LatencyHistogram getSnapshot()
+		{
+			long[] counts = new long[LatencyHistogram.BUCKETS];
+			
+			for(int i=0; i<counts.length; i++)
+			{
+				counts[i] = bucketCounts.get(i);
+			}
+			
+			return new LatencyHistogram(counts, totalNanos.get(), maxNanos.get());
+		}
+	}
+}
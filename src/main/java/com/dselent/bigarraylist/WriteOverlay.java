@@ -0,0 +1,187 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that buffers the elements set in blocks on disk for the CacheMapping class, see {@link BigArrayList#blindSet(long, java.io.Serializable)}.
+ * Setting an element of a block that is not in cache would otherwise read the whole block, and swap out another block, to change one element.
+ * Instead the new elements of each block are kept here until the block is brought into cache, or until the overlay holds too many elements,
+ * and a read of an element in the overlay is answered without reading its block.
+ * <p>
+ * Elements are kept by their position in the block on disk, so the overlay only ever holds elements of blocks that are not in cache.
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <E> Generic type
+ */
+class WriteOverlay<E>
+{
+	/**
+	 * The most elements held before blocks are written
+	 */
+	private final int maxElements;
+	
+	/**
+	 * The elements set in each block, key is the block/file number, then the position in the block
+	 */
+	private final Map<Integer, Map<Integer, E>> blocks;
+	
+	/**
+	 * The number of elements held
+	 */
+	private int size;
+	
+	/**
+	 * Constructs an empty WriteOverlay
+	 * 
+	 * @param maxElements The most elements held before blocks are written
+	 */
+	protected WriteOverlay(int maxElements)
+	{
+		this.maxElements = maxElements;
+		blocks = new HashMap<>();
+		size = 0;
+	}
+	
+	////////////////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * @return Returns the most elements held before blocks are written
+	 */
+	protected int getMaxElements()
+	{
+		return maxElements;
+	}
+	
+	/**
+	 * @return Returns the number of elements held
+	 */
+	protected int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * @return Returns if the overlay holds more elements than it should, and blocks must be written
+	 */
+	protected boolean isOverBudget()
+	{
+		return size > maxElements;
+	}
+	
+	/**
+	 * Holds a new element for a block on disk, replacing any element held for the same position
+	 * 
+	 * @param fileNumber The block/file number
+	 * @param spotInBlock The position of the element in the block
+	 * @param element The new element
+	 */
+	protected void put(int fileNumber, int spotInBlock, E element)
+	{
+		Map<Integer, E> block = blocks.get(fileNumber);
+		
+		if(block == null)
+		{
+			block = new HashMap<>();
+			blocks.put(fileNumber, block);
+		}
+		
+		if(!block.containsKey(spotInBlock))
+		{
+			size++;
+		}
+		
+		block.put(spotInBlock, element);
+	}
+	
+	/**
+	 * Returns if a new element is held for a position of a block on disk
+	 * 
+	 * @param fileNumber The block/file number
+	 * @param spotInBlock The position of the element in the block
+	 * @return Returns true if an element is held, which may be null
+	 */
+	protected boolean contains(int fileNumber, int spotInBlock)
+	{
+		Map<Integer, E> block = blocks.get(fileNumber);
+		return block != null && block.containsKey(spotInBlock);
+	}
+	
+	/**
+	 * @param fileNumber The block/file number
+	 * @param spotInBlock The position of the element in the block
+	 * @return Returns the new element held for the position, see {@link #contains(int, int)}
+	 */
+	protected E get(int fileNumber, int spotInBlock)
+	{
+		return blocks.get(fileNumber).get(spotInBlock);
+	}
+	
+	/**
+	 * Removes the new elements of a block, so they can be applied to it
+	 * 
+	 * @param fileNumber The block/file number
+	 * @return Returns the new elements by position in the block, or null if there are none
+	 */
+	protected Map<Integer, E> remove(int fileNumber)
+	{
+		Map<Integer, E> block = blocks.remove(fileNumber);
+		
+		if(block != null)
+		{
+			size -= block.size();
+		}
+		
+		return block;
+	}
+	
+	/**
+	 * @return Returns the number of the block with the most new elements, which is the cheapest to write per element, or -1 if there are none
+	 */
+	protected int getLargestBlock()
+	{
+		int largestBlock = -1;
+		int largestSize = 0;
+		
+		for(Map.Entry<Integer, Map<Integer, E>> entry : blocks.entrySet())
+		{
+			if(entry.getValue().size() > largestSize)
+			{
+				largestBlock = entry.getKey();
+				largestSize = entry.getValue().size();
+			}
+		}
+		
+		return largestBlock;
+	}
+	
+	/**
+	 * @return Returns the numbers of the blocks with new elements
+	 */
+	protected List<Integer> getFileNumbers()
+	{
+		return new ArrayList<>(blocks.keySet());
+	}
+}
@@ -0,0 +1,167 @@
+
+/*
+ * BigArrayList
+ * Copyright (C) 2015  Douglas Selent
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.dselent.bigarraylist;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that manages the summaries (zone maps) of the blocks on disk for the BigArrayList class.
+ * A summary is computed whenever a block is written to disk and is kept in memory, about two elements per block.
+ * A block on disk without a summary is summarized the first time a range scan reads it.
+ * <p>
+ * Summaries depend on the comparator, which cannot be identified across runs, so only summaries kept under a name given by the caller
+ * are stored in the manifest of a persistent list, and are reused when the reopened list enables zone maps under the same name.
+ * <p>
+ * A block's summary only describes the block as it is on disk, blocks in cache must be checked directly.
+ * 
+ * @author Douglas Selent
+ * 
+ * @param <E> Generic type
+ */
+class ZoneMap<E extends Serializable>
+{
+	/**
+	 * How the elements are compared to find the minimum and maximum of each block
+	 */
+	private final Comparator<? super E> comparator;
+
+	/**
+	 * The name the caller gave the comparator, or null if the summaries are not stored
+	 */
+	private final String name;
+
+	/**
+	 * The summaries in memory, key is the block/file number
+	 */
+	private final Map<Integer, BlockSummary<E>> summaries;
+
+	/**
+	 * Constructs a ZoneMap using the given comparator, without any summaries
+	 * 
+	 * @param comparator How the elements are compared
+	 * @param name The name of the comparator, or null if the summaries are not stored
+	 */
+	protected ZoneMap(Comparator<? super E> comparator, String name)
+	{
+		this.comparator = comparator;
+		this.name = name;
+		summaries = new HashMap<>();
+	}
+
+	/**
+	 * Constructs a ZoneMap holding summaries that were stored, such as in the manifest of a reopened list
+	 * 
+	 * @param comparator How the elements are compared, or null until zone maps are enabled under the name
+	 * @param name The name of the comparator the summaries were computed with
+	 * @param summaries The summaries, key is the block/file number
+	 */
+	protected ZoneMap(Comparator<? super E> comparator, String name, Map<Integer, BlockSummary<E>> summaries)
+	{
+		this.comparator = comparator;
+		this.name = name;
+		this.summaries = new HashMap<>(summaries);
+	}
+
+	////////////////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return Returns the comparator used by the summaries
+	 */
+	protected Comparator<? super E> getComparator()
+	{
+		return comparator;
+	}
+
+	/**
+	 * @return Returns the name of the comparator, or null if the summaries are not stored
+	 */
+	protected String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Returns the summaries of the blocks of the list, to be stored
+	 * 
+	 * @param usedBlocks The number of blocks holding elements, summaries of blocks past them are left out
+	 * @return Returns a copy of the summaries, key is the block/file number
+	 */
+	protected HashMap<Integer, BlockSummary<E>> getSummaries(int usedBlocks)
+	{
+		HashMap<Integer, BlockSummary<E>> usedSummaries = new HashMap<>();
+
+		for(Map.Entry<Integer, BlockSummary<E>> entry : summaries.entrySet())
+		{
+			if(entry.getKey() < usedBlocks)
+			{
+				usedSummaries.put(entry.getKey(), entry.getValue());
+			}
+		}
+
+		return usedSummaries;
+	}
+
+	/**
+	 * Computes the summary of a block that was just written to disk
+	 * 
+	 * @param fileNumber The block/file number
+	 * @param block The elements of the block
+	 */
+	protected void update(int fileNumber, List<E> block)
+	{
+		summaries.put(fileNumber, new BlockSummary<>(block, comparator));
+	}
+
+	/**
+	 * Forgets the summary of a block that was written without being summarized
+	 * 
+	 * @param fileNumber The block/file number
+	 */
+	protected void remove(int fileNumber)
+	{
+		summaries.remove(fileNumber);
+	}
+
+	/**
+	 * Computes the summary of a block that was read from disk without a summary, such as one written before summaries were kept
+	 * 
+	 * @param fileNumber The block/file number
+	 * @param block The elements of the block, which must match the block on disk
+	 */
+	protected void summarize(int fileNumber, List<E> block)
+	{
+		summaries.put(fileNumber, new BlockSummary<>(block, comparator));
+	}
+	
+	/**
+	 * Returns the summary of a block on disk
+	 * 
+	 * @param fileNumber The block/file number
+	 * @return Returns the summary, or null if the block has not been summarized
+	 */
+	protected BlockSummary<E> getSummary(int fileNumber)
+	{
+		return summaries.get(fileNumber);
+	}
+}
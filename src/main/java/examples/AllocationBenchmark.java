@@ -0,0 +1,70 @@
+package examples;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import com.dselent.bigarraylist.BigArrayList;
+
+/**
+ * Measures the bytes allocated per block swap on a miss-heavy workload, where nearly every get brings a block into memory.
+ * Elements are small cached Integers, so almost everything allocated is overhead of the swap itself rather than elements.
+ */
+public class AllocationBenchmark
+{
+  private static final int BLOCK_SIZE = 10000;
+  private static final int CACHE_BLOCKS = 2;
+  private static final int BLOCKS = 50;
+  private static final int WARMUP_SWAPS = 500;
+  private static final int SWAPS = 2000;
+
+  public static void main(String[] args) throws Exception
+  {
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    BigArrayList<Integer> list = new BigArrayList<>(BLOCK_SIZE, CACHE_BLOCKS);
+
+    for(int i=0; i<BLOCK_SIZE * BLOCKS; i++)
+    {
+      //Integers from -128 to 127 are cached, so reading them back allocates no elements
+      list.add(i % 100);
+    }
+
+    Random random = new Random(0);
+
+    //every get reads a block and writes the block it replaces, half of the time a set makes that block dirty
+    for(int i=0; i<WARMUP_SWAPS; i++)
+    {
+      swap(list, random);
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+    long startNanos = System.nanoTime();
+
+    for(int i=0; i<SWAPS; i++)
+    {
+      swap(list, random);
+    }
+
+    long nanos = System.nanoTime() - startNanos;
+    long bytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+    System.out.println("bytes allocated per swap\tswaps/s");
+    System.out.println(bytes / SWAPS + "\t" + SWAPS * 1000000000L / nanos);
+
+    list.clearMemory();
+  }
+
+  /**
+   * Gets an element of a random block that is not in memory, and sets it half of the time
+   */
+  private static void swap(BigArrayList<Integer> list, Random random)
+  {
+    long index = (long)random.nextInt(BLOCKS) * BLOCK_SIZE + random.nextInt(BLOCK_SIZE);
+    Integer element = list.get(index);
+
+    if(random.nextBoolean())
+    {
+      list.set(index, element);
+    }
+  }
+}
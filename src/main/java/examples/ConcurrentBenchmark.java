@@ -0,0 +1,181 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+import com.dselent.bigarraylist.BigArrayList;
+import com.dselent.bigarraylist.ConcurrentAppender;
+import com.dselent.bigarraylist.ConcurrentBigArrayList;
+
+/**
+ * Measures get/set throughput and ingest rate with an increasing number of threads,
+ * for a ConcurrentBigArrayList and for a BigArrayList guarded by one global lock.
+ */
+public class ConcurrentBenchmark
+{
+  private static final int BLOCK_SIZE = 10000;
+  private static final int CACHE_BLOCKS = 16;
+  private static final long ELEMENTS = 1000000;
+  private static final long RUN_MILLIS = 3000;
+
+  //percentage of operations that are sets, the rest are gets
+  private static final int SET_PERCENT = 20;
+
+  public static void main(String[] args) throws Exception
+  {
+    ConcurrentBigArrayList<Long> concurrentList = new ConcurrentBigArrayList<>(BLOCK_SIZE, CACHE_BLOCKS);
+    BigArrayList<Long> lockedList = new BigArrayList<>(BLOCK_SIZE, CACHE_BLOCKS);
+
+    for(long i=0; i<ELEMENTS; i++)
+    {
+      concurrentList.add(i);
+      lockedList.add(i);
+    }
+
+    int maxThreads = Runtime.getRuntime().availableProcessors();
+
+    System.out.println("threads\tconcurrent ops/s\tglobal lock ops/s");
+
+    for(int threads=1; threads<=maxThreads; threads*=2)
+    {
+      long concurrentOps = run(threads, index -> concurrentList.get(index), (index, value) -> concurrentList.set(index, value));
+
+      long lockedOps = run(threads, index ->
+      {
+        synchronized(lockedList)
+        {
+          return lockedList.get(index);
+        }
+      }, (index, value) ->
+      {
+        synchronized(lockedList)
+        {
+          lockedList.set(index, value);
+        }
+      });
+
+      System.out.println(threads + "\t" + concurrentOps * 1000 / RUN_MILLIS + "\t" + lockedOps * 1000 / RUN_MILLIS);
+    }
+
+    concurrentList.clearMemory();
+    lockedList.clearMemory();
+
+    System.out.println();
+    System.out.println("producers\tappender adds/s\tglobal lock adds/s");
+
+    for(int threads=1; threads<=maxThreads; threads*=2)
+    {
+      ConcurrentBigArrayList<Long> ingestList = new ConcurrentBigArrayList<>(BLOCK_SIZE, CACHE_BLOCKS);
+      BigArrayList<Long> lockedIngestList = new BigArrayList<>(BLOCK_SIZE, CACHE_BLOCKS);
+      long perProducer = ELEMENTS / threads;
+
+      long appenderNanos = ingest(threads, producer ->
+      {
+        try(ConcurrentAppender<Long> appender = ingestList.appender())
+        {
+          for(long i=0; i<perProducer; i++)
+          {
+            appender.append(i);
+          }
+        }
+      });
+
+      long lockedNanos = ingest(threads, producer ->
+      {
+        for(long i=0; i<perProducer; i++)
+        {
+          synchronized(lockedIngestList)
+          {
+            lockedIngestList.add(i);
+          }
+        }
+      });
+
+      System.out.println(threads + "\t" + ELEMENTS * 1000000000L / appenderNanos + "\t" + ELEMENTS * 1000000000L / lockedNanos);
+
+      ingestList.clearMemory();
+      lockedIngestList.clearMemory();
+    }
+  }
+
+  /**
+   * Runs the producer on the given number of threads and returns the elapsed time in nanoseconds
+   */
+  private static long ingest(int threads, IntConsumer producer) throws InterruptedException
+  {
+    long startTime = System.nanoTime();
+    List<Thread> workers = new ArrayList<>();
+
+    for(int i=0; i<threads; i++)
+    {
+      int producerNumber = i;
+      Thread worker = new Thread(() -> producer.accept(producerNumber));
+      workers.add(worker);
+      worker.start();
+    }
+
+    for(Thread worker : workers)
+    {
+      worker.join();
+    }
+
+    return System.nanoTime() - startTime;
+  }
+
+  private interface Getter
+  {
+    Long get(long index);
+  }
+
+  private interface Setter
+  {
+    void set(long index, Long value);
+  }
+
+  /**
+   * Runs random gets and sets from the given number of threads for RUN_MILLIS and returns the number of operations done
+   */
+  private static long run(int threads, Getter getter, Setter setter) throws InterruptedException
+  {
+    LongAdder operations = new LongAdder();
+    long endTime = System.currentTimeMillis() + RUN_MILLIS;
+    List<Thread> workers = new ArrayList<>();
+
+    for(int i=0; i<threads; i++)
+    {
+      Thread worker = new Thread(() ->
+      {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while(System.currentTimeMillis() < endTime)
+        {
+          long index = random.nextLong(ELEMENTS);
+
+          if(random.nextInt(100) < SET_PERCENT)
+          {
+            setter.set(index, index);
+          }
+          else
+          {
+            getter.get(index);
+          }
+
+          operations.increment();
+        }
+      });
+
+      workers.add(worker);
+      worker.start();
+    }
+
+    for(Thread worker : workers)
+    {
+      worker.join();
+    }
+
+    return operations.sum();
+  }
+}
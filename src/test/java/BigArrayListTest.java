@@ -1,15 +1,57 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
 
 import com.dselent.bigarraylist.BigArrayList;
+import com.dselent.bigarraylist.BlockPlacement;
+import com.dselent.bigarraylist.CacheManager;
+import com.dselent.bigarraylist.CachePolicy;
+import com.dselent.bigarraylist.CacheSimulator;
+import com.dselent.bigarraylist.DurabilityMode;
+import com.dselent.bigarraylist.FixedWidthCodec;
+import com.dselent.bigarraylist.LayoutRecommendation;
+import com.dselent.bigarraylist.ListStatistics;
+import com.dselent.bigarraylist.SimulationResult;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class BigArrayListTest
@@ -219,4 +261,1813 @@ public class BigArrayListTest
 		}
 	}
 	
+	
+	/**
+	 * Tests sorting in place on lists with random parameters, including lists with pending removes.
+	 */
+	@Test
+	public void testSortInPlace() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/10-minActions) + minActions;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			BigArrayList<Integer> originalList = bigArrayList;
+			List<Integer> arrayList = new ArrayList<>();
+			
+			for(int j=0; j<elements; j++)
+			{
+				int number = random.nextInt(1000);
+				arrayList.add(number);
+				bigArrayList.add(number);
+			}
+			
+			for(int j=0; j<elements/10; j++)
+			{
+				int removeIndex = random.nextInt(arrayList.size());
+				arrayList.remove(removeIndex);
+				bigArrayList.remove(removeIndex);
+			}
+			
+			Collections.sort(arrayList);
+			bigArrayList.sortInPlace(Comparator.naturalOrder());
+			
+			assertSame(originalList, bigArrayList);
+			assertEquals(arrayList.size(), bigArrayList.size(), "(SORT IN PLACE) Sizes not equal: test run iteration = " + i);
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				int number1 = arrayList.get(j);
+				int number2 = bigArrayList.get(j);
+
+				String errorMessage = "(Elements not equal after sorting in place: test run iteration = " + i +
+						", ArrayList element = " + number1 + ", BigArrayList element = " + number2 + ", index = " + j;
+				assertEquals(number1, number2, errorMessage);
+			}
+			
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests radix sorting by natural order and by an extracted key, with negative, positive, and duplicate keys.
+	 */
+	@Test
+	public void testRadixSort() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/10-minActions) + minActions;
+			int bound = 1 << random.nextInt(31);
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			for(int j=0; j<elements; j++)
+			{
+				int number = random.nextInt(bound) - bound/2;
+				arrayList.add(number);
+				bigArrayList.add(number);
+			}
+			
+			if(i % 2 == 0)
+			{
+				arrayList.sort(Comparator.naturalOrder());
+				bigArrayList.radixSort();
+			}
+			else
+			{
+				arrayList.sort(Comparator.comparingLong(number -> -(long)number));
+				bigArrayList.radixSort(number -> -(long)number);
+			}
+			
+			assertEquals(arrayList.size(), bigArrayList.size(), "(RADIX SORT) Sizes not equal: test run iteration = " + i);
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				int number1 = arrayList.get(j);
+				int number2 = bigArrayList.get(j);
+
+				String errorMessage = "(Elements not equal after radix sorting: test run iteration = " + i +
+						", ArrayList element = " + number1 + ", BigArrayList element = " + number2 + ", index = " + j;
+				assertEquals(number1, number2, errorMessage);
+			}
+			
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests sorting by an extracted key and getting the sorted permutation by an extracted key.  Both are expected to be stable.
+	 */
+	@Test
+	public void testSortBy() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/10-minActions) + minActions;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			for(int j=0; j<elements; j++)
+			{
+				int number = random.nextInt();
+				arrayList.add(number);
+				bigArrayList.add(number);
+			}
+			
+			List<Long> indexList = new ArrayList<>();
+			
+			for(long j=0; j<arrayList.size(); j++)
+			{
+				indexList.add(j);
+			}
+			
+			indexList.sort(Comparator.comparing(index -> arrayList.get(index.intValue()) % 100));
+			BigArrayList<Long> bigIndexList = bigArrayList.sortedIndexBy(number -> number % 100);
+			
+			assertEquals(indexList.size(), bigIndexList.size(), "(SORTED INDEX) Sizes not equal: test run iteration = " + i);
+			
+			for(int j=0; j<indexList.size(); j++)
+			{
+				assertEquals(indexList.get(j), bigIndexList.get(j), "(SORTED INDEX) Indices not equal: test run iteration = " + i + ", index = " + j);
+			}
+			
+			bigIndexList.clearMemory();
+			
+			arrayList.sort(Comparator.comparing(number -> number % 100));
+			bigArrayList.sortBy(number -> number % 100);
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				int number1 = arrayList.get(j);
+				int number2 = bigArrayList.get(j);
+
+				String errorMessage = "(Elements not equal after sorting by key: test run iteration = " + i +
+						", ArrayList element = " + number1 + ", BigArrayList element = " + number2 + ", index = " + j;
+				assertEquals(number1, number2, errorMessage);
+			}
+			
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests a sorted permutation whose key comparator fails near the end of the merge, the index list must not leave any files behind
+	 */
+	@Test
+	public void testSortedIndexByFailure(@TempDir Path folder) throws IOException
+	{
+		bigArrayList = new BigArrayList<Integer>(10, 2, folder.toString());
+		
+		for(int j=0; j<100; j++)
+		{
+			bigArrayList.add(j);
+		}
+		
+		bigArrayList.flushMemory();
+		
+		//count the comparisons of a full sort, then fail a few comparisons before the end once most indices are written
+		int[] comparisons = {0};
+		bigArrayList.sortedIndexBy(number -> number % 10, (key1, key2) ->
+		{
+			comparisons[0]++;
+			return key1.compareTo(key2);
+		}).clearMemory();
+		
+		int failAt = comparisons[0] - 5;
+		comparisons[0] = 0;
+		
+		assertThrows(IllegalStateException.class, () -> bigArrayList.sortedIndexBy(number -> number % 10, (key1, key2) ->
+		{
+			comparisons[0]++;
+			
+			if(comparisons[0] == failAt)
+			{
+				throw new IllegalStateException("Comparison " + failAt + " failed");
+			}
+			
+			return key1.compareTo(key2);
+		}), "(SORTED INDEX) Failure not thrown");
+		
+		String listPrefix = bigArrayList.getMemoryInstance() + "_";
+		String[] otherFiles = new File(folder.toString()).list((dir, name) -> !name.startsWith(listPrefix));
+		assertEquals(0, otherFiles.length, "(SORTED INDEX) Index list files left behind: " + Arrays.toString(otherFiles));
+	}
+	
+	/**
+	 * Tests binary searching a list kept sorted by appending, after removing elements, and after sorting.
+	 */
+	@Test
+	public void testBinarySearch() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/10-minActions) + minActions;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			List<Integer> arrayList = new ArrayList<>();
+			int number = 0;
+			
+			for(int j=0; j<elements; j++)
+			{
+				number = number + random.nextInt(5) + 1;
+				arrayList.add(number);
+				bigArrayList.add(number);
+			}
+			
+			assertBinarySearch(arrayList, number, i);
+			
+			for(int j=0; j<elements/10; j++)
+			{
+				int removeIndex = random.nextInt(arrayList.size());
+				arrayList.remove(removeIndex);
+				bigArrayList.remove(removeIndex);
+			}
+			
+			assertBinarySearch(arrayList, number, i);
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				arrayList.set(j, -arrayList.get(j));
+				bigArrayList.set(j, -bigArrayList.get(j));
+			}
+			
+			Collections.sort(arrayList);
+			bigArrayList.sortInPlace(Comparator.naturalOrder());
+			
+			assertBinarySearch(arrayList, number, i);
+			
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	@Test
+	public void testZoneMaps() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/10-minActions) + minActions;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			//blocks written before zone maps are enabled are summarized by the first scan
+			for(int j=0; j<elements/2; j++)
+			{
+				Integer number = random.nextInt(10) == 0 ? null : j + random.nextInt(100);
+				arrayList.add(number);
+				bigArrayList.add(number);
+			}
+			
+			bigArrayList.enableZoneMaps(Comparator.naturalOrder());
+			
+			for(int j=elements/2; j<elements; j++)
+			{
+				Integer number = random.nextInt(10) == 0 ? null : j + random.nextInt(100);
+				arrayList.add(number);
+				bigArrayList.add(number);
+			}
+			
+			for(int j=0; j<elements/10; j++)
+			{
+				int setIndex = random.nextInt(arrayList.size());
+				Integer number = random.nextInt(elements);
+				arrayList.set(setIndex, number);
+				bigArrayList.set(setIndex, number);
+			}
+			
+			for(int j=0; j<5; j++)
+			{
+				Integer low = random.nextInt(5) == 0 ? null : random.nextInt(elements);
+				Integer high = random.nextInt(5) == 0 ? null : random.nextInt(elements);
+				
+				List<Long> expectedIndices = new ArrayList<>();
+				List<Long> actualIndices = new ArrayList<>();
+				List<Integer> expectedElements = new ArrayList<>();
+				List<Integer> actualElements = new ArrayList<>();
+				
+				for(int k=0; k<arrayList.size(); k++)
+				{
+					Integer number = arrayList.get(k);
+					
+					if(number != null && (low == null || number >= low) && (high == null || number <= high))
+					{
+						expectedIndices.add((long)k);
+						expectedElements.add(number);
+					}
+				}
+				
+				bigArrayList.forEachInRange(low, high, (element, index) ->
+				{
+					actualIndices.add(index);
+					actualElements.add(element);
+				});
+				
+				assertEquals(expectedElements, actualElements, "(ZONE MAP) Elements not equal: test run iteration = " + i + ", low = " + low + ", high = " + high);				
+				assertEquals(expectedIndices, actualIndices, "(ZONE MAP) Indices not equal: test run iteration = " + i + ", low = " + low + ", high = " + high);
+			}
+			
+			//summaries are never written as files of their own
+			bigArrayList.flushMemory();
+			String zonePrefix = bigArrayList.getMemoryInstance() + "_zone_";
+			String[] zoneFiles = new File(bigArrayList.getFilePath()).list((dir, name) -> name.startsWith(zonePrefix));
+			assertEquals(0, zoneFiles.length, "(ZONE MAP) Summaries written to disk: test run iteration = " + i);
+			
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests that the block summaries of a persistent list are stored with its manifest and reused by a reopened list
+	 * that enables zone maps under the same name, except for blocks written since
+	 */
+	@Test
+	public void testZoneMapsReopen(@TempDir Path folder) throws IOException
+	{
+		String folderPath = folder.toString();
+		int blockSize = 10;
+		int usedBlocks = 20;
+		
+		bigArrayList = new BigArrayList<Integer>(blockSize, 2, folderPath, true);
+		bigArrayList.enableZoneMaps(Comparator.naturalOrder(), "natural");
+		
+		for(int j=0; j<blockSize*usedBlocks; j++)
+		{
+			bigArrayList.add(j);
+		}
+		
+		bigArrayList.close();
+		
+		//a block written before zone maps are enabled loses its stored summary
+		bigArrayList = BigArrayList.open(folderPath);
+		bigArrayList.set(15, 2000);
+		bigArrayList.close();
+		
+		bigArrayList = BigArrayList.open(folderPath);
+		bigArrayList.enableZoneMaps(Comparator.naturalOrder(), "natural");
+		List<Long> indices = new ArrayList<>();
+		long misses = bigArrayList.getStatistics().getMisses();
+		bigArrayList.forEachInRange(55, 57, (element, index) -> indices.add(index));
+		
+		assertEquals(Arrays.asList(55L, 56L, 57L), indices, "(ZONE MAP) Indices not equal after reopening");
+		//only the block holding the range and the block without a summary are read
+		assertEquals(2, bigArrayList.getStatistics().getMisses() - misses, "(ZONE MAP) Stored summaries not reused");
+		
+		indices.clear();
+		bigArrayList.forEachInRange(2000, 2000, (element, index) -> indices.add(index));
+		assertEquals(Arrays.asList(15L), indices, "(ZONE MAP) Block written after the summaries were stored was skipped");
+		bigArrayList.close();
+		
+		//summaries under another name are not reused
+		bigArrayList = BigArrayList.open(folderPath);
+		bigArrayList.enableZoneMaps(Comparator.naturalOrder(), "other");
+		misses = bigArrayList.getStatistics().getMisses();
+		bigArrayList.forEachInRange(55, 57, (element, index) -> {});
+		
+		assertEquals(usedBlocks, bigArrayList.getStatistics().getMisses() - misses, "(ZONE MAP) Summaries reused under another name");
+	}
+	
+	@Test
+	public void testIndexOf() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/10-minActions) + minActions;
+			int maxValue = elements * 2;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			//half of the runs search without filters
+			if(i % 2 == 0)
+			{
+				bigArrayList.enableBloomFilters(0.01);
+			}
+			
+			for(int j=0; j<elements; j++)
+			{
+				Integer number = random.nextInt(100) == 0 ? null : random.nextInt(maxValue);
+				arrayList.add(number);
+				bigArrayList.add(number);
+			}
+			
+			assertIndexOf(arrayList, maxValue, i);
+			
+			for(int j=0; j<elements/10; j++)
+			{
+				int removeIndex = random.nextInt(arrayList.size());
+				arrayList.remove(removeIndex);
+				bigArrayList.remove(removeIndex);
+				
+				int setIndex = random.nextInt(arrayList.size());
+				Integer number = random.nextInt(maxValue);
+				arrayList.set(setIndex, number);
+				bigArrayList.set(setIndex, number);
+			}
+			
+			assertIndexOf(arrayList, maxValue, i);
+			
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Compares contains, indexOf, and lastIndexOf of the BigArrayList for random values and null to those of an ArrayList
+	 */
+	private void assertIndexOf(List<Integer> arrayList, int maxValue, int iteration)
+	{
+		List<Integer> values = new ArrayList<>();
+		values.add(null);
+		
+		for(int j=0; j<20; j++)
+		{
+			values.add(random.nextInt(maxValue + 10));
+		}
+		
+		for(Integer value : values)
+		{
+			assertEquals(arrayList.contains(value), bigArrayList.contains(value), "(CONTAINS) Results not equal: test run iteration = " + iteration + ", value = " + value);
+			assertEquals(arrayList.indexOf(value), bigArrayList.indexOf(value), "(INDEX OF) Indices not equal: test run iteration = " + iteration + ", value = " + value);
+			assertEquals(arrayList.lastIndexOf(value), bigArrayList.lastIndexOf(value), "(LAST INDEX OF) Indices not equal: test run iteration = " + iteration + ", value = " + value);
+		}
+	}
+	
+	@Test
+	public void testParallelScans() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/10-minActions) + minActions;
+			int maxValue = elements * 2;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			for(int j=0; j<elements; j++)
+			{
+				Integer number = random.nextInt(100) == 0 ? null : random.nextInt(maxValue);
+				arrayList.add(number);
+				bigArrayList.add(number);
+			}
+			
+			//leave changes in cache that are not on disk yet
+			for(int j=0; j<elements/10; j++)
+			{
+				int removeIndex = random.nextInt(arrayList.size());
+				arrayList.remove(removeIndex);
+				bigArrayList.remove(removeIndex);
+				
+				int setIndex = random.nextInt(arrayList.size());
+				Integer number = random.nextInt(maxValue);
+				arrayList.set(setIndex, number);
+				bigArrayList.set(setIndex, number);
+			}
+			
+			for(int j=0; j<10; j++)
+			{
+				int threshold = random.nextInt(maxValue + 10);
+				Predicate<Integer> predicate = number -> number != null && number >= threshold;
+				
+				long expectedIndex = -1;
+				
+				for(int k=0; k<arrayList.size() && expectedIndex < 0; k++)
+				{
+					if(predicate.test(arrayList.get(k)))
+					{
+						expectedIndex = k;
+					}
+				}
+				
+				long expectedCount = arrayList.stream().filter(predicate).count();
+				Integer expectedElement = arrayList.stream().filter(predicate).findFirst().orElse(null);
+				
+				assertEquals(expectedIndex, bigArrayList.parallelIndexOf(predicate), "(PARALLEL INDEX OF) Indices not equal: test run iteration = " + i + ", threshold = " + threshold);
+				assertEquals(expectedElement, bigArrayList.parallelFindFirst(predicate), "(PARALLEL FIND FIRST) Elements not equal: test run iteration = " + i + ", threshold = " + threshold);
+				assertEquals(expectedCount, bigArrayList.parallelCount(predicate), "(PARALLEL COUNT) Counts not equal: test run iteration = " + i + ", threshold = " + threshold);
+				assertEquals(expectedCount > 0, bigArrayList.parallelAnyMatch(predicate), "(PARALLEL ANY MATCH) Results not equal: test run iteration = " + i + ", threshold = " + threshold);
+			}
+			
+			assertEquals(arrayList.size() - arrayList.stream().filter(number -> number != null).count(), bigArrayList.parallelCount(number -> number == null), "(PARALLEL COUNT) Null counts not equal: test run iteration = " + i);
+			
+			//a predicate scanning another list runs that scan on its own thread instead of waiting for the busy shared threads
+			BigArrayList<Integer> otherList = new BigArrayList<>(5, 2);
+			List<Integer> otherArrayList = new ArrayList<>();
+			
+			for(int j=0; j<20; j++)
+			{
+				Integer number = random.nextInt(maxValue);
+				otherArrayList.add(number);
+				otherList.add(number);
+			}
+			
+			otherList.flushMemory();
+			Predicate<Integer> nestedPredicate = number ->
+			{
+				try
+				{
+					return number != null && otherList.parallelAnyMatch(other -> other.equals(number));
+				}
+				catch(IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			};
+			
+			long expectedNestedCount = arrayList.stream().filter(number -> number != null && otherArrayList.contains(number)).count();
+			long nestedCount = assertTimeoutPreemptively(Duration.ofMinutes(1), () -> bigArrayList.parallelCount(nestedPredicate), "(PARALLEL COUNT) Nested scan did not finish: test run iteration = " + i);
+			assertEquals(expectedNestedCount, nestedCount, "(PARALLEL COUNT) Nested counts not equal: test run iteration = " + i);
+			
+			otherList.clearMemory();
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	@Test
+	public void testPersistence(@TempDir Path folder) throws IOException
+	{
+		String folderPath = folder.toString();
+		assertThrows(FileNotFoundException.class, () -> BigArrayList.open(folderPath));
+		
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/20-minActions) + minActions;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks, folderPath, true);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			for(int reopen=0; reopen<3; reopen++)
+			{
+				bigArrayList.setDurabilityMode(DurabilityMode.values()[reopen]);
+				
+				for(int j=0; j<elements; j++)
+				{
+					int number = random.nextInt();
+					arrayList.add(number);
+					bigArrayList.add(number);
+				}
+				
+				//leave pending shifts and dirty blocks for close to handle
+				for(int j=0; j<elements/10; j++)
+				{
+					int removeIndex = random.nextInt(arrayList.size());
+					arrayList.remove(removeIndex);
+					bigArrayList.remove(removeIndex);
+					
+					int setIndex = random.nextInt(arrayList.size());
+					int number = random.nextInt();
+					arrayList.set(setIndex, number);
+					bigArrayList.set(setIndex, number);
+				}
+				
+				bigArrayList.close();
+				bigArrayList = BigArrayList.open(folderPath);
+				
+				assertTrue(bigArrayList.isPersistent(), "(PERSISTENCE) Reopened list not persistent: test run iteration = " + i);
+				assertEquals(arrayList.size(), bigArrayList.size(), "(PERSISTENCE) Sizes not equal: test run iteration = " + i + ", reopen = " + reopen);
+				
+				for(int j=0; j<arrayList.size(); j++)
+				{
+					assertEquals(arrayList.get(j), bigArrayList.get(j), "(PERSISTENCE) Elements not equal: test run iteration = " + i + ", reopen = " + reopen + ", index = " + j);
+				}
+			}
+			
+			bigArrayList.clearMemory();
+			assertThrows(FileNotFoundException.class, () -> BigArrayList.open(folderPath));
+		}
+	}
+	
+	/**
+	 * Tests that a persistent list abandoned without being closed reopens in the state of its last flush,
+	 * and that damaged block files are reported instead of read
+	 */
+	@Test
+	public void testRecovery(@TempDir Path folder) throws IOException
+	{
+		String folderPath = folder.toString();
+		
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/20-minActions) + minActions;
+			
+			BigArrayList<Integer> crashedList = new BigArrayList<Integer>(blockSize, cacheBlocks, folderPath, true);
+			crashedList.setDurabilityMode(i % 2 == 0 ? DurabilityMode.NONE : DurabilityMode.SYNC_ON_FLUSH);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			for(int flush=0; flush<2; flush++)
+			{
+				for(int j=0; j<elements; j++)
+				{
+					int number = random.nextInt();
+					arrayList.add(number);
+					crashedList.add(number);
+				}
+				
+				crashedList.remove(random.nextInt(arrayList.size()));
+				arrayList.clear();
+				
+				for(long j=0; j<crashedList.size(); j++)
+				{
+					arrayList.add(crashedList.get(j));
+				}
+				
+				crashedList.flushMemory();
+			}
+			
+			//changes after the last flush, setting every element writes the blocks that no longer fit in cache
+			for(long j=0; j<crashedList.size(); j++)
+			{
+				crashedList.set(j, random.nextInt());
+			}
+			
+			for(int j=0; j<elements; j++)
+			{
+				crashedList.add(random.nextInt());
+				crashedList.remove(random.nextInt((int)crashedList.size()));
+			}
+			
+			bigArrayList = BigArrayList.open(folderPath, crashedList.getMemoryInstance());
+			assertEquals(arrayList.size(), bigArrayList.size(), "(RECOVERY) Sizes not equal: test run iteration = " + i);
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				assertEquals(arrayList.get(j), bigArrayList.get(j), "(RECOVERY) Elements not equal: test run iteration = " + i + ", index = " + j);
+			}
+			
+			bigArrayList.clearMemory();
+		}
+		
+		bigArrayList = new BigArrayList<Integer>(minBlockSize, minCacheBlocks, folderPath, true);
+		
+		for(int i=0; i<minBlockSize*3; i++)
+		{
+			bigArrayList.add(i);
+		}
+		
+		int memoryInstance = bigArrayList.getMemoryInstance();
+		bigArrayList.close();
+		
+		Path corruptedBlock = folder.resolve(memoryInstance + "_memory_1.jobj");
+		byte[] bytes = Files.readAllBytes(corruptedBlock);
+		bytes[bytes.length-1] ^= 1;
+		Files.write(corruptedBlock, bytes);
+		
+		bigArrayList = BigArrayList.open(folderPath, memoryInstance);
+		assertEquals(0, bigArrayList.get(0), "(RECOVERY) Undamaged block not readable");
+		assertThrows(UncheckedIOException.class, () -> bigArrayList.get(minBlockSize), "(RECOVERY) Damaged block was read");
+		
+		Path truncatedBlock = folder.resolve(memoryInstance + "_memory_2.jobj");
+		Files.write(truncatedBlock, Arrays.copyOf(Files.readAllBytes(truncatedBlock), 20));
+		assertThrows(IOException.class, () -> BigArrayList.open(folderPath, memoryInstance), "(RECOVERY) Truncated block not found");
+	}
+	
+	/**
+	 * Tests that a snapshot keeps the contents of the list when it was taken while both lists change independently
+	 */
+	@Test
+	public void testSnapshot() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/20-minActions) + minActions;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			for(int j=0; j<elements; j++)
+			{
+				int number = random.nextInt();
+				arrayList.add(number);
+				bigArrayList.add(number);
+			}
+			
+			//leave pending shifts and dirty blocks for the snapshot to handle
+			for(int j=0; j<elements/10; j++)
+			{
+				int removeIndex = random.nextInt(arrayList.size());
+				arrayList.remove(removeIndex);
+				bigArrayList.remove(removeIndex);
+			}
+			
+			BigArrayList<Integer> snapshot = bigArrayList.snapshot();
+			List<Integer> snapshotList = new ArrayList<>(arrayList);
+			
+			for(int j=0; j<elements; j++)
+			{
+				int setIndex = random.nextInt(arrayList.size());
+				int number = random.nextInt();
+				arrayList.set(setIndex, number);
+				bigArrayList.set(setIndex, number);
+				
+				arrayList.add(number);
+				bigArrayList.add(number);
+				
+				setIndex = random.nextInt(snapshotList.size());
+				number = random.nextInt();
+				snapshotList.set(setIndex, number);
+				snapshot.set(setIndex, number);
+			}
+			
+			assertEquals(snapshotList.size(), snapshot.size(), "(SNAPSHOT) Snapshot sizes not equal: test run iteration = " + i);
+			assertEquals(arrayList.size(), bigArrayList.size(), "(SNAPSHOT) Sizes not equal: test run iteration = " + i);
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				assertEquals(arrayList.get(j), bigArrayList.get(j), "(SNAPSHOT) Elements not equal: test run iteration = " + i + ", index = " + j);
+			}
+			
+			//the snapshot outlives the list it was taken from
+			bigArrayList.clearMemory();
+			
+			for(int j=0; j<snapshotList.size(); j++)
+			{
+				assertEquals(snapshotList.get(j), snapshot.get(j), "(SNAPSHOT) Snapshot elements not equal: test run iteration = " + i + ", index = " + j);
+			}
+			
+			snapshot.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests a persistent list striped across several folders, including reopening it from its first folder
+	 */
+	@Test
+	public void testStriping(@TempDir Path folder) throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/20-minActions) + minActions;
+			int folders = random.nextInt(3) + 2;
+			BlockPlacement placement = BlockPlacement.values()[i % BlockPlacement.values().length];
+			
+			List<String> folderPaths = new ArrayList<>();
+			
+			for(int j=0; j<folders; j++)
+			{
+				folderPaths.add(folder.resolve("run" + i + "_device" + j).toString());
+			}
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks, folderPaths, placement, true);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			for(int j=0; j<elements; j++)
+			{
+				int number = random.nextInt();
+				arrayList.add(number);
+				bigArrayList.add(number);
+			}
+			
+			for(int j=0; j<elements/10; j++)
+			{
+				int setIndex = random.nextInt(arrayList.size());
+				int number = random.nextInt();
+				arrayList.set(setIndex, number);
+				bigArrayList.set(setIndex, number);
+			}
+			
+			bigArrayList.close();
+			bigArrayList = BigArrayList.open(folderPaths.get(0));
+			
+			assertEquals(arrayList.size(), bigArrayList.size(), "(STRIPING) Sizes not equal: test run iteration = " + i);
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				assertEquals(arrayList.get(j), bigArrayList.get(j), "(STRIPING) Elements not equal: test run iteration = " + i + ", index = " + j);
+			}
+			
+			//every folder holds at least one block
+			if(placement == BlockPlacement.ROUND_ROBIN && arrayList.size() > blockSize * folders)
+			{
+				for(int j=0; j<folders; j++)
+				{
+					assertTrue(new File(folderPaths.get(j)).list().length > 0, "(STRIPING) No blocks in folder: test run iteration = " + i + ", folder = " + j);
+				}
+			}
+			
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests retrying flushes after appends to a block's log fail, and after another folder fails while an append succeeds,
+	 * the elements appended must be on disk once
+	 */
+	@Test
+	public void testAppendRetry(@TempDir Path folder) throws IOException
+	{
+		for(int i=0; i<2; i++)
+		{
+			List<String> folderPaths = new ArrayList<>();
+			
+			for(int j=0; j<=i; j++)
+			{
+				folderPaths.add(folder.resolve("run" + i + "_device" + j).toString());
+			}
+			
+			//with two folders, block 0 is in the first folder and block 1 in the second
+			bigArrayList = new BigArrayList<Integer>(10, 4, folderPaths, BlockPlacement.ROUND_ROBIN, false);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			for(int j=0; j<15; j++)
+			{
+				arrayList.add(j);
+				bigArrayList.add(j);
+			}
+			
+			bigArrayList.flushMemory();
+			
+			//block 1 only has elements appended, block 0 is rewritten whole
+			for(int j=15; j<18; j++)
+			{
+				arrayList.add(j);
+				bigArrayList.add(j);
+			}
+			
+			arrayList.set(0, -1);
+			bigArrayList.set(0, -1);
+			
+			//a non-empty directory cannot be written or replaced by a file
+			File blockedFile = null;
+			
+			if(i == 0)
+			{
+				File blockFile = findListFile(folderPaths.get(0), "_memory_1");
+				blockedFile = new File(blockFile.getParent(), blockFile.getName().replace("_memory_", "_log_"));
+			}
+			else
+			{
+				blockedFile = findListFile(folderPaths.get(0), "_memory_0");
+				blockedFile.delete();
+			}
+			
+			blockedFile.mkdir();
+			new File(blockedFile, "blocker").createNewFile();
+			
+			assertThrows(UncheckedIOException.class, () -> bigArrayList.flushMemory(), "(APPEND RETRY) Flush did not fail: folders = " + (i+1));
+			
+			new File(blockedFile, "blocker").delete();
+			blockedFile.delete();
+			bigArrayList.flushMemory();
+			
+			//a block holding an element twice is longer than the list says, so the next elements land in the wrong spots
+			for(int j=18; j<25; j++)
+			{
+				arrayList.add(j);
+				bigArrayList.add(j);
+			}
+			
+			bigArrayList.flushMemory();
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				assertEquals(arrayList.get(j), bigArrayList.get(j), "(APPEND RETRY) Elements not equal: folders = " + (i+1) + ", index = " + j);
+			}
+			
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests lists sharing a CacheManager, under both cache policies, stay correct and together stay within the budget
+	 */
+	@Test
+	public void testCacheManager() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int numberOfLists = random.nextInt(4) + 2;
+			int actions = random.nextInt(maxActions/10-minActions) + minActions;
+			CachePolicy policy = CachePolicy.values()[i % CachePolicy.values().length];
+			
+			//each list could hold more blocks on its own than all of them together are allowed
+			CacheManager cacheManager = new CacheManager(3L * blockSize, policy);
+			List<BigArrayList<Integer>> bigArrayLists = new ArrayList<>();
+			List<List<Integer>> arrayLists = new ArrayList<>();
+			
+			for(int j=0; j<numberOfLists; j++)
+			{
+				BigArrayList<Integer> list = new BigArrayList<>(blockSize, 8);
+				list.setCacheManager(cacheManager);
+				bigArrayLists.add(list);
+				arrayLists.add(new ArrayList<>());
+			}
+			
+			assertEquals(numberOfLists, cacheManager.getNumberOfLists(), "(CACHE MANAGER) Lists not registered: test run iteration = " + i);
+			
+			for(int j=0; j<actions; j++)
+			{
+				int listIndex = random.nextInt(numberOfLists);
+				BigArrayList<Integer> list = bigArrayLists.get(listIndex);
+				List<Integer> arrayList = arrayLists.get(listIndex);
+				int operation = random.nextInt(NUMBER_OF_OPERATIONS);
+				
+				if(arrayList.isEmpty() || operation == 0)
+				{
+					int number = random.nextInt();
+					arrayList.add(number);
+					list.add(number);
+				}
+				else if(operation == 1)
+				{
+					int index = random.nextInt(arrayList.size());
+					assertEquals(arrayList.get(index), list.get(index), "(CACHE MANAGER) Elements not equal: test run iteration = " + i + ", action = " + j);
+				}
+				else if(operation == 2)
+				{
+					int index = random.nextInt(arrayList.size());
+					int number = random.nextInt();
+					arrayList.set(index, number);
+					list.set(index, number);
+				}
+				else
+				{
+					int index = random.nextInt(arrayList.size());
+					assertEquals(arrayList.remove(index), list.remove(index), "(CACHE MANAGER) Removed elements not equal: test run iteration = " + i + ", action = " + j);
+				}
+				
+				assertTrue(cacheManager.getResidentElements() <= cacheManager.getMaxElements(), "(CACHE MANAGER) Budget exceeded: test run iteration = " + i + ", action = " + j);
+			}
+			
+			for(int j=0; j<numberOfLists; j++)
+			{
+				List<Integer> arrayList = arrayLists.get(j);
+				BigArrayList<Integer> list = bigArrayLists.get(j);
+				assertEquals(arrayList.size(), list.size(), "(CACHE MANAGER) Sizes not equal: test run iteration = " + i + ", list = " + j);
+				
+				for(int k=0; k<arrayList.size(); k++)
+				{
+					assertEquals(arrayList.get(k), list.get(k), "(CACHE MANAGER) Elements not equal: test run iteration = " + i + ", list = " + j + ", index = " + k);
+				}
+				
+				list.clearMemory();
+			}
+			
+			assertEquals(0, cacheManager.getNumberOfLists(), "(CACHE MANAGER) Lists not unregistered: test run iteration = " + i);
+		}
+	}
+	
+	/**
+	 * Tests shrinking and growing the cache limit while the list is used, and resizing the cache with the heap
+	 */
+	@Test
+	public void testCacheLimit() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int actions = random.nextInt(maxActions/10-minActions) + minActions;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			List<Integer> arrayList = new ArrayList<>();
+			List<int[]> resizes = new ArrayList<>();
+			bigArrayList.setCacheResizeListener((oldLimit, newLimit, residentBlocks) -> resizes.add(new int[]{oldLimit, newLimit}));
+			
+			if(i % 2 == 1)
+			{
+				bigArrayList.enableAdaptiveCache(minCacheBlocks);
+			}
+			
+			for(int j=0; j<actions; j++)
+			{
+				if(j % 1000 == 0)
+				{
+					int cacheLimit = random.nextInt(cacheBlocks - minCacheBlocks + 1) + minCacheBlocks;
+					bigArrayList.setCacheLimit(cacheLimit);
+					assertEquals(cacheLimit, bigArrayList.getCacheLimit(), "(CACHE LIMIT) Limit not set: test run iteration = " + i);
+				}
+				
+				if(arrayList.isEmpty() || random.nextBoolean())
+				{
+					int number = random.nextInt();
+					arrayList.add(number);
+					bigArrayList.add(number);
+				}
+				else
+				{
+					int index = random.nextInt(arrayList.size());
+					assertEquals(arrayList.get(index), bigArrayList.get(index), "(CACHE LIMIT) Elements not equal: test run iteration = " + i + ", action = " + j);
+				}
+				
+				//the limit applies from the next block brought into memory, the adaptive cache may also have changed it
+				int appliedLimit = resizes.isEmpty() ? cacheBlocks : resizes.get(resizes.size()-1)[1];
+				assertTrue(bigArrayList.getResidentBlocks() <= appliedLimit, "(CACHE LIMIT) Limit exceeded: test run iteration = " + i + ", action = " + j);
+			}
+			
+			for(int[] resize : resizes)
+			{
+				assertTrue(resize[1] >= minCacheBlocks && resize[1] <= cacheBlocks && resize[0] != resize[1], "(CACHE LIMIT) Bad resize: test run iteration = " + i);
+			}
+			
+			assertThrows(IllegalArgumentException.class, () -> bigArrayList.setCacheLimit(cacheBlocks + 1));
+			
+			bigArrayList.setCacheLimit(cacheBlocks);
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				assertEquals(arrayList.get(j), bigArrayList.get(j), "(CACHE LIMIT) Elements not equal: test run iteration = " + i + ", index = " + j);
+			}
+			
+			//a shrunk limit is applied by the next operation, even one finding its block in memory
+			bigArrayList.setCacheLimit(minCacheBlocks);
+			assertEquals(arrayList.get(arrayList.size()-1), bigArrayList.get(arrayList.size()-1), "(CACHE LIMIT) Last element not equal: test run iteration = " + i);
+			assertTrue(bigArrayList.getResidentBlocks() <= minCacheBlocks, "(CACHE LIMIT) Limit not applied on a hit: test run iteration = " + i);
+			
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests appending while reading other blocks, which writes the last block through its append log, including snapshots and reopening
+	 */
+	@Test
+	public void testAppendLog(@TempDir Path folder) throws IOException
+	{
+		String folderPath = folder.toString();
+		boolean logged = false;
+		
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int elements = random.nextInt(maxActions/10-minActions) + minActions;
+			
+			//two cache blocks, so reading an earlier block evicts the last block before it is full
+			bigArrayList = new BigArrayList<Integer>(blockSize, 2, folderPath, true);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			for(int j=0; j<elements; j++)
+			{
+				int number = random.nextInt();
+				arrayList.add(number);
+				bigArrayList.add(number);
+				
+				//appending keeps the last block most recently used, a second read evicts it
+				for(int k=0; k<2 && random.nextInt(10) == 0; k++)
+				{
+					int index = random.nextInt(arrayList.size());
+					assertEquals(arrayList.get(index), bigArrayList.get(index), "(APPEND LOG) Elements not equal: test run iteration = " + i + ", index = " + index);
+				}
+				
+				if(j % 100 == 0)
+				{
+					logged |= new File(folderPath).list((dir, name) -> name.contains("_log_")).length > 0;
+				}
+			}
+			
+			BigArrayList<Integer> snapshot = bigArrayList.snapshot();
+			
+			for(int j=0; j<elements/10; j++)
+			{
+				int number = random.nextInt();
+				arrayList.add(number);
+				bigArrayList.add(number);
+				bigArrayList.get(random.nextInt(arrayList.size()));
+			}
+			
+			for(int j=0; j<snapshot.size(); j++)
+			{
+				assertEquals(arrayList.get(j), snapshot.get(j), "(APPEND LOG) Snapshot elements not equal: test run iteration = " + i + ", index = " + j);
+			}
+			
+			snapshot.clearMemory();
+			bigArrayList.close();
+			
+			//the logs are merged before every commit
+			assertEquals(0, new File(folderPath).list((dir, name) -> name.contains("_log_")).length, "(APPEND LOG) Log left after close: test run iteration = " + i);
+			
+			bigArrayList = BigArrayList.open(folderPath);
+			assertEquals(arrayList.size(), bigArrayList.size(), "(APPEND LOG) Sizes not equal: test run iteration = " + i);
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				assertEquals(arrayList.get(j), bigArrayList.get(j), "(APPEND LOG) Elements not equal after reopening: test run iteration = " + i + ", index = " + j);
+			}
+			
+			bigArrayList.clearMemory();
+		}
+		
+		assertTrue(logged, "(APPEND LOG) No append log written");
+	}
+	
+	/**
+	 * Tests setting elements of a list with a codec, which overwrites only the changed elements of its block files, including snapshots and reopening
+	 */
+	@Test
+	public void testFixedWidthCodec(@TempDir Path folder) throws IOException
+	{
+		String folderPath = folder.toString();
+		boolean writtenInPlace = false;
+		
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int elements = random.nextInt(maxActions/10-minActions) + minActions;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, 2, folderPath, true);
+			bigArrayList.setFixedWidthCodec(FixedWidthCodec.INTEGER);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			for(int j=0; j<elements; j++)
+			{
+				int number = random.nextInt();
+				arrayList.add(number);
+				bigArrayList.add(number);
+			}
+			
+			bigArrayList.flushMemory();
+			Map<Integer, Object> fileKeys = new HashMap<>();
+			
+			for(int j=0; j*blockSize<elements; j++)
+			{
+				Path blockPath = folder.resolve(bigArrayList.getMemoryInstance() + "_memory_" + j + ".jobj");
+				assertEquals(12 + (long)Math.min(blockSize, elements - j * blockSize) * Integer.BYTES, Files.size(blockPath), "(CODEC) Block file length not equal: test run iteration = " + i + ", block = " + j);
+				fileKeys.put(j, Files.getAttribute(blockPath, "unix:ino"));
+			}
+			
+			//a few sets per block, reading other blocks evicts the changed blocks
+			List<Integer> setBlocks = new ArrayList<>();
+			
+			for(int j=0; j<elements/10; j++)
+			{
+				int index = random.nextInt(arrayList.size());
+				int number = random.nextInt();
+				arrayList.set(index, number);
+				bigArrayList.set(index, number);
+				bigArrayList.get(random.nextInt(arrayList.size()));
+				setBlocks.add(index / blockSize);
+			}
+			
+			bigArrayList.flushMemory();
+			
+			for(int j=0; j<setBlocks.size(); j++)
+			{
+				Path blockPath = folder.resolve(bigArrayList.getMemoryInstance() + "_memory_" + setBlocks.get(j) + ".jobj");
+				writtenInPlace |= fileKeys.get(setBlocks.get(j)).equals(Files.getAttribute(blockPath, "unix:ino"));
+			}
+			
+			BigArrayList<Integer> snapshot = bigArrayList.snapshot();
+			List<Integer> snapshotList = new ArrayList<>(arrayList);
+			
+			for(int j=0; j<elements/10; j++)
+			{
+				int index = random.nextInt(arrayList.size());
+				int number = random.nextInt();
+				arrayList.set(index, number);
+				bigArrayList.set(index, number);
+				bigArrayList.get(random.nextInt(arrayList.size()));
+			}
+			
+			for(int j=0; j<snapshot.size(); j++)
+			{
+				assertEquals(snapshotList.get(j), snapshot.get(j), "(CODEC) Snapshot elements not equal: test run iteration = " + i + ", index = " + j);
+			}
+			
+			snapshot.clearMemory();
+			bigArrayList.close();
+			
+			bigArrayList = BigArrayList.open(folderPath);
+			assertEquals(FixedWidthCodec.INTEGER.getClass(), bigArrayList.getFixedWidthCodec().getClass(), "(CODEC) Codec not kept: test run iteration = " + i);
+			assertEquals(arrayList.size(), bigArrayList.size(), "(CODEC) Sizes not equal: test run iteration = " + i);
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				assertEquals(arrayList.get(j), bigArrayList.get(j), "(CODEC) Elements not equal after reopening: test run iteration = " + i + ", index = " + j);
+			}
+			
+			bigArrayList.clearMemory();
+		}
+		
+		assertTrue(writtenInPlace, "(CODEC) No block written in place");
+	}
+	
+	/**
+	 * Tests setting a few elements of a serialized block, read after a codec was set, whose file length happens to fit the codec.
+	 * The block must be written whole with the codec instead of in place.
+	 */
+	@Test
+	public void testCodecOverSerializedBlock(@TempDir Path folder) throws IOException
+	{
+		int width = 0;
+		int blockSize = 7;
+		
+		//find a block size whose serialized block is as long as a block written with some codec width
+		while(width == 0)
+		{
+			blockSize++;
+			bigArrayList = new BigArrayList<Integer>(blockSize, 2, folder.toString());
+			
+			for(int j=0; j<blockSize; j++)
+			{
+				bigArrayList.add(j);
+			}
+			
+			bigArrayList.flushMemory();
+			long length = Files.size(folder.resolve(bigArrayList.getMemoryInstance() + "_memory_0.jobj"));
+			
+			if((length - 12) % blockSize == 0)
+			{
+				width = (int)((length - 12) / blockSize);
+			}
+			else
+			{
+				bigArrayList.clearMemory();
+			}
+		}
+		
+		bigArrayList.setFixedWidthCodec(new PaddedIntegerCodec(width));
+		bigArrayList.set(1, -1);
+		bigArrayList.flushMemory();
+		
+		//the block is now written with the codec, and the next set is written in place
+		bigArrayList.set(2, -2);
+		bigArrayList.flushMemory();
+		
+		assertEquals(12 + (long)blockSize * width, Files.size(folder.resolve(bigArrayList.getMemoryInstance() + "_memory_0.jobj")), "(CODEC) Block file length not equal: block size = " + blockSize);
+		
+		for(int j=0; j<blockSize; j++)
+		{
+			assertEquals(j == 1 || j == 2 ? -j : j, bigArrayList.get(j), "(CODEC) Elements not equal: block size = " + blockSize + ", index = " + j);
+		}
+	}
+	
+	/**
+	 * Tests reading a block file written before blocks were serialized element by element, holding the whole block as one list behind a "BAL1" header.
+	 * The block must be read through the cache and written back in the current format once changed.
+	 */
+	@Test
+	public void testLegacyBlockFile(@TempDir Path folder) throws IOException
+	{
+		int blockSize = 10;
+		bigArrayList = new BigArrayList<Integer>(blockSize, 2, folder.toString());
+		
+		for(int j=0; j<blockSize*3; j++)
+		{
+			bigArrayList.add(j);
+		}
+		
+		bigArrayList.flushMemory();
+		
+		//replace the second block with a legacy file holding different elements
+		ArrayList<Integer> legacyBlock = new ArrayList<>();
+		
+		for(int j=0; j<blockSize; j++)
+		{
+			legacyBlock.add(-j);
+		}
+		
+		ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		ObjectOutputStream objectOutputStream = new ObjectOutputStream(payload);
+		objectOutputStream.writeObject(legacyBlock);
+		objectOutputStream.close();
+		
+		CRC32C checksum = new CRC32C();
+		checksum.update(payload.toByteArray());
+		ByteBuffer legacyFile = ByteBuffer.allocate(12 + payload.size());
+		legacyFile.putInt(0x42414C31).putInt(payload.size()).putInt((int)checksum.getValue()).put(payload.toByteArray());
+		Path blockFile = folder.resolve(bigArrayList.getMemoryInstance() + "_memory_1.jobj");
+		Files.write(blockFile, legacyFile.array());
+		
+		for(int j=0; j<blockSize*3; j++)
+		{
+			assertEquals(j / blockSize == 1 ? -(j % blockSize) : j, bigArrayList.get(j), "(LEGACY) Elements not equal: index = " + j);
+		}
+		
+		bigArrayList.set(blockSize, 100);
+		bigArrayList.flushMemory();
+		
+		assertFalse(Arrays.equals(legacyFile.array(), Files.readAllBytes(blockFile)), "(LEGACY) Block file not rewritten");
+		assertEquals(0x42414C32, ByteBuffer.wrap(Files.readAllBytes(blockFile)).getInt(0), "(LEGACY) Block file not rewritten in the current format");
+		
+		for(int j=0; j<blockSize*3; j++)
+		{
+			assertEquals(j == blockSize ? 100 : j / blockSize == 1 ? -(j % blockSize) : j, bigArrayList.get(j), "(LEGACY) Elements not equal after rewriting: index = " + j);
+		}
+	}
+	
+	/**
+	 * Tests blind sets held in a write overlay mixed with the other operations, which must all see the elements held in the overlay
+	 */
+	@Test
+	public void testWriteOverlay() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int actions = random.nextInt(maxActions/10-minActions) + minActions;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			bigArrayList.enableWriteOverlay(random.nextInt(blockSize * 2) + 1);
+			bigArrayList.enableBloomFilters(0.01);
+			List<Integer> arrayList = new ArrayList<>();
+			
+			if(i % 2 == 1)
+			{
+				bigArrayList.setFixedWidthCodec(FixedWidthCodec.INTEGER);
+			}
+			
+			for(int j=0; j<actions; j++)
+			{
+				int action = random.nextInt(20);
+				
+				if(arrayList.isEmpty() || action < 6)
+				{
+					int number = random.nextInt();
+					arrayList.add(number);
+					bigArrayList.add(number);
+				}
+				else if(action < 12)
+				{
+					int index = random.nextInt(arrayList.size());
+					int number = random.nextInt();
+					arrayList.set(index, number);
+					bigArrayList.blindSet(index, number);
+				}
+				else if(action < 18)
+				{
+					int index = random.nextInt(arrayList.size());
+					assertEquals(arrayList.get(index), bigArrayList.get(index), "(WRITE OVERLAY) Elements not equal: test run iteration = " + i + ", action = " + j);
+				}
+				else if(action < 19)
+				{
+					int index = random.nextInt(arrayList.size());
+					assertEquals(arrayList.remove(index), bigArrayList.remove(index), "(WRITE OVERLAY) Removed elements not equal: test run iteration = " + i + ", action = " + j);
+				}
+				else
+				{
+					//a block holding the element may only have it in the overlay, its Bloom filter must not skip it
+					int number = random.nextInt();
+					int index = random.nextInt(arrayList.size());
+					arrayList.set(index, number);
+					bigArrayList.blindSet(index, number);
+					assertEquals(arrayList.indexOf(number), bigArrayList.indexOf(number), "(WRITE OVERLAY) Indices not equal: test run iteration = " + i + ", action = " + j);
+				}
+			}
+			
+			BigArrayList<Integer> snapshot = bigArrayList.snapshot();
+			bigArrayList.disableWriteOverlay();
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				assertEquals(arrayList.get(j), snapshot.get(j), "(WRITE OVERLAY) Snapshot elements not equal: test run iteration = " + i + ", index = " + j);
+				assertEquals(arrayList.get(j), bigArrayList.get(j), "(WRITE OVERLAY) Elements not equal after disabling: test run iteration = " + i + ", index = " + j);
+			}
+			
+			snapshot.clearMemory();
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests that the statistics match the operations done on the list, and that they can be read through the MBean
+	 */
+	@Test
+	public void testStatistics() throws IOException, JMException
+	{
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int actions = random.nextInt(maxActions/10-minActions) + minActions;
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			ObjectName name = bigArrayList.registerMBean();
+			int accesses = 0;
+			
+			for(int j=0; j<actions; j++)
+			{
+				bigArrayList.add(j);
+				bigArrayList.get(random.nextInt(j+1));
+				accesses += 2;
+			}
+			
+			for(int j=0; j<actions/100 && bigArrayList.size() > 1; j++)
+			{
+				bigArrayList.remove(random.nextInt((int)bigArrayList.size()));
+				accesses++;
+			}
+			
+			bigArrayList.flushMemory();
+			bigArrayList.contains(-1);
+			ListStatistics statistics = bigArrayList.getStatistics();
+			
+			//the scan by contains reads blocks without an element access, every other miss is an access
+			assertTrue(statistics.getHits() + statistics.getMisses() >= accesses, "(STATISTICS) Accesses missing: test run iteration = " + i + ", " + statistics);
+			assertEquals(statistics.getMisses(), statistics.getLoadLatency().getCount(), "(STATISTICS) Load latencies not equal to misses: test run iteration = " + i);
+			assertEquals(statistics.getEvictions(), statistics.getDirtyEvictions() + statistics.getCleanEvictions(), "(STATISTICS) Evictions not equal: test run iteration = " + i);
+			assertTrue(statistics.getResidentBlocks() <= cacheBlocks, "(STATISTICS) Too many resident blocks: test run iteration = " + i);
+			assertTrue(statistics.getBytesWritten() > 0 && statistics.getFlushLatency().getCount() > 0, "(STATISTICS) No writes: test run iteration = " + i + ", " + statistics);
+			assertTrue(statistics.getLoadLatency().getPercentileNanos(50) <= statistics.getLoadLatency().getPercentileNanos(99), "(STATISTICS) Percentiles out of order: test run iteration = " + i);
+			assertTrue(statistics.getLoadLatency().getPercentileNanos(99) <= statistics.getLoadLatency().getMaxNanos(), "(STATISTICS) Percentile above max: test run iteration = " + i);
+			
+			if(actions >= 100 && bigArrayList.size() > blockSize)
+			{
+				assertTrue(statistics.getPurges() > 0, "(STATISTICS) No purges: test run iteration = " + i + ", " + statistics);
+			}
+			
+			//counts only grow, so the MBean reads at least the snapshot taken before
+			assertTrue((Long)mBeanServer.getAttribute(name, "Hits") >= statistics.getHits(), "(STATISTICS) MBean hits not equal: test run iteration = " + i);
+			assertEquals(bigArrayList.size(), mBeanServer.getAttribute(name, "Size"), "(STATISTICS) MBean size not equal: test run iteration = " + i);
+			assertEquals(bigArrayList.getResidentBlocks(), mBeanServer.getAttribute(name, "ResidentBlocks"), "(STATISTICS) MBean resident blocks not equal: test run iteration = " + i);
+			
+			//attributes read together come from one snapshot, even while the list is used
+			AttributeList attributes = mBeanServer.getAttributes(name, new String[] {"Hits", "Misses", "HitRatio"});
+			bigArrayList.get(0);
+			long hits = (Long)((Attribute)attributes.get(0)).getValue();
+			long misses = (Long)((Attribute)attributes.get(1)).getValue();
+			assertEquals(hits + misses == 0 ? 0 : (double)hits / (hits + misses), ((Attribute)attributes.get(2)).getValue(), "(STATISTICS) MBean hit ratio not from the same snapshot: test run iteration = " + i);
+			
+			bigArrayList.clearMemory();
+			assertFalse(mBeanServer.isRegistered(name), "(STATISTICS) MBean left registered: test run iteration = " + i);
+		}
+	}
+	
+	/**
+	 * Tests that the flight recorder events are only recorded once enabled, and that each kind of event is recorded by the operation it times
+	 */
+	@Test
+	public void testFlightRecorderEvents(@TempDir Path folder) throws IOException
+	{
+		String[] eventNames = {"BlockLoad", "BlockEviction", "BlockFlush", "FileRead", "FileWrite", "Purge", "SortMergePass"};
+		
+		for(int i=0; i<2; i++)
+		{
+			boolean enabled = i == 1;
+			Recording recording = new Recording();
+			
+			for(int j=0; j<eventNames.length && enabled; j++)
+			{
+				recording.enable("com.dselent.bigarraylist." + eventNames[j]);
+			}
+			
+			recording.start();
+			
+			bigArrayList = new BigArrayList<Integer>(minBlockSize, minCacheBlocks);
+			int elements = minBlockSize * minCacheBlocks * 4;
+			
+			for(int j=0; j<elements; j++)
+			{
+				bigArrayList.add(random.nextInt(1000));
+			}
+			
+			for(int j=0; j<elements/10; j++)
+			{
+				bigArrayList.remove(random.nextInt((int)bigArrayList.size()));
+			}
+			
+			bigArrayList.sortInPlace(Comparator.naturalOrder());
+			bigArrayList.get(0);
+			
+			recording.stop();
+			Path recordingFile = folder.resolve("events" + i + ".jfr");
+			recording.dump(recordingFile);
+			recording.close();
+			
+			Map<String, Integer> eventCounts = new HashMap<>();
+			
+			for(RecordedEvent event : RecordingFile.readAllEvents(recordingFile))
+			{
+				String name = event.getEventType().getName();
+				
+				if(name.startsWith("com.dselent.bigarraylist."))
+				{
+					eventCounts.merge(name.substring(name.lastIndexOf('.')+1), 1, Integer::sum);
+					
+					//a block that was never written is loaded from nothing, and a clean block is evicted without writing
+					if(name.endsWith("FileRead") || name.endsWith("FileWrite"))
+					{
+						assertTrue(event.getLong("bytes") > 0, "(FLIGHT RECORDER) Event without bytes: " + event);
+					}
+				}
+			}
+			
+			for(int j=0; j<eventNames.length; j++)
+			{
+				assertEquals(enabled, eventCounts.getOrDefault(eventNames[j], 0) > 0, "(FLIGHT RECORDER) Events recorded = " + eventCounts + ", enabled = " + enabled);
+			}
+			
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests recording an access trace and replaying it with the cache simulator under other cache settings
+	 */
+	@Test
+	public void testAccessTrace(@TempDir Path folder) throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			int elements = random.nextInt(maxActions/10-minActions) + minActions;
+			String tracePath = folder.resolve("access" + i + ".trace").toString();
+			
+			bigArrayList = new BigArrayList<Integer>(blockSize, cacheBlocks);
+			bigArrayList.startAccessTrace(tracePath);
+			long accesses = 0;
+			
+			for(int j=0; j<elements; j++)
+			{
+				bigArrayList.add(j);
+				accesses++;
+			}
+			
+			for(int j=0; j<elements; j++)
+			{
+				bigArrayList.get(j);
+				accesses++;
+			}
+			
+			for(int j=0; j<elements/2; j++)
+			{
+				bigArrayList.set(random.nextInt(elements), j);
+				bigArrayList.get(random.nextInt(elements));
+				accesses += 2;
+			}
+			
+			bigArrayList.remove(random.nextInt(elements));
+			accesses++;
+			
+			assertEquals(accesses, bigArrayList.stopAccessTrace(), "(ACCESS TRACE) Accesses recorded not equal: test run iteration = " + i);
+			assertEquals(0, bigArrayList.stopAccessTrace(), "(ACCESS TRACE) Stopped trace still recording: test run iteration = " + i);
+			bigArrayList.get(0);
+			
+			CacheSimulator simulator = new CacheSimulator(tracePath);
+			assertEquals(blockSize, simulator.getRecordedBlockSize(), "(ACCESS TRACE) Block sizes not equal: test run iteration = " + i);
+			int blocks = (elements + blockSize - 1) / blockSize;
+			
+			//with room for every block, each block is read and written once
+			SimulationResult everyBlock = simulator.simulate(blockSize, blocks, CachePolicy.LRU);
+			assertEquals(accesses, everyBlock.getAccesses(), "(ACCESS TRACE) Accesses replayed not equal: test run iteration = " + i);
+			assertEquals(blocks, everyBlock.getMisses(), "(ACCESS TRACE) Misses not equal: test run iteration = " + i + ", " + everyBlock);
+			assertEquals(blocks, everyBlock.getBlockWrites(), "(ACCESS TRACE) Block writes not equal: test run iteration = " + i + ", " + everyBlock);
+			
+			//LRU never misses more with more memory
+			long lastMisses = Long.MAX_VALUE;
+			
+			for(int j=1; j<=blocks; j=j*2)
+			{
+				SimulationResult result = simulator.simulate(blockSize, j, CachePolicy.LRU);
+				assertTrue(result.getMisses() <= lastMisses, "(ACCESS TRACE) More misses with more memory: test run iteration = " + i + ", " + result);
+				assertEquals(result.getAccesses(), result.getHits() + result.getMisses(), "(ACCESS TRACE) Hits and misses not equal to accesses: test run iteration = " + i);
+				lastMisses = result.getMisses();
+				
+				SimulationResult greedyDual = simulator.simulate(blockSize, j, CachePolicy.GREEDY_DUAL);
+				assertEquals(accesses, greedyDual.getAccesses(), "(ACCESS TRACE) GreedyDual accesses not equal: test run iteration = " + i);
+			}
+			
+			//one element per block misses on every access to a different element
+			SimulationResult singleElements = simulator.simulate(1, 1, CachePolicy.LRU);
+			assertTrue(singleElements.getMisses() >= elements, "(ACCESS TRACE) Too few misses with single element blocks: test run iteration = " + i + ", " + singleElements);
+			
+			//a sequential run takes about two bytes per access
+			bigArrayList.startAccessTrace(tracePath);
+			
+			for(int j=0; j<bigArrayList.size(); j++)
+			{
+				bigArrayList.get(j);
+			}
+			
+			bigArrayList.stopAccessTrace();
+			long traceBytes = new File(tracePath).length();
+			assertTrue(traceBytes <= 16 + 3 * bigArrayList.size(), "(ACCESS TRACE) Trace not compact: test run iteration = " + i + ", bytes = " + traceBytes);
+			
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests the layout advisor's recommendation for random accesses, and re-blocking the list by hand and automatically
+	 */
+	@Test
+	public void testLayoutAdvisor() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int elements = 4000;
+			List<Integer> arrayList = new ArrayList<>();
+			
+			//large blocks are a poor fit for random accesses, every miss reads a large block for one element
+			bigArrayList = new BigArrayList<Integer>(1000, 2);
+			
+			for(int j=0; j<elements; j++)
+			{
+				bigArrayList.add(j);
+				arrayList.add(j);
+			}
+			
+			bigArrayList.enableLayoutAdvisor(500, false);
+			
+			for(int j=0; j<1000; j++)
+			{
+				bigArrayList.get(random.nextInt(elements));
+			}
+			
+			LayoutRecommendation recommendation = bigArrayList.getLayoutRecommendation();
+			assertTrue(recommendation.isChange(), "(LAYOUT ADVISOR) Layout not changed: test run iteration = " + i + ", " + recommendation);
+			assertTrue(recommendation.getBlockSize() < 1000, "(LAYOUT ADVISOR) Block size not smaller: test run iteration = " + i + ", " + recommendation);
+			assertTrue(recommendation.getNanosPerAccess() < recommendation.getCurrentNanosPerAccess(), "(LAYOUT ADVISOR) Recommended layout not faster: test run iteration = " + i + ", " + recommendation);
+			assertEquals(1000, bigArrayList.getBlockSize(), "(LAYOUT ADVISOR) Block size changed without re-blocking: test run iteration = " + i);
+			
+			//re-blocking by hand keeps the elements, including pending shifts from removals
+			for(int j=0; j<50; j++)
+			{
+				int index = random.nextInt(arrayList.size());
+				assertEquals(arrayList.remove(index), bigArrayList.remove(index), "(LAYOUT ADVISOR) Removed elements not equal: test run iteration = " + i);
+			}
+			
+			int blockSize = random.nextInt(maxBlockSize-minBlockSize) + minBlockSize;
+			int cacheBlocks = random.nextInt(maxCacheBlocks- minCacheBlocks) + minCacheBlocks;
+			bigArrayList.reblock(blockSize, cacheBlocks);
+			
+			assertEquals(blockSize, bigArrayList.getBlockSize(), "(LAYOUT ADVISOR) Block size not equal: test run iteration = " + i);
+			assertEquals(cacheBlocks, bigArrayList.getNumberOfBlocks(), "(LAYOUT ADVISOR) Cache blocks not equal: test run iteration = " + i);
+			assertEquals(arrayList.size(), bigArrayList.size(), "(LAYOUT ADVISOR) Sizes not equal after re-blocking: test run iteration = " + i);
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				assertEquals(arrayList.get(j), bigArrayList.get(j), "(LAYOUT ADVISOR) Elements not equal after re-blocking: test run iteration = " + i + ", index = " + j);
+			}
+			
+			bigArrayList.reblock(1000, 2);
+			
+			//with auto re-blocking the list changes its own layout while it is used
+			bigArrayList.enableLayoutAdvisor(500, true);
+			
+			for(int j=0; j<1500; j++)
+			{
+				int index = random.nextInt(arrayList.size());
+				
+				if(j % 10 == 0)
+				{
+					bigArrayList.set(index, -j);
+					arrayList.set(index, -j);
+				}
+				else
+				{
+					assertEquals(arrayList.get(index), bigArrayList.get(index), "(LAYOUT ADVISOR) Elements not equal while re-blocking: test run iteration = " + i);
+				}
+			}
+			
+			assertTrue(bigArrayList.getBlockSize() < 1000, "(LAYOUT ADVISOR) List not re-blocked: test run iteration = " + i + ", block size = " + bigArrayList.getBlockSize());
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				assertEquals(arrayList.get(j), bigArrayList.get(j), "(LAYOUT ADVISOR) Elements not equal after auto re-blocking: test run iteration = " + i + ", index = " + j);
+			}
+			
+			bigArrayList.disableLayoutAdvisor();
+			bigArrayList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests a re-blocking that fails partway through, the list must keep its old layout and elements, and re-blocking must work once the cause is gone
+	 */
+	@Test
+	public void testReblockFailure(@TempDir Path folder) throws IOException
+	{
+		int elements = 100;
+		bigArrayList = new BigArrayList<Integer>(10, 2, folder.toString());
+		bigArrayList.enableZoneMaps(Comparator.naturalOrder());
+		bigArrayList.enableBloomFilters(0.01);
+		
+		for(int j=0; j<elements; j++)
+		{
+			bigArrayList.add(j);
+		}
+		
+		//a non-empty directory in place of a new block makes writing that block fail after the old blocks were moved away
+		Path blockedPath = folder.resolve(bigArrayList.getMemoryInstance() + "_memory_15.jobj");
+		Files.createDirectory(blockedPath);
+		Files.createFile(blockedPath.resolve("blocker"));
+		
+		assertThrows(IOException.class, () -> bigArrayList.reblock(5, 4), "(REBLOCK) Failure not thrown");
+		assertEquals(10, bigArrayList.getBlockSize(), "(REBLOCK) Block size not restored");
+		assertEquals(2, bigArrayList.getNumberOfBlocks(), "(REBLOCK) Cache blocks not restored");
+		assertEquals(elements, bigArrayList.size(), "(REBLOCK) Size not equal after failure");
+		
+		for(int j=0; j<elements; j++)
+		{
+			assertEquals(j, bigArrayList.get(j), "(REBLOCK) Elements not equal after failure: index = " + j);
+			assertEquals(j, bigArrayList.binarySearch(j, Comparator.naturalOrder()), "(REBLOCK) Binary search not equal after failure: index = " + j);
+		}
+		
+		List<Integer> inRange = new ArrayList<>();
+		bigArrayList.forEachInRange(42, 57, (element, index) -> inRange.add(element));
+		assertEquals(16, inRange.size(), "(REBLOCK) Range not equal after failure");
+		assertTrue(bigArrayList.contains(99), "(REBLOCK) Element not found after failure");
+		
+		Files.delete(blockedPath.resolve("blocker"));
+		Files.delete(blockedPath);
+		bigArrayList.reblock(5, 4);
+		
+		assertEquals(5, bigArrayList.getBlockSize(), "(REBLOCK) Block size not equal");
+		
+		for(int j=0; j<elements; j++)
+		{
+			assertEquals(j, bigArrayList.get(j), "(REBLOCK) Elements not equal: index = " + j);
+		}
+		
+		String scratchPrefix = bigArrayList.getMemoryInstance() + "_scratch0_";
+		assertEquals(0, new File(folder.toString()).list((dir, name) -> name.startsWith(scratchPrefix)).length, "(REBLOCK) Old blocks left behind");
+	}
+	
+	/**
+	 * Encodes an Integer in the given number of bytes, the bytes after the first four are zero
+	 */
+	private static class PaddedIntegerCodec implements FixedWidthCodec<Integer>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final int width;
+		
+		private PaddedIntegerCodec(int width)
+		{
+			this.width = width;
+		}
+		
+		@Override
+		public int getWidth()
+		{
+			return width;
+		}
+		
+		@Override
+		public void encode(Integer element, ByteBuffer buffer)
+		{
+			buffer.putInt(element);
+			buffer.put(new byte[width - Integer.BYTES]);
+		}
+		
+		@Override
+		public Integer decode(ByteBuffer buffer)
+		{
+			int element = buffer.getInt();
+			buffer.position(buffer.position() + width - Integer.BYTES);
+			return element;
+		}
+	}
+	
+	/**
+	 * Returns the file of the list in a folder whose name contains the given text
+	 */
+	private File findListFile(String folderPath, String text)
+	{
+		File found = null;
+		File[] files = new File(folderPath).listFiles();
+		
+		for(int i=0; i<files.length; i++)
+		{
+			if(files[i].getName().contains(text))
+			{
+				found = files[i];
+			}
+		}
+		
+		assertNotNull(found, "File not found: " + text);
+		return found;
+	}
+	
+	/**
+	 * Compares binary searches of the BigArrayList for every key in a range to the same searches of a sorted ArrayList without duplicates
+	 */
+	private void assertBinarySearch(List<Integer> arrayList, int maxKey, int iteration)
+	{
+		for(int key=-maxKey-1; key<=maxKey+1; key++)
+		{
+			long index1 = Collections.binarySearch(arrayList, key);
+			long index2 = bigArrayList.binarySearch(key, Comparator.naturalOrder());
+			
+			assertEquals(index1, index2, "(BINARY SEARCH) Indices not equal: test run iteration = " + iteration + ", key = " + key);
+		}
+	}
 }
\ No newline at end of file
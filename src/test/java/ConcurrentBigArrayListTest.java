@@ -0,0 +1,443 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.dselent.bigarraylist.ConcurrentAppender;
+import com.dselent.bigarraylist.ConcurrentBigArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress tests for ConcurrentBigArrayList.  Several threads get, set, and add elements at once with a small cache
+ * so blocks are swapped in and out constantly, then the contents are checked against what each thread wrote.
+ */
+public class ConcurrentBigArrayListTest
+{
+	private static int testRuns;
+	private static int threads;
+	private static int elements;
+	private static int operationsPerThread;
+	
+	private static Random random;
+	private ConcurrentBigArrayList<Long> concurrentList;
+
+	@BeforeAll
+	static void setUp() throws Exception
+	{
+		//modify number of test runs as desired
+		testRuns = 3;
+		threads = 8;
+		elements = 5000;
+		operationsPerThread = 2000;
+		
+		random = new Random(0);
+	}
+
+	@AfterEach
+	protected void tearDown() throws Exception
+	{
+		if(concurrentList != null)
+		{
+			concurrentList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Tests random single threaded operations against an ArrayList
+	 */
+	@Test
+	public void testSequential() throws IOException
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(100) + 5;
+			int cacheBlocks = random.nextInt(5) + 2;
+			
+			concurrentList = new ConcurrentBigArrayList<>(blockSize, cacheBlocks);
+			List<Long> arrayList = new ArrayList<>();
+			
+			for(int j=0; j<elements; j++)
+			{
+				int action = random.nextInt(4);
+				
+				if(action == 0 || arrayList.isEmpty())
+				{
+					long number = random.nextLong();
+					arrayList.add(number);
+					concurrentList.add(number);
+				}
+				else if(action == 1)
+				{
+					int index = random.nextInt(arrayList.size());
+					assertEquals(arrayList.get(index), concurrentList.get(index), "(GET) Elements not equal: test run iteration = " + i + ", index = " + index);
+				}
+				else if(action == 2)
+				{
+					int index = random.nextInt(arrayList.size());
+					long number = random.nextLong();
+					assertEquals(arrayList.set(index, number), concurrentList.set(index, number), "(SET) Elements not equal: test run iteration = " + i + ", index = " + index);
+				}
+				else
+				{
+					int index = random.nextInt(arrayList.size());
+					assertEquals(arrayList.remove(index), concurrentList.remove(index), "(REMOVE) Elements not equal: test run iteration = " + i + ", index = " + index);
+				}
+			}
+			
+			assertEquals(arrayList.size(), concurrentList.size(), "Sizes not equal: test run iteration = " + i);
+			concurrentList.flushMemory();
+			
+			for(int j=0; j<arrayList.size(); j++)
+			{
+				assertEquals(arrayList.get(j), concurrentList.get(j), "(FINAL) Elements not equal: test run iteration = " + i + ", index = " + j);
+			}
+			
+			concurrentList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Each thread owns the indices equal to its number mod the number of threads and repeatedly sets and checks them,
+	 * while also reading random indices owned by other threads.  Every element encodes its index, so any read
+	 * of a torn or misplaced block is detected.
+	 * The last run keeps dozens of small blocks in cache, so blocks are chosen for eviction while other threads touch them.
+	 */
+	@Test
+	public void testConcurrentGetSet() throws Exception
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(100) + 5;
+			int cacheBlocks = random.nextInt(5) + 2;
+			
+			if(i == testRuns - 1)
+			{
+				blockSize = random.nextInt(20) + 5;
+				cacheBlocks = random.nextInt(32) + 32;
+			}
+			
+			concurrentList = new ConcurrentBigArrayList<>(blockSize, cacheBlocks);
+			
+			for(int j=0; j<elements; j++)
+			{
+				concurrentList.add(encode(j, 0));
+			}
+			
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			List<Future<?>> futures = new ArrayList<>();
+			
+			for(int t=0; t<threads; t++)
+			{
+				int thread = t;
+				
+				futures.add(executor.submit(() ->
+				{
+					ThreadLocalRandom threadRandom = ThreadLocalRandom.current();
+					long[] versions = new long[elements];
+					
+					for(int j=0; j<operationsPerThread; j++)
+					{
+						int index = threadRandom.nextInt(elements / threads) * threads + thread;
+						
+						if(threadRandom.nextBoolean())
+						{
+							versions[index]++;
+							concurrentList.set(index, encode(index, versions[index]));
+						}
+						else
+						{
+							assertEquals(encode(index, versions[index]), concurrentList.get(index), "(OWN GET) Elements not equal: index = " + index);
+						}
+						
+						int otherIndex = threadRandom.nextInt(elements);
+						assertEquals(otherIndex, decodeIndex(concurrentList.get(otherIndex)), "(OTHER GET) Element in wrong place: index = " + otherIndex);
+					}
+					
+					//check everything this thread wrote after all its own writes
+					for(int index=thread; index<elements/threads*threads; index+=threads)
+					{
+						assertEquals(encode(index, versions[index]), concurrentList.get(index), "(FINAL GET) Elements not equal: index = " + index);
+					}
+					
+					return null;
+				}));
+			}
+			
+			awaitAll(executor, futures);
+			concurrentList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Several threads add elements at once while other threads read below the published size
+	 */
+	@Test
+	public void testConcurrentAdd() throws Exception
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(100) + 5;
+			int cacheBlocks = random.nextInt(5) + 2;
+			int adders = threads / 2;
+			
+			concurrentList = new ConcurrentBigArrayList<>(blockSize, cacheBlocks);
+			
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			List<Future<?>> futures = new ArrayList<>();
+			
+			for(int t=0; t<adders; t++)
+			{
+				int thread = t;
+				
+				futures.add(executor.submit(() ->
+				{
+					for(int j=0; j<elements/adders; j++)
+					{
+						concurrentList.add(encode(j, thread));
+					}
+					
+					return null;
+				}));
+			}
+			
+			for(int t=adders; t<threads; t++)
+			{
+				futures.add(executor.submit(() ->
+				{
+					ThreadLocalRandom threadRandom = ThreadLocalRandom.current();
+					
+					for(int j=0; j<operationsPerThread; j++)
+					{
+						long size = concurrentList.size();
+						
+						if(size > 0)
+						{
+							long index = threadRandom.nextLong(size);
+							assertNotNull(concurrentList.get(index), "(GET) Published element missing: index = " + index);
+						}
+					}
+					
+					return null;
+				}));
+			}
+			
+			awaitAll(executor, futures);
+			
+			List<Long> expected = new ArrayList<>();
+			List<Long> actual = new ArrayList<>();
+			
+			for(int t=0; t<adders; t++)
+			{
+				for(int j=0; j<elements/adders; j++)
+				{
+					expected.add(encode(j, t));
+				}
+			}
+			
+			for(long j=0; j<concurrentList.size(); j++)
+			{
+				actual.add(concurrentList.get(j));
+			}
+			
+			Collections.sort(expected);
+			Collections.sort(actual);
+			assertEquals(expected, actual, "Added elements not equal: test run iteration = " + i);
+			
+			concurrentList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Several producers append through their own appenders while another thread adds single elements,
+	 * then the contents are checked, along with the order and contiguity of each producer's chunks
+	 */
+	@Test
+	public void testConcurrentAppenders() throws Exception
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(100) + 5;
+			int cacheBlocks = random.nextInt(5) + 2;
+			int producers = threads - 1;
+			int[] chunkSizes = new int[producers];
+			
+			for(int t=0; t<producers; t++)
+			{
+				chunkSizes[t] = random.nextInt(blockSize * 2) + 1;
+			}
+			
+			concurrentList = new ConcurrentBigArrayList<>(blockSize, cacheBlocks);
+			
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			List<Future<?>> futures = new ArrayList<>();
+			
+			for(int t=0; t<producers; t++)
+			{
+				int thread = t;
+				
+				futures.add(executor.submit(() ->
+				{
+					try(ConcurrentAppender<Long> appender = concurrentList.appender(chunkSizes[thread]))
+					{
+						for(int j=0; j<elements; j++)
+						{
+							appender.append(encode(j, thread));
+						}
+					}
+					
+					return null;
+				}));
+			}
+			
+			futures.add(executor.submit(() ->
+			{
+				for(int j=0; j<elements; j++)
+				{
+					concurrentList.add(encode(j, producers));
+				}
+				
+				return null;
+			}));
+			
+			awaitAll(executor, futures);
+			
+			assertEquals((long)elements * threads, concurrentList.size(), "Sizes not equal: test run iteration = " + i);
+			
+			long[] nextExpected = new long[threads];
+			long index = 0;
+			
+			while(index < concurrentList.size())
+			{
+				long element = concurrentList.get(index);
+				int thread = (int)(element % 1000000L);
+				assertEquals(nextExpected[thread], decodeIndex(element), "Producer order not kept: test run iteration = " + i + ", index = " + index);
+				nextExpected[thread]++;
+				index++;
+				
+				//the rest of an appender's chunk must follow without elements from other producers
+				if(thread < producers && nextExpected[thread] % chunkSizes[thread] != 0)
+				{
+					long chunkEnd = Math.min(elements, (nextExpected[thread] / chunkSizes[thread] + 1) * chunkSizes[thread]);
+					
+					while(nextExpected[thread] < chunkEnd)
+					{
+						assertEquals(encode(nextExpected[thread], thread), concurrentList.get(index), "Chunk not contiguous: test run iteration = " + i + ", index = " + index);
+						nextExpected[thread]++;
+						index++;
+					}
+				}
+			}
+			
+			concurrentList.clearMemory();
+		}
+	}
+	
+	/**
+	 * Issues many asynchronous gets and sets at once, including several for the same blocks, and checks the results against an array
+	 */
+	@Test
+	public void testAsync() throws Exception
+	{
+		for(int i=0; i<testRuns; i++)
+		{
+			int blockSize = random.nextInt(100) + 5;
+			int cacheBlocks = random.nextInt(5) + 2;
+			
+			concurrentList = new ConcurrentBigArrayList<>(blockSize, cacheBlocks);
+			long[] expected = new long[elements];
+			
+			for(int j=0; j<elements; j++)
+			{
+				expected[j] = encode(j, 0);
+				concurrentList.add(expected[j]);
+			}
+			
+			for(int j=0; j<operationsPerThread/100; j++)
+			{
+				//sets go to distinct indices so the expected values do not depend on completion order
+				List<Integer> indices = new ArrayList<>();
+				List<CompletableFuture<Long>> sets = new ArrayList<>();
+				List<CompletableFuture<Long>> gets = new ArrayList<>();
+				
+				for(int k=0; k<threads; k++)
+				{
+					int index = random.nextInt(elements / threads) * threads + k;
+					indices.add(index);
+					sets.add(concurrentList.setAsync(index, encode(index, j + 1)));
+				}
+				
+				for(int k=0; k<threads; k++)
+				{
+					assertEquals(expected[indices.get(k)], sets.get(k).get(5, TimeUnit.MINUTES), "(SET ASYNC) Elements not equal: test run iteration = " + i + ", index = " + indices.get(k));
+					expected[indices.get(k)] = encode(indices.get(k), j + 1);
+				}
+				
+				for(int k=0; k<threads * 4; k++)
+				{
+					gets.add(concurrentList.getAsync(random.nextInt(elements)));
+				}
+				
+				for(int k=0; k<gets.size(); k++)
+				{
+					long element = gets.get(k).get(5, TimeUnit.MINUTES);
+					assertEquals(expected[(int)decodeIndex(element)], element, "(GET ASYNC) Elements not equal: test run iteration = " + i);
+				}
+			}
+			
+			for(int j=0; j<elements; j++)
+			{
+				assertEquals(expected[j], concurrentList.getAsync(j).get(5, TimeUnit.MINUTES), "(FINAL GET ASYNC) Elements not equal: test run iteration = " + i + ", index = " + j);
+			}
+			
+			ExecutionException exception = assertThrows(ExecutionException.class, () -> concurrentList.getAsync(elements).get());
+			assertTrue(exception.getCause() instanceof IndexOutOfBoundsException, "Out of bounds get did not fail with IndexOutOfBoundsException");
+			
+			concurrentList.clearMemory();
+		}
+	}
+	
+	private static long encode(long index, long version)
+	{
+		return index * 1000000L + version;
+	}
+	
+	private static long decodeIndex(long element)
+	{
+		return element / 1000000L;
+	}
+	
+	/**
+	 * Waits for every task and rethrows the first failure
+	 */
+	private static void awaitAll(ExecutorService executor, List<Future<?>> futures) throws Exception
+	{
+		executor.shutdown();
+		
+		try
+		{
+			for(Future<?> future : futures)
+			{
+				future.get(5, TimeUnit.MINUTES);
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+}
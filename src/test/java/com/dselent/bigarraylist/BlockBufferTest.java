@@ -0,0 +1,119 @@
+package com.dselent.bigarraylist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the pool of BlockBuffers shared by the FileAccessors.  The buffers are package-private, so these tests are in the same package.
+ */
+public class BlockBufferTest
+{
+	/**
+	 * Largest buffer kept in the pool, matching BlockBuffer
+	 */
+	private static final int MAX_POOLED_SIZE = 16777216;
+	
+	/**
+	 * Tests that a buffer given back to the pool is reused empty, and keeps the size it grew to
+	 */
+	@Test
+	public void testReuse()
+	{
+		BlockBuffer buffer = BlockBuffer.acquire();
+		buffer.reserve(1048576).put(0, (byte)1);
+		int capacity = buffer.getBuffer().length;
+		BlockBuffer.release(buffer);
+		
+		BlockBuffer reused = BlockBuffer.acquire();
+		
+		try
+		{
+			assertSame(buffer, reused, "(POOL) Released buffer not reused");
+			assertEquals(0, reused.size(), "(POOL) Reused buffer not reset");
+			assertEquals(capacity, reused.getBuffer().length, "(POOL) Reused buffer did not keep its size");
+			
+			ByteBuffer view = reused.reserve(8);
+			assertEquals(0, view.position(), "(POOL) Reused buffer not written from the start");
+			assertEquals(8, view.remaining(), "(POOL) Reserved view of the wrong length");
+			assertEquals(8, reused.size(), "(POOL) Reused buffer size not equal");
+		}
+		finally
+		{
+			BlockBuffer.release(reused);
+		}
+	}
+	
+	/**
+	 * Tests that a reused buffer holding a large file holds exactly a smaller file read next, not the end of the large one
+	 */
+	@Test
+	public void testReuseWithSmallerFile(@TempDir Path folder) throws IOException
+	{
+		byte[] largeContents = new byte[500000];
+		Arrays.fill(largeContents, (byte)7);
+		byte[] smallContents = new byte[1000];
+		Arrays.fill(smallContents, (byte)3);
+		
+		Path largeFile = folder.resolve("large");
+		Path smallFile = folder.resolve("small");
+		Files.write(largeFile, largeContents);
+		Files.write(smallFile, smallContents);
+		
+		BlockBuffer buffer = BlockBuffer.acquire();
+		buffer.readFrom(largeFile.toFile());
+		assertEquals(largeContents.length, buffer.size(), "(POOL) Large file size not equal");
+		BlockBuffer.release(buffer);
+		
+		BlockBuffer reused = BlockBuffer.acquire();
+		
+		try
+		{
+			reused.readFrom(smallFile.toFile());
+			assertEquals(smallContents.length, reused.size(), "(POOL) Small file size not equal");
+			assertTrue(reused.getBuffer().length >= largeContents.length, "(POOL) Reused buffer shrank");
+			assertArrayEquals(smallContents, Arrays.copyOf(reused.getBuffer(), reused.size()), "(POOL) Small file contents not equal");
+			assertEquals(0x03030303, reused.getInt(0), "(POOL) Small file int not equal");
+		}
+		finally
+		{
+			BlockBuffer.release(reused);
+		}
+	}
+	
+	/**
+	 * Tests that a buffer grown past the largest pooled size is left to the garbage collector instead of going back into the pool
+	 */
+	@Test
+	public void testOversizedBuffer()
+	{
+		BlockBuffer buffer = BlockBuffer.acquire();
+		buffer.reserve(MAX_POOLED_SIZE + 1);
+		assertTrue(buffer.getBuffer().length > MAX_POOLED_SIZE, "(POOL) Buffer did not grow");
+		BlockBuffer.release(buffer);
+		
+		BlockBuffer next = BlockBuffer.acquire();
+		
+		try
+		{
+			//the pool gives back the last buffer released first, so an oversized buffer kept in the pool would come back here
+			assertNotSame(buffer, next, "(POOL) Oversized buffer put back in the pool");
+			assertTrue(next.getBuffer().length <= MAX_POOLED_SIZE, "(POOL) Oversized buffer in the pool");
+		}
+		finally
+		{
+			BlockBuffer.release(next);
+		}
+	}
+}